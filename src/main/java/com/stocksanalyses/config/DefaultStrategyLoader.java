@@ -26,12 +26,12 @@ public class DefaultStrategyLoader implements ApplicationRunner {
                 "macdSignal", 9,
                 "atrPeriod", 14,
                 "atrMult", 2.0,
-                "targetVol", 0.15
-        ));
-        dsl.put("patterns", Map.of(
-                "bullish_engulfing", Map.of("weight", 1.0),
-                "doji", Map.of("weight", 0.5),
-                "morning_star", Map.of("weight", 1.0)
+                "targetVol", 0.15,
+                "patterns", Map.of(
+                        "bullish_engulfing", Map.of("weight", 1.0),
+                        "doji", Map.of("weight", 0.5),
+                        "morning_star", Map.of("weight", 1.0)
+                )
         ));
         StrategyDefinition def = new StrategyDefinition("default-ema-macd", "v1", dsl);
         registry.register(def);
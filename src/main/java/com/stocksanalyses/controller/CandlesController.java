@@ -2,7 +2,6 @@ package com.stocksanalyses.controller;
 
 import com.stocksanalyses.model.Candle;
 import com.stocksanalyses.model.AdjustType;
-import com.stocksanalyses.service.Adjuster;
 import com.stocksanalyses.service.CandleService;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,11 +16,9 @@ import java.util.List;
 @RequestMapping("/api/candles")
 public class CandlesController {
     private final CandleService candleService;
-    private final Adjuster adjuster;
 
-    public CandlesController(CandleService candleService, Adjuster adjuster) {
+    public CandlesController(CandleService candleService) {
         this.candleService = candleService;
-        this.adjuster = adjuster;
     }
 
     @GetMapping
@@ -1,5 +1,9 @@
 package com.stocksanalyses.controller;
 
+import com.stocksanalyses.service.IndicatorService;
+import com.stocksanalyses.service.SignalPrecomputeService;
+import com.stocksanalyses.service.backtest.BacktestResultCache;
+import com.stocksanalyses.service.marketdata.HotCandleCache;
 import com.stocksanalyses.service.storage.DataStorageService;
 import com.stocksanalyses.service.storage.DataMigrationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +30,14 @@ public class DataStorageController {
     private DataStorageService dataStorageService;
     @Autowired
     private DataMigrationService dataMigrationService;
+    @Autowired
+    private BacktestResultCache backtestResultCache;
+    @Autowired
+    private IndicatorService indicatorService;
+    @Autowired
+    private SignalPrecomputeService signalPrecompute;
+    @Autowired
+    private HotCandleCache candleCache;
     
     /**
      * 上传K线数据
@@ -55,6 +67,10 @@ public class DataStorageController {
             
             // 存储数据
             dataStorageService.storeCandleData(market, symbol, candles, useParquet);
+            backtestResultCache.invalidate(symbol);
+            indicatorService.invalidate(symbol);
+            candleCache.invalidate(symbol);
+            signalPrecompute.invalidate(symbol);
             
             response.put("success", true);
             response.put("message", String.format("Stored %d candles for %s.%s", candles.size(), market, symbol));
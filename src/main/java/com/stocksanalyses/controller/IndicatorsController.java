@@ -0,0 +1,50 @@
+package com.stocksanalyses.controller;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.IndicatorService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/indicators")
+public class IndicatorsController {
+    private final CandleService candleService;
+    private final IndicatorService indicatorService;
+
+    public IndicatorsController(CandleService candleService, IndicatorService indicatorService) {
+        this.candleService = candleService;
+        this.indicatorService = indicatorService;
+    }
+
+    /**
+     * Full indicator series aligned with the returned timestamps, e.g.
+     * {@code ?symbol=AAPL&indicators=ema:20,macd:12:26:9,bb:20:2,stoch:14:3}.
+     */
+    @GetMapping
+    public Map<String, Object> getIndicators(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "1d") String interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @RequestParam List<String> indicators
+    ) {
+        CandleSeries bars = candleService.getSeries(symbol, interval, start, end);
+        long[] ts = Arrays.copyOfRange(bars.timestampArray(), bars.offset(), bars.offset() + bars.size());
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("symbol", symbol);
+        out.put("interval", interval);
+        out.put("timestamps", ts);
+        out.put("series", indicatorService.series(bars, indicators));
+        return out;
+    }
+}
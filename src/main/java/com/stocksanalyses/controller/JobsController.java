@@ -0,0 +1,76 @@
+package com.stocksanalyses.controller;
+
+import com.stocksanalyses.model.BacktestJob;
+import com.stocksanalyses.model.BacktestRequest;
+import com.stocksanalyses.service.backtest.BacktestJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+
+/** Asynchronous backtests: submit returns immediately with a job id to poll, stream or cancel. */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobsController {
+    private final BacktestJobService jobs;
+
+    public JobsController(BacktestJobService jobs) {
+        this.jobs = jobs;
+    }
+
+    @PostMapping("/backtest")
+    public BacktestJob submit(@RequestBody BacktestRequest req, Principal principal) {
+        return jobs.submit(user(principal), req);
+    }
+
+    @GetMapping
+    public List<BacktestJob> list(Principal principal) {
+        return jobs.list(user(principal));
+    }
+
+    @GetMapping("/{id}")
+    public BacktestJob get(@PathVariable String id, Principal principal) {
+        return owned(id, principal);
+    }
+
+    @DeleteMapping("/{id}")
+    public BacktestJob cancel(@PathVariable String id, Principal principal) {
+        owned(id, principal);
+        return jobs.cancel(id);
+    }
+
+    /** "progress" events with bars processed and equity so far, then one of "done", "error" or "cancelled". */
+    @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id, Principal principal) {
+        owned(id, principal);
+        SseEmitter emitter = new SseEmitter(0L);
+        Runnable unsubscribe = jobs.subscribe(id, (event, job) -> {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(job));
+                if (job.isFinished()) emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    /** The job if the caller submitted it; other users' jobs answer 404 like unknown ids, so ids cannot be probed. */
+    private BacktestJob owned(String id, Principal principal) {
+        return jobs.get(id)
+                .filter(job -> job.user.equals(user(principal)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "no such job: " + id));
+    }
+
+    private static String user(Principal principal) {
+        return principal != null ? principal.getName() : "anon";
+    }
+}
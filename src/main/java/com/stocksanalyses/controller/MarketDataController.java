@@ -2,6 +2,7 @@ package com.stocksanalyses.controller;
 
 import com.stocksanalyses.model.AdjustType;
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.service.cache.CacheRegistry;
 import com.stocksanalyses.service.marketdata.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -19,13 +20,16 @@ public class MarketDataController {
     private final EnhancedCandleService enhancedCandleService;
     private final ReconciliationService reconciliationService;
     private final DataQualityService qualityService;
+    private final CacheRegistry caches;
     
     public MarketDataController(@Autowired(required = false) EnhancedCandleService enhancedCandleService,
                                @Autowired(required = false) ReconciliationService reconciliationService,
-                               @Autowired(required = false) DataQualityService qualityService) {
+                               @Autowired(required = false) DataQualityService qualityService,
+                               @Autowired(required = false) CacheRegistry caches) {
         this.enhancedCandleService = enhancedCandleService;
         this.reconciliationService = reconciliationService;
         this.qualityService = qualityService;
+        this.caches = caches;
     }
     
     @GetMapping("/candles")
@@ -78,12 +82,18 @@ public class MarketDataController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end) {
         
         if (reconciliationService == null) {
-            return new ReconciliationService.ReconciliationResult(Map.of(), Map.of(), 0.01);
+            return new ReconciliationService.ReconciliationResult(Map.of(), 0.01, null);
         }
         
         return reconciliationService.getReconciliationReport(symbol, interval, start, end);
     }
     
+    /** Size, hit ratio, loads and evictions of each market-data cache. */
+    @GetMapping("/caches")
+    public Map<String, Object> getCacheStats() {
+        return caches == null ? Map.of() : caches.stats();
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> getHealth() {
         Map<String, Object> health = new java.util.HashMap<>();
@@ -0,0 +1,76 @@
+package com.stocksanalyses.controller;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.patterns.PatternScanner;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.*;
+
+@RestController
+@RequestMapping("/api/patterns")
+public class PatternsController {
+    private final CandleService candleService;
+
+    public PatternsController(CandleService candleService) {
+        this.candleService = candleService;
+    }
+
+    /**
+     * Every candlestick pattern hit in the requested history, most recent {@code limit} returned in bar order.
+     * {@code counts} covers all matching hits, including those beyond the limit.
+     */
+    @GetMapping("/search")
+    public Map<String, Object> search(
+            @RequestParam String symbol,
+            @RequestParam(defaultValue = "1d") String interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant end,
+            @RequestParam(required = false) List<String> patterns,
+            @RequestParam(defaultValue = "0") double minConfidence,
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        if (limit < 1 || limit > 100_000) throw new IllegalArgumentException("limit must be in [1, 100000]");
+        EnumSet<PatternScanner.Pattern> wanted = EnumSet.noneOf(PatternScanner.Pattern.class);
+        if (patterns == null || patterns.isEmpty()) wanted = EnumSet.allOf(PatternScanner.Pattern.class);
+        else for (String p : patterns) wanted.add(PatternScanner.Pattern.of(p.trim()));
+
+        CandleSeries bars = candleService.getSeries(symbol, interval, start, end);
+        long t0 = System.nanoTime();
+        PatternScanner.Hits hits = new PatternScanner.Hits();
+        EnumSet<PatternScanner.Pattern> filter = wanted;
+        PatternScanner.DEFAULT.scan(bars, 0, bars.size(), (i, p, conf) -> {
+            if (conf >= minConfidence && filter.contains(p)) hits.onHit(i, p, conf);
+        });
+        double scanMs = (System.nanoTime() - t0) / 1e6;
+
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (PatternScanner.Pattern p : wanted) counts.put(p.id, 0);
+        for (int k = 0; k < hits.size(); k++) counts.merge(hits.pattern(k).id, 1, Integer::sum);
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (int k = Math.max(0, hits.size() - limit); k < hits.size(); k++) {
+            Map<String, Object> h = new LinkedHashMap<>();
+            int i = hits.index(k);
+            h.put("index", i);
+            h.put("ts", bars.instant(i));
+            h.put("pattern", hits.pattern(k).id);
+            h.put("confidence", hits.confidence(k));
+            out.add(h);
+        }
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("symbol", symbol);
+        res.put("interval", interval);
+        res.put("bars", bars.size());
+        res.put("counts", counts);
+        res.put("hits", out);
+        res.put("truncated", hits.size() > limit);
+        res.put("scanMs", scanMs);
+        return res;
+    }
+}
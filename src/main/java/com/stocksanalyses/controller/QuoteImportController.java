@@ -1,5 +1,9 @@
 package com.stocksanalyses.controller;
 
+import com.stocksanalyses.service.IndicatorService;
+import com.stocksanalyses.service.SignalPrecomputeService;
+import com.stocksanalyses.service.backtest.BacktestResultCache;
+import com.stocksanalyses.service.marketdata.HotCandleCache;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
@@ -14,7 +18,15 @@ import java.util.*;
 @RequestMapping("/api/quotes")
 public class QuoteImportController {
   private final AlertsController alerts;
-  public QuoteImportController(AlertsController alerts){ this.alerts = alerts; }
+  private final BacktestResultCache backtestCache;
+  private final IndicatorService indicatorService;
+  private final SignalPrecomputeService signalPrecompute;
+  private final HotCandleCache candleCache;
+  public QuoteImportController(AlertsController alerts, BacktestResultCache backtestCache, IndicatorService indicatorService,
+                               SignalPrecomputeService signalPrecompute, HotCandleCache candleCache){
+    this.alerts = alerts; this.backtestCache = backtestCache; this.indicatorService = indicatorService;
+    this.signalPrecompute = signalPrecompute; this.candleCache = candleCache;
+  }
 
   @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
   public ResponseEntity<?> importCsv(@RequestParam("file") MultipartFile file,
@@ -26,6 +38,10 @@ public class QuoteImportController {
     if (!dir.exists()) Files.createDirectories(dir.toPath());
     File out = new File(dir, sanitize(symbol)+".csv");
     try (FileOutputStream fos = new FileOutputStream(out)) { fos.write(file.getBytes()); }
+    backtestCache.invalidate(symbol);
+    indicatorService.invalidate(symbol);
+    candleCache.invalidate(symbol);
+    signalPrecompute.invalidate(symbol);
 
     // naive scan last two closes for alert
     try (BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(file.getBytes())))){
@@ -0,0 +1,79 @@
+package com.stocksanalyses.controller;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.ScreenRequest;
+import com.stocksanalyses.model.ScreenResult;
+import com.stocksanalyses.service.screener.ScreenerService;
+import com.stocksanalyses.service.storage.DataStorageService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/screener")
+public class ScreenerController {
+    private final ScreenerService screenerService;
+    private final DataStorageService dataStorageService;
+
+    public ScreenerController(ScreenerService screenerService, DataStorageService dataStorageService) {
+        this.screenerService = screenerService;
+        this.dataStorageService = dataStorageService;
+    }
+
+    @PostMapping
+    public ScreenResult screen(@RequestBody ScreenRequest req) {
+        return screenerService.screen(req, symbols(req), loader(req), null);
+    }
+
+    /**
+     * Streams each match as a "match" event as its batch finishes, then the ranked top-K and stats as "done". The
+     * screen stops at the first event that cannot be sent, i.e. when the client has gone away.
+     */
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter screenStream(@RequestBody ScreenRequest req) {
+        SseEmitter emitter = new SseEmitter(0L);
+        screenerService.screenAsync(req, symbols(req), loader(req), m -> {
+            try { emitter.send(SseEmitter.event().name("match").data(m)); }
+            catch (IOException e) { throw new UncheckedIOException(e); }
+        }).whenComplete((res, ex) -> {
+            try {
+                if (ex != null) emitter.send(SseEmitter.event().name("error").data(String.valueOf(ex.getMessage())));
+                else emitter.send(SseEmitter.event().name("done").data(res));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) { emitter.completeWithError(e); }
+        });
+        return emitter;
+    }
+
+    private List<String> symbols(ScreenRequest req) {
+        if (req.market == null) {
+            if (req.universe == null || req.universe.isEmpty()) throw new IllegalArgumentException("universe or market is required");
+            return req.universe;
+        }
+        List<String> symbols = dataStorageService.listAvailableData().get(req.market.toLowerCase());
+        if (symbols == null || symbols.isEmpty()) throw new IllegalArgumentException("no local data for market " + req.market);
+        return symbols;
+    }
+
+    /** Local storage for a market screen, otherwise one provider batch call per symbol batch. */
+    private ScreenerService.BatchLoader loader(ScreenRequest req) {
+        if (req.market != null) {
+            String market = req.market.toLowerCase();
+            return batch -> {
+                Map<String, CandleSeries> out = new HashMap<>();
+                for (String s : batch) {
+                    try { out.put(s, dataStorageService.loadCandleSeries(market, s)); }
+                    catch (RuntimeException unreadable) { /* counted as skipped */ }
+                }
+                return out;
+            };
+        }
+        return screenerService.providerLoader(req);
+    }
+}
@@ -1,34 +1,63 @@
 package com.stocksanalyses.controller;
 
-import com.stocksanalyses.model.Candle;
 import com.stocksanalyses.model.Signal;
-import com.stocksanalyses.model.StrategyConfig;
-import com.stocksanalyses.service.CandleService;
-import com.stocksanalyses.service.StrategyEngine;
+import com.stocksanalyses.service.IndicatorService;
+import com.stocksanalyses.service.SignalPrecomputeService;
+import com.stocksanalyses.service.StrategyPlan;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/signals")
 public class SignalsController {
-    private final CandleService candleService;
-    private final StrategyEngine strategyEngine;
+    private final SignalPrecomputeService precompute;
+    private final IndicatorService indicatorService;
 
-    public SignalsController(CandleService candleService, StrategyEngine strategyEngine) {
-        this.candleService = candleService;
-        this.strategyEngine = strategyEngine;
+    public SignalsController(SignalPrecomputeService precompute, IndicatorService indicatorService) {
+        this.precompute = precompute;
+        this.indicatorService = indicatorService;
     }
 
+    /**
+     * Signals for the default params, or for a registered strategy when {@code strategy} (and optionally {@code version}) is given.
+     * Served from the bar-close cache; recomputed only when a newer bar has landed.
+     */
     @GetMapping
-    public List<Signal> getSignals(@RequestParam String symbol) {
-        List<Candle> candles = candleService.getCandles(symbol, "1d", Instant.now().minusSeconds(86400L * 120), Instant.now());
-        return strategyEngine.generateSignals(symbol, candles, new StrategyConfig("stub", null));
+    public List<Signal> getSignals(@RequestParam String symbol,
+                                   @RequestParam(required = false) String strategy,
+                                   @RequestParam(required = false) String version) {
+        return precompute.signals(symbol, "1d", precompute.plan(strategy, version));
+    }
+
+    /**
+     * Last-bar signal of several registered strategies ({@code id} or {@code id@version}); strategies not in the
+     * bar-close cache are evaluated over one load of candles, with shared indicators computed once.
+     */
+    @GetMapping("/multi")
+    public Map<String, Signal> getSignalsForStrategies(@RequestParam String symbol, @RequestParam List<String> strategies) {
+        List<StrategyPlan> plans = new ArrayList<>();
+        for (String s : strategies) {
+            if (s.isBlank()) continue;
+            int at = s.indexOf('@');
+            plans.add(at < 0 ? precompute.plan(s, null) : precompute.plan(s.substring(0, at), s.substring(at + 1)));
+        }
+        return precompute.lastSignals(symbol, "1d", plans);
     }
-}
 
+    /** Hit ratio, staleness and recompute lag of the bar-close signal cache. */
+    @GetMapping("/cache")
+    public Map<String, Object> signalCacheStats() {
+        return precompute.stats();
+    }
 
+    @GetMapping("/indicator-cache")
+    public Map<String, Object> indicatorCacheStats() {
+        return indicatorService.cacheStats();
+    }
+}
@@ -2,22 +2,93 @@ package com.stocksanalyses.controller;
 
 import com.stocksanalyses.model.BacktestRequest;
 import com.stocksanalyses.model.BacktestResult;
+import com.stocksanalyses.model.MonteCarloRequest;
+import com.stocksanalyses.model.MonteCarloResult;
+import com.stocksanalyses.model.SweepRequest;
+import com.stocksanalyses.model.SweepResult;
+import com.stocksanalyses.model.WalkForwardRequest;
+import com.stocksanalyses.model.WalkForwardResult;
 import com.stocksanalyses.service.backtest.BacktestEngine;
+import com.stocksanalyses.service.backtest.BacktestResultCache;
+import com.stocksanalyses.service.backtest.MonteCarloEngine;
+import com.stocksanalyses.service.backtest.ParameterSweepEngine;
+import com.stocksanalyses.service.backtest.PortfolioBacktestEngine;
+import com.stocksanalyses.service.backtest.WalkForwardEngine;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping("/api/strategy")
 public class StrategyController {
     private final BacktestEngine backtestEngine;
+    private final ParameterSweepEngine sweepEngine;
+    private final PortfolioBacktestEngine portfolioEngine;
+    private final WalkForwardEngine walkForwardEngine;
+    private final MonteCarloEngine monteCarloEngine;
+    private final BacktestResultCache resultCache;
 
-    public StrategyController(BacktestEngine backtestEngine) {
+    public StrategyController(BacktestEngine backtestEngine, ParameterSweepEngine sweepEngine,
+                              PortfolioBacktestEngine portfolioEngine, WalkForwardEngine walkForwardEngine,
+                              MonteCarloEngine monteCarloEngine, BacktestResultCache resultCache) {
         this.backtestEngine = backtestEngine;
+        this.sweepEngine = sweepEngine;
+        this.portfolioEngine = portfolioEngine;
+        this.walkForwardEngine = walkForwardEngine;
+        this.monteCarloEngine = monteCarloEngine;
+        this.resultCache = resultCache;
     }
 
     @PostMapping("/backtest")
     public BacktestResult backtest(@RequestBody BacktestRequest req) {
         return backtestEngine.run(req);
     }
-}
 
+    @GetMapping("/backtest/cache")
+    public java.util.Map<String, Object> backtestCacheStats() {
+        return resultCache.stats();
+    }
+
+    @PostMapping("/backtest/portfolio")
+    public BacktestResult backtestPortfolio(@RequestBody BacktestRequest req) {
+        return portfolioEngine.run(req);
+    }
+
+    @PostMapping("/walkforward")
+    public WalkForwardResult walkForward(@RequestBody WalkForwardRequest req) {
+        return walkForwardEngine.run(req);
+    }
 
+    @PostMapping("/montecarlo")
+    public MonteCarloResult monteCarlo(@RequestBody MonteCarloRequest req) {
+        return monteCarloEngine.run(req);
+    }
+
+    @PostMapping("/sweep")
+    public SweepResult sweep(@RequestBody SweepRequest req) {
+        return sweepEngine.sweep(req, null);
+    }
+
+    /**
+     * Streams each combination as a "result" event when it finishes, then the ranked top-K and stats as "done". The
+     * sweep stops at the first event that cannot be sent, i.e. when the client has gone away.
+     */
+    @PostMapping(path = "/sweep/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter sweepStream(@RequestBody SweepRequest req) {
+        SseEmitter emitter = new SseEmitter(0L);
+        sweepEngine.sweepAsync(req, pt -> {
+            try { emitter.send(SseEmitter.event().name("result").data(pt)); }
+            catch (IOException e) { throw new UncheckedIOException(e); }
+        }).whenComplete((res, ex) -> {
+            try {
+                if (ex != null) emitter.send(SseEmitter.event().name("error").data(String.valueOf(ex.getMessage())));
+                else emitter.send(SseEmitter.event().name("done").data(res));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) { emitter.completeWithError(e); }
+        });
+        return emitter;
+    }
+}
@@ -0,0 +1,29 @@
+package com.stocksanalyses.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/** Status snapshot of an asynchronous backtest; {@code result} is set once the job is DONE. */
+public class BacktestJob {
+    public enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    public String id;
+    public String user;
+    public volatile Status status = Status.QUEUED;
+    public Instant submittedAt;
+    public volatile Instant startedAt;
+    public volatile Instant finishedAt;
+    public volatile int barsProcessed;
+    public volatile int totalBars;
+    public volatile double equity;
+    public volatile String error;
+    public volatile BacktestResult result;
+
+    @JsonIgnore
+    public volatile boolean cancelRequested;
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED || status == Status.CANCELLED;
+    }
+}
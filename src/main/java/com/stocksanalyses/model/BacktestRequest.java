@@ -20,6 +20,10 @@ public class BacktestRequest {
     public Integer executionDelayBars = 0;  // simulate latency: execute N bars after signal
     public String executionMode;            // OPEN|CLOSE|VWAP|TWAP (default CLOSE)
     public Boolean sameBarVisible;          // if false and delay not set, default to next bar (delay=1)
+
+    // Portfolio controls (multi-symbol backtest)
+    public Integer maxPositions;            // max concurrently open positions (default: universe size)
+    public Double maxPositionWeight;        // max fraction of equity allocated per new position (default 1/maxPositions)
 }
 
 
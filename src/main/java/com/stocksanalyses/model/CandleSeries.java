@@ -0,0 +1,147 @@
+package com.stocksanalyses.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar, primitive view of a candle series: epoch-milli timestamps, double OHLC and long volume in parallel arrays.
+ * Build it once per load with {@link #of(List)}; {@link #window(int, int)} returns views sharing the same arrays.
+ *
+ * Prices are doubles, so values are exact only to ~15 significant digits. Instances are immutable once built
+ * (callers must not write into the arrays returned by the raw accessors).
+ */
+public final class CandleSeries {
+    /** Bytes of column data per candle: ts + open/high/low/close + volume. */
+    public static final int BYTES_PER_CANDLE = 8 + 4 * 8 + 8;
+
+    private final long[] ts;
+    private final double[] open, high, low, close;
+    private final long[] volume;
+    private final int offset, length;
+
+    private CandleSeries(long[] ts, double[] open, double[] high, double[] low, double[] close, long[] volume, int offset, int length) {
+        this.ts = ts; this.open = open; this.high = high; this.low = low; this.close = close; this.volume = volume;
+        this.offset = offset; this.length = length;
+    }
+
+    public static CandleSeries of(List<Candle> candles) {
+        int n = candles == null ? 0 : candles.size();
+        long[] ts = new long[n]; long[] vol = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+        for (int i = 0; i < n; i++) {
+            Candle k = candles.get(i);
+            ts[i] = k.getTimestamp().toEpochMilli();
+            o[i] = k.getOpen().doubleValue();
+            h[i] = k.getHigh().doubleValue();
+            l[i] = k.getLow().doubleValue();
+            c[i] = k.getClose().doubleValue();
+            vol[i] = k.getVolume();
+        }
+        return new CandleSeries(ts, o, h, l, c, vol, 0, n);
+    }
+
+    /** Wraps existing columns without copying; all arrays must have the same length. */
+    public static CandleSeries wrap(long[] ts, double[] open, double[] high, double[] low, double[] close, long[] volume) {
+        int n = ts.length;
+        if (open.length != n || high.length != n || low.length != n || close.length != n || volume.length != n)
+            throw new IllegalArgumentException("column lengths differ");
+        return new CandleSeries(ts, open, high, low, close, volume, 0, n);
+    }
+
+    /**
+     * Appends bars straight into growable columns, for loaders that read rows as primitives. {@link #build()} hands the
+     * columns over as they are unless more than a quarter of the capacity is unused, in which case they are trimmed.
+     */
+    public static final class Builder {
+        private long[] ts, volume;
+        private double[] open, high, low, close;
+        private int n;
+
+        public Builder() { this(1024); }
+
+        public Builder(int expected) {
+            int cap = Math.max(16, expected);
+            ts = new long[cap]; volume = new long[cap];
+            open = new double[cap]; high = new double[cap]; low = new double[cap]; close = new double[cap];
+        }
+
+        public Builder add(long t, double o, double h, double l, double c, long v) {
+            if (n == ts.length) grow();
+            ts[n] = t; open[n] = o; high[n] = h; low[n] = l; close[n] = c; volume[n] = v;
+            n++;
+            return this;
+        }
+
+        public int size() { return n; }
+
+        public CandleSeries build() {
+            if (ts.length - n > ts.length / 4) resize(n);
+            return new CandleSeries(ts, open, high, low, close, volume, 0, n);
+        }
+
+        private void grow() { resize(ts.length + (ts.length >> 1)); }
+
+        private void resize(int cap) {
+            ts = Arrays.copyOf(ts, cap); volume = Arrays.copyOf(volume, cap);
+            open = Arrays.copyOf(open, cap); high = Arrays.copyOf(high, cap);
+            low = Arrays.copyOf(low, cap); close = Arrays.copyOf(close, cap);
+        }
+    }
+
+    /** Zero-copy view of bars {@code [from, to)} of this series. */
+    public CandleSeries window(int from, int to) {
+        if (from < 0 || to > length || from > to) throw new IndexOutOfBoundsException("window [" + from + "," + to + ") of " + length);
+        return new CandleSeries(ts, open, high, low, close, volume, offset + from, to - from);
+    }
+
+    /** Zero-copy view of the first {@code n} bars, i.e. the series as it was after bar {@code n-1}. */
+    public CandleSeries prefix(int n) { return window(0, n); }
+
+    /** Zero-copy view of the last {@code n} bars (fewer if the series is shorter). */
+    public CandleSeries tail(int n) { return window(Math.max(0, length - n), length); }
+
+    public int size() { return length; }
+    public boolean isEmpty() { return length == 0; }
+
+    public long timestamp(int i) { return ts[offset + i]; }
+    public Instant instant(int i) { return Instant.ofEpochMilli(ts[offset + i]); }
+    public double open(int i) { return open[offset + i]; }
+    public double high(int i) { return high[offset + i]; }
+    public double low(int i) { return low[offset + i]; }
+    public double close(int i) { return close[offset + i]; }
+    public long volume(int i) { return volume[offset + i]; }
+
+    /** Raw columns for tight loops; index {@code i} of this view is at {@code offset() + i}. */
+    public int offset() { return offset; }
+    public long[] timestampArray() { return ts; }
+    public double[] openArray() { return open; }
+    public double[] highArray() { return high; }
+    public double[] lowArray() { return low; }
+    public double[] closeArray() { return close; }
+    public long[] volumeArray() { return volume; }
+
+    /** Copy of the close column of this view. */
+    public double[] closes() {
+        double[] out = new double[length];
+        System.arraycopy(close, offset, out, 0, length);
+        return out;
+    }
+
+    public Candle candle(int i) {
+        int k = offset + i;
+        return new Candle(Instant.ofEpochMilli(ts[k]), BigDecimal.valueOf(open[k]), BigDecimal.valueOf(high[k]),
+                BigDecimal.valueOf(low[k]), BigDecimal.valueOf(close[k]), volume[k]);
+    }
+
+    public List<Candle> toCandles() {
+        List<Candle> out = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) out.add(candle(i));
+        return out;
+    }
+
+    /** Bytes held by the column arrays backing this series (views report the full backing size). */
+    public long sizeBytes() { return (long) ts.length * BYTES_PER_CANDLE; }
+}
@@ -0,0 +1,16 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+
+public class MonteCarloRequest {
+    // Exactly one source: explicit per-period returns, an equity curve, or a backtest to run first
+    public List<Double> returns;
+    public List<Double> equity;
+    public BacktestRequest backtest;
+    public String source = "equity";        // for backtest: equity (bar returns) | trades (round-trip returns)
+
+    public String method = "bootstrap";     // bootstrap | block | shuffle
+    public Integer blockSize = 5;           // for block bootstrap
+    public Integer paths = 10000;
+    public Long seed;                       // fixed seed => reproducible result (default 42)
+}
@@ -0,0 +1,17 @@
+package com.stocksanalyses.model;
+
+import java.util.Map;
+
+public class MonteCarloResult {
+    public int paths;
+    public int periods;
+    public String method;
+    public long seed;
+    public Map<String,Double> returnPercentiles;       // p1..p99 of compounded path return
+    public Map<String,Double> maxDrawdownPercentiles;  // p1..p99 of path max drawdown (fraction of peak)
+    public double meanReturn;
+    public double probabilityOfLoss;
+    public double observedReturn;                      // return of the original ordering
+    public double observedMaxDrawdown;
+    public double elapsedMs;
+}
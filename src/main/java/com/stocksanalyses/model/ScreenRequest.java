@@ -0,0 +1,15 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+
+public class ScreenRequest {
+    public String strategy;                   // registered strategy id
+    public String version;                    // null = latest
+    public List<String> universe;             // symbols to screen; ignored when market is set
+    public String market;                     // screen every symbol of this market in local storage (cn/hk/us)
+    public String interval = "1d";
+    public Integer lookbackDays = 120;        // history evaluated per symbol, ending at its last bar
+    public List<Signal.Type> types = List.of(Signal.Type.BUY, Signal.Type.SELL);
+    public Double minStrength = 0.0;
+    public Integer topK;                      // null = all matches
+}
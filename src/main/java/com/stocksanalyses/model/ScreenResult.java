@@ -0,0 +1,17 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class ScreenResult {
+    public static class Match {
+        public String symbol;
+        public Signal signal;
+
+        public Match() {}
+        public Match(String symbol, Signal signal) { this.symbol = symbol; this.signal = signal; }
+    }
+
+    public List<Match> matches;        // by descending signal strength, truncated to topK
+    public Map<String,Object> stats;   // symbols, evaluated, skipped, matches, threads, elapsedMs, symbolsPerSec
+}
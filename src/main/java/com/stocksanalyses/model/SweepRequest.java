@@ -0,0 +1,11 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class SweepRequest {
+    public BacktestRequest base;              // symbol, range, costs, execution controls, base strategy params
+    public Map<String, List<Number>> grid;    // param name -> candidate values, e.g. { emaShort:[10,20], emaLong:[50,100] }
+    public String rankBy = "sharpe";          // any metric key of BacktestResult.metrics
+    public Integer topK = 20;
+}
@@ -0,0 +1,16 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class SweepResult {
+    public static class Point {
+        public Map<String,Object> params;
+        public Map<String,Object> metrics;
+        public double score;
+        public int trades;
+    }
+
+    public List<Point> ranked;
+    public Map<String,Object> stats;   // combinations, evaluated, bars, threads, elapsedMs, combosPerSec, combosPerSecPerCore
+}
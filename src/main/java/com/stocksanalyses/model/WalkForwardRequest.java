@@ -0,0 +1,13 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class WalkForwardRequest {
+    public BacktestRequest base;              // symbol, full history range, costs, execution controls, base params
+    public Map<String, List<Number>> grid;    // param name -> candidate values optimised in each in-sample window
+    public int inSampleBars = 250;
+    public int outOfSampleBars = 60;
+    public Integer stepBars;                  // window advance per fold (default outOfSampleBars)
+    public String rankBy = "sharpe";
+}
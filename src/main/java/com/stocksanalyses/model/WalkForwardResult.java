@@ -0,0 +1,19 @@
+package com.stocksanalyses.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class WalkForwardResult {
+    public static class Fold {
+        public int index;
+        public String inSampleStart, inSampleEnd, outOfSampleStart, outOfSampleEnd;
+        public Map<String,Object> bestParams;
+        public double inSampleScore;
+        public double outOfSampleScore;
+        public Map<String,Object> outOfSampleMetrics;
+        public int outOfSampleTrades;
+    }
+
+    public List<Fold> folds;
+    public Map<String,Object> summary;   // folds, meanInSampleScore, meanOutOfSampleScore, efficiency, compoundedOutOfSampleReturn, elapsedMs
+}
@@ -10,9 +10,6 @@ import java.util.List;
 
 @Service
 public class Adjuster {
-    private final java.util.Map<java.time.LocalDate, java.math.BigDecimal> fwdCoeffCache = new java.util.HashMap<>();
-    private final java.util.Map<java.time.LocalDate, java.math.BigDecimal> backCoeffCache = new java.util.HashMap<>();
-
     public List<Candle> adjust(List<Candle> raw, AdjustType type){
         if (type == AdjustType.NONE) return raw;
         // Placeholder: simple proportional forward adjustment using last close
@@ -20,16 +17,9 @@ public class Adjuster {
         BigDecimal base = raw.get(raw.size()-1).getClose();
         List<Candle> out = new ArrayList<>(raw.size());
         for (Candle c : raw){
-            // cache per-day factor to avoid重复计算；遇到停牌成交量=0的天保持前值
-            java.time.LocalDate d = c.getTimestamp().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
-            BigDecimal factor;
-            if (type == AdjustType.FORWARD && fwdCoeffCache.containsKey(d)) factor = fwdCoeffCache.get(d);
-            else if (type == AdjustType.BACK && backCoeffCache.containsKey(d)) factor = backCoeffCache.get(d);
-            else {
-                factor = base.compareTo(BigDecimal.ZERO)==0? BigDecimal.ONE : base.divide(c.getClose(), java.math.MathContext.DECIMAL64);
-                if (type == AdjustType.BACK) factor = BigDecimal.ONE.divide(factor, java.math.MathContext.DECIMAL64);
-                if (type == AdjustType.FORWARD) fwdCoeffCache.put(d, factor); else backCoeffCache.put(d, factor);
-            }
+            // one division per bar; factors are not kept, they depend on the series (and symbol) passed in
+            BigDecimal factor = base.compareTo(BigDecimal.ZERO)==0? BigDecimal.ONE : base.divide(c.getClose(), java.math.MathContext.DECIMAL64);
+            if (type == AdjustType.BACK) factor = BigDecimal.ONE.divide(factor, java.math.MathContext.DECIMAL64);
             out.add(new Candle(
                     c.getTimestamp(),
                     c.getOpen().multiply(factor),
@@ -42,5 +32,3 @@ public class Adjuster {
         return out;
     }
 }
-
-
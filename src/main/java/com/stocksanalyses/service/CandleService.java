@@ -18,6 +18,29 @@ public class CandleService {
         this.enhancedCandleService = enhancedCandleService;
     }
     
+    /**
+     * Length of an interval such as {@code 1s}, {@code 5m}, {@code 1h}, {@code 1d}, {@code 1w} or {@code 1M} (30 days);
+     * one day if unparseable.
+     */
+    public static long intervalMs(String interval) {
+        if (interval == null || interval.length() < 2) return 86_400_000L;
+        char u = interval.charAt(interval.length() - 1);
+        long unit = u == 'M' ? 30 * 86_400_000L : switch (Character.toLowerCase(u)) {
+            case 's' -> 1000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            case 'w' -> 7 * 86_400_000L;
+            default -> 0L;
+        };
+        try {
+            long n = Long.parseLong(interval.substring(0, interval.length() - 1));
+            return unit > 0 && n > 0 ? n * unit : 86_400_000L;
+        } catch (NumberFormatException e) {
+            return 86_400_000L;
+        }
+    }
+    
     public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
         return getCandles(symbol, interval, start, end, AdjustType.NONE);
     }
@@ -31,6 +54,29 @@ public class CandleService {
         return getStubCandles(symbol, interval, start, end);
     }
     
+    /**
+     * Loads candles as a columnar series for the primitive analytics paths. With market data configured this is a
+     * view over the hot candle cache, so it must be treated as read-only.
+     */
+    public com.stocksanalyses.model.CandleSeries getSeries(String symbol, String interval, Instant start, Instant end) {
+        if (enhancedCandleService != null) {
+            return enhancedCandleService.getSeries(symbol, interval, start, end, AdjustType.NONE);
+        }
+        return com.stocksanalyses.model.CandleSeries.of(getCandles(symbol, interval, start, end));
+    }
+
+    /**
+     * Fetches several symbols in one call so providers can batch the round trips.
+     */
+    public java.util.Map<String, List<Candle>> getCandlesBatch(List<String> symbols, String interval, Instant start, Instant end) {
+        if (enhancedCandleService != null) {
+            return enhancedCandleService.getCandlesBatch(symbols, interval, start, end, AdjustType.NONE);
+        }
+        java.util.Map<String, List<Candle>> out = new java.util.LinkedHashMap<>();
+        for (String symbol : symbols) out.put(symbol, getCandles(symbol, interval, start, end));
+        return out;
+    }
+
     private List<Candle> getStubCandles(String symbol, String interval, Instant start, Instant end) {
         // Legacy stub implementation for backward compatibility
         List<Candle> list = new java.util.ArrayList<>();
@@ -2,9 +2,11 @@ package com.stocksanalyses.service;
 
 import com.stocksanalyses.model.AdjustType;
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.cache.BoundedCache;
+import com.stocksanalyses.service.cache.CacheRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -12,21 +14,23 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class CorporateActionsService {
     
     private final JdbcTemplate jdbcTemplate;
     private final String actionsTable;
-    private final Map<String, List<CorporateAction>> actionCache = new ConcurrentHashMap<>();
-    private final Map<String, BigDecimal> coefficientCache = new ConcurrentHashMap<>();
+    private final BoundedCache<String, AdjustmentTimeline> timelines;
     
     public CorporateActionsService(@Autowired(required = false) JdbcTemplate jdbcTemplate,
-                                  @Value("${marketdata.corporate-actions.table:corporate_actions}") String actionsTable) {
+                                  @Value("${marketdata.corporate-actions.table:corporate_actions}") String actionsTable,
+                                  CacheRegistry caches) {
         this.jdbcTemplate = jdbcTemplate;
         this.actionsTable = actionsTable;
+        // a timeline is rebuilt only when its actions are reloaded; symbols in use reload ahead of expiry
+        this.timelines = caches.create("corporate-actions", 20_000, 3600, 3000, t -> 1 + t.actions().size());
     }
     
     public List<Candle> adjustCandles(List<Candle> rawCandles, String symbol, AdjustType adjustType) {
@@ -34,16 +38,34 @@ public class CorporateActionsService {
             return rawCandles;
         }
         
-        List<CorporateAction> actions = getCorporateActions(symbol);
-        if (actions.isEmpty()) {
+        AdjustmentTimeline timeline = getTimeline(symbol);
+        if (timeline.isEmpty()) {
             return rawCandles;
         }
         
-        return applyAdjustments(rawCandles, actions, adjustType);
+        return timeline.adjust(rawCandles, adjustType);
+    }
+    
+    /** Columnar counterpart of {@link #adjustCandles}: one pass over the bars with primitive multiplies. */
+    public CandleSeries adjustSeries(CandleSeries raw, String symbol, AdjustType adjustType) {
+        if (adjustType == AdjustType.NONE || raw.isEmpty()) {
+            return raw;
+        }
+        
+        AdjustmentTimeline timeline = getTimeline(symbol);
+        return timeline.isEmpty() ? raw : timeline.adjust(raw, adjustType);
+    }
+    
+    /** Cumulative adjustment factors of {@code symbol}, built once per load of its actions. */
+    public AdjustmentTimeline getTimeline(String symbol) {
+        return timelines.get(symbol, s -> AdjustmentTimeline.build(loadCorporateActions(s)));
     }
     
-    @Cacheable(value = "corporateActions", key = "#symbol")
     public List<CorporateAction> getCorporateActions(String symbol) {
+        return getTimeline(symbol).actions();
+    }
+    
+    private List<CorporateAction> loadCorporateActions(String symbol) {
         if (jdbcTemplate == null) {
             return getFallbackActions(symbol);
         }
@@ -77,56 +99,16 @@ public class CorporateActionsService {
     }
     
     public BigDecimal getAdjustmentCoefficient(String symbol, LocalDate date, AdjustType adjustType) {
-        String cacheKey = symbol + ":" + date + ":" + adjustType;
-        BigDecimal cached = coefficientCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
-        List<CorporateAction> actions = getCorporateActions(symbol);
-        BigDecimal coefficient = calculateCoefficient(actions, date, adjustType);
-        coefficientCache.put(cacheKey, coefficient);
-        return coefficient;
+        AdjustmentTimeline timeline = getTimeline(symbol);
+        return timeline.factor(timeline.stepAt(date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli()), adjustType);
     }
     
-    private List<Candle> applyAdjustments(List<Candle> rawCandles, List<CorporateAction> actions, AdjustType adjustType) {
-        List<Candle> adjustedCandles = new ArrayList<>();
-        
-        for (Candle candle : rawCandles) {
-            LocalDate candleDate = candle.getTimestamp().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
-            BigDecimal coefficient = calculateCoefficient(actions, candleDate, adjustType);
-            
-            adjustedCandles.add(new Candle(
-                candle.getTimestamp(),
-                candle.getOpen().multiply(coefficient, MathContext.DECIMAL64),
-                candle.getHigh().multiply(coefficient, MathContext.DECIMAL64),
-                candle.getLow().multiply(coefficient, MathContext.DECIMAL64),
-                candle.getClose().multiply(coefficient, MathContext.DECIMAL64),
-                candle.getVolume()
-            ));
-        }
-        
-        return adjustedCandles;
+    private static LocalDate effectiveDate(CorporateAction action) {
+        // Use ex-date if present, otherwise action_date
+        return action.exDate != null ? action.exDate : action.actionDate;
     }
     
-    private BigDecimal calculateCoefficient(List<CorporateAction> actions, LocalDate date, AdjustType adjustType) {
-        BigDecimal coefficient = BigDecimal.ONE;
-        
-        for (CorporateAction action : actions) {
-            // Use ex-date if present, otherwise action_date
-            java.time.LocalDate effectiveDate = action.exDate != null ? action.exDate : action.actionDate;
-            if (effectiveDate.isAfter(date)) {
-                continue; // Action happens after this date
-            }
-            
-            BigDecimal actionCoefficient = calculateActionCoefficient(action, adjustType);
-            coefficient = coefficient.multiply(actionCoefficient, MathContext.DECIMAL64);
-        }
-        
-        return coefficient;
-    }
-    
-    private BigDecimal calculateActionCoefficient(CorporateAction action, AdjustType adjustType) {
+    private static BigDecimal calculateActionCoefficient(CorporateAction action, AdjustType adjustType) {
         switch (action.actionType) {
             case STOCK_SPLIT:
                 // For 2:1 split, ratio = 2.0, coefficient = 1/2 = 0.5
@@ -189,6 +171,130 @@ public class CorporateActionsService {
         return actions;
     }
     
+    /**
+     * A symbol's corporate actions as steps in time. Step {@code i} starts at the first instant (system zone) of the
+     * i-th distinct effective date and carries the product of the coefficients of every action effective on or before
+     * that date, for forward and backward adjustment. A bar takes the factor of the last step at or before it, so a
+     * time-ordered series is adjusted in one merge pass over bars and steps.
+     */
+    public static final class AdjustmentTimeline {
+        private final List<CorporateAction> actions;
+        private final long[] from;
+        private final BigDecimal[] forwardExact, backExact;
+        private final double[] forward, back;
+        
+        private AdjustmentTimeline(List<CorporateAction> actions, long[] from, BigDecimal[] forwardExact, BigDecimal[] backExact) {
+            this.actions = actions;
+            this.from = from;
+            this.forwardExact = forwardExact;
+            this.backExact = backExact;
+            this.forward = new double[from.length];
+            this.back = new double[from.length];
+            for (int i = 0; i < from.length; i++) {
+                forward[i] = forwardExact[i].doubleValue();
+                back[i] = backExact[i].doubleValue();
+            }
+        }
+        
+        static AdjustmentTimeline build(List<CorporateAction> actions) {
+            List<CorporateAction> sorted = new ArrayList<>(actions);
+            sorted.sort(Comparator.comparing(CorporateActionsService::effectiveDate));
+            int n = 0;
+            long[] from = new long[sorted.size()];
+            BigDecimal[] fwd = new BigDecimal[sorted.size()], back = new BigDecimal[sorted.size()];
+            BigDecimal f = BigDecimal.ONE, b = BigDecimal.ONE;
+            LocalDate last = null;
+            for (CorporateAction action : sorted) {
+                LocalDate date = effectiveDate(action);
+                f = f.multiply(calculateActionCoefficient(action, AdjustType.FORWARD), MathContext.DECIMAL64);
+                b = b.multiply(calculateActionCoefficient(action, AdjustType.BACK), MathContext.DECIMAL64);
+                if (!date.equals(last)) {
+                    from[n++] = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    last = date;
+                }
+                fwd[n - 1] = f;
+                back[n - 1] = b;
+            }
+            return new AdjustmentTimeline(List.copyOf(actions), Arrays.copyOf(from, n),
+                Arrays.copyOf(fwd, n), Arrays.copyOf(back, n));
+        }
+        
+        public List<CorporateAction> actions() { return actions; }
+        public boolean isEmpty() { return from.length == 0; }
+        public int steps() { return from.length; }
+        
+        /** Index of the last step starting at or before {@code epochMs}, or -1 before the first. */
+        public int stepAt(long epochMs) {
+            int lo = 0, hi = from.length - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (from[mid] <= epochMs) { found = mid; lo = mid + 1; }
+                else hi = mid - 1;
+            }
+            return found;
+        }
+        
+        public BigDecimal factor(int step, AdjustType adjustType) {
+            if (step < 0 || adjustType == AdjustType.NONE) return BigDecimal.ONE;
+            return adjustType == AdjustType.BACK ? backExact[step] : forwardExact[step];
+        }
+        
+        public List<Candle> adjust(List<Candle> raw, AdjustType adjustType) {
+            List<Candle> out = new ArrayList<>(raw.size());
+            int step = -1;
+            long prev = Long.MIN_VALUE;
+            for (Candle candle : raw) {
+                long t = candle.getTimestamp().toEpochMilli();
+                step = advance(step, prev, t);
+                prev = t;
+                if (step < 0) {
+                    out.add(new Candle(candle.getTimestamp(), candle.getOpen(), candle.getHigh(), candle.getLow(),
+                        candle.getClose(), candle.getVolume()));
+                    continue;
+                }
+                BigDecimal k = factor(step, adjustType);
+                out.add(new Candle(
+                    candle.getTimestamp(),
+                    candle.getOpen().multiply(k, MathContext.DECIMAL64),
+                    candle.getHigh().multiply(k, MathContext.DECIMAL64),
+                    candle.getLow().multiply(k, MathContext.DECIMAL64),
+                    candle.getClose().multiply(k, MathContext.DECIMAL64),
+                    candle.getVolume()
+                ));
+            }
+            return out;
+        }
+        
+        public CandleSeries adjust(CandleSeries raw, AdjustType adjustType) {
+            double[] factors = adjustType == AdjustType.BACK ? back : forward;
+            int n = raw.size();
+            long[] ts = new long[n], vol = new long[n];
+            double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+            int step = -1;
+            long prev = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                long t = raw.timestamp(i);
+                step = advance(step, prev, t);
+                prev = t;
+                double k = step < 0 || adjustType == AdjustType.NONE ? 1.0 : factors[step];
+                ts[i] = t;
+                o[i] = raw.open(i) * k;
+                h[i] = raw.high(i) * k;
+                l[i] = raw.low(i) * k;
+                c[i] = raw.close(i) * k;
+                vol[i] = raw.volume(i);
+            }
+            return CandleSeries.wrap(ts, o, h, l, c, vol);
+        }
+        
+        /** Moves forward from {@code step} for ascending bars; an out-of-order bar falls back to a search. */
+        private int advance(int step, long prev, long t) {
+            if (t < prev) return stepAt(t);
+            while (step + 1 < from.length && from[step + 1] <= t) step++;
+            return step;
+        }
+    }
+    
     public static class CorporateAction {
         public String symbol;
         public LocalDate actionDate;
@@ -0,0 +1,91 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.Signal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bar-by-bar counterpart of {@link StrategyEngine#generateSignals}. EMA, MACD and ATR are carried as running
+ * state and the pattern detectors only see the last three bars, so each {@link #onBar} call is O(1)
+ * instead of rebuilding the whole series. Not thread-safe; use one instance per series.
+ */
+public class IncrementalStrategyEvaluator {
+    private final StrategyEngine engine;
+    private final String symbol;
+    private final StrategyEngine.Params params;
+
+    // EMA recurrences match ta4j's AbstractEMAIndicator: seeded with the first value, then prev + k*(x - prev)
+    private final double kShort, kLong, kFast, kSlow, kSignal;
+    private double emaShort, emaLong, emaFast, emaSlow, macdSignal;
+
+    // rolling high-low range sum over the last atrPeriod bars (same definition as RiskManager.atrStop)
+    private final double[] ranges;
+    private double rangeSum;
+
+    private final List<Candle> recent = new ArrayList<>(3);
+    private int bars;
+
+    IncrementalStrategyEvaluator(StrategyEngine engine, String symbol, StrategyEngine.Params params) {
+        this.engine = engine;
+        this.symbol = symbol;
+        this.params = params;
+        this.kShort = 2.0 / (params.emaShort + 1);
+        this.kLong = 2.0 / (params.emaLong + 1);
+        this.kFast = 2.0 / (params.macdFast + 1);
+        this.kSlow = 2.0 / (params.macdSlow + 1);
+        this.kSignal = 2.0 / (params.macdSignal + 1);
+        this.ranges = new double[params.atrPeriod];
+    }
+
+    /**
+     * Feeds the next bar (timestamps must be increasing) and returns the signals
+     * {@link StrategyEngine#generateSignals} would produce for the series seen so far.
+     */
+    public List<Signal> onBar(Candle c) {
+        double close = c.getClose().doubleValue();
+        if (bars == 0) {
+            emaShort = emaLong = emaFast = emaSlow = close;
+            macdSignal = 0.0;
+        } else {
+            emaShort += (close - emaShort) * kShort;
+            emaLong += (close - emaLong) * kLong;
+            emaFast += (close - emaFast) * kFast;
+            emaSlow += (close - emaSlow) * kSlow;
+            macdSignal += ((emaFast - emaSlow) - macdSignal) * kSignal;
+        }
+
+        int slot = bars % ranges.length;
+        double range = c.getHigh().subtract(c.getLow()).abs().doubleValue();
+        rangeSum += range - ranges[slot];
+        ranges[slot] = range;
+
+        if (recent.size() == 3) recent.remove(0);
+        recent.add(c);
+        bars++;
+
+        if (bars < StrategyEngine.MIN_BARS) return List.of();
+        boolean atrReady = bars >= params.atrPeriod + 1;
+        double atr = rangeSum / ranges.length;
+        RiskManager riskManager = engine.riskManager();
+        List<String> rules = new ArrayList<>();
+        double patternScore = engine.patternScore(recent, params, rules);
+        Signal sig = engine.composeSignal(symbol, c.getTimestamp(), close, params, emaShort, emaLong, macd(), macdSignal, patternScore, rules, longSide -> {
+            if (atrReady) return riskManager.atrStop(close, atr, params.atrMult, longSide);
+            RiskManager.RiskOutcome out = new RiskManager.RiskOutcome();
+            out.pass = false; out.reason = "insufficient ATR bars";
+            return out;
+        });
+        List<Signal> out = new ArrayList<>(1);
+        out.add(sig);
+        return out;
+    }
+
+    public int barCount() { return bars; }
+    public double emaShort() { return emaShort; }
+    public double emaLong() { return emaLong; }
+    public double macd() { return emaFast - emaSlow; }
+    public double macdSignal() { return macdSignal; }
+    public double atr() { return bars == 0 ? 0.0 : rangeSum / ranges.length; }
+}
@@ -0,0 +1,48 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+
+import java.util.*;
+
+/**
+ * Union of the indicator nodes of several {@link StrategyPlan}s. Each distinct node (e.g. an EMA(20) used by three
+ * strategies) is computed once per series; plans then read their inputs by slot with no map lookups.
+ */
+final class IndicatorGraph {
+    private final StrategyPlan.Indicator[] nodes;
+    private final Map<StrategyPlan.Indicator, Integer> slots;
+
+    IndicatorGraph(List<StrategyPlan> plans) {
+        Map<StrategyPlan.Indicator, Integer> s = new LinkedHashMap<>();
+        for (StrategyPlan p : plans)
+            for (StrategyPlan.Indicator node : p.indicators()) s.putIfAbsent(node, s.size());
+        this.slots = s;
+        this.nodes = s.keySet().toArray(new StrategyPlan.Indicator[0]);
+    }
+
+    int size() { return nodes.length; }
+
+    int slot(StrategyPlan.Indicator node) { return slots.get(node); }
+
+    /** Value of every node at the last bar of {@code series}, indexed by slot. */
+    double[] lastValues(CandleSeries series) {
+        int n = series.size();
+        double[] close = series.closes();
+        double[][] cols = new double[nodes.length][];
+        double[] last = new double[nodes.length];
+        for (int k = 0; k < nodes.length; k++) {
+            StrategyPlan.Indicator node = nodes[k];
+            if (node.kind == StrategyPlan.Indicator.Kind.EMA) {
+                cols[k] = IndicatorKernels.ema(close, node.a);
+            } else {
+                double[] f = cols[slot(StrategyPlan.Indicator.ema(node.a))], sl = cols[slot(StrategyPlan.Indicator.ema(node.b))];
+                double[] line = new double[n];
+                for (int i = 0; i < n; i++) line[i] = f[i] - sl[i];
+                cols[k] = IndicatorKernels.ema(line, node.c);
+            }
+            last[k] = n > 0 ? cols[k][n - 1] : Double.NaN;
+        }
+        return last;
+    }
+}
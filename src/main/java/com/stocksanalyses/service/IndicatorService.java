@@ -1,6 +1,10 @@
 package com.stocksanalyses.service;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.ta4j.core.Bar;
 import org.ta4j.core.BaseBar;
@@ -12,10 +16,32 @@ import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class IndicatorService {
+    private final int maxEntries;
+    private final Map<String, Running> cache;
+    private final AtomicLong hits = new AtomicLong(), extended = new AtomicLong(), rebuilt = new AtomicLong(), barsFolded = new AtomicLong();
+
+    public IndicatorService() {
+        this(512);
+    }
+
+    @Autowired
+    public IndicatorService(@Value("${indicators.cache.maxEntries:512}") int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Running> e) {
+                return size() > IndicatorService.this.maxEntries;
+            }
+        };
+    }
+
     public BarSeries toSeries(List<Candle> candles) {
         BarSeries series = new BaseBarSeriesBuilder().withName("series").build();
         for (Candle c : candles) {
@@ -54,6 +80,250 @@ public class IndicatorService {
         double signalVal = macdSignal.getValue(end).doubleValue();
         return new double[]{ macdVal, signalVal };
     }
-}
 
+    /**
+     * Full EMA series over primitive values using ta4j's recurrence (seeded with the first value),
+     * so {@code emaSeries(close, n)[i]} matches {@code emaClose(candles.subList(0, i+1), n)[0]}.
+     */
+    public static double[] emaSeries(double[] values, int period) {
+        return IndicatorKernels.ema(values, period);
+    }
+
+    /** EMA of the close column of {@code series}, read in place (no copy of the view). */
+    public static double[] emaSeries(CandleSeries series, int period) {
+        int n = series.size();
+        double[] out = new double[n];
+        if (n == 0) return out;
+        double[] close = series.closeArray();
+        int off = series.offset();
+        double k = 2.0 / (period + 1);
+        double ema = close[off];
+        out[0] = ema;
+        for (int i = 1; i < n; i++) {
+            ema += (close[off + i] - ema) * k;
+            out[i] = ema;
+        }
+        return out;
+    }
+
+    public double[] emaClose(CandleSeries series, int period) {
+        if (series.isEmpty()) return new double[0];
+        return new double[]{ emaSeries(series, period)[series.size() - 1] };
+    }
+
+    public double[] macd(CandleSeries series, int fast, int slow, int signal) {
+        int n = series.size();
+        if (n == 0) return new double[0];
+        double[] f = emaSeries(series, fast), s = emaSeries(series, slow);
+        double[] line = new double[n];
+        for (int i = 0; i < n; i++) line[i] = f[i] - s[i];
+        double[] sig = emaSeries(line, signal);
+        return new double[]{ line[n - 1], sig[n - 1] };
+    }
+
+    /** Largest number of indicator specs accepted by {@link #series}. */
+    public static final int MAX_SPECS = 32;
+
+    /**
+     * Full output series for each spec over {@code bars}, keyed by the spec as given. Specs are
+     * {@code name[:param...]}: {@code ema:20}, {@code sma:20}, {@code macd:12:26:9}, {@code rsi:14}, {@code atr:14},
+     * {@code bb:20:2}, {@code vwap:20}, {@code stoch:14:3}. Multi-line indicators map to an object of named series.
+     */
+    public Map<String, Object> series(CandleSeries bars, List<String> specs) {
+        if (specs == null || specs.isEmpty()) throw new IllegalArgumentException("at least one indicator is required");
+        if (specs.size() > MAX_SPECS) throw new IllegalArgumentException("at most " + MAX_SPECS + " indicators per request");
+        double[] close = bars.closes();
+        double[] high = null, low = null;
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String spec : specs) {
+            String[] parts = spec.trim().toLowerCase().split(":");
+            String name = parts[0];
+            if (high == null && (name.equals("atr") || name.equals("vwap") || name.equals("stoch"))) {
+                high = IndicatorKernels.highs(bars);
+                low = IndicatorKernels.lows(bars);
+            }
+            switch (name) {
+                case "ema" -> out.put(spec, IndicatorKernels.ema(close, intParam(spec, parts, 1, 20)));
+                case "sma" -> out.put(spec, IndicatorKernels.sma(close, intParam(spec, parts, 1, 20)));
+                case "rsi" -> out.put(spec, IndicatorKernels.rsi(close, intParam(spec, parts, 1, 14)));
+                case "atr" -> out.put(spec, IndicatorKernels.atr(high, low, close, intParam(spec, parts, 1, 14)));
+                case "vwap" -> out.put(spec, IndicatorKernels.vwap(high, low, close, IndicatorKernels.volumes(bars), intParam(spec, parts, 1, 20)));
+                case "macd" -> {
+                    double[][] m = IndicatorKernels.macd(close, intParam(spec, parts, 1, 12), intParam(spec, parts, 2, 26), intParam(spec, parts, 3, 9));
+                    out.put(spec, lines(new String[]{"macd", "signal", "histogram"}, m));
+                }
+                case "bb" -> {
+                    double mult = parts.length > 2 ? doubleParam(spec, parts[2]) : 2.0;
+                    double[][] b = IndicatorKernels.bollinger(close, intParam(spec, parts, 1, 20), mult);
+                    out.put(spec, lines(new String[]{"middle", "upper", "lower"}, b));
+                }
+                case "stoch" -> {
+                    double[][] st = IndicatorKernels.stochastic(high, low, close, intParam(spec, parts, 1, 14), intParam(spec, parts, 2, 3));
+                    out.put(spec, lines(new String[]{"k", "d"}, st));
+                }
+                default -> throw new IllegalArgumentException("unknown indicator: " + spec);
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, double[]> lines(String[] names, double[][] values) {
+        Map<String, double[]> m = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) m.put(names[i], values[i]);
+        return m;
+    }
+
+    private static int intParam(String spec, String[] parts, int idx, int def) {
+        if (parts.length <= idx) return def;
+        int v;
+        try { v = Integer.parseInt(parts[idx]); } catch (NumberFormatException e) { throw new IllegalArgumentException("bad parameter in " + spec); }
+        if (v < 1 || v > 5000) throw new IllegalArgumentException("period out of range [1, 5000] in " + spec);
+        return v;
+    }
+
+    private static double doubleParam(String spec, String s) {
+        try { return Double.parseDouble(s); } catch (NumberFormatException e) { throw new IllegalArgumentException("bad parameter in " + spec); }
+    }
+
+    // ---- cross-request cache ----
+
+    /**
+     * Last EMA of the close for {@code symbol}/{@code interval}, served from running state kept across calls. Same
+     * recurrence as {@link #emaSeries(double[], int)}; a null symbol bypasses the cache.
+     */
+    public double[] emaClose(String symbol, String interval, List<Candle> candles, int period) {
+        return cached(symbol, interval, candles, EMA, period);
+    }
+
+    /** Last {macd, signal} for {@code symbol}/{@code interval}; see {@link #emaClose(String, String, List, int)}. */
+    public double[] macd(String symbol, String interval, List<Candle> candles, int fast, int slow, int signal) {
+        return cached(symbol, interval, candles, MACD, fast, slow, signal);
+    }
+
+    /** Drops cached indicator state for {@code symbol}; call when its history is rewritten rather than appended to. */
+    public void invalidate(String symbol) {
+        String prefix = symbol + "|";
+        synchronized (cache) { cache.keySet().removeIf(k -> k.startsWith(prefix)); }
+    }
+
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (cache) { m.put("entries", cache.size()); }
+        m.put("maxEntries", maxEntries);
+        m.put("hits", hits.get());
+        m.put("extended", extended.get());
+        m.put("rebuilt", rebuilt.get());
+        m.put("barsFolded", barsFolded.get());
+        return m;
+    }
+
+    private static final int EMA = 0, MACD = 1;
 
+    /**
+     * Running indicator state after the first {@code count} bars of a series, plus the state one bar earlier so a
+     * revised last bar (same timestamp, new close) can be re-applied. A hash over the timestamp and close of every
+     * folded bar identifies the prefix; the entry is reused only when the incoming series hashes the same over it, so
+     * a different series under the same key, or rewritten history, rebuilds instead of extending stale state.
+     */
+    private static final class Running {
+        static final long SEED = 0x9E3779B97F4A7C15L;
+
+        final int kind;
+        final int[] periods;
+        final double[] state, prev;
+        int count;
+        long hash = SEED, prevHash = SEED;
+        long lastTs;
+        double lastClose;
+
+        Running(int kind, int[] periods) {
+            this.kind = kind;
+            this.periods = periods;
+            int width = kind == EMA ? 1 : 3;
+            this.state = new double[width];
+            this.prev = new double[width];
+        }
+
+        void fold(long ts, double close) {
+            System.arraycopy(state, 0, prev, 0, state.length);
+            prevHash = hash;
+            hash = mix(hash, ts, close);
+            lastTs = ts;
+            lastClose = close;
+            if (kind == EMA) {
+                state[0] = count == 0 ? close : state[0] + (close - state[0]) * (2.0 / (periods[0] + 1));
+            } else if (count == 0) {
+                state[0] = state[1] = close;
+                state[2] = 0; // fast - slow on the seed bar
+            } else {
+                state[0] += (close - state[0]) * (2.0 / (periods[0] + 1));
+                state[1] += (close - state[1]) * (2.0 / (periods[1] + 1));
+                state[2] += (state[0] - state[1] - state[2]) * (2.0 / (periods[2] + 1));
+            }
+            count++;
+        }
+
+        double[] value() {
+            return kind == EMA ? new double[]{ state[0] } : new double[]{ state[0] - state[1], state[2] };
+        }
+
+        void reset() {
+            count = 0;
+            hash = prevHash = SEED;
+        }
+
+        static long mix(long h, long ts, double close) {
+            h = (h ^ ts) * 0xff51afd7ed558ccdL;
+            h = (h ^ (h >>> 33) ^ Double.doubleToLongBits(close)) * 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+
+    private double[] cached(String symbol, String interval, List<Candle> candles, int kind, int... periods) {
+        int n = candles == null ? 0 : candles.size();
+        if (n == 0) return new double[0];
+        if (symbol == null) {
+            Running r = new Running(kind, periods);
+            for (Candle c : candles) r.fold(c.getTimestamp().toEpochMilli(), c.getClose().doubleValue());
+            return r.value();
+        }
+        String key = symbol + "|" + interval + "|" + kind + Arrays.toString(periods);
+        Running r;
+        synchronized (cache) { r = cache.computeIfAbsent(key, k -> new Running(kind, periods)); }
+        synchronized (r) {
+            int from = resumeFrom(r, candles);
+            if (from == n) { hits.incrementAndGet(); return r.value(); }
+            if (from == 0) { r.reset(); rebuilt.incrementAndGet(); }
+            else extended.incrementAndGet();
+            for (int i = from; i < n; i++) {
+                Candle c = candles.get(i);
+                r.fold(c.getTimestamp().toEpochMilli(), c.getClose().doubleValue());
+            }
+            barsFolded.addAndGet(n - from);
+            return r.value();
+        }
+    }
+
+    /**
+     * Index of the first bar not yet folded into {@code r}: every bar before the entry's last must hash as folded, and
+     * the last must keep its timestamp; a revised close there rewinds one bar. 0 to rebuild.
+     */
+    private static int resumeFrom(Running r, List<Candle> candles) {
+        int n = candles.size();
+        if (r.count == 0 || n < r.count) return 0;
+        long h = Running.SEED;
+        for (int i = 0; i < r.count - 1; i++) {
+            Candle c = candles.get(i);
+            h = Running.mix(h, c.getTimestamp().toEpochMilli(), c.getClose().doubleValue());
+        }
+        if (h != r.prevHash) return 0;
+        Candle mark = candles.get(r.count - 1);
+        if (mark.getTimestamp().toEpochMilli() != r.lastTs) return 0;
+        if (mark.getClose().doubleValue() == r.lastClose) return r.count;
+        if (r.count == 1) return 0;
+        System.arraycopy(r.prev, 0, r.state, 0, r.state.length);
+        r.hash = r.prevHash;
+        r.count--;
+        return r.count;
+    }
+}
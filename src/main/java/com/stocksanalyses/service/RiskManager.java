@@ -1,6 +1,7 @@
 package com.stocksanalyses.service;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -16,7 +17,21 @@ public class RiskManager {
         if (candles == null || candles.size() < atrPeriod+1) { out.pass=false; out.reason="insufficient ATR bars"; return out; }
         double atr = computeATR(candles, atrPeriod);
         Candle last = candles.get(candles.size()-1);
-        double close = last.getClose().doubleValue();
+        return atrStop(last.getClose().doubleValue(), atr, atrMultiplier, longSide);
+    }
+
+    public RiskOutcome atrStop(CandleSeries series, int atrPeriod, double atrMultiplier, boolean longSide) {
+        if (series == null || series.size() < atrPeriod+1) {
+            RiskOutcome out = new RiskOutcome(); out.pass=false; out.reason="insufficient ATR bars"; return out;
+        }
+        double sum = 0;
+        for (int i = series.size()-atrPeriod; i < series.size(); i++) sum += Math.abs(series.high(i) - series.low(i));
+        return atrStop(series.close(series.size()-1), sum/atrPeriod, atrMultiplier, longSide);
+    }
+
+    /** Stop/trail levels from a precomputed ATR, for callers that maintain ATR incrementally. */
+    public RiskOutcome atrStop(double close, double atr, double atrMultiplier, boolean longSide) {
+        RiskOutcome out = new RiskOutcome();
         out.atr = atr;
         if (longSide) {
             out.stopPrice = close - atrMultiplier * atr;
@@ -0,0 +1,321 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.model.StrategyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bar-close signal cache. Signals only change when a bar closes, so the last computed signals of each
+ * (symbol, interval, strategy) are kept together with the timestamp of the bar they were computed on and served
+ * from memory until a newer bar lands. {@link #onBar} (realtime ring) and {@link #invalidate} (storage ingest) mark
+ * entries dirty; entries that were requested within {@code trackMinutes}, or whose symbol is {@link #subscribe
+ * subscribed}, are recomputed in the background, the rest are dropped and recomputed on their next request.
+ * {@code maxAgeMinutes} bounds how long an entry is served when bars arrive from a source that emits no events.
+ */
+@Service
+public class SignalPrecomputeService {
+    private static final Logger log = LoggerFactory.getLogger(SignalPrecomputeService.class);
+    /** Plan of the default params, used when no registered strategy is named. */
+    public static final StrategyPlan DEFAULT_PLAN = StrategyPlan.of(new StrategyConfig("stub", null));
+    private static final String DEFAULT_KEY = "default";
+
+    private static final class Entry {
+        final String symbol, interval;
+        final StrategyPlan plan;
+        final long barTs, computedAt;
+        final List<Signal> signals;
+        /** Latest bar timestamp this entry has been notified of; repeated events inside one bucket are ignored. */
+        volatile long lastRequested, dirtySince, notified;
+
+        Entry(String symbol, String interval, StrategyPlan plan, long barTs, long computedAt, List<Signal> signals, long lastRequested) {
+            this.symbol = symbol; this.interval = interval; this.plan = plan;
+            this.barTs = barTs; this.computedAt = computedAt; this.signals = signals; this.lastRequested = lastRequested;
+            this.notified = barTs;
+        }
+    }
+
+    private final CandleService candleService;
+    private final StrategyEngine strategyEngine;
+    private final StrategyRegistry registry;
+    private final int maxEntries;
+    private final long trackMs, maxAgeMs, lookbackSeconds;
+    private final Map<String, Entry> cache;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pool;
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), recomputed = new AtomicLong(), dropped = new AtomicLong();
+    private final Counter hitCounter, missCounter;
+    private final DistributionSummary staleness, lag;
+
+    public SignalPrecomputeService(CandleService candleService, StrategyEngine strategyEngine, StrategyRegistry registry,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${signals.precompute.maxEntries:4096}") int maxEntries,
+                                   @Value("${signals.precompute.trackMinutes:60}") long trackMinutes,
+                                   @Value("${signals.precompute.maxAgeMinutes:15}") long maxAgeMinutes,
+                                   @Value("${signals.precompute.lookbackDays:120}") int lookbackDays,
+                                   @Value("${signals.precompute.threads:2}") int threads) {
+        this.candleService = candleService;
+        this.strategyEngine = strategyEngine;
+        this.registry = registry;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.trackMs = trackMinutes * 60_000L;
+        this.maxAgeMs = maxAgeMinutes * 60_000L;
+        this.lookbackSeconds = 86400L * lookbackDays;
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Entry> e) {
+                return size() > SignalPrecomputeService.this.maxEntries;
+            }
+        };
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), daemon("signal-precompute-"));
+        this.hitCounter = meterRegistry.counter("signals_cache_hits_total");
+        this.missCounter = meterRegistry.counter("signals_cache_misses_total");
+        this.staleness = DistributionSummary.builder("signals_cache_staleness_ms")
+                .description("Age of the served signals since they were computed").register(meterRegistry);
+        this.lag = DistributionSummary.builder("signals_precompute_lag_ms")
+                .description("Time from a new bar landing to its signals being recomputed").register(meterRegistry);
+        meterRegistry.gauge("signals_cache_hit_ratio", this, SignalPrecomputeService::hitRatio);
+        meterRegistry.gauge("signals_cache_entries", this, s -> s.size());
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> { Thread t = new Thread(r, prefix + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Registered plan for {@code strategy}/{@code version}, or {@link #DEFAULT_PLAN} when no strategy is named. */
+    public StrategyPlan plan(String strategy, String version) {
+        if (strategy == null || strategy.isBlank()) return DEFAULT_PLAN;
+        StrategyPlan plan = registry.plan(strategy, version);
+        if (plan == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown strategy: " + strategy);
+        return plan;
+    }
+
+    /** Signals for the last bar of {@code symbol}, from memory unless a newer bar has landed since they were computed. */
+    public List<Signal> signals(String symbol, String interval, StrategyPlan plan) {
+        long now = System.currentTimeMillis();
+        String key = key(symbol, interval, plan);
+        Entry e;
+        synchronized (cache) { e = cache.get(key); }
+        if (fresh(e, plan, now)) {
+            e.lastRequested = now;
+            hit(now - e.computedAt);
+            return e.signals;
+        }
+        miss();
+        List<Candle> candles = load(symbol, interval, now);
+        Entry fresh = put(key, symbol, interval, plan, barTs(candles),
+                strategyEngine.generateSignals(symbol, interval, candles, plan), now);
+        return fresh.signals;
+    }
+
+    /**
+     * Last-bar signal of each plan, keyed {@code id@version}. Plans missing from the cache are evaluated together over
+     * one load of candles, so indicators they share are computed once.
+     */
+    public Map<String, Signal> lastSignals(String symbol, String interval, List<StrategyPlan> plans) {
+        long now = System.currentTimeMillis();
+        Map<StrategyPlan, List<Signal>> found = new HashMap<>();
+        List<StrategyPlan> missing = new ArrayList<>();
+        for (StrategyPlan plan : plans) {
+            Entry e;
+            synchronized (cache) { e = cache.get(key(symbol, interval, plan)); }
+            if (fresh(e, plan, now)) {
+                e.lastRequested = now;
+                hit(now - e.computedAt);
+                found.put(plan, e.signals);
+            } else {
+                miss();
+                missing.add(plan);
+            }
+        }
+        if (!missing.isEmpty()) {
+            CandleSeries series = CandleSeries.of(load(symbol, interval, now));
+            long barTs = series.isEmpty() ? 0 : series.timestamp(series.size() - 1);
+            List<Signal> evaluated = strategyEngine.evaluate(symbol, series, missing);
+            for (int i = 0; i < missing.size(); i++) {
+                List<Signal> sigs = i < evaluated.size() ? List.of(evaluated.get(i)) : List.of();
+                found.put(missing.get(i), put(key(symbol, interval, missing.get(i)), symbol, interval, missing.get(i), barTs, sigs, now).signals);
+            }
+        }
+        Map<String, Signal> out = new LinkedHashMap<>();
+        for (StrategyPlan plan : plans) {
+            List<Signal> sigs = found.get(plan);
+            if (sigs != null && !sigs.isEmpty()) out.put(plan.id + "@" + plan.version, sigs.get(0));
+        }
+        return out;
+    }
+
+    /**
+     * A bar stamped {@code barTs} landed for {@code symbol}. Entries whose interval bucket it moves past are marked
+     * dirty; tracked ones are recomputed in the background.
+     */
+    public void onBar(String symbol, Instant barTs) {
+        long ts = barTs.toEpochMilli(), now = System.currentTimeMillis();
+        for (Entry e : entries(symbol)) {
+            long ms = CandleService.intervalMs(e.interval);
+            if (Math.floorDiv(ts, ms) > Math.floorDiv(e.notified, ms)) {
+                e.notified = ts;
+                markDirty(e, now);
+            }
+        }
+    }
+
+    /** Marks every entry of {@code symbol} dirty; call when its stored history changes. */
+    public void invalidate(String symbol) {
+        long now = System.currentTimeMillis();
+        for (Entry e : entries(symbol)) markDirty(e, now);
+    }
+
+    /** Keeps the default-strategy daily signals of {@code symbol} precomputed regardless of request traffic. */
+    public void subscribe(String symbol) {
+        if (!subscribed.add(symbol)) return;
+        String key = key(symbol, "1d", DEFAULT_PLAN);
+        synchronized (cache) { if (cache.containsKey(key)) return; }
+        schedule(key, symbol, "1d", DEFAULT_PLAN, System.currentTimeMillis());
+    }
+
+    public void unsubscribe(String symbol) {
+        subscribed.remove(symbol);
+    }
+
+    public int size() {
+        synchronized (cache) { return cache.size(); }
+    }
+
+    public double hitRatio() {
+        long h = hits.get(), total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        int dirty = 0;
+        long oldest = 0;
+        synchronized (cache) {
+            for (Entry e : cache.values()) {
+                if (e.dirtySince > 0) dirty++;
+                oldest = Math.max(oldest, now - e.computedAt);
+            }
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", size());
+        m.put("hits", hits.get());
+        m.put("misses", misses.get());
+        m.put("hitRatio", hitRatio());
+        m.put("dirty", dirty);
+        m.put("pending", pending.size());
+        m.put("recomputed", recomputed.get());
+        m.put("dropped", dropped.get());
+        m.put("subscribed", subscribed.size());
+        m.put("meanStalenessMs", staleness.mean());
+        m.put("maxEntryAgeMs", oldest);
+        m.put("meanRecomputeLagMs", lag.mean());
+        return m;
+    }
+
+    private boolean fresh(Entry e, StrategyPlan plan, long now) {
+        return e != null && e.plan == plan && e.dirtySince == 0 && now - e.computedAt < maxAgeMs;
+    }
+
+    private void hit(long stalenessMs) {
+        hits.incrementAndGet();
+        hitCounter.increment();
+        staleness.record(stalenessMs);
+    }
+
+    private void miss() {
+        misses.incrementAndGet();
+        missCounter.increment();
+    }
+
+    private List<Entry> entries(String symbol) {
+        String prefix = symbol + "|";
+        List<Entry> out = new ArrayList<>();
+        synchronized (cache) {
+            // iterate the entry set: get() would reorder the access-ordered map
+            for (Map.Entry<String, Entry> me : cache.entrySet()) if (me.getKey().startsWith(prefix)) out.add(me.getValue());
+        }
+        return out;
+    }
+
+    private void markDirty(Entry e, long now) {
+        if (e.dirtySince == 0) e.dirtySince = now;
+        String key = key(e.symbol, e.interval, e.plan);
+        if (subscribed.contains(e.symbol) || now - e.lastRequested < trackMs) {
+            schedule(key, e.symbol, e.interval, e.plan, e.dirtySince);
+        } else {
+            synchronized (cache) { cache.remove(key, e); }
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void schedule(String key, String symbol, String interval, StrategyPlan plan, long since) {
+        if (!pending.add(key)) return;
+        pool.execute(() -> {
+            pending.remove(key);
+            try {
+                long now = System.currentTimeMillis();
+                List<Candle> candles = load(symbol, interval, now);
+                Entry prev;
+                synchronized (cache) { prev = cache.get(key); }
+                long requested = prev != null ? prev.lastRequested : 0;
+                put(key, symbol, interval, plan, barTs(candles), strategyEngine.generateSignals(symbol, interval, candles, plan), requested);
+                recomputed.incrementAndGet();
+                lag.record(System.currentTimeMillis() - since);
+            } catch (RuntimeException ex) {
+                log.warn("Signal precompute failed for {} {}: {}", symbol, interval, ex.getMessage());
+            }
+        });
+    }
+
+    private Entry put(String key, String symbol, String interval, StrategyPlan plan, long barTs, List<Signal> signals, long requested) {
+        Entry e = new Entry(symbol, interval, plan, barTs, System.currentTimeMillis(), List.copyOf(signals), requested);
+        synchronized (cache) {
+            Entry prev = cache.get(key);
+            // a slower computation over older bars must not replace a newer one
+            if (prev != null && prev.dirtySince == 0 && prev.plan == plan && prev.barTs > barTs) return prev;
+            if (prev != null) e.notified = Math.max(e.notified, prev.notified);
+            cache.put(key, e);
+        }
+        return e;
+    }
+
+    private List<Candle> load(String symbol, String interval, long now) {
+        Instant end = Instant.ofEpochMilli(now);
+        return candleService.getCandles(symbol, interval, end.minusSeconds(lookbackSeconds), end);
+    }
+
+    private static long barTs(List<Candle> candles) {
+        return candles == null || candles.isEmpty() ? 0 : candles.get(candles.size() - 1).getTimestamp().toEpochMilli();
+    }
+
+    private static String key(String symbol, String interval, StrategyPlan plan) {
+        String strategy = plan == DEFAULT_PLAN ? DEFAULT_KEY : plan.id + "@" + plan.version;
+        return symbol + "|" + interval + "|" + strategy;
+    }
+}
@@ -1,9 +1,11 @@
 package com.stocksanalyses.service;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
 import com.stocksanalyses.model.Signal;
 import com.stocksanalyses.model.StrategyConfig;
 import com.stocksanalyses.service.patterns.PatternDetectors;
+import com.stocksanalyses.service.patterns.PatternScanner;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -22,117 +24,251 @@ public class StrategyEngine {
         this.positionSizer = positionSizer;
     }
 
-    public List<Signal> generateSignals(String symbol, List<Candle> candles, StrategyConfig config) {
-        List<Signal> signals = new ArrayList<>();
-        if (candles == null || candles.size() < 50) return signals;
-
-        int fast = 12, slow = 26, signalPeriod = 9;
-        int emaShort = 20, emaLong = 50;
-        int atrPeriod = 14; double atrMult = 2.0; double targetVol = 0.15; // yearly proxy
-        double minPatternScore = 0.5;
-        java.util.Map<String, Object> patternWeights = null;
-        if (config != null && config.getParams() != null) {
-            Object v;
-            if ((v = config.getParams().get("emaShort")) instanceof Number) emaShort = ((Number) v).intValue();
-            if ((v = config.getParams().get("emaLong")) instanceof Number) emaLong = ((Number) v).intValue();
-            if ((v = config.getParams().get("macdFast")) instanceof Number) fast = ((Number) v).intValue();
-            if ((v = config.getParams().get("macdSlow")) instanceof Number) slow = ((Number) v).intValue();
-            if ((v = config.getParams().get("macdSignal")) instanceof Number) signalPeriod = ((Number) v).intValue();
-            if ((v = config.getParams().get("atrPeriod")) instanceof Number) atrPeriod = ((Number) v).intValue();
-            if ((v = config.getParams().get("atrMult")) instanceof Number) atrMult = ((Number) v).doubleValue();
-            if ((v = config.getParams().get("targetVol")) instanceof Number) targetVol = ((Number) v).doubleValue();
-            if ((v = config.getParams().get("minPatternScore")) instanceof Number) minPatternScore = ((Number) v).doubleValue();
-            // DSL-like patterns map: { patternName: { weight: number } }
-            Object pw = config.getParams().get("patterns");
-            if (pw instanceof java.util.Map<?,?>) {
-                java.util.Map<?,?> raw = (java.util.Map<?,?>) pw;
-                java.util.Map<String, Object> safe = new java.util.HashMap<>();
-                for (java.util.Map.Entry<?,?> e : raw.entrySet()) {
-                    if (e.getKey() instanceof String) safe.put((String)e.getKey(), e.getValue());
+    /** Minimum number of bars before a signal is emitted. */
+    public static final int MIN_BARS = 50;
+
+    /** Strategy parameters resolved from {@link StrategyConfig#getParams()} with defaults and guard rails applied. */
+    public static final class Params {
+        public final int emaShort, emaLong, macdFast, macdSlow, macdSignal, atrPeriod;
+        public final double atrMult, targetVol, minPatternScore;
+        public final java.util.Map<String, Object> patternWeights;
+        /** {@link #patternWeight} resolved once per {@link PatternScanner.Pattern}, indexed by ordinal. */
+        final double[] weights;
+
+        private Params(int emaShort, int emaLong, int macdFast, int macdSlow, int macdSignal, int atrPeriod,
+                       double atrMult, double targetVol, double minPatternScore, java.util.Map<String, Object> patternWeights) {
+            this.emaShort = emaShort; this.emaLong = emaLong;
+            this.macdFast = macdFast; this.macdSlow = macdSlow; this.macdSignal = macdSignal;
+            this.atrPeriod = atrPeriod; this.atrMult = atrMult; this.targetVol = targetVol;
+            this.minPatternScore = minPatternScore; this.patternWeights = patternWeights;
+            PatternScanner.Pattern[] patterns = PatternScanner.Pattern.values();
+            this.weights = new double[patterns.length];
+            for (PatternScanner.Pattern pat : patterns) weights[pat.ordinal()] = patternWeight(pat.id);
+        }
+
+        public static Params from(StrategyConfig config) {
+            int fast = 12, slow = 26, signalPeriod = 9;
+            int emaShort = 20, emaLong = 50;
+            int atrPeriod = 14; double atrMult = 2.0; double targetVol = 0.15; // yearly proxy
+            double minPatternScore = 0.5;
+            java.util.Map<String, Object> patternWeights = null;
+            if (config != null && config.getParams() != null) {
+                Object v;
+                if ((v = config.getParams().get("emaShort")) instanceof Number) emaShort = ((Number) v).intValue();
+                if ((v = config.getParams().get("emaLong")) instanceof Number) emaLong = ((Number) v).intValue();
+                if ((v = config.getParams().get("macdFast")) instanceof Number) fast = ((Number) v).intValue();
+                if ((v = config.getParams().get("macdSlow")) instanceof Number) slow = ((Number) v).intValue();
+                if ((v = config.getParams().get("macdSignal")) instanceof Number) signalPeriod = ((Number) v).intValue();
+                if ((v = config.getParams().get("atrPeriod")) instanceof Number) atrPeriod = ((Number) v).intValue();
+                if ((v = config.getParams().get("atrMult")) instanceof Number) atrMult = ((Number) v).doubleValue();
+                if ((v = config.getParams().get("targetVol")) instanceof Number) targetVol = ((Number) v).doubleValue();
+                if ((v = config.getParams().get("minPatternScore")) instanceof Number) minPatternScore = ((Number) v).doubleValue();
+                // DSL-like patterns map: { patternName: { weight: number } }
+                Object pw = config.getParams().get("patterns");
+                if (pw instanceof java.util.Map<?,?>) {
+                    java.util.Map<?,?> raw = (java.util.Map<?,?>) pw;
+                    java.util.Map<String, Object> safe = new java.util.HashMap<>();
+                    for (java.util.Map.Entry<?,?> e : raw.entrySet()) {
+                        if (e.getKey() instanceof String) safe.put((String)e.getKey(), e.getValue());
+                    }
+                    patternWeights = safe;
                 }
-                patternWeights = safe;
             }
+
+            // Guard rails: coerce defaults when invalid (defensive against malformed configs)
+            emaShort = Math.max(1, Math.min(500, emaShort));
+            emaLong = Math.max(1, Math.min(500, emaLong));
+            fast = Math.max(1, Math.min(200, fast));
+            slow = Math.max(1, Math.min(400, slow));
+            signalPeriod = Math.max(1, Math.min(200, signalPeriod));
+            atrPeriod = Math.max(2, Math.min(200, atrPeriod));
+            atrMult = Math.max(0.1, Math.min(20.0, atrMult));
+            targetVol = Math.max(0.0, Math.min(1.0, targetVol));
+            minPatternScore = Math.max(0.0, Math.min(1.0, minPatternScore));
+            return new Params(emaShort, emaLong, fast, slow, signalPeriod, atrPeriod, atrMult, targetVol, minPatternScore, patternWeights);
+        }
+
+        public double patternWeight(String name) {
+            if (patternWeights == null) return 1.0;
+            Object node = patternWeights.get(name);
+            if (node instanceof java.util.Map) {
+                Object wt = ((java.util.Map<?,?>) node).get("weight");
+                if (wt instanceof Number) return ((Number) wt).doubleValue();
+            }
+            return 1.0;
         }
+    }
+
+    public List<Signal> generateSignals(String symbol, List<Candle> candles, StrategyConfig config) {
+        return generateSignals(symbol, null, candles, config);
+    }
+
+    /**
+     * Signals for the last bar of {@code candles}. EMA/MACD come from {@link IndicatorService}'s cross-request cache
+     * keyed by symbol and interval, so repeated calls over a series that only gained bars fold in just the new ones.
+     */
+    public List<Signal> generateSignals(String symbol, String interval, List<Candle> candles, StrategyConfig config) {
+        return generateSignals(symbol, interval, candles, StrategyPlan.of(config));
+    }
+
+    /** Same as {@link #generateSignals(String, String, List, StrategyConfig)} for a compiled plan. */
+    public List<Signal> generateSignals(String symbol, String interval, List<Candle> candles, StrategyPlan plan) {
+        List<Signal> signals = new ArrayList<>();
+        if (candles == null || candles.size() < MIN_BARS) return signals;
+        Params p = plan.params;
+
+        double[] emaS = indicatorService.emaClose(symbol, interval, candles, p.emaShort);
+        double[] emaL = indicatorService.emaClose(symbol, interval, candles, p.emaLong);
+        double[] macd = indicatorService.macd(symbol, interval, candles, p.macdFast, p.macdSlow, p.macdSignal);
 
-        // Guard rails: coerce defaults when invalid (defensive against malformed configs)
-        emaShort = Math.max(1, Math.min(500, emaShort));
-        emaLong = Math.max(1, Math.min(500, emaLong));
-        fast = Math.max(1, Math.min(200, fast));
-        slow = Math.max(1, Math.min(400, slow));
-        signalPeriod = Math.max(1, Math.min(200, signalPeriod));
-        atrPeriod = Math.max(2, Math.min(200, atrPeriod));
-        atrMult = Math.max(0.1, Math.min(20.0, atrMult));
-        targetVol = Math.max(0.0, Math.min(1.0, targetVol));
-        minPatternScore = Math.max(0.0, Math.min(1.0, minPatternScore));
-
-        double[] emaS = indicatorService.emaClose(candles, emaShort);
-        double[] emaL = indicatorService.emaClose(candles, emaLong);
-        double[] macd = indicatorService.macd(candles, fast, slow, signalPeriod);
-
-        Candle last = candles.get(candles.size() - 1);
         if (emaS.length > 0 && emaL.length > 0 && macd.length == 2) {
-            boolean emaBull = emaS[0] > emaL[0];
-            double macdDiff = macd[0] - macd[1];
-            // pattern scoring (weights from DSL if provided)
-            double patternScore = 0;
-            double weightSum = 0;
+            Candle last = candles.get(candles.size() - 1);
             List<String> rules = new ArrayList<>();
-            // helper to fetch weight
-            final java.util.Map<String, Object> pwFinal = patternWeights;
-            java.util.function.Function<String, Double> w = name -> {
-                if (pwFinal == null) return 1.0;
-                Object node = pwFinal.get(name);
-                if (node instanceof java.util.Map) {
-                    Object wt = ((java.util.Map<?,?>) node).get("weight");
-                    if (wt instanceof Number) return ((Number) wt).doubleValue();
-                }
-                return 1.0;
-            };
-            var eng = patternDetectors.bullishEngulfing(candles);
-            if (eng != null){ double ww = w.apply("bullish_engulfing"); patternScore += eng.confidence * ww; weightSum += ww; rules.add("pattern:"+eng.name); rules.addAll(eng.rules); }
-            var dj = patternDetectors.doji(candles, 0.1);
-            if (dj != null){ double ww = w.apply("doji"); patternScore += (1-dj.confidence) * ww; weightSum += ww; rules.add("pattern:"+dj.name); }
-            var ms = patternDetectors.morningStar(candles, 0.0);
-            if (ms != null){ double ww = w.apply("morning_star"); patternScore += ms.confidence * ww; weightSum += ww; rules.add("pattern:"+ms.name); }
-            var hm = patternDetectors.hammer(candles, 0.5, 0.3);
-            if (hm != null){ double ww = w.apply("hammer"); patternScore += hm.confidence * ww; weightSum += ww; rules.add("pattern:"+hm.name); }
-            var ss = patternDetectors.shootingStar(candles, 0.5, 0.3);
-            if (ss != null){ double ww = w.apply("shooting_star"); patternScore += ss.confidence * ww; weightSum += ww; rules.add("pattern:"+ss.name); }
-            if (weightSum > 0) patternScore /= weightSum;
-
-            Signal.Type type;
-            double strength;
-            rules.add(emaBull ? "EMA short > EMA long" : "EMA short < EMA long");
-            rules.add(macdDiff > 0 ? "MACD above signal" : "MACD below signal");
-            if (emaBull && macdDiff > 0 && patternScore > minPatternScore) {
-                type = Signal.Type.BUY;
-                strength = Math.min(1.0, Math.abs(macdDiff) * 0.6 + Math.min(1.0, patternScore) * 0.4);
-            } else if (!emaBull && macdDiff < 0 && patternScore > minPatternScore) {
-                type = Signal.Type.SELL;
-                strength = Math.min(1.0, Math.abs(macdDiff) * 0.6 + Math.min(1.0, patternScore) * 0.4);
-            } else {
-                type = Signal.Type.NEUTRAL;
-                strength = 0.1;
-            }
+            double patternScore = weighted(detect(candles), p.weights, rules);
+            signals.add(composeSignal(symbol, last.getTimestamp(), last.getClose().doubleValue(), p, emaS[0], emaL[0], macd[0], macd[1],
+                    patternScore, rules, longSide -> riskManager.atrStop(candles, p.atrPeriod, p.atrMult, longSide)));
+        }
+        return signals;
+    }
 
-            // risk check and position sizing (simple)
-            boolean longSide = type == Signal.Type.BUY;
-            var risk = riskManager.atrStop(candles, atrPeriod, atrMult, longSide);
-            if (!risk.pass) { rules.add("risk:atr unavailable"); }
-            else { rules.add(String.format("risk:ATR=%.4f stop=%.2f trail=%.2f", risk.atr, risk.stopPrice, risk.trailPrice)); }
-            // naive asset vol proxy using ATR/price
-            double assetVol = risk.atr / Math.max(1e-9, last.getClose().doubleValue());
-            double posW = positionSizer.targetVolatilitySizer(targetVol, assetVol);
-            rules.add(String.format("pos:targetVolSizer=%.2f", posW));
-
-            String explain = String.format("Patterns=%.2f, EMA%d/%d, MACD %.3f vs %.3f, posW %.2f",
-                    patternScore, emaShort, emaLong, macd[0], macd[1], posW);
-            Signal sig = new Signal(symbol, last.getTimestamp(), type, strength, explain);
-            sig.setRulesFired(rules);
-            signals.add(sig);
+    /** Same as {@link #generateSignals(String, List, StrategyConfig)} over a columnar series, without ta4j. */
+    public List<Signal> generateSignals(String symbol, CandleSeries series, StrategyConfig config) {
+        return evaluate(symbol, series, List.of(StrategyPlan.of(config)));
+    }
+
+    /**
+     * Last-bar signal of each plan over one series, in plan order (empty when the series is shorter than
+     * {@link #MIN_BARS}). Indicator nodes shared between plans and the pattern detection run once.
+     */
+    public List<Signal> evaluate(String symbol, CandleSeries series, List<StrategyPlan> plans) {
+        List<Signal> signals = new ArrayList<>(plans.size());
+        if (series == null || series.size() < MIN_BARS) return signals;
+        IndicatorGraph graph = new IndicatorGraph(plans);
+        double[] values = graph.lastValues(series);
+        PatternDetectors.PatternHit[] hits = detect(series);
+        int last = series.size() - 1;
+        for (StrategyPlan plan : plans) {
+            Params p = plan.params;
+            double fast = values[graph.slot(plan.macdFast)], slow = values[graph.slot(plan.macdSlow)];
+            List<String> rules = new ArrayList<>();
+            double patternScore = weighted(hits, p.weights, rules);
+            signals.add(composeSignal(symbol, series.instant(last), series.close(last), p,
+                    values[graph.slot(plan.emaShort)], values[graph.slot(plan.emaLong)], fast - slow, values[graph.slot(plan.macdSignal)],
+                    patternScore, rules, longSide -> riskManager.atrStop(series, p.atrPeriod, p.atrMult, longSide)));
         }
         return signals;
     }
-}
 
+    /**
+     * Stateful evaluator producing the same signals as {@link #generateSignals} on every prefix of a series,
+     * with indicators updated in O(1) per bar. Intended for bar-by-bar drivers such as backtests.
+     */
+    public IncrementalStrategyEvaluator newEvaluator(String symbol, StrategyConfig config) {
+        return new IncrementalStrategyEvaluator(this, symbol, Params.from(config));
+    }
+
+    public IncrementalStrategyEvaluator newEvaluator(String symbol, StrategyPlan plan) {
+        return new IncrementalStrategyEvaluator(this, symbol, plan.params);
+    }
+
+    RiskManager riskManager() { return riskManager; }
+
+    /**
+     * Weighted candlestick-pattern score for the last bar of {@code recent} (only the last three bars are read).
+     * Names of the patterns that fired are appended to {@code rules} when it is non-null.
+     */
+    public double patternScore(List<Candle> recent, Params p, List<String> rules) {
+        return weighted(detect(recent), p.weights, rules);
+    }
+
+    /** Pattern score for the last bar of {@code series}; see {@link #patternScore(List, Params, List)}. */
+    public double patternScore(CandleSeries series, Params p, List<String> rules) {
+        return weighted(detect(series), p.weights, rules);
+    }
+
+    /** Detector hits for the last bar, indexed by {@link PatternScanner.Pattern} ordinal (null when absent). */
+    private PatternDetectors.PatternHit[] detect(List<Candle> recent) {
+        return new PatternDetectors.PatternHit[]{ patternDetectors.bullishEngulfing(recent), patternDetectors.doji(recent, 0.1),
+                patternDetectors.morningStar(recent, 0.0), patternDetectors.hammer(recent, 0.5, 0.3), patternDetectors.shootingStar(recent, 0.5, 0.3) };
+    }
+
+    private PatternDetectors.PatternHit[] detect(CandleSeries series) {
+        return new PatternDetectors.PatternHit[]{ patternDetectors.bullishEngulfing(series), patternDetectors.doji(series, 0.1),
+                patternDetectors.morningStar(series, 0.0), patternDetectors.hammer(series, 0.5, 0.3), patternDetectors.shootingStar(series, 0.5, 0.3) };
+    }
+
+    // weights from the DSL; a doji counts as indecision, so its score is 1 - confidence
+    private static double weighted(PatternDetectors.PatternHit[] hits, double[] w, List<String> rules) {
+        double patternScore = 0;
+        double weightSum = 0;
+        for (int k = 0; k < hits.length; k++) {
+            PatternDetectors.PatternHit hit = hits[k];
+            if (hit == null) continue;
+            double ww = w[k];
+            patternScore += (k == PatternScanner.Pattern.DOJI.ordinal() ? 1 - hit.confidence : hit.confidence) * ww;
+            weightSum += ww;
+            if (rules != null) {
+                rules.add("pattern:" + hit.name);
+                if (k == PatternScanner.Pattern.BULLISH_ENGULFING.ordinal()) rules.addAll(hit.rules);
+            }
+        }
+        if (weightSum > 0) patternScore /= weightSum;
+        return patternScore;
+    }
 
+    /**
+     * Pattern score of every bar of {@code series} in one pass: {@code out[i]} equals
+     * {@code patternScore(series.window(max(0, i - 2), i + 1), p, null)}.
+     */
+    public double[] patternScores(CandleSeries series, Params p) {
+        int n = series.size();
+        double[] score = new double[n], weight = new double[n];
+        double[] w = p.weights;
+        PatternScanner.DEFAULT.scan(series, 0, n, (i, pat, conf) -> {
+            double ww = w[pat.ordinal()];
+            score[i] += (pat == PatternScanner.Pattern.DOJI ? 1 - conf : conf) * ww;
+            weight[i] += ww;
+        });
+        for (int i = 0; i < n; i++) if (weight[i] > 0) score[i] /= weight[i];
+        return score;
+    }
+
+    /** Signal direction from trend (EMA short vs long), momentum (MACD minus signal) and pattern confirmation. */
+    public static Signal.Type classify(boolean emaBull, double macdDiff, double patternScore, double minPatternScore) {
+        if (emaBull && macdDiff > 0 && patternScore > minPatternScore) return Signal.Type.BUY;
+        if (!emaBull && macdDiff < 0 && patternScore > minPatternScore) return Signal.Type.SELL;
+        return Signal.Type.NEUTRAL;
+    }
+
+    /**
+     * Combines indicator values and the pattern score of the last bar into a single signal.
+     * {@code rules} already holds the pattern rules that fired and is extended with the trend/risk rules.
+     */
+    Signal composeSignal(String symbol, java.time.Instant ts, double lastClose, Params p, double emaS, double emaL, double macdVal, double macdSignal,
+                         double patternScore, List<String> rules, java.util.function.Function<Boolean, RiskManager.RiskOutcome> riskFn) {
+        boolean emaBull = emaS > emaL;
+        double macdDiff = macdVal - macdSignal;
+
+        Signal.Type type = classify(emaBull, macdDiff, patternScore, p.minPatternScore);
+        double strength = type == Signal.Type.NEUTRAL ? 0.1
+                : Math.min(1.0, Math.abs(macdDiff) * 0.6 + Math.min(1.0, patternScore) * 0.4);
+        rules.add(emaBull ? "EMA short > EMA long" : "EMA short < EMA long");
+        rules.add(macdDiff > 0 ? "MACD above signal" : "MACD below signal");
+
+        // risk check and position sizing (simple)
+        boolean longSide = type == Signal.Type.BUY;
+        var risk = riskFn.apply(longSide);
+        if (!risk.pass) { rules.add("risk:atr unavailable"); }
+        else { rules.add(String.format("risk:ATR=%.4f stop=%.2f trail=%.2f", risk.atr, risk.stopPrice, risk.trailPrice)); }
+        // naive asset vol proxy using ATR/price
+        double assetVol = risk.atr / Math.max(1e-9, lastClose);
+        double posW = positionSizer.targetVolatilitySizer(p.targetVol, assetVol);
+        rules.add(String.format("pos:targetVolSizer=%.2f", posW));
+
+        String explain = String.format("Patterns=%.2f, EMA%d/%d, MACD %.3f vs %.3f, posW %.2f",
+                patternScore, p.emaShort, p.emaLong, macdVal, macdSignal, posW);
+        Signal sig = new Signal(symbol, ts, type, strength, explain);
+        sig.setRulesFired(rules);
+        return sig;
+    }
+}
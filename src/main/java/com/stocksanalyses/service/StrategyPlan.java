@@ -0,0 +1,69 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.StrategyConfig;
+import com.stocksanalyses.model.StrategyDefinition;
+import com.stocksanalyses.service.patterns.PatternScanner;
+
+import java.util.*;
+
+/**
+ * Immutable, compiled form of a strategy: typed {@link StrategyEngine.Params} (pattern weights already resolved per
+ * {@link PatternScanner.Pattern}) and the indicator nodes the strategy reads. Compile once (the
+ * registry caches plans by id and version) and evaluate many times without touching the params map.
+ */
+public final class StrategyPlan {
+    /** Indicator node over the close column; equal nodes from different plans are computed once. */
+    public static final class Indicator {
+        public enum Kind { EMA, MACD_SIGNAL }
+
+        public final Kind kind;
+        final int a, b, c;
+
+        private Indicator(Kind kind, int a, int b, int c) { this.kind = kind; this.a = a; this.b = b; this.c = c; }
+
+        public static Indicator ema(int period) { return new Indicator(Kind.EMA, period, 0, 0); }
+        public static Indicator macdSignal(int fast, int slow, int signal) { return new Indicator(Kind.MACD_SIGNAL, fast, slow, signal); }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof Indicator i && i.kind == kind && i.a == a && i.b == b && i.c == c;
+        }
+        @Override public int hashCode() { return Objects.hash(kind, a, b, c); }
+        @Override public String toString() { return kind == Kind.EMA ? "ema(" + a + ")" : "macdSignal(" + a + "," + b + "," + c + ")"; }
+    }
+
+    public final String id;
+    public final String version;
+    public final StrategyEngine.Params params;
+    final Indicator emaShort, emaLong, macdFast, macdSlow, macdSignal;
+    private final List<Indicator> indicators;
+
+    private StrategyPlan(String id, String version, StrategyEngine.Params params) {
+        this.id = id;
+        this.version = version;
+        this.params = params;
+        this.emaShort = Indicator.ema(params.emaShort);
+        this.emaLong = Indicator.ema(params.emaLong);
+        this.macdFast = Indicator.ema(params.macdFast);
+        this.macdSlow = Indicator.ema(params.macdSlow);
+        this.macdSignal = Indicator.macdSignal(params.macdFast, params.macdSlow, params.macdSignal);
+        Set<Indicator> nodes = new LinkedHashSet<>(List.of(emaShort, emaLong, macdFast, macdSlow, macdSignal));
+        this.indicators = List.copyOf(nodes);
+    }
+
+    /** Plan for an ad-hoc config (not cached). */
+    public static StrategyPlan of(StrategyConfig config) {
+        String name = config != null ? config.getName() : null;
+        return new StrategyPlan(name, null, StrategyEngine.Params.from(config));
+    }
+
+    /** Compiles a registered definition from the config {@link StrategyDSLService#toConfig} translated it to. */
+    public static StrategyPlan compile(StrategyDefinition def, StrategyConfig config) {
+        return new StrategyPlan(def.getId(), def.getVersion(), StrategyEngine.Params.from(config));
+    }
+
+    /** Weight of {@code p} in the pattern score (1.0 unless configured). */
+    public double weight(PatternScanner.Pattern p) { return params.weights[p.ordinal()]; }
+
+    /** Distinct indicator nodes; the EMAs a MACD signal is built from precede it. */
+    public List<Indicator> indicators() { return indicators; }
+}
@@ -9,9 +9,25 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class StrategyRegistry {
     private final Map<String, NavigableMap<String, StrategyDefinition>> registry = new ConcurrentHashMap<>();
+    /** Compiled plans by {@code id@version}; re-registering a version drops its plan. */
+    private final Map<String, StrategyPlan> plans = new ConcurrentHashMap<>();
+    private final StrategyDSLService dslService;
+
+    public StrategyRegistry(StrategyDSLService dslService) {
+        this.dslService = dslService;
+    }
 
     public void register(StrategyDefinition def){
         registry.computeIfAbsent(def.getId(), k -> new TreeMap<>()).put(def.getVersion(), def);
+        plans.remove(def.getId() + "@" + def.getVersion());
+    }
+
+    /** Compiled plan of the definition {@link #get} resolves, compiled on first use; null when the id is unknown. */
+    public StrategyPlan plan(String id, String version){
+        StrategyDefinition def = get(id, version);
+        if (def == null) return null;
+        return plans.computeIfAbsent(def.getId() + "@" + def.getVersion(),
+                k -> StrategyPlan.compile(def, dslService.toConfig(def, def.getDsl() != null ? def.getDsl() : Map.of())));
     }
     public StrategyDefinition get(String id, String version){
         NavigableMap<String, StrategyDefinition> m = registry.get(id);
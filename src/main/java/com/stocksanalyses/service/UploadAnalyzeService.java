@@ -53,7 +53,9 @@ public class UploadAnalyzeService {
         if (macdSignal != null) params.put("macdSignal", macdSignal);
         var config = new StrategyConfig("ema-macd", params);
         long t0 = System.currentTimeMillis();
-        var signals = strategyEngine.generateSignals("UPLOAD", candles, config);
+        // each upload is its own series: a null symbol keeps it out of the per-symbol indicator cache
+        var signals = strategyEngine.generateSignals(null, "1d", candles, config);
+        signals.forEach(s -> s.setSymbol("UPLOAD"));
         long elapsed = System.currentTimeMillis() - t0;
         meterRegistry.counter("signals_generated_total").increment();
         meterRegistry.timer("strategy_generate_ms").record(java.time.Duration.ofMillis(elapsed));
@@ -1,57 +1,114 @@
 package com.stocksanalyses.service.alerts;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.expr.ExprProgram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
 
+/**
+ * Evaluates the rules in {@code data/alerts/rules.yml} against local quotes. Each rule is an expression of
+ * {@link ExprProgram} ({@code kind: indicator} fires when its {@code expr} is true at the last bar; {@code kind: price}
+ * is {@code CHANGE_PCT(close, 1)} against {@code thresholdPct}). The file is parsed and compiled only when it changes;
+ * rules on the same symbol are compiled into one program so shared subexpressions are computed once per cycle, over
+ * one load of the symbol's quotes.
+ */
 @Service
 public class AlertRuleEngine {
+  private static final Logger log = LoggerFactory.getLogger(AlertRuleEngine.class);
+  static final String PRICE_EXPR = "CHANGE_PCT(close, 1)";
+
   private final com.stocksanalyses.controller.AlertsController sse;
   private final AlertHistoryService history;
   private final ObjectMapper om = new ObjectMapper();
+  private final File rulesFile = new File("data/alerts/rules.yml");
+  private long loadedModified = -1, loadedLength = -1;
+  private List<Group> groups = List.of();
+
+  /** Rules of one market/symbol compiled together. */
+  static final class Group {
+    final String symbol, market;
+    final List<Map<String,Object>> rules;
+    final ExprProgram program;
+    Group(String symbol, String market, List<Map<String,Object>> rules, ExprProgram program){
+      this.symbol = symbol; this.market = market; this.rules = rules; this.program = program;
+    }
+  }
 
   public AlertRuleEngine(com.stocksanalyses.controller.AlertsController sse, AlertHistoryService history){
     this.sse = sse; this.history = history;
   }
 
   @Scheduled(fixedDelayString = "${alerts.schedulerMs:30000}")
-  public void run(){
+  public synchronized void run(){
     try {
-      File f = new File("data/alerts/rules.yml");
-      if (!f.exists()) return;
-      List<Map<String,Object>> rules = loadYamlList(f);
-      for (Map<String,Object> r: rules){
-        String kind = String.valueOf(r.get("kind"));
-        String symbol = String.valueOf(r.get("symbol"));
-        String market = String.valueOf(Optional.ofNullable(r.get("market")).orElse("US"));
-        if ("price".equalsIgnoreCase(kind)){
-          // demo: pct_change(1d) >= X ——通过最近两条本地csv判断
-          Number th = (Number) r.getOrDefault("thresholdPct", 5);
-          Double pct = recentPctChange(symbol, market);
-          if (pct != null && Math.abs(pct) >= th.doubleValue()){
-            sse.triggerPriceChange(symbol, pct);
-            AlertHistoryService.AlertRecord rec = new AlertHistoryService.AlertRecord();
-            rec.type = "price"; rec.symbol = symbol; rec.market = market; rec.level = Math.abs(pct)>=10?"HIGH":"MEDIUM"; rec.message = "pct="+pct;
-            history.append(rec);
-          }
-        } else if ("indicator".equalsIgnoreCase(kind)){
-          String expr = String.valueOf(r.get("expr"));
-          if (expr != null && expr.contains("RSI(")){
-            Double rsi = recentRsi(symbol, market, 14);
-            if (rsi != null){
-              if (expr.contains("< 30") && rsi < 30){ sse.pushDemo("rsi-oversold:"+symbol+":"+rsi);
-                var rec = new AlertHistoryService.AlertRecord(); rec.type="indicator"; rec.symbol=symbol; rec.market=market; rec.level="LOW"; rec.message="RSI="+rsi; history.append(rec);}            
-              if (expr.contains("> 70") && rsi > 70){ sse.pushDemo("rsi-overbought:"+symbol+":"+rsi);
-                var rec = new AlertHistoryService.AlertRecord(); rec.type="indicator"; rec.symbol=symbol; rec.market=market; rec.level="MEDIUM"; rec.message="RSI="+rsi; history.append(rec);}            
-            }
-          }
-        }
+      if (!rulesFile.exists()) return;
+      if (rulesFile.lastModified() != loadedModified || rulesFile.length() != loadedLength){
+        loadedModified = rulesFile.lastModified(); loadedLength = rulesFile.length();
+        groups = compile(loadYamlList(rulesFile));
+      }
+      for (Group g: groups){
+        CandleSeries series = loadSeries(g.symbol, g.market);
+        if (series == null) continue;
+        double[] values = g.program.lastValues(series);
+        for (int i=0; i<values.length; i++) fire(g, g.rules.get(i), g.program.expression(i), values[i]);
       }
-    } catch (Exception ignored) {}
+    } catch (Exception e) {
+      log.warn("Alert rule cycle failed: {}", e.getMessage());
+    }
+  }
+
+  /** Groups rules by market and symbol and compiles each group; rules whose expression does not compile are skipped. */
+  static List<Group> compile(List<Map<String,Object>> rules){
+    Map<String, List<Map<String,Object>>> bySymbol = new LinkedHashMap<>();
+    Map<String, List<String>> exprs = new HashMap<>();
+    for (Map<String,Object> r: rules){
+      String kind = String.valueOf(r.get("kind"));
+      String expr;
+      if ("price".equalsIgnoreCase(kind)) expr = PRICE_EXPR;
+      else if ("indicator".equalsIgnoreCase(kind) && r.get("expr") != null) expr = String.valueOf(r.get("expr"));
+      else continue;
+      try { ExprProgram.compile(expr); }
+      catch (IllegalArgumentException e){ log.warn("Skipping alert rule for {}: {}", r.get("symbol"), e.getMessage()); continue; }
+      String key = market(r) + "/" + r.get("symbol");
+      bySymbol.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+      exprs.computeIfAbsent(key, k -> new ArrayList<>()).add(expr);
+    }
+    List<Group> out = new ArrayList<>();
+    for (var e: bySymbol.entrySet()){
+      Map<String,Object> first = e.getValue().get(0);
+      out.add(new Group(String.valueOf(first.get("symbol")), market(first), e.getValue(), ExprProgram.compile(exprs.get(e.getKey()))));
+    }
+    return out;
+  }
+
+  private static String market(Map<String,Object> r){
+    return String.valueOf(Optional.ofNullable(r.get("market")).orElse("US"));
+  }
+
+  private void fire(Group g, Map<String,Object> r, String expr, double value){
+    String symbol = g.symbol, market = g.market;
+    if ("price".equalsIgnoreCase(String.valueOf(r.get("kind")))){
+      Number th = (Number) r.getOrDefault("thresholdPct", 5);
+      if (Double.isNaN(value) || Math.abs(value) < th.doubleValue()) return;
+      sse.triggerPriceChange(symbol, value);
+      AlertHistoryService.AlertRecord rec = new AlertHistoryService.AlertRecord();
+      rec.type = "price"; rec.symbol = symbol; rec.market = market; rec.level = Math.abs(value)>=10?"HIGH":"MEDIUM"; rec.message = "pct="+value;
+      history.append(rec);
+    } else if (ExprProgram.truth(value)){
+      sse.pushDemo("indicator:"+symbol+":"+expr);
+      var rec = new AlertHistoryService.AlertRecord(); rec.type="indicator"; rec.symbol=symbol; rec.market=market;
+      rec.level = String.valueOf(r.getOrDefault("level", "MEDIUM")); rec.message = expr; history.append(rec);
+    }
   }
 
   private List<Map<String,Object>> loadYamlList(File f) throws Exception {
@@ -70,35 +127,32 @@ public class AlertRuleEngine {
     return out;
   }
 
-  private Double recentPctChange(String symbol, String market){
+  /** Columns of {@code data/quotes/<market>/<symbol>.csv} (date,open,high,low,close[,volume]); null when missing or unreadable. */
+  static CandleSeries loadSeries(String symbol, String market){
     try {
       File f = new File("data/quotes/"+market+"/"+symbol+".csv");
       if (!f.exists()) return null;
       List<String> lines = Files.readAllLines(f.toPath());
-      if (lines.size() < 3) return null;
-      String[] a = lines.get(lines.size()-1).split(",");
-      String[] b = lines.get(lines.size()-2).split(",");
-      double last = Double.parseDouble(a[4]);
-      double prev = Double.parseDouble(b[4]);
-      return (last - prev) / prev * 100.0;
+      int n = 0;
+      long[] ts = new long[lines.size()], vol = new long[lines.size()];
+      double[] o = new double[lines.size()], h = new double[lines.size()], l = new double[lines.size()], c = new double[lines.size()];
+      for (int i=1;i<lines.size();i++){
+        String[] a = lines.get(i).split(",");
+        if (a.length < 5) continue;
+        ts[n] = timestamp(a[0].trim(), n);
+        o[n] = Double.parseDouble(a[1].trim()); h[n] = Double.parseDouble(a[2].trim());
+        l[n] = Double.parseDouble(a[3].trim()); c[n] = Double.parseDouble(a[4].trim());
+        vol[n] = a.length > 5 ? (long) Double.parseDouble(a[5].trim()) : 0;
+        n++;
+      }
+      return CandleSeries.wrap(Arrays.copyOf(ts, n), Arrays.copyOf(o, n), Arrays.copyOf(h, n), Arrays.copyOf(l, n), Arrays.copyOf(c, n), Arrays.copyOf(vol, n));
     } catch (Exception e){ return null; }
   }
 
-  private Double recentRsi(String symbol, String market, int p){
-    try {
-      File f = new File("data/quotes/"+market+"/"+symbol+".csv"); if (!f.exists()) return null;
-      List<String> lines = Files.readAllLines(f.toPath());
-      if (lines.size() < p+2) return null;
-      List<Double> closes = new ArrayList<>();
-      for (int i=1;i<lines.size();i++){ String[] c=lines.get(i).split(","); if (c.length>4) closes.add(Double.parseDouble(c[4])); }
-      double gain=0, loss=0; int n = closes.size();
-      for (int i=n-p; i<n; i++){
-        double ch = closes.get(i) - closes.get(i-1);
-        if (ch>0) gain += ch; else loss -= ch;
-      }
-      double avgG = gain/p, avgL = loss/p; double rs = avgL==0? 999 : avgG/avgL; return 100 - 100/(1+rs);
-    } catch (Exception e){ return null; }
+  private static long timestamp(String s, int row){
+    try { return Long.parseLong(s); } catch (NumberFormatException ignored) {}
+    try { return LocalDate.parse(s).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(); } catch (Exception ignored) {}
+    try { return Instant.parse(s).toEpochMilli(); } catch (Exception ignored) {}
+    return row; // rules only read the columns, so row order is enough
   }
 }
-
-
@@ -2,7 +2,9 @@ package com.stocksanalyses.service.backtest;
 
 import com.stocksanalyses.model.*;
 import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.IncrementalStrategyEvaluator;
 import com.stocksanalyses.service.StrategyEngine;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -13,15 +15,31 @@ public class BacktestEngine {
     public interface CostModel { double cost(double notional); }
     public interface SlippageModel { double slip(double price); }
 
+    /** Per-bar callback for long runs: progress reporting and cooperative cancellation. */
+    public interface BarListener {
+        void onBar(int barsDone, int totalBars, double equity);
+        /** Checked before every bar; returning true stops the run with a {@link java.util.concurrent.CancellationException}. */
+        default boolean cancelled() { return false; }
+    }
+
+    static final int PERIODS_PER_YEAR = 252;
+
     private final CandleService candleService;
     private final StrategyEngine strategyEngine;
+    private final BacktestResultCache resultCache; // nullable: no caching
 
     public BacktestEngine(CandleService candleService, StrategyEngine strategyEngine) {
+        this(candleService, strategyEngine, null);
+    }
+
+    @Autowired
+    public BacktestEngine(CandleService candleService, StrategyEngine strategyEngine, BacktestResultCache resultCache) {
         this.candleService = candleService;
         this.strategyEngine = strategyEngine;
+        this.resultCache = resultCache;
     }
 
-    private double pickExecPrice(String mode, Candle last, List<Candle> window){
+    static double pickExecPrice(String mode, Candle last, List<Candle> window){
         switch (mode){
             case "OPEN":
                 return last.getOpen().doubleValue();
@@ -46,19 +64,18 @@ public class BacktestEngine {
         }
     }
 
-    public BacktestResult run(BacktestRequest req){
-        String symbol = req.universe.get(0);
-        Instant start = req.start==null? Instant.now().minusSeconds(86400L*200): Instant.parse(req.start);
-        Instant end = req.end==null? Instant.now(): Instant.parse(req.end);
-        List<Candle> candles = candleService.getCandles(symbol, req.interval==null?"1d":req.interval, start, end);
-        CostModel cm = notional -> {
+    static CostModel costModel(BacktestRequest req){
+        return notional -> {
             double bps = req.costModel!=null? ((Number) req.costModel.getOrDefault("bps", 0)).doubleValue():0.0;
             double perTrade = req.costModel!=null? ((Number) req.costModel.getOrDefault("perTrade", 0)).doubleValue():0.0;
             double minFee = req.costModel!=null? ((Number) req.costModel.getOrDefault("minFee", 0)).doubleValue():0.0;
             double fee = notional * (bps/10000.0) + perTrade;
             return Math.max(fee, minFee);
         };
-        SlippageModel sm = price -> {
+    }
+
+    static SlippageModel slippageModel(BacktestRequest req){
+        return price -> {
             if (req.slippageModel==null) return 0.0;
             String type = String.valueOf(req.slippageModel.getOrDefault("type", "bps"));
             if ("ticks".equalsIgnoreCase(type)){
@@ -70,10 +87,51 @@ public class BacktestEngine {
                 return price * (bps/10000.0);
             }
         };
+    }
+
+    public BacktestResult run(BacktestRequest req){
+        return run(req, null);
+    }
+
+    /** As {@link #run(BacktestRequest)}, reporting each bar to {@code listener} (nullable). */
+    public BacktestResult run(BacktestRequest req, BarListener listener){
+        if (req.universe == null || req.universe.isEmpty()) throw new IllegalArgumentException("universe must not be empty");
+        String symbol = req.universe.get(0);
+        List<Candle> candles = loadCandles(req, symbol);
+        if (resultCache == null) return compute(req, symbol, candles, listener);
+        BacktestResult res = resultCache.getOrCompute(req, symbol, candles, () -> compute(req, symbol, candles, listener));
+        if (listener != null && !res.equity.isEmpty()) listener.onBar(candles.size(), candles.size(), res.equity.get(res.equity.size()-1));
+        return res;
+    }
 
-        double cash = req.initialCapital; double pos = 0;
+    private BacktestResult compute(BacktestRequest req, String symbol, List<Candle> candles, BarListener listener){
+        // incremental evaluation: O(1) indicator updates per bar instead of re-running the strategy on every prefix
+        IncrementalStrategyEvaluator evaluator = strategyEngine.newEvaluator(symbol, req.strategyConfig);
+        return simulate(req, candles, i -> evaluator.onBar(candles.get(i)), listener);
+    }
+
+    public List<Candle> loadCandles(BacktestRequest req, String symbol){
+        Instant start = req.start==null? Instant.now().minusSeconds(86400L*200): Instant.parse(req.start);
+        Instant end = req.end==null? Instant.now(): Instant.parse(req.end);
+        return candleService.getCandles(symbol, req.interval==null?"1d":req.interval, start, end);
+    }
+
+    /**
+     * Runs the execution/ledger loop over {@code candles}. {@code signalsAt} is called exactly once per bar,
+     * in order, and returns the signals raised on that bar.
+     */
+    public BacktestResult simulate(BacktestRequest req, List<Candle> candles, java.util.function.IntFunction<List<Signal>> signalsAt){
+        return simulate(req, candles, signalsAt, null);
+    }
+
+    public BacktestResult simulate(BacktestRequest req, List<Candle> candles, java.util.function.IntFunction<List<Signal>> signalsAt, BarListener listener){
+        CostModel cm = costModel(req);
+        SlippageModel sm = slippageModel(req);
+
+        double cash = req.initialCapital; double pos = 0; double entryCost = 0;
         List<Map<String,Object>> trades = new ArrayList<>();
-        List<Double> equity = new ArrayList<>();
+        List<Double> equity = new ArrayList<>(candles.size());
+        PerformanceAccumulator perf = new PerformanceAccumulator(PERIODS_PER_YEAR);
 
         java.util.Set<java.time.LocalDate> holidaySet = new java.util.HashSet<>();
         if (req.holidays!=null) for (String d : req.holidays) holidaySet.add(java.time.LocalDate.parse(d));
@@ -86,14 +144,17 @@ public class BacktestEngine {
         java.util.Deque<Signal> pending = new java.util.ArrayDeque<>();
 
         for (int i=0;i<candles.size();i++){
+            if (listener!=null && listener.cancelled()) throw new java.util.concurrent.CancellationException("backtest cancelled at bar " + i);
             List<Candle> window = candles.subList(0, i+1);
-            List<Signal> sigs = strategyEngine.generateSignals(symbol, window, req.strategyConfig);
+            List<Signal> sigs = signalsAt.apply(i);
             Candle last = candles.get(i);
             double mkt = last.getClose().doubleValue();
             java.time.LocalDate tradeDate = last.getTimestamp().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
             if ((req.skipWeekends && (tradeDate.getDayOfWeek().getValue()>=6)) || holidaySet.contains(tradeDate) || halts.contains(tradeDate)){
                 double markEquitySkip = cash + pos * mkt;
                 equity.add(markEquitySkip);
+                perf.onEquity(markEquitySkip);
+                if (listener!=null) listener.onBar(i+1, candles.size(), markEquitySkip);
                 continue;
             }
 
@@ -116,6 +177,8 @@ public class BacktestEngine {
                         double fee = cm.cost(notional);
                         cash -= (notional + fee);
                         pos += qty;
+                        entryCost = notional + fee;
+                        perf.onTrade(notional);
                         trades.add(Map.of("ts", last.getTimestamp().toString(), "side","BUY", "qty", qty, "price", px, "fee", fee, "mode", execMode));
                     }
                 } else if (s.getType()== Signal.Type.SELL && pos>0){
@@ -123,42 +186,20 @@ public class BacktestEngine {
                     double notional = pos * px;
                     double fee = cm.cost(notional);
                     cash += (notional - fee);
+                    perf.onTrade(notional);
+                    perf.onRoundTrip(notional - fee - entryCost);
                     trades.add(Map.of("ts", last.getTimestamp().toString(), "side","SELL", "qty", pos, "price", px, "fee", fee, "mode", execMode));
                     pos = 0;
                 }
             }
             double markEquity = cash + pos * mkt;
             equity.add(markEquity);
+            perf.onEquity(markEquity);
+            if (listener!=null) listener.onBar(i+1, candles.size(), markEquity);
         }
 
-        Map<String,Object> metrics = computeMetrics(equity);
         BacktestResult res = new BacktestResult();
-        res.trades = trades; res.equity = equity; res.metrics = metrics;
+        res.trades = trades; res.equity = equity; res.metrics = perf.toMetrics();
         return res;
     }
-
-    private Map<String,Object> computeMetrics(List<Double> equity){
-        if (equity.isEmpty()) return Map.of();
-        double start = equity.get(0), end = equity.get(equity.size()-1);
-        double ret = (end/start) - 1.0;
-        // daily returns approximation
-        List<Double> rets = new ArrayList<>();
-        for (int i=1;i<equity.size();i++) rets.add((equity.get(i)/equity.get(i-1))-1.0);
-        double mean = rets.stream().mapToDouble(d->d).average().orElse(0);
-        double var = rets.stream().mapToDouble(d->(d-mean)*(d-mean)).average().orElse(0);
-        double vol = Math.sqrt(var) * Math.sqrt(252);
-        double sharpe = vol>0? (mean*252)/vol : 0;
-        double maxDD = maxDrawdown(equity);
-        double calmar = maxDD>0? (ret*252/equity.size())/maxDD: 0;
-        double sortino = 0; // placeholder simple
-        return Map.of("return", ret, "vol", vol, "sharpe", sharpe, "maxDrawdown", maxDD, "calmar", calmar, "sortino", sortino);
-    }
-
-    private double maxDrawdown(List<Double> eq){
-        double peak = eq.get(0); double mdd = 0;
-        for (double v: eq){ if (v>peak) peak=v; mdd = Math.max(mdd, (peak - v)/peak); }
-        return mdd;
-    }
 }
-
-
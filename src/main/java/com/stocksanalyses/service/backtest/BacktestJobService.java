@@ -0,0 +1,170 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.BacktestJob;
+import com.stocksanalyses.model.BacktestRequest;
+import com.stocksanalyses.model.BacktestResult;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs candle backtests off the request thread. Jobs go through a bounded pool and queue; each user may have at most
+ * {@code maxPerUser} jobs queued or running. Progress is pushed to subscribers at most every {@code progressIntervalMs},
+ * and cancellation is checked before every bar, so a running job stops within one bar of {@link #cancel}.
+ *
+ * Finished jobs are kept for {@code retention} so results can be polled, then dropped.
+ */
+@Service
+public class BacktestJobService {
+    /** Receives job snapshots; "progress" while running, then exactly one terminal event. */
+    public interface Listener { void onEvent(String event, BacktestJob job); }
+
+    private final BacktestEngine backtestEngine;
+    private final int maxPerUser;
+    private final long progressIntervalMs;
+    private final Duration retention;
+    private final ThreadPoolExecutor pool;
+    private final Map<String, BacktestJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> futures = new ConcurrentHashMap<>();
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    public BacktestJobService(BacktestEngine backtestEngine,
+                              @Value("${backtest.jobs.threads:2}") int threads,
+                              @Value("${backtest.jobs.queueCapacity:100}") int queueCapacity,
+                              @Value("${backtest.jobs.maxPerUser:3}") int maxPerUser,
+                              @Value("${backtest.jobs.progressIntervalMs:200}") long progressIntervalMs,
+                              @Value("${backtest.jobs.retentionMinutes:60}") long retentionMinutes) {
+        this.backtestEngine = backtestEngine;
+        this.maxPerUser = Math.max(1, maxPerUser);
+        this.progressIntervalMs = Math.max(0, progressIntervalMs);
+        this.retention = Duration.ofMinutes(Math.max(1, retentionMinutes));
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        this.pool = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, "backtest-job-" + n.incrementAndGet()); t.setDaemon(true); return t;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() { pool.shutdownNow(); }
+
+    /** Queues a backtest for {@code user}; throws {@link RejectedExecutionException} when the quota or queue is full. */
+    public BacktestJob submit(String user, BacktestRequest req) {
+        if (req == null || req.universe == null || req.universe.isEmpty()) throw new IllegalArgumentException("universe must not be empty");
+        purgeExpired();
+        BacktestJob job = new BacktestJob();
+        job.id = UUID.randomUUID().toString();
+        job.user = user;
+        job.submittedAt = Instant.now();
+        synchronized (this) {
+            long active = jobs.values().stream().filter(j -> j.user.equals(user) && !j.isFinished()).count();
+            if (active >= maxPerUser)
+                throw new RejectedExecutionException("user " + user + " already has " + active + " active backtest jobs (limit " + maxPerUser + ")");
+            jobs.put(job.id, job);
+            try {
+                futures.put(job.id, pool.submit(() -> execute(job, req)));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(job.id);
+                throw new RejectedExecutionException("backtest queue is full, try again later");
+            }
+        }
+        return job;
+    }
+
+    public Optional<BacktestJob> get(String id) { return Optional.ofNullable(jobs.get(id)); }
+
+    public List<BacktestJob> list(String user) {
+        List<BacktestJob> out = new ArrayList<>();
+        for (BacktestJob j : jobs.values()) if (j.user.equals(user)) out.add(j);
+        out.sort(Comparator.comparing((BacktestJob j) -> j.submittedAt));
+        return out;
+    }
+
+    /** Requests cancellation; queued jobs never start, running jobs stop before their next bar. */
+    public BacktestJob cancel(String id) {
+        BacktestJob job = jobs.get(id);
+        if (job == null) throw new NoSuchElementException("no such job: " + id);
+        if (job.isFinished()) return job;
+        job.cancelRequested = true;
+        if (job.status == BacktestJob.Status.QUEUED) {
+            Future<?> f = futures.get(id);
+            if (f != null && f.cancel(false)) {
+                pool.remove((Runnable) f);
+                finish(job, BacktestJob.Status.CANCELLED, null);
+            }
+        }
+        return job;
+    }
+
+    /** Subscribes to a job's events; a finished job immediately gets its terminal event. Returns an unsubscribe hook. */
+    public Runnable subscribe(String id, Listener listener) {
+        BacktestJob job = jobs.get(id);
+        if (job == null) throw new NoSuchElementException("no such job: " + id);
+        List<Listener> l = listeners.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>());
+        l.add(listener);
+        // re-check after registering so a job finishing concurrently is not missed
+        if (job.isFinished() && l.remove(listener)) listener.onEvent(terminalEvent(job), job);
+        return () -> l.remove(listener);
+    }
+
+    private void execute(BacktestJob job, BacktestRequest req) {
+        if (job.cancelRequested) { finish(job, BacktestJob.Status.CANCELLED, null); return; }
+        job.status = BacktestJob.Status.RUNNING;
+        job.startedAt = Instant.now();
+        publish("progress", job);
+        long[] lastEmit = {0};
+        try {
+            BacktestResult res = backtestEngine.run(req, new BacktestEngine.BarListener() {
+                @Override public void onBar(int barsDone, int totalBars, double equity) {
+                    job.barsProcessed = barsDone;
+                    job.totalBars = totalBars;
+                    job.equity = equity;
+                    long now = System.currentTimeMillis();
+                    if (now - lastEmit[0] >= progressIntervalMs) { lastEmit[0] = now; publish("progress", job); }
+                }
+                @Override public boolean cancelled() { return job.cancelRequested; }
+            });
+            job.result = res;
+            finish(job, BacktestJob.Status.DONE, null);
+        } catch (CancellationException e) {
+            finish(job, BacktestJob.Status.CANCELLED, null);
+        } catch (RuntimeException e) {
+            finish(job, BacktestJob.Status.FAILED, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        }
+    }
+
+    private void finish(BacktestJob job, BacktestJob.Status status, String error) {
+        synchronized (job) {
+            if (job.isFinished()) return;
+            job.error = error;
+            job.finishedAt = Instant.now();
+            job.status = status;
+        }
+        futures.remove(job.id);
+        List<Listener> l = listeners.remove(job.id);
+        if (l != null) for (Listener x : l) if (l.remove(x)) safe(x, terminalEvent(job), job);
+    }
+
+    private void publish(String event, BacktestJob job) {
+        List<Listener> l = listeners.get(job.id);
+        if (l != null) for (Listener x : l) safe(x, event, job);
+    }
+
+    private static void safe(Listener x, String event, BacktestJob job) {
+        try { x.onEvent(event, job); } catch (RuntimeException ignored) { }
+    }
+
+    private static String terminalEvent(BacktestJob job) {
+        return job.status == BacktestJob.Status.DONE ? "done" : job.status == BacktestJob.Status.FAILED ? "error" : "cancelled";
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(j -> j.isFinished() && j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+}
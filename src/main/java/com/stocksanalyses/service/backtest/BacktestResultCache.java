@@ -0,0 +1,281 @@
+package com.stocksanalyses.service.backtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stocksanalyses.model.BacktestRequest;
+import com.stocksanalyses.model.BacktestResult;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.StrategyDefinition;
+import com.stocksanalyses.service.StrategyRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of candle backtest results. The key is a SHA-256 over the canonical request JSON (sorted
+ * keys, numbers normalised), the resolved strategy version, {@link #ENGINE_VERSION} and a fingerprint of the candles
+ * the run used, so any change to inputs or data yields a different key and stale entries are simply never read.
+ *
+ * Entries live in {@code <dir>/<symbol>/<key>.json} with an LRU in-memory front tier. {@link #invalidate(String)}
+ * drops a symbol's entries from both tiers when new candles are ingested. Files older than {@code maxAgeDays} are not
+ * served, and once the directory outgrows {@code maxDiskMb} the least recently read files are deleted.
+ *
+ * Every caller gets its own copy of a cached result, so mutating one cannot change what later hits return.
+ */
+@Service
+public class BacktestResultCache {
+    private static final Logger log = LoggerFactory.getLogger(BacktestResultCache.class);
+    /** Bump when simulation semantics change so results from older code are not served. */
+    public static final String ENGINE_VERSION = "2";
+
+    private final StrategyRegistry registry;
+    private final boolean enabled;
+    private final Path dir;
+    private final int memoryEntries;
+    private final long maxDiskBytes;
+    private final long maxAgeMillis;
+    private final ObjectMapper mapper = JsonMapper.builder()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .build();
+    private final Map<String, BacktestResult> memory;
+    private final AtomicLong memoryHits = new AtomicLong(), diskHits = new AtomicLong(), misses = new AtomicLong();
+    private final AtomicLong diskBytes = new AtomicLong(), diskEvictions = new AtomicLong();
+    private final Object pruning = new Object();
+
+    public BacktestResultCache(StrategyRegistry registry,
+                               @Value("${backtest.cache.enabled:true}") boolean enabled,
+                               @Value("${backtest.cache.dir:data/cache/backtest}") String dir,
+                               @Value("${backtest.cache.memoryEntries:256}") int memoryEntries,
+                               @Value("${backtest.cache.maxDiskMb:1024}") long maxDiskMb,
+                               @Value("${backtest.cache.maxAgeDays:30}") int maxAgeDays) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.memoryEntries = Math.max(1, memoryEntries);
+        this.maxDiskBytes = Math.max(1, maxDiskMb) * 1024 * 1024;
+        this.maxAgeMillis = Math.max(1, maxAgeDays) * 86_400_000L;
+        this.memory = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, BacktestResult> e) {
+                return size() > BacktestResultCache.this.memoryEntries;
+            }
+        };
+        if (enabled) prune();
+    }
+
+    /** Returns the cached result for this request and data, computing and storing it on a miss. */
+    public BacktestResult getOrCompute(BacktestRequest req, String symbol, List<Candle> candles, Supplier<BacktestResult> compute) {
+        if (!enabled) return compute.get();
+        String key = key(req, candles);
+        String memKey = symbol + "/" + key;
+        synchronized (memory) {
+            BacktestResult hit = memory.get(memKey);
+            if (hit != null) { memoryHits.incrementAndGet(); return copy(hit); }
+        }
+        Path file = file(symbol, key);
+        if (Files.exists(file)) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now - Files.getLastModifiedTime(file).toMillis() <= maxAgeMillis) {
+                    BacktestResult r = mapper.readValue(file.toFile(), BacktestResult.class);
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(now)); // read order drives size pruning
+                    diskHits.incrementAndGet();
+                    synchronized (memory) { memory.put(memKey, r); }
+                    return copy(r);
+                }
+            } catch (IOException e) {
+                log.warn("Discarding unreadable backtest cache entry {}: {}", file, e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        BacktestResult r = compute.get();
+        synchronized (memory) { memory.put(memKey, copy(r)); }
+        write(file, r);
+        return r;
+    }
+
+    /** Drops every cached result for {@code symbol}; call when its candles change. */
+    public void invalidate(String symbol) {
+        String prefix = symbol + "/";
+        synchronized (memory) { memory.keySet().removeIf(k -> k.startsWith(prefix)); }
+        Path d = dir.resolve(sanitize(symbol));
+        if (!Files.isDirectory(d)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(d, "*.json")) {
+            for (Path f : files) {
+                long size = Files.size(f);
+                if (Files.deleteIfExists(f)) diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clear backtest cache for {}: {}", symbol, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (memory) { m.put("memoryEntries", memory.size()); }
+        m.put("memoryHits", memoryHits.get());
+        m.put("diskHits", diskHits.get());
+        m.put("misses", misses.get());
+        m.put("diskBytes", diskBytes.get());
+        m.put("diskEvictions", diskEvictions.get());
+        return m;
+    }
+
+    /** Deletes expired files, then the least recently read ones until the directory is back under 90% of its cap. */
+    void prune() {
+        synchronized (pruning) {
+            if (!Files.isDirectory(dir)) { diskBytes.set(0); return; }
+            long cutoff = System.currentTimeMillis() - maxAgeMillis;
+            List<CachedFile> files = new ArrayList<>();
+            long total = 0;
+            try (var walk = Files.walk(dir, 2)) {
+                for (Path f : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".json"))::iterator) {
+                    long modified = Files.getLastModifiedTime(f).toMillis();
+                    if (modified < cutoff) { delete(f); continue; }
+                    long size = Files.size(f);
+                    files.add(new CachedFile(f, modified, size));
+                    total += size;
+                }
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to scan backtest cache {}: {}", dir, e.getMessage());
+            }
+            if (total > maxDiskBytes) {
+                files.sort(Comparator.comparingLong(CachedFile::modified));
+                long target = maxDiskBytes / 10 * 9;
+                for (CachedFile f : files) {
+                    if (total <= target) break;
+                    delete(f.path());
+                    total -= f.size();
+                }
+            }
+            diskBytes.set(total);
+        }
+    }
+
+    private void delete(Path f) {
+        try {
+            if (Files.deleteIfExists(f)) diskEvictions.incrementAndGet();
+        } catch (IOException e) {
+            log.warn("Failed to delete backtest cache entry {}: {}", f, e.getMessage());
+        }
+    }
+
+    private record CachedFile(Path path, long modified, long size) {}
+
+    private static BacktestResult copy(BacktestResult r) {
+        BacktestResult c = new BacktestResult();
+        c.trades = deepCopy(r.trades);
+        c.equity = deepCopy(r.equity);
+        c.metrics = deepCopy(r.metrics);
+        return c;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T deepCopy(T v) {
+        if (v instanceof Map<?, ?> m) {
+            Map<Object, Object> c = new LinkedHashMap<>();
+            m.forEach((k, x) -> c.put(k, deepCopy(x)));
+            return (T) c;
+        }
+        if (v instanceof List<?> l) {
+            List<Object> c = new ArrayList<>(l.size());
+            for (Object x : l) c.add(deepCopy(x));
+            return (T) c;
+        }
+        return v;
+    }
+
+    String key(BacktestRequest req, List<Candle> candles) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(mapper.writeValueAsBytes(normalize(mapper.valueToTree(req))));
+            md.update(("|" + strategyVersion(req) + "|" + ENGINE_VERSION + "|" + fingerprint(candles)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("cannot hash backtest request", e);
+        }
+    }
+
+    /** Registered version of the strategy named in the request, or "inline" for ad-hoc configs. */
+    String strategyVersion(BacktestRequest req) {
+        if (req.strategyConfig == null || req.strategyConfig.getName() == null) return "inline";
+        Object v = req.strategyConfig.getParams() != null ? req.strategyConfig.getParams().get("version") : null;
+        StrategyDefinition def = registry.get(req.strategyConfig.getName(), v == null ? null : v.toString());
+        return def == null ? "inline" : def.getId() + "@" + def.getVersion();
+    }
+
+    /** Bar count, last timestamp and a 64-bit hash over every bar's timestamp, OHLC and volume. */
+    static String fingerprint(List<Candle> candles) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (Candle c : candles) {
+            h = mix(h, c.getTimestamp().toEpochMilli());
+            h = mix(h, Double.doubleToLongBits(c.getOpen().doubleValue()));
+            h = mix(h, Double.doubleToLongBits(c.getHigh().doubleValue()));
+            h = mix(h, Double.doubleToLongBits(c.getLow().doubleValue()));
+            h = mix(h, Double.doubleToLongBits(c.getClose().doubleValue()));
+            h = mix(h, c.getVolume());
+        }
+        long last = candles.isEmpty() ? 0 : candles.get(candles.size() - 1).getTimestamp().toEpochMilli();
+        return candles.size() + ":" + last + ":" + Long.toHexString(h);
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
+
+    // 20 and 20.0 must hash the same
+    private static JsonNode normalize(JsonNode n) {
+        if (n.isNumber()) return DoubleNode.valueOf(n.doubleValue());
+        if (n.isObject()) {
+            List<String> names = new ArrayList<>();
+            n.fieldNames().forEachRemaining(names::add);
+            Collections.sort(names);
+            ObjectNode sorted = ((ObjectNode) n).objectNode();
+            for (String f : names) sorted.set(f, normalize(n.get(f)));
+            return sorted;
+        }
+        if (n.isArray()) {
+            ArrayNode a = (ArrayNode) n;
+            for (int i = 0; i < a.size(); i++) a.set(i, normalize(a.get(i)));
+        }
+        return n;
+    }
+
+    private Path file(String symbol, String key) {
+        return dir.resolve(sanitize(symbol)).resolve(key + ".json");
+    }
+
+    private void write(Path file, BacktestResult r) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "bt", ".tmp");
+            mapper.writeValue(tmp.toFile(), r);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(Files.size(file)) > maxDiskBytes) prune();
+        } catch (IOException e) {
+            log.warn("Failed to persist backtest cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String sanitize(String s) { return s == null ? "SYMBOL" : s.replaceAll("[^a-zA-Z0-9._-]", "_"); }
+}
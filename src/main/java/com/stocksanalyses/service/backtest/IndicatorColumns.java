@@ -0,0 +1,69 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.service.IndicatorService;
+import com.stocksanalyses.service.StrategyEngine;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Full-history indicator columns for one symbol, computed lazily and at most once per key, safe to share between
+ * threads. Columns are causal (value at bar i only uses bars up to i), so any window of the history can index into
+ * them directly instead of recomputing with a cold start.
+ */
+final class IndicatorColumns {
+    final String symbol;
+    final List<Candle> candles;
+    final CandleSeries series;
+    /** Pattern score per bar; pattern weights are fixed by the base config. */
+    final double[] pattern;
+    private final ConcurrentHashMap<Integer, double[]> ema = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<List<Integer>, double[]> macdSignal = new ConcurrentHashMap<>();
+
+    IndicatorColumns(String symbol, List<Candle> candles, StrategyEngine engine, StrategyEngine.Params base) {
+        this.symbol = symbol;
+        this.candles = candles;
+        this.series = CandleSeries.of(candles);
+        this.pattern = engine.patternScores(series, base);
+    }
+
+    double[] ema(int period) {
+        return ema.computeIfAbsent(period, k -> IndicatorService.emaSeries(series, k));
+    }
+
+    double[] macdSignal(int fast, int slow, int signal) {
+        return macdSignal.computeIfAbsent(List.of(fast, slow, signal), k -> {
+            double[] f = ema(fast), s = ema(slow);
+            double[] line = new double[f.length];
+            for (int i = 0; i < line.length; i++) line[i] = f[i] - s[i];
+            return IndicatorService.emaSeries(line, signal);
+        });
+    }
+
+    int columnCount() { return ema.size() + macdSignal.size() + 1; }
+
+    /** Params that change the signal stream; combinations with equal keys produce identical backtests. */
+    static List<Object> signalKey(StrategyEngine.Params p) {
+        return List.of(p.emaShort, p.emaLong, p.macdFast, p.macdSlow, p.macdSignal, p.minPatternScore);
+    }
+
+    /**
+     * Per-bar signal source for {@link BacktestEngine#simulate} over {@code candles.subList(from, ...)}:
+     * local index i maps to global bar {@code from + i}.
+     */
+    IntFunction<List<Signal>> signals(StrategyEngine.Params p, int from) {
+        double[] emaS = ema(p.emaShort), emaL = ema(p.emaLong);
+        double[] fast = ema(p.macdFast), slow = ema(p.macdSlow);
+        double[] sig = macdSignal(p.macdFast, p.macdSlow, p.macdSignal);
+        return local -> {
+            int i = from + local;
+            if (i + 1 < StrategyEngine.MIN_BARS) return List.of();
+            Signal.Type type = StrategyEngine.classify(emaS[i] > emaL[i], (fast[i] - slow[i]) - sig[i], pattern[i], p.minPatternScore);
+            return List.of(new Signal(symbol, candles.get(i).getTimestamp(), type, 0.0, null));
+        };
+    }
+}
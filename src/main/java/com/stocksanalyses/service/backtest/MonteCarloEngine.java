@@ -0,0 +1,214 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.BacktestResult;
+import com.stocksanalyses.model.MonteCarloRequest;
+import com.stocksanalyses.model.MonteCarloResult;
+import com.stocksanalyses.service.matching.Fill;
+import com.stocksanalyses.service.matching.Side;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Resampling of a return series to get a distribution of outcomes instead of a single equity curve.
+ * Paths are split into fixed chunks, each with its own {@link SplittableRandom} split from the seed in chunk order,
+ * so a given seed gives the same percentiles whatever the pool size. Per-path results go into primitive arrays.
+ */
+@Service
+public class MonteCarloEngine {
+    public enum Method { BOOTSTRAP, BLOCK, SHUFFLE }
+
+    private static final int CHUNK = 256;
+    private static final double[] PCTS = {1, 5, 25, 50, 75, 95, 99};
+
+    private final BacktestEngine backtestEngine;
+    private final int threads;
+    private final int maxPaths;
+    private final ExecutorService pool;
+
+    public MonteCarloEngine(BacktestEngine backtestEngine,
+                            @Value("${backtest.montecarlo.threads:0}") int threads,
+                            @Value("${backtest.montecarlo.maxPaths:200000}") int maxPaths) {
+        this.backtestEngine = backtestEngine;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxPaths = maxPaths;
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "montecarlo-" + n.incrementAndGet()); t.setDaemon(true); return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() { pool.shutdownNow(); }
+
+    public MonteCarloResult run(MonteCarloRequest req) {
+        if (req == null) throw new IllegalArgumentException("request must not be null");
+        double[] returns;
+        if (req.returns != null && !req.returns.isEmpty()) {
+            returns = new double[req.returns.size()];
+            for (int i = 0; i < returns.length; i++) returns[i] = req.returns.get(i);
+        } else if (req.equity != null && !req.equity.isEmpty()) {
+            returns = returnsFromEquity(req.equity);
+        } else if (req.backtest != null) {
+            BacktestResult bt = backtestEngine.run(req.backtest);
+            returns = "trades".equalsIgnoreCase(req.source) ? returnsFromTrades(bt.trades) : returnsFromEquity(bt.equity);
+        } else {
+            throw new IllegalArgumentException("one of returns, equity or backtest is required");
+        }
+        Method method;
+        try {
+            method = Method.valueOf((req.method == null ? "bootstrap" : req.method).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("method must be bootstrap, block or shuffle");
+        }
+        return run(returns, method, req.blockSize == null ? 5 : req.blockSize,
+                req.paths == null ? 10000 : req.paths, req.seed == null ? 42L : req.seed);
+    }
+
+    /** Matching-engine result: per-fill realised returns relative to the configured capital. */
+    public MonteCarloResult run(com.stocksanalyses.service.matching.BacktestResult result, double capital,
+                                Method method, int blockSize, int paths, long seed) {
+        return run(returnsFromFills(result.allFills, capital), method, blockSize, paths, seed);
+    }
+
+    public MonteCarloResult run(double[] returns, Method method, int blockSize, int paths, long seed) {
+        if (returns == null || returns.length == 0) throw new IllegalArgumentException("returns must not be empty");
+        if (paths <= 0 || paths > maxPaths) throw new IllegalArgumentException("paths must be in [1," + maxPaths + "]");
+        int block = Math.max(1, Math.min(blockSize, returns.length));
+        long t0 = System.nanoTime();
+        int n = returns.length;
+        double[] finalRet = new double[paths];
+        double[] maxDd = new double[paths];
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (int from = 0; from < paths; from += CHUNK) {
+            int a = from, b = Math.min(paths, from + CHUNK);
+            SplittableRandom rnd = root.split();
+            jobs.add(() -> {
+                double[] scratch = method == Method.SHUFFLE ? returns.clone() : null;
+                for (int p = a; p < b; p++) {
+                    double equity = 1.0, peak = 1.0, dd = 0.0;
+                    if (method == Method.SHUFFLE) {
+                        for (int i = n - 1; i > 0; i--) {
+                            int j = rnd.nextInt(i + 1);
+                            double t = scratch[i]; scratch[i] = scratch[j]; scratch[j] = t;
+                        }
+                    }
+                    int i = 0;
+                    while (i < n) {
+                        if (method == Method.SHUFFLE) {
+                            equity *= 1.0 + scratch[i++];
+                            if (equity > peak) peak = equity; else dd = Math.max(dd, (peak - equity) / peak);
+                        } else {
+                            int start = rnd.nextInt(method == Method.BLOCK ? n - block + 1 : n);
+                            int len = method == Method.BLOCK ? Math.min(block, n - i) : 1;
+                            for (int k = 0; k < len; k++, i++) {
+                                equity *= 1.0 + returns[start + k];
+                                if (equity > peak) peak = equity; else dd = Math.max(dd, (peak - equity) / peak);
+                            }
+                        }
+                    }
+                    finalRet[p] = equity - 1.0;
+                    maxDd[p] = dd;
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : pool.invokeAll(jobs)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("monte carlo interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("monte carlo failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        double sum = 0; int losses = 0;
+        for (double r : finalRet) { sum += r; if (r < 0) losses++; }
+        double eq = 1.0, peak = 1.0, dd = 0.0;
+        for (double r : returns) { eq *= 1.0 + r; if (eq > peak) peak = eq; else dd = Math.max(dd, (peak - eq) / peak); }
+        Arrays.sort(finalRet);
+        Arrays.sort(maxDd);
+
+        MonteCarloResult res = new MonteCarloResult();
+        res.paths = paths;
+        res.periods = n;
+        res.method = method.name().toLowerCase();
+        res.seed = seed;
+        res.returnPercentiles = percentiles(finalRet);
+        res.maxDrawdownPercentiles = percentiles(maxDd);
+        res.meanReturn = sum / paths;
+        res.probabilityOfLoss = (double) losses / paths;
+        res.observedReturn = eq - 1.0;
+        res.observedMaxDrawdown = dd;
+        res.elapsedMs = (System.nanoTime() - t0) / 1e6;
+        return res;
+    }
+
+    private static Map<String, Double> percentiles(double[] sorted) {
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (double p : PCTS) {
+            double rank = p / 100.0 * (sorted.length - 1);
+            int lo = (int) Math.floor(rank), hi = (int) Math.ceil(rank);
+            out.put("p" + (int) p, sorted[lo] + (sorted[hi] - sorted[lo]) * (rank - lo));
+        }
+        return out;
+    }
+
+    /** Per-bar returns of an equity curve (candle backtest {@code BacktestResult.equity}). */
+    public static double[] returnsFromEquity(List<Double> equity) {
+        if (equity == null || equity.size() < 2) return new double[0];
+        double[] out = new double[equity.size() - 1];
+        for (int i = 1; i < equity.size(); i++) out[i - 1] = equity.get(i - 1) != 0 ? equity.get(i) / equity.get(i - 1) - 1.0 : 0.0;
+        return out;
+    }
+
+    /** Round-trip returns from candle backtest trades (BUY then SELL per symbol), net of fees. */
+    public static double[] returnsFromTrades(List<Map<String, Object>> trades) {
+        Map<Object, double[]> open = new HashMap<>(); // symbol -> {cost incl. fee}
+        double[] out = new double[trades.size()];
+        int k = 0;
+        for (Map<String, Object> t : trades) {
+            Object sym = t.getOrDefault("symbol", "");
+            double qty = ((Number) t.get("qty")).doubleValue();
+            double px = ((Number) t.get("price")).doubleValue();
+            double fee = ((Number) t.getOrDefault("fee", 0.0)).doubleValue();
+            if ("BUY".equals(t.get("side"))) open.put(sym, new double[]{qty * px + fee});
+            else {
+                double[] cost = open.remove(sym);
+                if (cost != null && cost[0] > 0) out[k++] = (qty * px - fee) / cost[0] - 1.0;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+
+    /**
+     * Per-fill realised returns for the taker side of matching-engine fills (average-cost accounting),
+     * relative to {@code capital}. Fills that only add to a position contribute nothing.
+     */
+    public static double[] returnsFromFills(List<Fill> fills, double capital) {
+        double pos = 0, avg = 0;
+        double[] out = new double[fills.size()];
+        int k = 0;
+        for (Fill f : fills) {
+            double q = f.takerSide == Side.BUY ? f.quantity : -f.quantity;
+            double fee = 0; for (var x : f.fees) fee += x.amount;
+            if (pos == 0 || Math.signum(q) == Math.signum(pos)) {
+                avg = (avg * Math.abs(pos) + f.price * Math.abs(q)) / (Math.abs(pos) + Math.abs(q));
+                pos += q;
+            } else {
+                double closed = Math.min(Math.abs(q), Math.abs(pos));
+                double pnl = closed * (f.price - avg) * Math.signum(pos) - fee;
+                out[k++] = capital > 0 ? pnl / capital : 0.0;
+                pos += q;
+                if (Math.abs(q) > closed) avg = f.price; // flipped through zero
+                if (pos == 0) avg = 0;
+            }
+        }
+        return Arrays.copyOf(out, k);
+    }
+}
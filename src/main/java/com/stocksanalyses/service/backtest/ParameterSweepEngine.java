@@ -0,0 +1,190 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.StrategyEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Grid search over {@link StrategyConfig} params for a single symbol. Candles are loaded once, indicator columns
+ * (EMA per period, MACD signal per fast/slow/signal triple, pattern score) are computed once and shared by every
+ * combination that uses them, and combinations are simulated in parallel on a bounded pool.
+ *
+ * Only the EMA/MACD periods and minPatternScore change the signal stream; combinations differing only in
+ * atrPeriod/atrMult/targetVol (which feed stop and sizing annotations) are simulated once and reported per combination.
+ * Streaming sweeps wait in a bounded queue for a coordinator thread and are rejected once it is full.
+ */
+@Service
+public class ParameterSweepEngine {
+    private final BacktestEngine backtestEngine;
+    private final StrategyEngine strategyEngine;
+    private final int threads;
+    private final int maxCombinations;
+    private final ExecutorService pool;
+    private final ExecutorService coordinator;
+
+    public ParameterSweepEngine(BacktestEngine backtestEngine, StrategyEngine strategyEngine,
+                                @Value("${backtest.sweep.threads:0}") int threads,
+                                @Value("${backtest.sweep.maxCombinations:50000}") int maxCombinations,
+                                @Value("${backtest.sweep.concurrentSweeps:2}") int concurrentSweeps,
+                                @Value("${backtest.sweep.queuedSweeps:4}") int queuedSweeps) {
+        this.backtestEngine = backtestEngine;
+        this.strategyEngine = strategyEngine;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxCombinations = maxCombinations;
+        this.pool = Executors.newFixedThreadPool(this.threads, daemon("sweep-worker-"));
+        int coordinators = Math.max(1, concurrentSweeps);
+        this.coordinator = new ThreadPoolExecutor(coordinators, coordinators, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queuedSweeps)), daemon("sweep-coord-"));
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        return r -> { Thread t = new Thread(r, prefix + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /** Runs {@link #sweep} on a coordinator thread; throws {@link RejectedExecutionException} when too many are queued. */
+    public CompletableFuture<SweepResult> sweepAsync(SweepRequest req, Consumer<SweepResult.Point> onResult) {
+        return CompletableFuture.supplyAsync(() -> sweep(req, onResult), coordinator);
+    }
+
+    /**
+     * Runs the sweep and blocks until all combinations are evaluated. {@code onResult} (nullable) is invoked from the
+     * calling thread as each combination finishes, in completion order. An exception thrown by {@code onResult} stops
+     * the sweep and cancels the combinations still running.
+     */
+    public SweepResult sweep(SweepRequest req, Consumer<SweepResult.Point> onResult) {
+        if (req == null || req.base == null || req.base.universe == null || req.base.universe.isEmpty())
+            throw new IllegalArgumentException("base.universe must contain a symbol");
+        long t0 = System.nanoTime();
+        BacktestRequest base = req.base;
+        String symbol = base.universe.get(0);
+        Map<String, Object> baseParams = base.strategyConfig != null && base.strategyConfig.getParams() != null
+                ? base.strategyConfig.getParams() : Map.of();
+        String name = base.strategyConfig != null ? base.strategyConfig.getName() : "sweep";
+        List<Map<String, Object>> combos = expand(req.grid, maxCombinations);
+        List<ParamGroup> groups = group(combos, baseParams, name);
+
+        List<Candle> candles = backtestEngine.loadCandles(base, symbol);
+        IndicatorColumns columns = new IndicatorColumns(symbol, candles,
+                strategyEngine, StrategyEngine.Params.from(new StrategyConfig(name, baseParams)));
+        // warm the shared columns before fanning out
+        for (ParamGroup g : groups) columns.macdSignal(g.params.macdFast, g.params.macdSlow, g.params.macdSignal);
+
+        ExecutorCompletionService<List<SweepResult.Point>> ecs = new ExecutorCompletionService<>(pool);
+        List<Future<List<SweepResult.Point>>> futures = new ArrayList<>();
+        for (ParamGroup g : groups) {
+            futures.add(ecs.submit(() -> {
+                BacktestResult r = backtestEngine.simulate(base, candles, columns.signals(g.params, 0));
+                List<SweepResult.Point> points = new ArrayList<>(g.combos.size());
+                for (Map<String, Object> combo : g.combos) {
+                    SweepResult.Point pt = new SweepResult.Point();
+                    pt.params = combo;
+                    pt.metrics = r.metrics;
+                    pt.trades = r.trades.size();
+                    pt.score = score(r.metrics, req.rankBy);
+                    points.add(pt);
+                }
+                return points;
+            }));
+        }
+
+        List<SweepResult.Point> all = new ArrayList<>(combos.size());
+        try {
+            for (int k = 0; k < futures.size(); k++) {
+                for (SweepResult.Point pt : ecs.take().get()) {
+                    all.add(pt);
+                    if (onResult != null) onResult.accept(pt);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("sweep failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<?> f : futures) f.cancel(true);
+        }
+
+        all.sort(Comparator.comparingDouble((SweepResult.Point pt) -> Double.isNaN(pt.score) ? Double.NEGATIVE_INFINITY : pt.score).reversed());
+        int topK = req.topK == null || req.topK <= 0 ? all.size() : Math.min(req.topK, all.size());
+
+        double elapsedMs = (System.nanoTime() - t0) / 1e6;
+        double combosPerSec = elapsedMs > 0 ? combos.size() * 1000.0 / elapsedMs : 0;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("symbol", symbol);
+        stats.put("bars", candles.size());
+        stats.put("combinations", combos.size());
+        stats.put("evaluated", groups.size());
+        stats.put("indicatorColumns", columns.columnCount());
+        stats.put("threads", threads);
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("combosPerSec", combosPerSec);
+        stats.put("combosPerSecPerCore", combosPerSec / threads);
+
+        SweepResult res = new SweepResult();
+        res.ranked = new ArrayList<>(all.subList(0, topK));
+        res.stats = stats;
+        return res;
+    }
+
+    /** Combinations sharing the same signal-affecting params. */
+    static final class ParamGroup {
+        final StrategyEngine.Params params;
+        final List<Map<String, Object>> combos = new ArrayList<>();
+        ParamGroup(StrategyEngine.Params params) { this.params = params; }
+    }
+
+    static List<ParamGroup> group(List<Map<String, Object>> combos, Map<String, Object> baseParams, String name) {
+        Map<List<Object>, ParamGroup> groups = new LinkedHashMap<>();
+        for (Map<String, Object> combo : combos) {
+            Map<String, Object> merged = new HashMap<>(baseParams);
+            merged.putAll(combo);
+            StrategyEngine.Params p = StrategyEngine.Params.from(new StrategyConfig(name, merged));
+            groups.computeIfAbsent(IndicatorColumns.signalKey(p), k -> new ParamGroup(p)).combos.add(combo);
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /** Metric used for ranking; NaN when absent or non-numeric. */
+    static double score(Map<String, Object> metrics, String rankBy) {
+        Object v = metrics.get(rankBy == null ? "sharpe" : rankBy);
+        return v instanceof Number ? ((Number) v).doubleValue() : Double.NaN;
+    }
+
+    /** Cartesian product of the grid, keys in sorted order so results are deterministic. */
+    static List<Map<String, Object>> expand(Map<String, List<Number>> grid, int maxCombinations) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        out.add(new LinkedHashMap<>());
+        if (grid == null) return out;
+        long total = 1;
+        for (List<Number> values : grid.values()) total *= Math.max(1, values == null ? 1 : values.size());
+        if (total > maxCombinations)
+            throw new IllegalArgumentException("grid has " + total + " combinations, limit is " + maxCombinations);
+        for (String key : new TreeSet<>(grid.keySet())) {
+            List<Number> values = grid.get(key);
+            if (values == null || values.isEmpty()) continue;
+            List<Map<String, Object>> next = new ArrayList<>(out.size() * values.size());
+            for (Map<String, Object> partial : out) {
+                for (Number v : values) {
+                    Map<String, Object> m = new LinkedHashMap<>(partial);
+                    m.put(key, v);
+                    next.add(m);
+                }
+            }
+            out = next;
+        }
+        return out;
+    }
+}
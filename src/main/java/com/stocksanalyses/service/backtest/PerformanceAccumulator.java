@@ -0,0 +1,106 @@
+package com.stocksanalyses.service.backtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single-pass performance metrics over an equity stream. Each {@link #onEquity} updates return mean/variance
+ * (Welford), downside deviation, running peak and max drawdown in O(1) with no stored history, so the same instance
+ * serves a finished backtest and a live strategy's rolling report.
+ *
+ * Returns are simple period returns between consecutive equity marks; downside deviation uses a 0 target.
+ * {@code periodsPerYear} annualises (252 for daily bars, 1 to leave figures per period). Not thread-safe.
+ */
+public final class PerformanceAccumulator {
+    private final double periodsPerYear;
+
+    private long marks;
+    private double firstEquity, lastEquity, peak, maxDrawdown;
+    private double equitySum;
+
+    private long n;            // returns seen
+    private double mean, m2;   // Welford
+    private double downsideSq;
+
+    private double turnover;   // traded notional
+    private int wins, losses;
+    private double grossWin, grossLoss;
+
+    public PerformanceAccumulator(double periodsPerYear) {
+        this.periodsPerYear = periodsPerYear > 0 ? periodsPerYear : 1;
+    }
+
+    /** Mark-to-market equity at a bar close (or any observation point). */
+    public void onEquity(double equity) {
+        if (marks++ == 0) {
+            firstEquity = peak = equity;
+        } else {
+            double r = lastEquity != 0 ? equity / lastEquity - 1.0 : 0.0;
+            n++;
+            double d = r - mean;
+            mean += d / n;
+            m2 += d * (r - mean);
+            if (r < 0) downsideSq += r * r;
+        }
+        lastEquity = equity;
+        equitySum += equity;
+        if (equity > peak) peak = equity;
+        else if (peak > 0) maxDrawdown = Math.max(maxDrawdown, (peak - equity) / peak);
+    }
+
+    /** Notional of an execution, for turnover. */
+    public void onTrade(double notional) { turnover += Math.abs(notional); }
+
+    /** Net P&amp;L of a closed round trip, for win/loss statistics. */
+    public void onRoundTrip(double pnl) {
+        if (pnl > 0) { wins++; grossWin += pnl; }
+        else if (pnl < 0) { losses++; grossLoss -= pnl; }
+    }
+
+    public long periods() { return n; }
+    public double meanReturn() { return mean; }
+    public double variance() { return n > 0 ? m2 / n : 0; }
+    public double downsideDeviation() { return n > 0 ? Math.sqrt(downsideSq / n) : 0; }
+    public double maxDrawdown() { return maxDrawdown; }
+    public double peak() { return peak; }
+    public double lastEquity() { return lastEquity; }
+    public double totalReturn() { return marks > 0 && firstEquity != 0 ? lastEquity / firstEquity - 1.0 : 0; }
+    public double volatility() { return Math.sqrt(variance()) * Math.sqrt(periodsPerYear); }
+    public double sharpe() { double v = volatility(); return v > 0 ? mean * periodsPerYear / v : 0; }
+    public double sortino() { double dd = downsideDeviation() * Math.sqrt(periodsPerYear); return dd > 0 ? mean * periodsPerYear / dd : 0; }
+
+    /** Compound annual growth rate; total return when the series is shorter than a period. */
+    public double cagr() {
+        if (n == 0 || firstEquity <= 0 || lastEquity <= 0) return totalReturn();
+        return Math.pow(lastEquity / firstEquity, periodsPerYear / n) - 1.0;
+    }
+
+    public double calmar() { return maxDrawdown > 0 ? cagr() / maxDrawdown : 0; }
+    /** Traded notional divided by average equity. */
+    public double turnover() { return marks > 0 && equitySum != 0 ? turnover / (equitySum / marks) : 0; }
+    public int roundTrips() { return wins + losses; }
+    public double winRate() { int t = wins + losses; return t > 0 ? (double) wins / t : 0; }
+    public double avgWin() { return wins > 0 ? grossWin / wins : 0; }
+    public double avgLoss() { return losses > 0 ? grossLoss / losses : 0; }
+    public double profitFactor() { return grossLoss > 0 ? grossWin / grossLoss : (grossWin > 0 ? Double.POSITIVE_INFINITY : 0); }
+
+    /** Metrics map in the shape returned by the backtest endpoints. */
+    public Map<String, Object> toMetrics() {
+        if (marks == 0) return Map.of();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("return", totalReturn());
+        m.put("vol", volatility());
+        m.put("sharpe", sharpe());
+        m.put("maxDrawdown", maxDrawdown);
+        m.put("calmar", calmar());
+        m.put("sortino", sortino());
+        m.put("cagr", cagr());
+        m.put("turnover", turnover());
+        m.put("roundTrips", roundTrips());
+        m.put("winRate", winRate());
+        m.put("avgWin", avgWin());
+        m.put("avgLoss", avgLoss());
+        m.put("profitFactor", grossLoss > 0 ? profitFactor() : null);
+        return m;
+    }
+}
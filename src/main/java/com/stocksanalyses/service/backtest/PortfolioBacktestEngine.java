@@ -0,0 +1,209 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.IncrementalStrategyEvaluator;
+import com.stocksanalyses.service.StrategyEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Multi-symbol backtest over {@link BacktestRequest#universe}. Candles are fetched in one batch, signals are generated
+ * per symbol in parallel (each symbol is independent), then a single k-way merge over bar timestamps drives one
+ * ledger with shared cash and {@code maxPositions}/{@code maxPositionWeight} limits.
+ *
+ * Within a timestamp sells execute before buys, and buys are filled by descending signal strength, so the ledger is
+ * deterministic regardless of thread scheduling.
+ */
+@Service
+public class PortfolioBacktestEngine {
+    private final CandleService candleService;
+    private final StrategyEngine strategyEngine;
+    private final int threads;
+    private final ExecutorService pool;
+
+    public PortfolioBacktestEngine(CandleService candleService, StrategyEngine strategyEngine,
+                                   @Value("${backtest.portfolio.threads:0}") int threads) {
+        this.candleService = candleService;
+        this.strategyEngine = strategyEngine;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "portfolio-bt-" + n.incrementAndGet()); t.setDaemon(true); return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() { pool.shutdownNow(); }
+
+    /** Per-symbol bars plus the actionable signal (BUY/SELL, else null) raised on each bar. */
+    static final class Track {
+        final String symbol;
+        final List<Candle> candles;
+        final Signal.Type[] types;
+        final double[] strength;
+        int cursor;
+        double qty;
+        double entryCost;
+        double lastPrice;
+        Signal.Type pendingType;
+        double pendingStrength;
+        int pendingAt = -1;
+
+        Track(String symbol, List<Candle> candles) {
+            this.symbol = symbol;
+            this.candles = candles;
+            this.types = new Signal.Type[candles.size()];
+            this.strength = new double[candles.size()];
+        }
+
+        Instant nextTs() { return candles.get(cursor).getTimestamp(); }
+    }
+
+    public BacktestResult run(BacktestRequest req) {
+        if (req.universe == null || req.universe.isEmpty()) throw new IllegalArgumentException("universe must not be empty");
+        long t0 = System.nanoTime();
+        List<String> symbols = new ArrayList<>(new LinkedHashSet<>(req.universe));
+        Instant start = req.start==null? Instant.now().minusSeconds(86400L*200): Instant.parse(req.start);
+        Instant end = req.end==null? Instant.now(): Instant.parse(req.end);
+        Map<String, List<Candle>> data = candleService.getCandlesBatch(symbols, req.interval==null?"1d":req.interval, start, end);
+
+        List<Callable<Track>> jobs = new ArrayList<>();
+        for (String symbol : symbols) {
+            List<Candle> candles = data.getOrDefault(symbol, List.of());
+            if (candles == null || candles.isEmpty()) continue;
+            jobs.add(() -> signals(symbol, candles, req.strategyConfig));
+        }
+        List<Track> tracks = new ArrayList<>(jobs.size());
+        try {
+            for (Future<Track> f : pool.invokeAll(jobs)) tracks.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("portfolio backtest interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("signal generation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        long tSignals = System.nanoTime();
+
+        BacktestResult res = simulate(req, tracks);
+        Map<String,Object> metrics = new LinkedHashMap<>(res.metrics);
+        metrics.put("symbols", tracks.size());
+        metrics.put("threads", threads);
+        metrics.put("signalMs", (tSignals - t0) / 1e6);
+        metrics.put("elapsedMs", (System.nanoTime() - t0) / 1e6);
+        res.metrics = metrics;
+        return res;
+    }
+
+    private Track signals(String symbol, List<Candle> candles, StrategyConfig config) {
+        Track t = new Track(symbol, candles);
+        IncrementalStrategyEvaluator ev = strategyEngine.newEvaluator(symbol, config);
+        for (int i = 0; i < candles.size(); i++) {
+            for (Signal s : ev.onBar(candles.get(i))) {
+                if (s.getType() != Signal.Type.NEUTRAL) { t.types[i] = s.getType(); t.strength[i] = s.getStrength(); }
+            }
+        }
+        return t;
+    }
+
+    BacktestResult simulate(BacktestRequest req, List<Track> tracks) {
+        BacktestEngine.CostModel cm = BacktestEngine.costModel(req);
+        BacktestEngine.SlippageModel sm = BacktestEngine.slippageModel(req);
+        Set<LocalDate> holidays = new HashSet<>();
+        if (req.holidays!=null) for (String d : req.holidays) holidays.add(LocalDate.parse(d));
+        if (req.halts!=null) for (String d : req.halts) holidays.add(LocalDate.parse(d));
+        String execMode = req.executionMode!=null? req.executionMode.toUpperCase() : "CLOSE";
+        boolean sameBar = req.sameBarVisible!=null? req.sameBarVisible : false;
+        int delay = req.executionDelayBars!=null? req.executionDelayBars : (sameBar? 0 : 1);
+        int maxPositions = req.maxPositions!=null && req.maxPositions>0? req.maxPositions : Math.max(1, tracks.size());
+        double maxWeight = req.maxPositionWeight!=null && req.maxPositionWeight>0? Math.min(1.0, req.maxPositionWeight) : 1.0 / maxPositions;
+
+        double cash = req.initialCapital;
+        List<Map<String,Object>> trades = new ArrayList<>();
+        List<Double> equity = new ArrayList<>();
+        PerformanceAccumulator perf = new PerformanceAccumulator(BacktestEngine.PERIODS_PER_YEAR);
+        Set<Track> open = new LinkedHashSet<>();
+
+        PriorityQueue<Track> queue = new PriorityQueue<>(Comparator.comparing(Track::nextTs).thenComparing(t -> t.symbol));
+        for (Track t : tracks) if (!t.candles.isEmpty()) queue.add(t);
+        List<Track> due = new ArrayList<>();
+        List<Track> atTs = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            Instant ts = queue.peek().nextTs();
+            atTs.clear();
+            while (!queue.isEmpty() && queue.peek().nextTs().equals(ts)) atTs.add(queue.poll());
+
+            LocalDate day = ts.atZone(ZoneId.systemDefault()).toLocalDate();
+            boolean tradable = !(req.skipWeekends && day.getDayOfWeek().getValue()>=6) && !holidays.contains(day);
+            due.clear();
+            for (Track t : atTs) {
+                int i = t.cursor;
+                t.lastPrice = t.candles.get(i).getClose().doubleValue();
+                if (t.types[i] != null) {
+                    // a newer signal replaces the pending order but keeps its fill bar, or repeats would defer it forever
+                    if (t.pendingType == null) t.pendingAt = i + delay;
+                    t.pendingType = t.types[i];
+                    t.pendingStrength = t.strength[i];
+                }
+                if (tradable && t.pendingType != null && t.pendingAt <= i) due.add(t);
+            }
+
+            if (!due.isEmpty()) {
+                double mark = cash;
+                for (Track t : open) mark += t.qty * t.lastPrice;
+                // sells free cash first, then buys by conviction
+                due.sort(Comparator.comparing((Track t) -> t.pendingType != Signal.Type.SELL)
+                        .thenComparing(t -> -t.pendingStrength).thenComparing(t -> t.symbol));
+                for (Track t : due) {
+                    int i = t.cursor;
+                    Candle bar = t.candles.get(i);
+                    double pxExec = BacktestEngine.pickExecPrice(execMode, bar, t.candles.subList(0, i+1));
+                    if (t.pendingType == Signal.Type.SELL && t.qty > 0) {
+                        double px = pxExec - sm.slip(pxExec);
+                        double notional = t.qty * px;
+                        double fee = cm.cost(notional);
+                        cash += (notional - fee);
+                        perf.onTrade(notional);
+                        perf.onRoundTrip(notional - fee - t.entryCost);
+                        trades.add(Map.of("ts", bar.getTimestamp().toString(), "symbol", t.symbol, "side", "SELL", "qty", t.qty, "price", px, "fee", fee, "mode", execMode));
+                        t.qty = 0;
+                        open.remove(t);
+                    } else if (t.pendingType == Signal.Type.BUY && t.qty == 0 && open.size() < maxPositions) {
+                        double px = pxExec + sm.slip(pxExec);
+                        double budget = Math.min(cash * 0.99, mark * maxWeight);
+                        double qty = Math.floor(budget / px);
+                        if (qty > 0) {
+                            double notional = qty * px;
+                            double fee = cm.cost(notional);
+                            cash -= (notional + fee);
+                            perf.onTrade(notional);
+                            t.qty = qty;
+                            t.entryCost = notional + fee;
+                            open.add(t);
+                            trades.add(Map.of("ts", bar.getTimestamp().toString(), "symbol", t.symbol, "side", "BUY", "qty", qty, "price", px, "fee", fee, "mode", execMode));
+                        }
+                    }
+                    t.pendingType = null; t.pendingAt = -1;
+                }
+            }
+
+            double markEquity = cash;
+            for (Track t : open) markEquity += t.qty * t.lastPrice;
+            equity.add(markEquity);
+            perf.onEquity(markEquity);
+
+            for (Track t : atTs) if (++t.cursor < t.candles.size()) queue.add(t);
+        }
+
+        BacktestResult res = new BacktestResult();
+        res.trades = trades; res.equity = equity; res.metrics = perf.toMetrics();
+        return res;
+    }
+}
@@ -0,0 +1,131 @@
+package com.stocksanalyses.service.backtest;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.StrategyEngine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Rolling walk-forward optimisation for one symbol: each fold optimises the grid on an in-sample window and
+ * backtests the winner on the following out-of-sample window. History is loaded once and all folds read the same
+ * {@link IndicatorColumns}, so overlapping windows share indicator work (columns are computed over the full history
+ * and are causal, which also gives every window a warmed-up indicator state).
+ */
+@Service
+public class WalkForwardEngine {
+    private final BacktestEngine backtestEngine;
+    private final StrategyEngine strategyEngine;
+    private final int threads;
+    private final int maxCombinations;
+    private final ExecutorService pool;
+
+    public WalkForwardEngine(BacktestEngine backtestEngine, StrategyEngine strategyEngine,
+                             @Value("${backtest.walkforward.threads:0}") int threads,
+                             @Value("${backtest.sweep.maxCombinations:50000}") int maxCombinations) {
+        this.backtestEngine = backtestEngine;
+        this.strategyEngine = strategyEngine;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.maxCombinations = maxCombinations;
+        java.util.concurrent.atomic.AtomicInteger n = new java.util.concurrent.atomic.AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "walkforward-" + n.incrementAndGet()); t.setDaemon(true); return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() { pool.shutdownNow(); }
+
+    public WalkForwardResult run(WalkForwardRequest req) {
+        if (req == null || req.base == null || req.base.universe == null || req.base.universe.isEmpty())
+            throw new IllegalArgumentException("base.universe must contain a symbol");
+        if (req.inSampleBars <= 0 || req.outOfSampleBars <= 0)
+            throw new IllegalArgumentException("inSampleBars and outOfSampleBars must be positive");
+        int step = req.stepBars != null && req.stepBars > 0 ? req.stepBars : req.outOfSampleBars;
+        long t0 = System.nanoTime();
+        BacktestRequest base = req.base;
+        String symbol = base.universe.get(0);
+        Map<String, Object> baseParams = base.strategyConfig != null && base.strategyConfig.getParams() != null
+                ? base.strategyConfig.getParams() : Map.of();
+        String name = base.strategyConfig != null ? base.strategyConfig.getName() : "walkforward";
+        List<ParameterSweepEngine.ParamGroup> groups = ParameterSweepEngine.group(
+                ParameterSweepEngine.expand(req.grid, maxCombinations), baseParams, name);
+
+        List<Candle> candles = backtestEngine.loadCandles(base, symbol);
+        int n = candles.size();
+        if (n < req.inSampleBars + req.outOfSampleBars)
+            throw new IllegalArgumentException("need at least " + (req.inSampleBars + req.outOfSampleBars) + " bars, have " + n);
+        IndicatorColumns columns = new IndicatorColumns(symbol, candles,
+                strategyEngine, StrategyEngine.Params.from(new StrategyConfig(name, baseParams)));
+        for (ParameterSweepEngine.ParamGroup g : groups) columns.macdSignal(g.params.macdFast, g.params.macdSlow, g.params.macdSignal);
+
+        List<Callable<WalkForwardResult.Fold>> jobs = new ArrayList<>();
+        for (int from = 0, k = 0; from + req.inSampleBars + req.outOfSampleBars <= n; from += step, k++) {
+            int isFrom = from, oosFrom = from + req.inSampleBars, oosTo = oosFrom + req.outOfSampleBars, idx = k;
+            jobs.add(() -> fold(idx, req, columns, groups, isFrom, oosFrom, oosTo));
+        }
+        List<WalkForwardResult.Fold> folds = new ArrayList<>(jobs.size());
+        try {
+            for (Future<WalkForwardResult.Fold> f : pool.invokeAll(jobs)) folds.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("walk-forward interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("walk-forward failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        double isSum = 0, oosSum = 0, compounded = 1.0; int scored = 0;
+        for (WalkForwardResult.Fold f : folds) {
+            if (!Double.isNaN(f.inSampleScore) && !Double.isNaN(f.outOfSampleScore)) { isSum += f.inSampleScore; oosSum += f.outOfSampleScore; scored++; }
+            Object r = f.outOfSampleMetrics.get("return");
+            if (r instanceof Number) compounded *= 1.0 + ((Number) r).doubleValue();
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("symbol", symbol);
+        summary.put("bars", n);
+        summary.put("folds", folds.size());
+        summary.put("combinations", groups.stream().mapToInt(g -> g.combos.size()).sum());
+        summary.put("meanInSampleScore", scored > 0 ? isSum / scored : 0.0);
+        summary.put("meanOutOfSampleScore", scored > 0 ? oosSum / scored : 0.0);
+        summary.put("efficiency", scored > 0 && isSum != 0 ? oosSum / isSum : 0.0);
+        summary.put("compoundedOutOfSampleReturn", compounded - 1.0);
+        summary.put("indicatorColumns", columns.columnCount());
+        summary.put("threads", threads);
+        summary.put("elapsedMs", (System.nanoTime() - t0) / 1e6);
+
+        WalkForwardResult res = new WalkForwardResult();
+        res.folds = folds;
+        res.summary = summary;
+        return res;
+    }
+
+    private WalkForwardResult.Fold fold(int idx, WalkForwardRequest req, IndicatorColumns columns,
+                                        List<ParameterSweepEngine.ParamGroup> groups, int isFrom, int oosFrom, int oosTo) {
+        List<Candle> inSample = columns.candles.subList(isFrom, oosFrom);
+        ParameterSweepEngine.ParamGroup best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (ParameterSweepEngine.ParamGroup g : groups) {
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("fold " + idx + " cancelled");
+            BacktestResult r = backtestEngine.simulate(req.base, inSample, columns.signals(g.params, isFrom));
+            double s = ParameterSweepEngine.score(r.metrics, req.rankBy);
+            if (best == null || (!Double.isNaN(s) && s > bestScore)) { best = g; bestScore = Double.isNaN(s) ? bestScore : s; }
+        }
+        BacktestResult oos = backtestEngine.simulate(req.base, columns.candles.subList(oosFrom, oosTo), columns.signals(best.params, oosFrom));
+
+        WalkForwardResult.Fold f = new WalkForwardResult.Fold();
+        f.index = idx;
+        f.inSampleStart = columns.candles.get(isFrom).getTimestamp().toString();
+        f.inSampleEnd = columns.candles.get(oosFrom - 1).getTimestamp().toString();
+        f.outOfSampleStart = columns.candles.get(oosFrom).getTimestamp().toString();
+        f.outOfSampleEnd = columns.candles.get(oosTo - 1).getTimestamp().toString();
+        f.bestParams = best.combos.get(0);
+        f.inSampleScore = bestScore == Double.NEGATIVE_INFINITY ? Double.NaN : bestScore;
+        f.outOfSampleMetrics = oos.metrics;
+        f.outOfSampleScore = ParameterSweepEngine.score(oos.metrics, req.rankBy);
+        f.outOfSampleTrades = oos.trades.size();
+        return f;
+    }
+}
@@ -0,0 +1,277 @@
+package com.stocksanalyses.service.cache;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Key/value cache bounded by total weight and entry age. Keys are spread over a few access-ordered segments, each
+ * evicting least-recently-used entries once its share of {@code maxWeight} is exceeded. Entries older than the TTL
+ * are never served. A hit on an entry older than the refresh-ahead age reloads it in the background while the current
+ * value is still returned, so hot keys do not expire under load. Concurrent misses on one key share a single load.
+ *
+ * Values returned by a load that raced an invalidation are handed to the callers of that load but not kept.
+ */
+public final class BoundedCache<K, V> {
+    /** Weight of a value against the cache's limit; at least 1. */
+    @FunctionalInterface
+    public interface Weigher<V> {
+        long weigh(V value);
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long weight, loadedAt;
+        volatile boolean refreshing;
+
+        Entry(V value, long weight, long loadedAt) { this.value = value; this.weight = weight; this.loadedAt = loadedAt; }
+    }
+
+    private static final class Segment<K, V> {
+        final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(64, 0.75f, true);
+        long weight;
+    }
+
+    private final String name;
+    private final long maxWeight, segmentWeight, ttlNanos, refreshNanos;
+    private final Weigher<? super V> weigher;
+    private final Executor refresher;
+    private final LongSupplier clock;
+    private final Segment<K, V>[] segments;
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), loads = new LongAdder(),
+            loadFailures = new LongAdder(), coalesced = new LongAdder(), refreshes = new LongAdder(),
+            evictions = new LongAdder(), expirations = new LongAdder();
+
+    /**
+     * @param ttlNanos     age after which an entry is reloaded; {@code Long.MAX_VALUE} for none
+     * @param refreshNanos age after which a hit triggers a background reload; {@code >= ttlNanos} disables it
+     * @param refresher    runs refresh-ahead loads; a rejected refresh is dropped and the entry expires as usual
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(String name, long maxWeight, long ttlNanos, long refreshNanos, Weigher<? super V> weigher,
+                        Executor refresher, LongSupplier clock) {
+        this.name = name;
+        this.maxWeight = Math.max(1, maxWeight);
+        this.ttlNanos = ttlNanos > 0 ? ttlNanos : Long.MAX_VALUE;
+        this.refreshNanos = refreshNanos > 0 ? refreshNanos : Long.MAX_VALUE;
+        this.weigher = weigher != null ? weigher : v -> 1;
+        this.refresher = refresher;
+        this.clock = clock;
+        // small caches keep one segment so the LRU order is exact; large ones split to cut lock contention
+        int n = 1;
+        while (n < 16 && this.maxWeight / (n * 2L) >= 64) n *= 2;
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[n];
+        for (int i = 0; i < n; i++) segments[i] = new Segment<>();
+        this.segmentWeight = (this.maxWeight + n - 1) / n;
+    }
+
+    public String name() { return name; }
+
+    /** The cached value of {@code key}, loading it with {@code loader} when absent or expired. Null results are not kept. */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment<K, V> seg = segment(key);
+        long now = clock.getAsLong();
+        Entry<V> e;
+        synchronized (seg) {
+            e = seg.map.get(key);
+            if (e != null && now - e.loadedAt >= ttlNanos) {
+                remove(seg, key);
+                expirations.increment();
+                e = null;
+            }
+        }
+        if (e == null) {
+            misses.increment();
+            return load(key, loader);
+        }
+        hits.increment();
+        if (now - e.loadedAt >= refreshNanos && !e.refreshing && refresher != null) refreshAhead(key, e, loader);
+        return e.value;
+    }
+
+    /** The cached value of {@code key} if present and fresh, without loading. */
+    public V getIfPresent(K key) {
+        Segment<K, V> seg = segment(key);
+        synchronized (seg) {
+            Entry<V> e = seg.map.get(key);
+            if (e != null && clock.getAsLong() - e.loadedAt < ttlNanos) {
+                hits.increment();
+                return e.value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        if (value == null) return;
+        Segment<K, V> seg = segment(key);
+        synchronized (seg) {
+            store(seg, key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> seg = segment(key);
+        synchronized (seg) {
+            loading.remove(key);
+            remove(seg, key);
+        }
+    }
+
+    /** Drops every entry, and every load in flight, whose key matches. */
+    public void invalidateIf(Predicate<? super K> matches) {
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg) {
+                loading.keySet().removeIf(k -> segment(k) == seg && matches.test(k));
+                for (Iterator<Map.Entry<K, Entry<V>>> it = seg.map.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<K, Entry<V>> me = it.next();
+                    if (matches.test(me.getKey())) {
+                        seg.weight -= me.getValue().weight;
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        invalidateIf(k -> true);
+    }
+
+    public long size() {
+        long n = 0;
+        for (Segment<K, V> seg : segments) synchronized (seg) { n += seg.map.size(); }
+        return n;
+    }
+
+    public long weight() {
+        long w = 0;
+        for (Segment<K, V> seg : segments) synchronized (seg) { w += seg.weight; }
+        return w;
+    }
+
+    public long maxWeight() { return maxWeight; }
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long loads() { return loads.sum(); }
+    public long loadFailures() { return loadFailures.sum(); }
+    /** Misses that waited for a load already running instead of starting their own. */
+    public long coalesced() { return coalesced.sum(); }
+    public long refreshes() { return refreshes.sum(); }
+    public long evictions() { return evictions.sum(); }
+    public long expirations() { return expirations.sum(); }
+
+    public double hitRatio() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", size());
+        m.put("weight", weight());
+        m.put("maxWeight", maxWeight);
+        m.put("hits", hits());
+        m.put("misses", misses());
+        m.put("hitRatio", hitRatio());
+        m.put("loads", loads());
+        m.put("loadFailures", loadFailures());
+        m.put("coalesced", coalesced());
+        m.put("refreshes", refreshes());
+        m.put("evictions", evictions());
+        m.put("expirations", expirations());
+        return m;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(key, mine);
+        if (running == null) return complete(key, mine, loader);
+        coalesced.increment();
+        try {
+            return running.join();
+        } catch (CompletionException failed) {
+            Throwable cause = failed.getCause();
+            if (cause instanceof RuntimeException r) throw r;
+            if (cause instanceof Error err) throw err;
+            throw failed;
+        }
+    }
+
+    private void refreshAhead(K key, Entry<V> e, Function<? super K, ? extends V> loader) {
+        e.refreshing = true;
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, flight) != null) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    complete(key, flight, loader);
+                } catch (RuntimeException | Error ignored) {
+                    // the stale value stays until it expires; the next miss loads again
+                }
+            });
+            refreshes.increment();
+        } catch (RejectedExecutionException full) {
+            loading.remove(key, flight);
+            e.refreshing = false;
+        }
+    }
+
+    /** Runs the load registered as {@code flight}, keeps the result unless the key was invalidated meanwhile. */
+    private V complete(K key, CompletableFuture<V> flight, Function<? super K, ? extends V> loader) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error failed) {
+            loadFailures.increment();
+            loading.remove(key, flight);
+            flight.completeExceptionally(failed);
+            throw failed;
+        }
+        loads.increment();
+        Segment<K, V> seg = segment(key);
+        synchronized (seg) {
+            if (loading.remove(key, flight) && value != null) store(seg, key, value);
+        }
+        flight.complete(value);
+        return value;
+    }
+
+    private void store(Segment<K, V> seg, K key, V value) {
+        remove(seg, key);
+        long w = Math.max(1, weigher.weigh(value));
+        if (w > segmentWeight) return; // would evict everything else; served but not kept
+        long now = clock.getAsLong();
+        seg.map.put(key, new Entry<>(value, w, now));
+        seg.weight += w;
+        Iterator<Entry<V>> it = seg.map.values().iterator();
+        while (it.hasNext()) {
+            Entry<V> eldest = it.next();
+            boolean expired = now - eldest.loadedAt >= ttlNanos;
+            if (!expired && seg.weight <= segmentWeight) break;
+            seg.weight -= eldest.weight;
+            it.remove();
+            (expired ? expirations : evictions).increment();
+        }
+    }
+
+    private void remove(Segment<K, V> seg, K key) {
+        Entry<V> old = seg.map.remove(key);
+        if (old != null) seg.weight -= old.weight;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+}
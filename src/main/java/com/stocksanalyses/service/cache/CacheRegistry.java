@@ -0,0 +1,87 @@
+package com.stocksanalyses.service.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Creates the services' {@link BoundedCache}s, applies their {@code caches.<name>.*} settings over the defaults given
+ * in code, publishes their metrics tagged {@code cache=<name>}, and runs refresh-ahead loads on one small pool.
+ */
+@Service
+public class CacheRegistry {
+    private final MeterRegistry meterRegistry;
+    private final Environment env;
+    private final ThreadPoolExecutor refresher;
+    private final Map<String, BoundedCache<?, ?>> caches = new ConcurrentSkipListMap<>();
+
+    public CacheRegistry(MeterRegistry meterRegistry, Environment env,
+                         @Value("${caches.refresh-threads:2}") int refreshThreads) {
+        this.meterRegistry = meterRegistry;
+        this.env = env;
+        int threads = Math.max(1, refreshThreads);
+        this.refresher = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), daemon("cache-refresh-"));
+    }
+
+    /**
+     * A cache named {@code name}, configured by {@code caches.<name>.max-weight}, {@code .ttl-seconds} and
+     * {@code .refresh-seconds} (0 disables refresh-ahead). Values weigh 1 unless {@code weigher} says otherwise.
+     */
+    public <K, V> BoundedCache<K, V> create(String name, long maxWeight, long ttlSeconds, long refreshSeconds,
+                                            BoundedCache.Weigher<? super V> weigher) {
+        String prefix = "caches." + name + ".";
+        long max = env.getProperty(prefix + "max-weight", Long.class, maxWeight);
+        long ttl = env.getProperty(prefix + "ttl-seconds", Long.class, ttlSeconds);
+        long refresh = env.getProperty(prefix + "refresh-seconds", Long.class, refreshSeconds);
+        BoundedCache<K, V> cache = new BoundedCache<>(name, max, TimeUnit.SECONDS.toNanos(ttl),
+                TimeUnit.SECONDS.toNanos(refresh), weigher, refresher, System::nanoTime);
+        caches.put(name, cache);
+
+        counter("cache_requests_total", cache, BoundedCache::hits, "result", "hit");
+        counter("cache_requests_total", cache, BoundedCache::misses, "result", "miss");
+        counter("cache_loads_total", cache, BoundedCache::loads, "result", "success");
+        counter("cache_loads_total", cache, BoundedCache::loadFailures, "result", "failure");
+        counter("cache_loads_coalesced_total", cache, BoundedCache::coalesced);
+        counter("cache_refreshes_total", cache, BoundedCache::refreshes);
+        counter("cache_evictions_total", cache, BoundedCache::evictions, "cause", "size");
+        counter("cache_evictions_total", cache, BoundedCache::expirations, "cause", "expired");
+        Gauge.builder("cache_weight", cache, BoundedCache::weight).tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache_entries", cache, BoundedCache::size).tag("cache", name).register(meterRegistry);
+        return cache;
+    }
+
+    public <K, V> BoundedCache<K, V> create(String name, long maxWeight, long ttlSeconds, long refreshSeconds) {
+        return create(name, maxWeight, ttlSeconds, refreshSeconds, null);
+    }
+
+    /** Statistics of every cache by name. */
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> m.put(name, cache.stats()));
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private void counter(String metric, BoundedCache<?, ?> cache, ToDoubleFunction<BoundedCache<?, ?>> count, String... tags) {
+        FunctionCounter.builder(metric, cache, count).tag("cache", cache.name()).tags(tags).register(meterRegistry);
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> { Thread t = new Thread(r, prefix + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+}
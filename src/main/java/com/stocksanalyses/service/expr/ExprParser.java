@@ -0,0 +1,221 @@
+package com.stocksanalyses.service.expr;
+
+import com.stocksanalyses.service.expr.ExprProgram.Op;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recursive-descent parser for the rule language of {@link ExprProgram}. It emits nodes straight into a
+ * {@link ExprProgram.Builder}, so parsing and subexpression sharing happen in one pass. Precedence, low to high:
+ * {@code or}, {@code and}, {@code not}, comparison, {@code + -}, {@code * /}, unary minus.
+ */
+final class ExprParser {
+    private static final int MAX_PERIOD = 10_000;
+
+    private final String src;
+    private final ExprProgram.Builder b;
+    private int pos;
+
+    ExprParser(String src, ExprProgram.Builder b) {
+        if (src == null || src.isBlank()) throw new IllegalArgumentException("empty expression");
+        this.src = src;
+        this.b = b;
+    }
+
+    int parse() {
+        int slot = or();
+        skipSpace();
+        if (pos < src.length()) throw error("unexpected '" + src.charAt(pos) + "'");
+        return slot;
+    }
+
+    private int or() {
+        int left = and();
+        while (keyword("or") || symbol("||")) left = b.binary(Op.OR, left, and());
+        return left;
+    }
+
+    private int and() {
+        int left = not();
+        while (keyword("and") || symbol("&&")) left = b.binary(Op.AND, left, not());
+        return left;
+    }
+
+    private int not() {
+        if (keyword("not") || (peekIs('!') && !peekIs("!=") && symbol("!"))) return b.unary(Op.NOT, not());
+        return comparison();
+    }
+
+    private int comparison() {
+        int left = sum();
+        Op op = symbol("<=") ? Op.LE : symbol(">=") ? Op.GE : symbol("==") ? Op.EQ : symbol("!=") ? Op.NE
+                : symbol("<") ? Op.LT : symbol(">") ? Op.GT : symbol("=") ? Op.EQ : null;
+        return op == null ? left : b.binary(op, left, sum());
+    }
+
+    private int sum() {
+        int left = term();
+        while (true) {
+            if (symbol("+")) left = b.binary(Op.ADD, left, term());
+            else if (symbol("-")) left = b.binary(Op.SUB, left, term());
+            else return left;
+        }
+    }
+
+    private int term() {
+        int left = unary();
+        while (true) {
+            if (symbol("*")) left = b.binary(Op.MUL, left, unary());
+            else if (symbol("/")) left = b.binary(Op.DIV, left, unary());
+            else return left;
+        }
+    }
+
+    private int unary() {
+        if (symbol("-")) return b.unary(Op.NEG, unary());
+        if (symbol("+")) return unary();
+        return primary();
+    }
+
+    private int primary() {
+        skipSpace();
+        if (pos >= src.length()) throw error("unexpected end of expression");
+        char c = src.charAt(pos);
+        if (c == '(') {
+            pos++;
+            int inner = or();
+            expect(")");
+            return inner;
+        }
+        if (Character.isDigit(c) || c == '.') return b.constant(number());
+        if (Character.isLetter(c) || c == '_') {
+            int at = pos;
+            String name = identifier();
+            if (symbol("(")) return call(name.toUpperCase(Locale.ROOT), at);
+            return switch (name.toLowerCase(Locale.ROOT)) {
+                case "open" -> b.field(Op.OPEN);
+                case "high" -> b.field(Op.HIGH);
+                case "low" -> b.field(Op.LOW);
+                case "close" -> b.field(Op.CLOSE);
+                case "volume" -> b.field(Op.VOLUME);
+                case "true" -> b.constant(1);
+                case "false" -> b.constant(0);
+                default -> { pos = at; throw error("unknown identifier '" + name + "'"); }
+            };
+        }
+        throw error("unexpected '" + c + "'");
+    }
+
+    private int call(String name, int at) {
+        List<Integer> args = new ArrayList<>();
+        if (!symbol(")")) {
+            do { args.add(or()); } while (symbol(","));
+            expect(")");
+        }
+        int n = args.size();
+        switch (name) {
+            case "SMA", "EMA", "RSI", "HIGHEST", "LOWEST", "REF", "CHANGE_PCT" -> {
+                if (n != 1 && n != 2) throw errorAt(at, name + " takes ([source,] period)");
+                int src = n == 2 ? args.get(0) : b.field(Op.CLOSE);
+                int min = name.equals("REF") || name.equals("CHANGE_PCT") ? 0 : 1;
+                return b.indicator(Op.valueOf(name), src, period(args.get(n - 1), min, name, at), 0, 0);
+            }
+            case "ATR" -> {
+                if (n != 1) throw errorAt(at, "ATR takes (period)");
+                return b.indicator(Op.ATR, -1, period(args.get(0), 1, name, at), 0, 0);
+            }
+            case "MACD", "MACD_SIGNAL", "MACD_HIST" -> {
+                // MACD(fast, slow), MACD(src, fast, slow); MACD_SIGNAL/HIST(fast, slow, signal) or (src, fast, slow, signal)
+                int params = name.equals("MACD") ? 2 : 3;
+                if (n != params && n != params + 1) throw errorAt(at, name + " takes ([source,] fast, slow" + (params == 3 ? ", signal)" : ")"));
+                int off = n - params;
+                int src = off == 1 ? args.get(0) : b.field(Op.CLOSE);
+                int fast = period(args.get(off), 1, name, at), slow = period(args.get(off + 1), 1, name, at);
+                int sig = params == 3 ? period(args.get(off + 2), 1, name, at) : 0;
+                return b.indicator(Op.valueOf(name), src, fast, slow, sig);
+            }
+            case "ABS" -> {
+                if (n != 1) throw errorAt(at, "ABS takes one argument");
+                return b.unary(Op.ABS, args.get(0));
+            }
+            case "MIN", "MAX", "CROSS_ABOVE", "CROSS_BELOW" -> {
+                if (n != 2) throw errorAt(at, name + " takes two arguments");
+                if (name.startsWith("CROSS")) return b.cross(Op.valueOf(name), args.get(0), args.get(1));
+                return b.binary(Op.valueOf(name), args.get(0), args.get(1));
+            }
+            default -> throw errorAt(at, "unknown function " + name);
+        }
+    }
+
+    private int period(int slot, int min, String fn, int at) {
+        if (!b.isConstant(slot)) throw errorAt(at, fn + " period must be a constant");
+        double v = b.value(slot);
+        if (v != Math.rint(v) || v < min || v > MAX_PERIOD) throw errorAt(at, fn + " period must be an integer in [" + min + ", " + MAX_PERIOD + "]");
+        return (int) v;
+    }
+
+    private double number() {
+        int start = pos;
+        while (pos < src.length() && (Character.isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) pos++;
+        if (pos < src.length() && (src.charAt(pos) == 'e' || src.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < src.length() && (src.charAt(pos) == '+' || src.charAt(pos) == '-')) pos++;
+            while (pos < src.length() && Character.isDigit(src.charAt(pos))) pos++;
+        }
+        try {
+            return Double.parseDouble(src.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw errorAt(start, "bad number '" + src.substring(start, pos) + "'");
+        }
+    }
+
+    private String identifier() {
+        int start = pos;
+        while (pos < src.length() && (Character.isLetterOrDigit(src.charAt(pos)) || src.charAt(pos) == '_')) pos++;
+        return src.substring(start, pos);
+    }
+
+    private boolean keyword(String kw) {
+        skipSpace();
+        int end = pos + kw.length();
+        if (end > src.length() || !src.regionMatches(true, pos, kw, 0, kw.length())) return false;
+        if (end < src.length() && (Character.isLetterOrDigit(src.charAt(end)) || src.charAt(end) == '_')) return false;
+        pos = end;
+        return true;
+    }
+
+    private boolean symbol(String s) {
+        skipSpace();
+        if (!src.startsWith(s, pos)) return false;
+        pos += s.length();
+        return true;
+    }
+
+    private boolean peekIs(char c) {
+        skipSpace();
+        return pos < src.length() && src.charAt(pos) == c;
+    }
+
+    private boolean peekIs(String s) {
+        skipSpace();
+        return src.startsWith(s, pos);
+    }
+
+    private void expect(String s) {
+        if (!symbol(s)) throw error("expected '" + s + "'");
+    }
+
+    private void skipSpace() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return errorAt(pos, msg);
+    }
+
+    private IllegalArgumentException errorAt(int at, String msg) {
+        return new IllegalArgumentException(msg + " at position " + at);
+    }
+}
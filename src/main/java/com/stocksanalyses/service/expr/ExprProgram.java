@@ -0,0 +1,306 @@
+package com.stocksanalyses.service.expr;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * A set of rule expressions compiled into one flat, topologically ordered node table. Identical subexpressions are
+ * hash-consed at compile time (across all expressions of the program, with commutative operands ordered), so e.g.
+ * {@code RSI(14) < 30} and {@code RSI(14) > 70 and close > SMA(200)} share one RSI column. Evaluation runs every node
+ * once over the columns of a {@link CandleSeries}, in slot order, with no parsing or map lookups.
+ *
+ * <p>Language (case-insensitive): numbers, the fields {@code open high low close volume}, {@code + - * /}, comparisons
+ * {@code < <= > >= == !=}, {@code and or not} (also {@code && || !}), parentheses, and the functions
+ * {@code SMA EMA RSI HIGHEST LOWEST REF CHANGE_PCT (src, n)}, {@code MACD MACD_SIGNAL MACD_HIST (src, fast, slow[, signal])},
+ * {@code ATR(n)}, {@code ABS(x)}, {@code MIN MAX (a, b)} and {@code CROSS_ABOVE CROSS_BELOW (a, b)}. The source of a
+ * single-series function may be omitted ({@code RSI(14)} is {@code RSI(close, 14)}); periods must be constant.
+ * Booleans are 1/0 and warm-up values are NaN, which compares false: an indicator is NaN until it has seen its full
+ * period ({@code n} bars, {@code n + 1} for RSI, slow + signal - 1 for the MACD signal and histogram), counted from the
+ * first non-NaN value of its source, so nested indicators such as {@code SMA(RSI(14), 5)} warm up in turn.
+ */
+public final class ExprProgram {
+    enum Op {
+        CONST, OPEN, HIGH, LOW, CLOSE, VOLUME,
+        NEG, NOT, ABS,
+        ADD, SUB, MUL, DIV, MIN, MAX,
+        LT, LE, GT, GE, EQ, NE, AND, OR,
+        SMA, EMA, RSI, HIGHEST, LOWEST, REF, CHANGE_PCT, ATR,
+        MACD, MACD_SIGNAL, MACD_HIST,
+        CROSS_ABOVE, CROSS_BELOW
+    }
+
+    static final class Node {
+        final Op op;
+        final int a, b;
+        final int p1, p2, p3;
+        final double value;
+
+        Node(Op op, int a, int b, int p1, int p2, int p3, double value) {
+            this.op = op; this.a = a; this.b = b; this.p1 = p1; this.p2 = p2; this.p3 = p3; this.value = value;
+        }
+    }
+
+    private final List<String> sources;
+    private final Node[] nodes;
+    private final int[] roots;
+
+    private ExprProgram(List<String> sources, Node[] nodes, int[] roots) {
+        this.sources = sources;
+        this.nodes = nodes;
+        this.roots = roots;
+    }
+
+    public static ExprProgram compile(String expression) {
+        return compile(List.of(expression));
+    }
+
+    /** Compiles {@code expressions} together; throws {@link IllegalArgumentException} naming the first bad one. */
+    public static ExprProgram compile(List<String> expressions) {
+        Builder b = new Builder();
+        int[] roots = new int[expressions.size()];
+        for (int i = 0; i < roots.length; i++) {
+            String src = expressions.get(i);
+            try {
+                roots[i] = new ExprParser(src, b).parse();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("expression " + i + " '" + src + "': " + e.getMessage(), e);
+            }
+        }
+        return b.build(List.copyOf(expressions), roots);
+    }
+
+    /** Number of expressions. */
+    public int size() { return roots.length; }
+
+    public String expression(int i) { return sources.get(i); }
+
+    /** Distinct nodes evaluated per series, after sharing. */
+    public int nodeCount() { return nodes.length; }
+
+    /** Full column of every expression, indexed like the compiled list. */
+    public double[][] evaluate(CandleSeries series) {
+        double[][] cols = run(series);
+        double[][] out = new double[roots.length][];
+        for (int i = 0; i < roots.length; i++) out[i] = cols[roots[i]];
+        return out;
+    }
+
+    /** Value of every expression at the last bar (NaN for an empty series). */
+    public double[] lastValues(CandleSeries series) {
+        double[][] cols = run(series);
+        int last = series.size() - 1;
+        double[] out = new double[roots.length];
+        for (int i = 0; i < roots.length; i++) out[i] = last < 0 ? Double.NaN : cols[roots[i]][last];
+        return out;
+    }
+
+    /** Boolean reading of a value: non-zero and not NaN. */
+    public static boolean truth(double v) { return v != 0 && !Double.isNaN(v); }
+
+    private double[][] run(CandleSeries s) {
+        int n = s.size();
+        double[][] c = new double[nodes.length][];
+        double[] close = null;
+        for (int k = 0; k < nodes.length; k++) {
+            Node node = nodes[k];
+            double[] x = node.a >= 0 ? c[node.a] : null, y = node.b >= 0 ? c[node.b] : null;
+            double[] out;
+            switch (node.op) {
+                case CONST -> { out = new double[n]; Arrays.fill(out, node.value); }
+                case OPEN -> out = column(s.openArray(), s.offset(), n);
+                case HIGH -> out = IndicatorKernels.highs(s);
+                case LOW -> out = IndicatorKernels.lows(s);
+                case CLOSE -> out = close = close != null ? close : s.closes();
+                case VOLUME -> {
+                    out = new double[n];
+                    for (int i = 0; i < n; i++) out[i] = s.volume(i);
+                }
+                case NEG -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = -x[i]; }
+                case NOT -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = truth(x[i]) ? 0 : 1; }
+                case ABS -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = Math.abs(x[i]); }
+                case ADD -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] + y[i]; }
+                case SUB -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] - y[i]; }
+                case MUL -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] * y[i]; }
+                case DIV -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = y[i] == 0 ? Double.NaN : x[i] / y[i]; }
+                case MIN -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = Math.min(x[i], y[i]); }
+                case MAX -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = Math.max(x[i], y[i]); }
+                case LT -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] < y[i] ? 1 : 0; }
+                case LE -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] <= y[i] ? 1 : 0; }
+                case GT -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] > y[i] ? 1 : 0; }
+                case GE -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] >= y[i] ? 1 : 0; }
+                case EQ -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] == y[i] ? 1 : 0; }
+                case NE -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = x[i] != y[i] && !Double.isNaN(x[i]) && !Double.isNaN(y[i]) ? 1 : 0; }
+                case AND -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = truth(x[i]) && truth(y[i]) ? 1 : 0; }
+                case OR -> { out = new double[n]; for (int i = 0; i < n; i++) out[i] = truth(x[i]) || truth(y[i]) ? 1 : 0; }
+                case SMA -> out = warm(x, node.p1 - 1, v -> IndicatorKernels.sma(v, node.p1));
+                case EMA -> out = warm(x, node.p1 - 1, v -> IndicatorKernels.ema(v, node.p1));
+                case RSI -> out = warm(x, node.p1, v -> IndicatorKernels.rsi(v, node.p1));
+                case HIGHEST -> out = warm(x, node.p1 - 1, v -> IndicatorKernels.rollingMax(v, node.p1));
+                case LOWEST -> out = warm(x, node.p1 - 1, v -> IndicatorKernels.rollingMin(v, node.p1));
+                case ATR -> {
+                    close = close != null ? close : s.closes();
+                    out = IndicatorKernels.atr(IndicatorKernels.highs(s), IndicatorKernels.lows(s), close, node.p1);
+                    Arrays.fill(out, 0, Math.min(n, node.p1 - 1), Double.NaN);
+                }
+                case REF -> {
+                    out = new double[n];
+                    for (int i = 0; i < n; i++) out[i] = i >= node.p1 ? x[i - node.p1] : Double.NaN;
+                }
+                case CHANGE_PCT -> {
+                    out = new double[n];
+                    for (int i = 0; i < n; i++) {
+                        double prev = i >= node.p1 ? x[i - node.p1] : Double.NaN;
+                        out[i] = prev == 0 ? Double.NaN : (x[i] - prev) / prev * 100.0;
+                    }
+                }
+                case MACD -> out = warm(x, Math.max(node.p1, node.p2) - 1, v -> IndicatorKernels.macd(v, node.p1, node.p2, 9)[0]);
+                case MACD_SIGNAL -> out = warm(x, Math.max(node.p1, node.p2) + node.p3 - 2,
+                        v -> IndicatorKernels.macd(v, node.p1, node.p2, node.p3)[1]);
+                case MACD_HIST -> out = warm(x, Math.max(node.p1, node.p2) + node.p3 - 2,
+                        v -> IndicatorKernels.macd(v, node.p1, node.p2, node.p3)[2]);
+                case CROSS_ABOVE -> {
+                    out = new double[n];
+                    for (int i = 1; i < n; i++) out[i] = x[i - 1] <= y[i - 1] && x[i] > y[i] ? 1 : 0;
+                }
+                case CROSS_BELOW -> {
+                    out = new double[n];
+                    for (int i = 1; i < n; i++) out[i] = x[i - 1] >= y[i - 1] && x[i] < y[i] ? 1 : 0;
+                }
+                default -> throw new IllegalStateException("unhandled op " + node.op);
+            }
+            c[k] = out;
+        }
+        return c;
+    }
+
+    /**
+     * {@code kernel} applied past the leading NaNs of {@code x} (its source's own warm-up, which would otherwise stay in
+     * rolling sums), with its first {@code warmUp} outputs from there set to NaN.
+     */
+    private static double[] warm(double[] x, int warmUp, UnaryOperator<double[]> kernel) {
+        int n = x.length, from = 0;
+        while (from < n && Double.isNaN(x[from])) from++;
+        if (from == 0) {
+            double[] out = kernel.apply(x);
+            Arrays.fill(out, 0, Math.min(n, warmUp), Double.NaN);
+            return out;
+        }
+        double[] out = new double[n];
+        Arrays.fill(out, Double.NaN);
+        if (from < n) {
+            double[] tail = kernel.apply(Arrays.copyOfRange(x, from, n));
+            int skip = Math.min(tail.length, warmUp);
+            System.arraycopy(tail, skip, out, from + skip, tail.length - skip);
+        }
+        return out;
+    }
+
+    private static double[] column(double[] arr, int off, int n) {
+        double[] out = new double[n];
+        System.arraycopy(arr, off, out, 0, n);
+        return out;
+    }
+
+    /** Interns nodes by structure while parsing; {@link #build} keeps only the nodes reachable from the roots. */
+    static final class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<String, Integer> interned = new HashMap<>();
+
+        int constant(double v) {
+            return intern(new Node(Op.CONST, -1, -1, 0, 0, 0, v));
+        }
+
+        int field(Op op) {
+            return intern(new Node(op, -1, -1, 0, 0, 0, 0));
+        }
+
+        int unary(Op op, int a) {
+            Node x = nodes.get(a);
+            if (x.op == Op.CONST) {
+                double v = x.value;
+                switch (op) {
+                    case NEG -> { return constant(-v); }
+                    case NOT -> { return constant(truth(v) ? 0 : 1); }
+                    case ABS -> { return constant(Math.abs(v)); }
+                    default -> { }
+                }
+            }
+            return intern(new Node(op, a, -1, 0, 0, 0, 0));
+        }
+
+        int binary(Op op, int a, int b) {
+            Node x = nodes.get(a), y = nodes.get(b);
+            if (x.op == Op.CONST && y.op == Op.CONST) return constant(fold(op, x.value, y.value));
+            boolean commutative = switch (op) { case ADD, MUL, MIN, MAX, EQ, NE, AND, OR -> true; default -> false; };
+            if (commutative && a > b) { int t = a; a = b; b = t; }
+            return intern(new Node(op, a, b, 0, 0, 0, 0));
+        }
+
+        int indicator(Op op, int src, int p1, int p2, int p3) {
+            return intern(new Node(op, src, -1, p1, p2, p3, 0));
+        }
+
+        int cross(Op op, int a, int b) {
+            return intern(new Node(op, a, b, 0, 0, 0, 0));
+        }
+
+        boolean isConstant(int slot) { return nodes.get(slot).op == Op.CONST; }
+
+        double value(int slot) { return nodes.get(slot).value; }
+
+        private int intern(Node n) {
+            String key = n.op + ":" + n.a + ":" + n.b + ":" + n.p1 + ":" + n.p2 + ":" + n.p3 + ":" + Double.doubleToLongBits(n.value);
+            Integer slot = interned.get(key);
+            if (slot != null) return slot;
+            nodes.add(n);
+            interned.put(key, nodes.size() - 1);
+            return nodes.size() - 1;
+        }
+
+        private static double fold(Op op, double x, double y) {
+            return switch (op) {
+                case ADD -> x + y;
+                case SUB -> x - y;
+                case MUL -> x * y;
+                case DIV -> y == 0 ? Double.NaN : x / y;
+                case MIN -> Math.min(x, y);
+                case MAX -> Math.max(x, y);
+                case LT -> x < y ? 1 : 0;
+                case LE -> x <= y ? 1 : 0;
+                case GT -> x > y ? 1 : 0;
+                case GE -> x >= y ? 1 : 0;
+                case EQ -> x == y ? 1 : 0;
+                case NE -> x != y && !Double.isNaN(x) && !Double.isNaN(y) ? 1 : 0;
+                case AND -> truth(x) && truth(y) ? 1 : 0;
+                case OR -> truth(x) || truth(y) ? 1 : 0;
+                default -> throw new IllegalStateException("not foldable: " + op);
+            };
+        }
+
+        ExprProgram build(List<String> sources, int[] roots) {
+            boolean[] live = new boolean[nodes.size()];
+            for (int r : roots) live[r] = true;
+            // children always have lower slots than their parents, so one backward pass marks everything reachable
+            for (int k = nodes.size() - 1; k >= 0; k--) {
+                if (!live[k]) continue;
+                Node n = nodes.get(k);
+                if (n.a >= 0) live[n.a] = true;
+                if (n.b >= 0) live[n.b] = true;
+            }
+            int[] remap = new int[nodes.size()];
+            List<Node> kept = new ArrayList<>();
+            for (int k = 0; k < nodes.size(); k++) {
+                if (!live[k]) continue;
+                Node n = nodes.get(k);
+                remap[k] = kept.size();
+                kept.add(new Node(n.op, n.a >= 0 ? remap[n.a] : -1, n.b >= 0 ? remap[n.b] : -1, n.p1, n.p2, n.p3, n.value));
+            }
+            int[] mapped = new int[roots.length];
+            for (int i = 0; i < roots.length; i++) mapped[i] = remap[roots[i]];
+            return new ExprProgram(sources, kept.toArray(new Node[0]), mapped);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.stocksanalyses.service.indicators;
+
+import com.stocksanalyses.model.CandleSeries;
+
+/**
+ * Full-series technical indicators over primitive columns. Every kernel writes one output per input bar in a single
+ * forward pass (rolling sums, Wilder/EMA recurrences, monotonic deques for extremes), with no boxing or per-bar
+ * allocation, so the JIT can keep the loops in registers.
+ *
+ * Warm-up follows ta4j 0.15: EMA/MMA are seeded with the first value and windowed indicators use the bars available
+ * until the window fills, so {@code out[i]} equals the ta4j indicator's {@code getValue(i)} to within
+ * {@link #TOLERANCE} (relative). The difference comes from doubles vs ta4j's 32-digit decimals and from rolling sums.
+ */
+public final class IndicatorKernels {
+    /** Maximum relative deviation from ta4j 0.15 observed and asserted by tests. */
+    public static final double TOLERANCE = 1e-9;
+
+    private IndicatorKernels() {}
+
+    // ---- moving averages ----
+
+    /** Exponential moving average, {@code k = 2 / (period + 1)}, seeded with {@code in[0]}. */
+    public static double[] ema(double[] in, int period) {
+        return smooth(in, 2.0 / (period + 1));
+    }
+
+    /** Wilder's modified moving average, {@code k = 1 / period}, seeded with {@code in[0]}. */
+    public static double[] mma(double[] in, int period) {
+        return smooth(in, 1.0 / period);
+    }
+
+    private static double[] smooth(double[] in, double k) {
+        int n = in.length;
+        double[] out = new double[n];
+        if (n == 0) return out;
+        double v = in[0];
+        out[0] = v;
+        for (int i = 1; i < n; i++) {
+            v += (in[i] - v) * k;
+            out[i] = v;
+        }
+        return out;
+    }
+
+    /** Simple moving average; the first {@code period - 1} values average the bars seen so far. */
+    public static double[] sma(double[] in, int period) {
+        int n = in.length;
+        double[] out = new double[n];
+        double sum = 0;
+        int warm = Math.min(period, n);
+        for (int i = 0; i < warm; i++) {
+            sum += in[i];
+            out[i] = sum / (i + 1);
+        }
+        for (int i = warm; i < n; i++) {
+            sum += in[i] - in[i - period];
+            out[i] = sum / period;
+        }
+        return out;
+    }
+
+    // ---- oscillators ----
+
+    /** MACD line, signal line and histogram as {@code {macd, signal, histogram}}. */
+    public static double[][] macd(double[] close, int fast, int slow, int signal) {
+        int n = close.length;
+        double[] f = ema(close, fast), s = ema(close, slow);
+        double[] line = new double[n];
+        for (int i = 0; i < n; i++) line[i] = f[i] - s[i];
+        double[] sig = ema(line, signal);
+        double[] hist = new double[n];
+        for (int i = 0; i < n; i++) hist[i] = line[i] - sig[i];
+        return new double[][]{ line, sig, hist };
+    }
+
+    /** Wilder RSI in [0, 100]: 100 when there are gains and no losses, 0 when flat. */
+    public static double[] rsi(double[] close, int period) {
+        int n = close.length;
+        double[] out = new double[n];
+        if (n == 0) return out;
+        double k = 1.0 / period;
+        double gain = 0, loss = 0;
+        for (int i = 1; i < n; i++) {
+            double d = close[i] - close[i - 1];
+            gain += ((d > 0 ? d : 0) - gain) * k;
+            loss += ((d < 0 ? -d : 0) - loss) * k;
+            out[i] = loss == 0 ? (gain == 0 ? 0 : 100) : 100 - 100 / (1 + gain / loss);
+        }
+        return out;
+    }
+
+    /**
+     * Stochastic %K over {@code period} bars and its {@code smooth}-bar SMA %D, as {@code {k, d}}. %K is NaN when the
+     * range is 0, and %D is NaN while such a bar is inside its window, as in ta4j.
+     */
+    public static double[][] stochastic(double[] high, double[] low, double[] close, int period, int smooth) {
+        int n = close.length;
+        double[] hh = rollingMax(high, period), ll = rollingMin(low, period);
+        double[] k = new double[n];
+        for (int i = 0; i < n; i++) {
+            double range = hh[i] - ll[i];
+            k[i] = range == 0 ? Double.NaN : (close[i] - ll[i]) / range * 100;
+        }
+        return new double[][]{ k, smaNaN(k, smooth) };
+    }
+
+    /** As {@link #sma} but NaN only while a NaN input is inside the window; a plain rolling sum would stay NaN for good. */
+    private static double[] smaNaN(double[] in, int period) {
+        int n = in.length;
+        double[] out = new double[n];
+        double sum = 0;
+        int nans = 0;
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(in[i])) nans++; else sum += in[i];
+            if (i >= period) {
+                if (Double.isNaN(in[i - period])) nans--; else sum -= in[i - period];
+            }
+            out[i] = nans > 0 ? Double.NaN : sum / Math.min(i + 1, period);
+        }
+        return out;
+    }
+
+    // ---- volatility ----
+
+    /** True range; the first bar uses high - low only. */
+    public static double[] trueRange(double[] high, double[] low, double[] close) {
+        int n = close.length;
+        double[] out = new double[n];
+        if (n == 0) return out;
+        out[0] = Math.abs(high[0] - low[0]);
+        for (int i = 1; i < n; i++) {
+            double pc = close[i - 1];
+            out[i] = Math.max(Math.abs(high[i] - low[i]), Math.max(Math.abs(high[i] - pc), Math.abs(pc - low[i])));
+        }
+        return out;
+    }
+
+    /** Average true range, Wilder-smoothed. */
+    public static double[] atr(double[] high, double[] low, double[] close, int period) {
+        return mma(trueRange(high, low, close), period);
+    }
+
+    /**
+     * Bollinger bands as {@code {middle, upper, lower}}: SMA ± {@code mult} population standard deviations over the
+     * same window. Variance is carried with a rolling Welford update so long series do not lose precision.
+     */
+    public static double[][] bollinger(double[] close, int period, double mult) {
+        int n = close.length;
+        double[] mid = new double[n], up = new double[n], lo = new double[n];
+        double mean = 0, m2 = 0;
+        for (int i = 0; i < n; i++) {
+            double x = close[i];
+            if (i < period) {
+                double d = x - mean;
+                mean += d / (i + 1);
+                m2 += d * (x - mean);
+            } else {
+                double old = close[i - period];
+                double prevMean = mean;
+                mean += (x - old) / period;
+                m2 += (x - old) * (x - mean + old - prevMean);
+            }
+            int cnt = Math.min(i + 1, period);
+            double sd = Math.sqrt(Math.max(0, m2 / cnt));
+            mid[i] = mean;
+            up[i] = mean + mult * sd;
+            lo[i] = mean - mult * sd;
+        }
+        return new double[][]{ mid, up, lo };
+    }
+
+    // ---- volume ----
+
+    /** Rolling volume-weighted typical price {@code (h + l + c) / 3} over {@code period} bars; typical price when volume is 0. */
+    public static double[] vwap(double[] high, double[] low, double[] close, long[] volume, int period) {
+        int n = close.length;
+        double[] out = new double[n];
+        double[] tp = new double[n];
+        for (int i = 0; i < n; i++) tp[i] = (high[i] + low[i] + close[i]) / 3;
+        double pv = 0, vol = 0;
+        for (int i = 0; i < n; i++) {
+            pv += tp[i] * volume[i];
+            vol += volume[i];
+            if (i >= period) {
+                pv -= tp[i - period] * volume[i - period];
+                vol -= volume[i - period];
+            }
+            out[i] = vol == 0 ? tp[i] : pv / vol;
+        }
+        return out;
+    }
+
+    // ---- rolling extremes ----
+
+    /** Highest value over the last {@code period} bars (fewer during warm-up), O(n) via a monotonic deque. */
+    public static double[] rollingMax(double[] in, int period) {
+        return extreme(in, period, true);
+    }
+
+    /** Lowest value over the last {@code period} bars (fewer during warm-up). */
+    public static double[] rollingMin(double[] in, int period) {
+        return extreme(in, period, false);
+    }
+
+    private static double[] extreme(double[] in, int period, boolean max) {
+        int n = in.length;
+        double[] out = new double[n];
+        int[] dq = new int[Math.max(1, Math.min(n, period))];
+        int head = 0, size = 0, cap = dq.length;
+        for (int i = 0; i < n; i++) {
+            if (size > 0 && dq[head] <= i - period) { head = (head + 1) % cap; size--; }
+            double x = in[i];
+            while (size > 0) {
+                double back = in[dq[(head + size - 1) % cap]];
+                if (max ? back > x : back < x) break;
+                size--;
+            }
+            dq[(head + size) % cap] = i;
+            size++;
+            out[i] = in[dq[head]];
+        }
+        return out;
+    }
+
+    // ---- CandleSeries adapters ----
+
+    public static double[] closes(CandleSeries s) { return s.closes(); }
+
+    public static double[] highs(CandleSeries s) { return column(s.highArray(), s.offset(), s.size()); }
+
+    public static double[] lows(CandleSeries s) { return column(s.lowArray(), s.offset(), s.size()); }
+
+    public static long[] volumes(CandleSeries s) {
+        long[] out = new long[s.size()];
+        System.arraycopy(s.volumeArray(), s.offset(), out, 0, out.length);
+        return out;
+    }
+
+    private static double[] column(double[] arr, int off, int n) {
+        double[] out = new double[n];
+        System.arraycopy(arr, off, out, 0, n);
+        return out;
+    }
+}
@@ -0,0 +1,151 @@
+package com.stocksanalyses.service.marketdata;
+
+import com.stocksanalyses.model.CandleSeries;
+
+import java.util.*;
+
+/**
+ * Reconciles time-sorted candle series from several providers in one k-way merge. Each step takes the earliest head
+ * timestamp {@code t} and forms a cluster from every provider whose head lies within {@code [t, t + window]}, at most
+ * one bar per provider. The cluster's closes are compared against a centre (the median with three or more members,
+ * otherwise the reference provider's close); members off the centre by more than {@code tolerance} are reported and
+ * left out of the consensus bar, which is a weighted average of the rest. Providers whose range spans {@code t} but
+ * have no bar in the cluster are reported as missing.
+ *
+ * State beyond the inputs and the output is one cursor and a few scratch slots per provider, plus at most
+ * {@code maxSamples} retained discrepancies.
+ */
+public final class CandleReconciler {
+    private CandleReconciler() {}
+
+    public static final class Discrepancy {
+        public final long timestamp;
+        public final String provider;
+        /** {@code price} when the close is off the consensus by more than the tolerance, {@code missing} for a gap. */
+        public final String kind;
+        public final double value, consensus;
+
+        Discrepancy(long timestamp, String provider, String kind, double value, double consensus) {
+            this.timestamp = timestamp; this.provider = provider; this.kind = kind; this.value = value; this.consensus = consensus;
+        }
+    }
+
+    public static final class ProviderStats {
+        public long bars, matched, outliers, missing;
+        /** Largest relative deviation of this provider's close from the cluster centre. */
+        public double maxDeviation;
+    }
+
+    public static final class Result {
+        public final CandleSeries consensus;
+        public final Map<String, ProviderStats> providers;
+        public final long discrepancyCount;
+        /** The first discrepancies in time order, up to the sample limit. */
+        public final List<Discrepancy> discrepancies;
+
+        Result(CandleSeries consensus, Map<String, ProviderStats> providers, long discrepancyCount, List<Discrepancy> discrepancies) {
+            this.consensus = consensus; this.providers = providers;
+            this.discrepancyCount = discrepancyCount; this.discrepancies = discrepancies;
+        }
+    }
+
+    /**
+     * @param sources   series per provider, each ascending by timestamp
+     * @param scores    provider quality in [0, 1], added to each bar's volume weight; missing providers score 1
+     * @param reference provider whose timestamp and close win when there is no majority; may be null
+     */
+    public static Result reconcile(Map<String, CandleSeries> sources, Map<String, Double> scores, String reference,
+                                   long windowMs, double tolerance, int maxSamples) {
+        int k = sources.size();
+        String[] names = sources.keySet().toArray(new String[0]);
+        CandleSeries[] series = new CandleSeries[k];
+        double[] score = new double[k];
+        int ref = -1;
+        Map<String, ProviderStats> stats = new LinkedHashMap<>();
+        for (int p = 0; p < k; p++) {
+            series[p] = sources.get(names[p]);
+            score[p] = scores == null ? 1.0 : scores.getOrDefault(names[p], 1.0);
+            if (names[p].equals(reference)) ref = p;
+            ProviderStats s = new ProviderStats();
+            s.bars = series[p].size();
+            stats.put(names[p], s);
+        }
+        ProviderStats[] st = stats.values().toArray(new ProviderStats[0]);
+
+        int[] pos = new int[k], member = new int[k];
+        double[] closes = new double[k];
+        List<Discrepancy> samples = new ArrayList<>();
+        long discrepancies = 0;
+        int longest = 0;
+        for (CandleSeries s : series) longest = Math.max(longest, s.size());
+        CandleSeries.Builder out = new CandleSeries.Builder(longest);
+
+        while (true) {
+            long t = Long.MAX_VALUE;
+            for (int p = 0; p < k; p++) if (pos[p] < series[p].size()) t = Math.min(t, series[p].timestamp(pos[p]));
+            if (t == Long.MAX_VALUE) break;
+
+            int m = 0;
+            for (int p = 0; p < k; p++) {
+                CandleSeries s = series[p];
+                if (pos[p] < s.size() && s.timestamp(pos[p]) - t <= windowMs) {
+                    member[p] = pos[p]++;
+                    closes[m++] = s.close(member[p]);
+                    st[p].matched++;
+                } else {
+                    member[p] = -1;
+                    // a bar absent inside the provider's own range is a gap, not just a shorter history
+                    if (s.size() > 0 && s.timestamp(0) < t && pos[p] < s.size()) {
+                        st[p].missing++;
+                        discrepancies++;
+                        if (samples.size() < maxSamples) samples.add(new Discrepancy(t, names[p], "missing", Double.NaN, Double.NaN));
+                    }
+                }
+            }
+
+            double center;
+            if (m >= 3) {
+                Arrays.sort(closes, 0, m);
+                center = (m & 1) == 1 ? closes[m / 2] : (closes[m / 2 - 1] + closes[m / 2]) / 2;
+            } else if (ref >= 0 && member[ref] >= 0) {
+                center = series[ref].close(member[ref]);
+            } else {
+                center = closes[0];
+                double best = -1;
+                for (int p = 0; p < k; p++) {
+                    if (member[p] >= 0 && score[p] > best) { best = score[p]; center = series[p].close(member[p]); }
+                }
+            }
+
+            double wSum = 0, o = 0, h = 0, l = 0, c = 0, vol = 0;
+            int accepted = 0;
+            // members near the centre make the consensus; if none is (an even split), all of them do
+            for (int pass = 0; pass < 2 && accepted == 0; pass++) {
+                for (int p = 0; p < k; p++) {
+                    int i = member[p];
+                    if (i < 0) continue;
+                    CandleSeries s = series[p];
+                    double dev = center == 0 ? 0 : Math.abs(s.close(i) - center) / Math.abs(center);
+                    if (pass == 0) {
+                        st[p].maxDeviation = Math.max(st[p].maxDeviation, dev);
+                        if (dev > tolerance) {
+                            st[p].outliers++;
+                            discrepancies++;
+                            if (samples.size() < maxSamples) samples.add(new Discrepancy(s.timestamp(i), names[p], "price", s.close(i), center));
+                            continue;
+                        }
+                    }
+                    double w = Math.log(s.volume(i) + 1) + score[p];
+                    if (!(w > 0)) w = 1;
+                    wSum += w;
+                    o += s.open(i) * w; h += s.high(i) * w; l += s.low(i) * w; c += s.close(i) * w;
+                    vol += s.volume(i);
+                    accepted++;
+                }
+            }
+            long ts = ref >= 0 && member[ref] >= 0 ? series[ref].timestamp(member[ref]) : t;
+            out.add(ts, o / wSum, h / wSum, l / wSum, c / wSum, Math.round(vol / accepted));
+        }
+        return new Result(out.build(), stats, discrepancies, samples);
+    }
+}
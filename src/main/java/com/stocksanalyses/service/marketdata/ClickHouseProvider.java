@@ -2,7 +2,10 @@ package com.stocksanalyses.service.marketdata;
 
 import com.stocksanalyses.model.Candle;
 import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.CandleSeries;
 import com.stocksanalyses.service.CorporateActionsService;
+import com.stocksanalyses.service.cache.BoundedCache;
+import com.stocksanalyses.service.cache.CacheRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -15,7 +18,6 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ClickHouseProvider implements MarketDataProvider {
@@ -23,15 +25,23 @@ public class ClickHouseProvider implements MarketDataProvider {
     private final JdbcTemplate clickHouseTemplate;
     private final CorporateActionsService corporateActionsService;
     private final String tableName;
-    private final Map<String, DataAvailability> availabilityCache = new ConcurrentHashMap<>();
-    private final Map<String, DataQuality> qualityCache = new ConcurrentHashMap<>();
+    private final JdbcCandleReader reader;
+    private final BoundedCache<String, DataAvailability> availabilityCache;
+    private final BoundedCache<String, DataQuality> qualityCache;
     
     public ClickHouseProvider(@Autowired(required = false) @org.springframework.beans.factory.annotation.Qualifier("clickhouseJdbcTemplate") JdbcTemplate clickHouseTemplate,
                               @Autowired(required = false) CorporateActionsService corporateActionsService,
-                              @Value("${marketdata.clickhouse.table:candles}") String tableName) {
+                              @Value("${marketdata.clickhouse.table:candles}") String tableName,
+                              @Value("${marketdata.jdbc.fetch-size:10000}") int fetchSize,
+                              @Value("${marketdata.batch.target-rows:200000}") int batchTargetRows,
+                              CacheRegistry caches) {
         this.clickHouseTemplate = clickHouseTemplate;
         this.corporateActionsService = corporateActionsService;
         this.tableName = tableName;
+        this.reader = clickHouseTemplate == null ? null : new JdbcCandleReader(clickHouseTemplate, fetchSize, false, batchTargetRows); // the HTTP driver streams already
+        // availability moves as bars arrive: hot symbols are refreshed ahead of expiry
+        this.availabilityCache = caches.create("clickhouse-availability", 20_000, 300, 240);
+        this.qualityCache = caches.create("clickhouse-quality", 20_000, 600, 0);
     }
     
     @Override
@@ -41,28 +51,39 @@ public class ClickHouseProvider implements MarketDataProvider {
         }
         
         try {
-            String sql = String.format("""
-                SELECT timestamp, open, high, low, close, volume 
-                FROM %s 
-                WHERE symbol = ? AND interval = ? AND timestamp >= ? AND timestamp <= ?
-                ORDER BY timestamp ASC
-                """, tableName);
-            
-            List<Candle> rawCandles = clickHouseTemplate.query(sql, new CandleRowMapper(), 
-                symbol, interval, start, end);
+            List<Candle> rawCandles = reader.query(rangeSql(), new CandleRowMapper(), symbol, interval, start, end);
             
             // Apply corporate actions adjustment if needed
-            if (adjustType != AdjustType.NONE && corporateActionsService != null) {
-                return corporateActionsService.adjustCandles(rawCandles, symbol, adjustType);
-            }
-            
-            return rawCandles;
+            return adjust(rawCandles, symbol, adjustType);
         } catch (Exception e) {
             // Fallback to stub data on database error
             return getFallbackCandles(symbol, interval, start, end);
         }
     }
     
+    @Override
+    public CandleSeries getSeries(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
+        if (clickHouseTemplate == null) {
+            return MarketDataProvider.super.getSeries(symbol, interval, start, end, adjustType);
+        }
+        try {
+            CandleSeries.Builder columns = new CandleSeries.Builder();
+            reader.stream(rangeSql(), columns::add, symbol, interval, start, end);
+            return adjust(columns.build(), symbol, adjustType);
+        } catch (Exception e) {
+            return CandleSeries.of(getFallbackCandles(symbol, interval, start, end));
+        }
+    }
+    
+    @Override
+    public long streamCandles(String symbol, String interval, Instant start, Instant end, BarSink sink) {
+        if (clickHouseTemplate == null) {
+            return MarketDataProvider.super.streamCandles(symbol, interval, start, end, sink);
+        }
+        // no fallback here: the sink may already hold part of the range
+        return reader.stream(rangeSql(), sink, symbol, interval, start, end);
+    }
+    
     @Override
     public Optional<Candle> getLatestCandle(String symbol, String interval) {
         if (clickHouseTemplate == null) {
@@ -89,6 +110,17 @@ public class ClickHouseProvider implements MarketDataProvider {
     public Map<String, List<Candle>> getCandlesBatch(List<String> symbols, String interval, 
                                                     Instant start, Instant end, AdjustType adjustType) {
         Map<String, List<Candle>> result = new HashMap<>();
+        if (clickHouseTemplate != null) {
+            try {
+                CandleRowMapper mapper = new CandleRowMapper();
+                reader.batch(symbols, this::batchSql, new Object[]{interval, start, end}, n -> new ArrayList<Candle>(n),
+                    (list, rs, row) -> list.add(mapper.mapRow(rs, row)),
+                    (symbol, candles) -> result.put(symbol, adjust(candles, symbol, adjustType)));
+                return result;
+            } catch (Exception e) {
+                result.clear(); // fall back to per-symbol reads, which carry their own fallback
+            }
+        }
         for (String symbol : symbols) {
             result.put(symbol, getCandles(symbol, interval, start, end, adjustType));
         }
@@ -96,16 +128,29 @@ public class ClickHouseProvider implements MarketDataProvider {
     }
     
     @Override
-    public DataAvailability getDataAvailability(String symbol, String interval) {
-        String cacheKey = symbol + ":" + interval;
-        DataAvailability cached = availabilityCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
+    public Map<String, CandleSeries> getSeriesBatch(List<String> symbols, String interval, 
+                                                   Instant start, Instant end, AdjustType adjustType) {
+        if (clickHouseTemplate == null) {
+            return MarketDataProvider.super.getSeriesBatch(symbols, interval, start, end, adjustType);
         }
-        
+        Map<String, CandleSeries> result = new HashMap<>();
+        try {
+            reader.batch(symbols, this::batchSql, new Object[]{interval, start, end}, CandleSeries.Builder::new,
+                JdbcCandleReader.SERIES, (symbol, columns) -> result.put(symbol, adjust(columns.build(), symbol, adjustType)));
+            return result;
+        } catch (Exception e) {
+            return MarketDataProvider.super.getSeriesBatch(symbols, interval, start, end, adjustType);
+        }
+    }
+    
+    @Override
+    public DataAvailability getDataAvailability(String symbol, String interval) {
+        return availabilityCache.get(symbol + ":" + interval, key -> loadAvailability(symbol, interval));
+    }
+    
+    private DataAvailability loadAvailability(String symbol, String interval) {
         if (clickHouseTemplate == null) {
             DataAvailability fallback = new DataAvailability(false, null, null, 0, interval, symbol, 0.0);
-            availabilityCache.put(cacheKey, fallback);
             return fallback;
         }
         
@@ -130,28 +175,23 @@ public class ClickHouseProvider implements MarketDataProvider {
                 
                 DataAvailability availability = new DataAvailability(
                     total > 0, earliest, latest, total, interval, symbol, completeness);
-                availabilityCache.put(cacheKey, availability);
                 return availability;
             }, symbol, interval);
         } catch (Exception e) {
             DataAvailability fallback = new DataAvailability(false, null, null, 0, interval, symbol, 0.0);
-            availabilityCache.put(cacheKey, fallback);
             return fallback;
         }
     }
     
     @Override
     public DataQuality getDataQuality(String symbol, String interval, Instant start, Instant end) {
-        String cacheKey = symbol + ":" + interval + ":" + start + ":" + end;
-        DataQuality cached = qualityCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
+        return qualityCache.get(symbol + ":" + interval + ":" + start + ":" + end, key -> loadQuality(symbol, interval, start, end));
+    }
+    
+    private DataQuality loadQuality(String symbol, String interval, Instant start, Instant end) {
         if (clickHouseTemplate == null) {
             DataQuality fallback = new DataQuality(0.5, 0.5, 0.5, 0.5, 0, 0, 0, 
                 List.of("ClickHouse not available"), Map.of());
-            qualityCache.put(cacheKey, fallback);
             return fallback;
         }
         
@@ -197,12 +237,10 @@ public class ClickHouseProvider implements MarketDataProvider {
                     "expected_days", expectedDays,
                     "actual_candles", actual
                 ));
-            qualityCache.put(cacheKey, quality);
             return quality;
         } catch (Exception e) {
             DataQuality fallback = new DataQuality(0.3, 0.3, 0.3, 0.3, 0, 0, 0, 
                 List.of("Quality analysis failed: " + e.getMessage()), Map.of());
-            qualityCache.put(cacheKey, fallback);
             return fallback;
         }
     }
@@ -232,6 +270,38 @@ public class ClickHouseProvider implements MarketDataProvider {
         return "ClickHouse";
     }
     
+    private String batchSql(int symbols) {
+        return String.format("""
+            SELECT c.symbol, c.timestamp, c.open, c.high, c.low, c.close, c.volume 
+            FROM %s c 
+            WHERE c.symbol IN (%s) AND c.interval = ? AND c.timestamp >= ? AND c.timestamp <= ?
+            ORDER BY c.symbol, c.timestamp ASC
+            """, tableName, JdbcCandleReader.placeholders(symbols));
+    }
+    
+    private List<Candle> adjust(List<Candle> candles, String symbol, AdjustType adjustType) {
+        if (adjustType != AdjustType.NONE && corporateActionsService != null) {
+            return corporateActionsService.adjustCandles(candles, symbol, adjustType);
+        }
+        return candles;
+    }
+    
+    private CandleSeries adjust(CandleSeries series, String symbol, AdjustType adjustType) {
+        if (adjustType != AdjustType.NONE && corporateActionsService != null) {
+            return corporateActionsService.adjustSeries(series, symbol, adjustType);
+        }
+        return series;
+    }
+    
+    private String rangeSql() {
+        return String.format("""
+            SELECT c.timestamp, c.open, c.high, c.low, c.close, c.volume 
+            FROM %s c 
+            WHERE c.symbol = ? AND c.interval = ? AND c.timestamp >= ? AND c.timestamp <= ?
+            ORDER BY c.timestamp ASC
+            """, tableName);
+    }
+    
     private List<Candle> getFallbackCandles(String symbol, String interval, Instant start, Instant end) {
         // Fallback to stub data when ClickHouse is not available
         List<Candle> candles = new ArrayList<>();
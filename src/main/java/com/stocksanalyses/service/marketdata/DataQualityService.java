@@ -1,19 +1,24 @@
 package com.stocksanalyses.service.marketdata;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.service.cache.BoundedCache;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import com.stocksanalyses.service.stats.RollingStats;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class DataQualityService {
     
-    private final Map<String, DataQuality> qualityCache = new ConcurrentHashMap<>();
-    private final Map<String, Instant> lastValidation = new ConcurrentHashMap<>();
+    private final BoundedCache<String, DataQuality> qualityCache;
+    
+    public DataQualityService(CacheRegistry caches) {
+        this.qualityCache = caches.create("data-quality", 10_000, 600, 0);
+    }
     
     public DataQuality analyzeQuality(List<Candle> candles, String symbol, String interval) {
         if (candles.isEmpty()) {
@@ -21,20 +26,17 @@ public class DataQualityService {
                 List.of("No data available"), Map.of());
         }
         
-        String cacheKey = symbol + ":" + interval + ":" + candles.size();
-        DataQuality cached = qualityCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
+        return qualityCache.get(symbol + ":" + interval + ":" + candles.size(), key -> analyze(candles, interval));
+    }
+    
+    private DataQuality analyze(List<Candle> candles, String interval) {
         // Analyze completeness
         double completeness = analyzeCompleteness(candles, interval);
         
-        // Analyze consistency
-        ConsistencyResult consistency = analyzeConsistency(candles);
-        
-        // Analyze accuracy
-        double accuracy = analyzeAccuracy(candles);
+        // Consistency, accuracy and return outliers in one pass
+        ScanResult scan = scan(candles);
+        ConsistencyResult consistency = scan.consistency;
+        double accuracy = candles.size() < 2 ? 1.0 : (double) scan.valid / candles.size();
         
         // Calculate overall score
         double overallScore = (completeness + consistency.score + accuracy) / 3.0;
@@ -46,22 +48,21 @@ public class DataQualityService {
         if (consistency.invalid > 0) issues.add("Invalid OHLC data: " + consistency.invalid);
         if (consistency.gaps > 0) issues.add("Data gaps: " + consistency.gaps);
         if (accuracy < 0.8) issues.add("Low accuracy score: " + String.format("%.1f%%", accuracy * 100));
+        if (scan.outliers > 0) issues.add("Return outliers: " + scan.outliers);
         
         Map<String, Object> metrics = Map.of(
             "total_candles", candles.size(),
             "duplicates", consistency.duplicates,
             "invalid_ohlc", consistency.invalid,
             "gaps", consistency.gaps,
+            "return_outliers", scan.outliers,
             "completeness", completeness,
             "consistency", consistency.score,
             "accuracy", accuracy
         );
         
-        DataQuality quality = new DataQuality(overallScore, completeness, consistency.score, accuracy,
+        return new DataQuality(overallScore, completeness, consistency.score, accuracy,
             consistency.gaps, consistency.duplicates, consistency.invalid, issues, metrics);
-        
-        qualityCache.put(cacheKey, quality);
-        return quality;
     }
     
     private double analyzeCompleteness(List<Candle> candles, String interval) {
@@ -82,34 +83,53 @@ public class DataQualityService {
         return Math.min(1.0, (double) candles.size() / expectedCandles);
     }
     
-    private ConsistencyResult analyzeConsistency(List<Candle> candles) {
-        long duplicates = 0;
-        long invalid = 0;
-        long gaps = 0;
-        
-        Set<Instant> timestamps = new HashSet<>();
+    /** Trailing window of close-to-close log returns an outlier is measured against. */
+    static final int RETURN_WINDOW = 50;
+    /** |z| of a log return against the trailing window above which it counts as an outlier. */
+    static final double RETURN_OUTLIER_Z = 6.0;
+
+    /**
+     * Duplicates, invalid OHLC, gaps, valid candles and return outliers in a single pass. Duplicates are found by
+     * comparing neighbours when the candles are time-ordered (the normal case) and fall back to a set otherwise.
+     */
+    private ScanResult scan(List<Candle> candles) {
+        long duplicates = 0, invalid = 0, gaps = 0, valid = 0, outliers = 0;
+        Set<Instant> timestamps = null;
         Instant previousTimestamp = null;
+        double previousClose = Double.NaN;
+        RollingStats returns = new RollingStats(RETURN_WINDOW);
         
         for (Candle candle : candles) {
-            // Check for duplicates
-            if (!timestamps.add(candle.getTimestamp())) {
-                duplicates++;
-            }
+            Instant ts = candle.getTimestamp();
+            boolean badOhlc = isInvalidOHLC(candle);
+            if (badOhlc) invalid++;
+            else if (candle.getVolume() >= 0 && ts != null) valid++;
             
-            // Check for invalid OHLC
-            if (isInvalidOHLC(candle)) {
-                invalid++;
+            if (previousTimestamp != null && ts != null) {
+                if (timestamps == null && ts.isBefore(previousTimestamp)) {
+                    // out of order: switch to a set of everything seen so far
+                    timestamps = new HashSet<>();
+                    for (Candle c : candles) {
+                        if (c == candle) break;
+                        timestamps.add(c.getTimestamp());
+                    }
+                }
+                if (timestamps == null ? ts.equals(previousTimestamp) : !timestamps.add(ts)) duplicates++;
+                if (ChronoUnit.HOURS.between(previousTimestamp, ts) > 24) gaps++; // More than 1 day gap
+            } else if (timestamps != null && ts != null) {
+                timestamps.add(ts);
             }
             
-            // Check for gaps
-            if (previousTimestamp != null) {
-                long gapHours = ChronoUnit.HOURS.between(previousTimestamp, candle.getTimestamp());
-                if (gapHours > 24) { // More than 1 day gap
-                    gaps++;
+            if (!badOhlc) {
+                double close = candle.getClose().doubleValue();
+                if (previousClose > 0) {
+                    double r = Math.log(close / previousClose);
+                    if (returns.isFull() && Math.abs(returns.zScore(r, 1e-12)) > RETURN_OUTLIER_Z) outliers++;
+                    returns.add(r);
                 }
+                previousClose = close;
             }
-            
-            previousTimestamp = candle.getTimestamp();
+            if (ts != null) previousTimestamp = ts;
         }
         
         double consistencyScore = 1.0;
@@ -117,22 +137,7 @@ public class DataQualityService {
             consistencyScore = Math.max(0.0, 1.0 - (duplicates + invalid + gaps) / (double) candles.size());
         }
         
-        return new ConsistencyResult(consistencyScore, duplicates, invalid, gaps);
-    }
-    
-    private double analyzeAccuracy(List<Candle> candles) {
-        if (candles.size() < 2) return 1.0;
-        
-        int validCandles = 0;
-        int totalCandles = candles.size();
-        
-        for (Candle candle : candles) {
-            if (isValidCandle(candle)) {
-                validCandles++;
-            }
-        }
-        
-        return (double) validCandles / totalCandles;
+        return new ScanResult(new ConsistencyResult(consistencyScore, duplicates, invalid, gaps), valid, outliers);
     }
     
     private boolean isInvalidOHLC(Candle candle) {
@@ -164,12 +169,6 @@ public class DataQualityService {
         return false;
     }
     
-    private boolean isValidCandle(Candle candle) {
-        return !isInvalidOHLC(candle) && 
-               candle.getVolume() >= 0 &&
-               candle.getTimestamp() != null;
-    }
-    
     private long getIntervalHours(String interval) {
         switch (interval.toLowerCase()) {
             case "1m": return 1;
@@ -186,13 +185,23 @@ public class DataQualityService {
     }
     
     public void clearCache() {
-        qualityCache.clear();
-        lastValidation.clear();
+        qualityCache.invalidateAll();
     }
     
     public void clearCache(String symbol) {
-        qualityCache.entrySet().removeIf(entry -> entry.getKey().startsWith(symbol + ":"));
-        lastValidation.entrySet().removeIf(entry -> entry.getKey().startsWith(symbol + ":"));
+        qualityCache.invalidateIf(key -> key.startsWith(symbol + ":"));
+    }
+    
+    private static class ScanResult {
+        final ConsistencyResult consistency;
+        final long valid;
+        final long outliers;
+        
+        ScanResult(ConsistencyResult consistency, long valid, long outliers) {
+            this.consistency = consistency;
+            this.valid = valid;
+            this.outliers = outliers;
+        }
     }
     
     private static class ConsistencyResult {
@@ -2,11 +2,16 @@ package com.stocksanalyses.service.marketdata;
 
 import com.stocksanalyses.model.Candle;
 import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.CandleSeries;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -14,22 +19,47 @@ import java.util.Optional;
 @Service
 public class EnhancedCandleService {
     
+    private final List<MarketDataProvider> providers;
     private final ReconciliationService reconciliationService;
     private final DataQualityService qualityService;
+    private final HotCandleCache candleCache;
     private final String primaryProvider;
     private final boolean enableReconciliation;
     
-    public EnhancedCandleService(@Autowired ReconciliationService reconciliationService,
+    public EnhancedCandleService(@Autowired List<MarketDataProvider> providers,
+                                @Autowired ReconciliationService reconciliationService,
                                 @Autowired DataQualityService qualityService,
+                                @Autowired HotCandleCache candleCache,
                                 @Value("${marketdata.primary-provider:timescale}") String primaryProvider,
                                 @Value("${marketdata.reconciliation.enabled:true}") boolean enableReconciliation) {
+        this.providers = providers;
         this.reconciliationService = reconciliationService;
         this.qualityService = qualityService;
+        this.candleCache = candleCache;
         this.primaryProvider = primaryProvider;
         this.enableReconciliation = enableReconciliation;
     }
     
     public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
+        return getSeries(symbol, interval, start, end, adjustType).toCandles();
+    }
+    
+    /** Candles as a read-only columnar view, served from the hot candle cache where the range is already held. */
+    public CandleSeries getSeries(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
+        return candleCache.get(symbol, interval, adjustType, start, end,
+                (from, to) -> loadCandles(symbol, interval, from, to, adjustType));
+    }
+    
+    /** Drops cached candles of {@code symbol} after its stored history changed. */
+    public void invalidate(String symbol) {
+        candleCache.invalidate(symbol);
+    }
+    
+    public Map<String, Object> cacheStats() {
+        return candleCache.stats();
+    }
+    
+    private List<Candle> loadCandles(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
         if (enableReconciliation) {
             return reconciliationService.getReconciledCandles(symbol, interval, start, end, adjustType);
         } else {
@@ -45,13 +75,67 @@ public class EnhancedCandleService {
     
     public Map<String, List<Candle>> getCandlesBatch(List<String> symbols, String interval, 
                                                     Instant start, Instant end, AdjustType adjustType) {
-        Map<String, List<Candle>> result = new java.util.HashMap<>();
+        Map<String, List<Candle>> result = new LinkedHashMap<>();
+        getSeriesBatch(symbols, interval, start, end, adjustType).forEach((symbol, series) -> result.put(symbol, series.toCandles()));
+        return result;
+    }
+    
+    /**
+     * Series of several symbols. Symbols the hot candle cache already covers are served from it; the rest are read
+     * with one batched call to the primary provider and cached. A symbol the batch returned nothing for, or data
+     * below the quality bar for, is loaded on its own, reconciled across providers when enabled.
+     */
+    public Map<String, CandleSeries> getSeriesBatch(List<String> symbols, String interval,
+                                                    Instant start, Instant end, AdjustType adjustType) {
+        List<String> missing = new ArrayList<>();
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            if (!candleCache.covers(symbol, interval, adjustType, start, end)) missing.add(symbol);
+        }
+        Map<String, List<Candle>> batch = loadBatch(missing, interval, start, end, adjustType);
+        
+        Map<String, CandleSeries> result = new LinkedHashMap<>();
         for (String symbol : symbols) {
-            result.put(symbol, getCandles(symbol, interval, start, end, adjustType));
+            List<Candle> loaded = batch.get(symbol);
+            result.computeIfAbsent(symbol, s -> candleCache.get(s, interval, adjustType, start, end, (from, to) -> loaded != null
+                ? within(loaded, from, to)
+                : loadCandles(s, interval, from, to, adjustType)));
         }
         return result;
     }
     
+    /** One batched read of {@code symbols} from the primary provider, keeping only symbols it served well. */
+    private Map<String, List<Candle>> loadBatch(List<String> symbols, String interval, Instant start, Instant end,
+                                                AdjustType adjustType) {
+        if (providers.isEmpty() || symbols.isEmpty()) return Map.of();
+        // configured as "timescale" / "clickhouse", named "TimescaleDB" / "ClickHouse"
+        MarketDataProvider primary = providers.stream()
+            .filter(p -> p.getProviderName().regionMatches(true, 0, primaryProvider, 0, primaryProvider.length()))
+            .findFirst().orElse(providers.get(0));
+        Map<String, CandleSeries> read;
+        try {
+            read = primary.getSeriesBatch(symbols, interval, start, end, adjustType);
+        } catch (RuntimeException failed) {
+            return Map.of(); // every symbol falls back to its own load
+        }
+        Map<String, List<Candle>> good = new HashMap<>();
+        read.forEach((symbol, series) -> {
+            if (series == null || series.isEmpty()) return;
+            List<Candle> candles = series.toCandles();
+            if (!enableReconciliation || qualityService.analyzeQuality(candles, symbol, interval).getOverallScore() >= 0.8) {
+                good.put(symbol, candles);
+            }
+        });
+        return good;
+    }
+    
+    /** The candles of {@code candles}, sorted by time, within {@code [from, to]}. */
+    private static List<Candle> within(List<Candle> candles, Instant from, Instant to) {
+        int lo = 0, hi = candles.size();
+        while (lo < candles.size() && candles.get(lo).getTimestamp().isBefore(from)) lo++;
+        while (hi > lo && candles.get(hi - 1).getTimestamp().isAfter(to)) hi--;
+        return candles.subList(lo, hi);
+    }
+    
     public DataAvailability getDataAvailability(String symbol, String interval) {
         // This would need to be implemented based on the primary provider
         return new DataAvailability(false, null, null, 0, interval, symbol, 0.0);
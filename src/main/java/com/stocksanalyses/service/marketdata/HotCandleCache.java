@@ -0,0 +1,275 @@
+package com.stocksanalyses.service.marketdata;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.CandleService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process candle cache in front of the providers. Per symbol, interval and adjustment it keeps non-overlapping
+ * columnar segments, each covering a contiguous time range that has been fetched. A request inside one segment is
+ * answered with a zero-copy {@link CandleSeries#window} view; otherwise only the uncovered parts of the range are
+ * fetched and merged with the overlapping segments into one segment. Coverage stops one interval plus
+ * {@code settleMs} before "now", so the forming bar and recently closed bars a provider may still revise are refetched
+ * until they settle. A fetch reaching into that unsettled edge covers no further than the last bar it returned, so a
+ * provider that is late with recent bars is asked again rather than cached as having none. Entries are evicted
+ * least-recently-used once the column bytes held exceed {@code maxBytes}.
+ */
+@Service
+public class HotCandleCache {
+    /** Fetches candles for an inclusive range, ascending by timestamp. */
+    @FunctionalInterface
+    public interface RangeLoader {
+        List<Candle> load(Instant start, Instant end);
+    }
+
+    private static final class Segment {
+        final long from, to; // covered range, inclusive
+        final CandleSeries data;
+
+        Segment(long from, long to, CandleSeries data) { this.from = from; this.to = to; this.data = data; }
+    }
+
+    private static final class Entry {
+        final String key;
+        final TreeMap<Long, Segment> segments = new TreeMap<>();
+        long bytes; // guarded by the cache map
+
+        Entry(String key) { this.key = key; }
+    }
+
+    private final boolean enabled;
+    private final long maxBytes, settleMs;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong(), partial = new AtomicLong(), misses = new AtomicLong(),
+            barsFetched = new AtomicLong(), evictions = new AtomicLong();
+    private final Counter hitCounter, partialCounter, missCounter;
+
+    @Autowired
+    public HotCandleCache(MeterRegistry meterRegistry,
+                          @Value("${marketdata.cache.enabled:true}") boolean enabled,
+                          @Value("${marketdata.cache.maxBytes:268435456}") long maxBytes,
+                          @Value("${marketdata.cache.settleMs:900000}") long settleMs) {
+        this(meterRegistry, enabled, maxBytes, settleMs, System::currentTimeMillis);
+    }
+
+    /** @param clock epoch millis of "now" */
+    public HotCandleCache(MeterRegistry meterRegistry, boolean enabled, long maxBytes, long settleMs, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.settleMs = Math.max(0, settleMs);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true);
+        this.hitCounter = meterRegistry.counter("candle_cache_requests_total", "result", "hit");
+        this.partialCounter = meterRegistry.counter("candle_cache_requests_total", "result", "partial");
+        this.missCounter = meterRegistry.counter("candle_cache_requests_total", "result", "miss");
+        meterRegistry.gauge("candle_cache_bytes", this, HotCandleCache::bytes);
+        meterRegistry.gauge("candle_cache_entries", this, c -> c.entryCount());
+        meterRegistry.gauge("candle_cache_hit_ratio", this, HotCandleCache::hitRatio);
+    }
+
+    /**
+     * Candles of {@code symbol} in {@code [start, end]}, from cached segments where covered and from {@code loader}
+     * for the rest. The result may be a view over cached columns and must not be written to.
+     */
+    public CandleSeries get(String symbol, String interval, AdjustType adjust, Instant start, Instant end, RangeLoader loader) {
+        if (!enabled || start == null || end == null || end.isBefore(start)) {
+            misses.incrementAndGet();
+            missCounter.increment();
+            return CandleSeries.of(sorted(loader.load(start, end)));
+        }
+        long s = start.toEpochMilli(), e = end.toEpochMilli();
+        // neither the bar still forming at "now" nor bars closed within the settle lag are treated as covered
+        long settled = clock.getAsLong() - CandleService.intervalMs(interval) - settleMs;
+        long coverTo = Math.min(e, settled);
+        Entry entry = entry(symbol + "|" + interval + "|" + adjust);
+        synchronized (entry) {
+            List<Segment> overlapping = new ArrayList<>();
+            for (Segment seg : entry.segments.headMap(e == Long.MAX_VALUE ? e : e + 1, true).descendingMap().values()) {
+                if (seg.to < s - 1) break;
+                overlapping.add(0, seg);
+            }
+            if (overlapping.size() == 1 && overlapping.get(0).from <= s && overlapping.get(0).to >= e) {
+                hits.incrementAndGet();
+                hitCounter.increment();
+                return slice(overlapping.get(0).data, s, e);
+            }
+
+            // fetch only the gaps between (and around) what is already covered
+            List<Segment> parts = new ArrayList<>(overlapping);
+            long cursor = s;
+            for (Segment seg : overlapping) {
+                if (seg.from > cursor) parts.add(fetch(loader, cursor, seg.from - 1));
+                cursor = Math.max(cursor, seg.to + 1);
+            }
+            Segment tail = cursor <= e ? fetch(loader, cursor, e) : null;
+            if (tail != null) {
+                parts.add(tail);
+                // a fetch into the unsettled edge vouches only for the bars it returned; an empty one for nothing
+                if (tail.to > settled) {
+                    CandleSeries d = tail.data;
+                    coverTo = Math.min(coverTo, d.isEmpty() ? tail.from - 1 : d.timestamp(d.size() - 1));
+                }
+            }
+            if (overlapping.isEmpty()) { misses.incrementAndGet(); missCounter.increment(); }
+            else { partial.incrementAndGet(); partialCounter.increment(); }
+
+            parts.sort(Comparator.comparingLong(p -> p.from));
+            long from = Math.min(s, parts.get(0).from);
+            long to = Math.max(coverTo, overlapping.isEmpty() ? Long.MIN_VALUE : overlapping.get(overlapping.size() - 1).to);
+            CandleSeries merged = merge(parts);
+            if (to < from) return slice(merged, s, e); // nothing settled yet: serve without caching
+            for (Segment seg : overlapping) entry.segments.remove(seg.from);
+            entry.segments.put(from, new Segment(from, to, merged));
+            account(entry);
+            return slice(merged, s, e);
+        }
+    }
+
+    /** Whether {@code [start, end]} of {@code symbol} would be answered from one cached segment without loading. */
+    public boolean covers(String symbol, String interval, AdjustType adjust, Instant start, Instant end) {
+        if (!enabled || start == null || end == null || end.isBefore(start)) return false;
+        long s = start.toEpochMilli(), e = end.toEpochMilli();
+        Entry entry;
+        synchronized (entries) { entry = entries.get(symbol + "|" + interval + "|" + adjust); }
+        if (entry == null) return false;
+        synchronized (entry) {
+            Map.Entry<Long, Segment> floor = entry.segments.floorEntry(s);
+            return floor != null && floor.getValue().to >= e;
+        }
+    }
+
+    /** Drops every cached range of {@code symbol}; call when its history is rewritten. */
+    public void invalidate(String symbol) {
+        String prefix = symbol + "|";
+        synchronized (entries) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (!e.key.startsWith(prefix)) continue;
+                bytes -= e.bytes;
+                it.remove();
+            }
+        }
+    }
+
+    public long bytes() {
+        synchronized (entries) { return bytes; }
+    }
+
+    public int entryCount() {
+        synchronized (entries) { return entries.size(); }
+    }
+
+    public double hitRatio() {
+        long h = hits.get(), total = h + partial.get() + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("entries", entryCount());
+        m.put("bytes", bytes());
+        m.put("maxBytes", maxBytes);
+        m.put("hits", hits.get());
+        m.put("partialHits", partial.get());
+        m.put("misses", misses.get());
+        m.put("hitRatio", hitRatio());
+        m.put("barsFetched", barsFetched.get());
+        m.put("evictions", evictions.get());
+        return m;
+    }
+
+    private Entry entry(String key) {
+        synchronized (entries) { return entries.computeIfAbsent(key, Entry::new); }
+    }
+
+    private Segment fetch(RangeLoader loader, long from, long to) {
+        List<Candle> candles = sorted(loader.load(Instant.ofEpochMilli(from), Instant.ofEpochMilli(to)));
+        barsFetched.addAndGet(candles.size());
+        return new Segment(from, to, CandleSeries.of(candles));
+    }
+
+    /** Re-counts {@code entry}'s bytes and evicts least-recently-used entries while over budget. */
+    private void account(Entry entry) {
+        long size = 0;
+        for (Segment seg : entry.segments.values()) size += seg.data.sizeBytes();
+        synchronized (entries) {
+            if (entries.get(entry.key) != entry) return; // evicted or invalidated while loading
+            bytes += size - entry.bytes;
+            entry.bytes = size;
+            Iterator<Entry> it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                Entry eldest = it.next();
+                bytes -= eldest.bytes;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static List<Candle> sorted(List<Candle> candles) {
+        if (candles == null) return List.of();
+        for (int i = 1; i < candles.size(); i++) {
+            if (candles.get(i).getTimestamp().isBefore(candles.get(i - 1).getTimestamp())) {
+                List<Candle> copy = new ArrayList<>(candles);
+                copy.sort(Comparator.comparing(Candle::getTimestamp));
+                return copy;
+            }
+        }
+        return candles;
+    }
+
+    /**
+     * Concatenates parts ordered by coverage start. A part may carry bars past its coverage (the forming bar); when the
+     * next part repeats those timestamps, the later fetch wins.
+     */
+    private static CandleSeries merge(List<Segment> parts) {
+        int total = 0;
+        for (Segment p : parts) total += p.data.size();
+        long[] ts = new long[total], vol = new long[total];
+        double[] o = new double[total], h = new double[total], l = new double[total], c = new double[total];
+        int n = 0;
+        for (Segment p : parts) {
+            CandleSeries d = p.data;
+            if (d.isEmpty()) continue;
+            long first = d.timestamp(0);
+            while (n > 0 && ts[n - 1] >= first) n--;
+            for (int i = 0; i < d.size(); i++, n++) {
+                ts[n] = d.timestamp(i); o[n] = d.open(i); h[n] = d.high(i); l[n] = d.low(i); c[n] = d.close(i); vol[n] = d.volume(i);
+            }
+        }
+        if (n < total) {
+            ts = Arrays.copyOf(ts, n); o = Arrays.copyOf(o, n); h = Arrays.copyOf(h, n);
+            l = Arrays.copyOf(l, n); c = Arrays.copyOf(c, n); vol = Arrays.copyOf(vol, n);
+        }
+        return CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
+    /** Zero-copy view of the bars of {@code data} with timestamps in {@code [from, to]}. */
+    private static CandleSeries slice(CandleSeries data, long from, long to) {
+        return data.window(lowerBound(data, from), lowerBound(data, to == Long.MAX_VALUE ? to : to + 1));
+    }
+
+    private static int lowerBound(CandleSeries data, long t) {
+        int lo = 0, hi = data.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (data.timestamp(mid) < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
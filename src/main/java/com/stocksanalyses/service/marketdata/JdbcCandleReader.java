@@ -0,0 +1,161 @@
+package com.stocksanalyses.service.marketdata;
+
+import com.stocksanalyses.model.CandleSeries;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Cursor-based candle reads shared by the JDBC providers. Statements are forward-only with a bounded fetch size. With
+ * {@code transactional} set, autocommit is switched off for the duration of the read, because the PostgreSQL driver
+ * only honours the fetch size inside a transaction and otherwise buffers the whole result before the first row.
+ * Queries must select {@code timestamp, open, high, low, close, volume} in that order; batch queries select
+ * {@code symbol} first.
+ *
+ * Batches run one {@code symbol IN (...)} query per chunk of symbols. The chunk size adapts to the response volume:
+ * after each query the next chunk is sized so that, at the bars per symbol just seen, it returns about
+ * {@code batchTargetRows} rows.
+ */
+final class JdbcCandleReader {
+    private final JdbcTemplate jdbc;
+    private final int fetchSize;
+    private final boolean transactional;
+    private final int batchTargetRows;
+    /** Symbols in the first query of a batch, before any response volume has been seen. */
+    static final int INITIAL_CHUNK = 64;
+    /** Upper bound on symbols per query, which keeps the bind parameter count well inside driver limits. */
+    static final int MAX_CHUNK = 1000;
+
+    JdbcCandleReader(JdbcTemplate jdbc, int fetchSize, boolean transactional, int batchTargetRows) {
+        this.jdbc = jdbc;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.transactional = transactional;
+        this.batchTargetRows = Math.max(1, batchTargetRows);
+    }
+
+    private interface Cursor<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    /** Adds the current row to a symbol's accumulator; columns after the symbol start at index 2. */
+    interface RowAppender<A> {
+        void append(A group, ResultSet rs, int row) throws SQLException;
+    }
+
+    /** Appends batch rows as primitives into one columnar builder per symbol. */
+    static final RowAppender<CandleSeries.Builder> SERIES = (b, rs, row) -> {
+        Timestamp t = rs.getTimestamp(2);
+        if (t == null) throw new SQLException("Timestamp cannot be null");
+        b.add(t.getTime(), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getDouble(6), rs.getLong(7));
+    };
+
+    /** Passes each row to {@code sink} as primitives without building row objects; returns the number of rows. */
+    long stream(String sql, MarketDataProvider.BarSink sink, Object... args) {
+        return withCursor(sql, args, rs -> {
+            long rows = 0;
+            while (rs.next()) {
+                sink.accept(timestamp(rs), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getLong(6));
+                rows++;
+            }
+            return rows;
+        });
+    }
+
+    /** Maps every row like {@link JdbcTemplate#query}, but through the same bounded cursor. */
+    <T> List<T> query(String sql, RowMapper<T> mapper, Object... args) {
+        return withCursor(sql, args, rs -> {
+            List<T> out = new ArrayList<>();
+            int row = 0;
+            while (rs.next()) out.add(mapper.mapRow(rs, row++));
+            return out;
+        });
+    }
+
+    /**
+     * Loads {@code symbols} with as few queries as the chunking allows. {@code sql} builds the query for a chunk of
+     * {@code n} symbols: {@code n} placeholders for the symbols followed by {@code rangeArgs}, ordered by symbol and
+     * time. Each symbol's rows are handed to {@code done} as soon as the cursor moves past them; symbols without rows
+     * get an empty group. {@code newGroup} receives the expected row count. Returns the number of queries run.
+     */
+    <A> int batch(List<String> symbols, IntFunction<String> sql, Object[] rangeArgs, IntFunction<A> newGroup,
+                  RowAppender<A> appender, BiConsumer<String, A> done) {
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(symbols));
+        int chunk = Math.min(INITIAL_CHUNK, MAX_CHUNK), queries = 0;
+        int expected = 256;
+        for (int from = 0; from < unique.size(); queries++) {
+            List<String> part = unique.subList(from, Math.min(unique.size(), from + chunk));
+            Object[] args = new Object[part.size() + rangeArgs.length];
+            for (int i = 0; i < part.size(); i++) args[i] = part.get(i);
+            System.arraycopy(rangeArgs, 0, args, part.size(), rangeArgs.length);
+            int hint = expected;
+            Set<String> seen = new HashSet<>();
+            long rows = withCursor(sql.apply(part.size()), args, rs -> {
+                long n = 0;
+                String current = null;
+                A group = null;
+                int row = 0;
+                while (rs.next()) {
+                    String symbol = rs.getString(1);
+                    if (!symbol.equals(current)) {
+                        if (current != null) done.accept(current, group);
+                        current = symbol;
+                        seen.add(symbol);
+                        group = newGroup.apply(hint);
+                        row = 0;
+                    }
+                    appender.append(group, rs, row++);
+                    n++;
+                }
+                if (current != null) done.accept(current, group);
+                return n;
+            });
+            for (String s : part) if (!seen.contains(s)) done.accept(s, newGroup.apply(0));
+            from += part.size();
+            double perSymbol = Math.max(1.0, rows / (double) part.size());
+            chunk = (int) Math.max(1, Math.min(MAX_CHUNK, batchTargetRows / perSymbol));
+            expected = (int) Math.min(1 << 20, Math.ceil(perSymbol));
+        }
+        return queries;
+    }
+
+    /** {@code ?, ?, ...} with {@code n} placeholders. */
+    static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static long timestamp(ResultSet rs) throws SQLException {
+        Timestamp t = rs.getTimestamp(1);
+        if (t == null) throw new SQLException("Timestamp cannot be null");
+        return t.getTime();
+    }
+
+    private <T> T withCursor(String sql, Object[] args, Cursor<T> cursor) {
+        return jdbc.execute((ConnectionCallback<T>) con -> {
+            boolean autoCommit = transactional && con.getAutoCommit();
+            if (autoCommit) con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < args.length; i++) {
+                    Object a = args[i];
+                    if (a instanceof Instant t) ps.setTimestamp(i + 1, Timestamp.from(t));
+                    else if (a == null) ps.setNull(i + 1, Types.TIMESTAMP);
+                    else ps.setObject(i + 1, a);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    return cursor.read(rs);
+                }
+            } finally {
+                if (autoCommit) {
+                    con.rollback(); // read-only: just closes the cursor's transaction
+                    con.setAutoCommit(true);
+                }
+            }
+        });
+    }
+}
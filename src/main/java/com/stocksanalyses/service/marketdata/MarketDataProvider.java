@@ -2,6 +2,7 @@ package com.stocksanalyses.service.marketdata;
 
 import com.stocksanalyses.model.Candle;
 import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.CandleSeries;
 
 import java.time.Instant;
 import java.util.List;
@@ -10,11 +11,37 @@ import java.util.Optional;
 
 public interface MarketDataProvider {
     
+    /** Receives one bar at a time as primitives. */
+    @FunctionalInterface
+    interface BarSink {
+        void accept(long timestampMs, double open, double high, double low, double close, long volume);
+    }
+    
     /**
      * Get historical candles with optional adjustment
      */
     List<Candle> getCandles(String symbol, String interval, Instant start, Instant end, AdjustType adjustType);
     
+    /**
+     * Get historical candles as a columnar series; providers backed by a database read the rows as primitives
+     */
+    default CandleSeries getSeries(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
+        return CandleSeries.of(getCandles(symbol, interval, start, end, adjustType));
+    }
+    
+    /**
+     * Stream unadjusted candles in timestamp order into {@code sink} without holding the range in memory;
+     * returns the number of bars delivered
+     */
+    default long streamCandles(String symbol, String interval, Instant start, Instant end, BarSink sink) {
+        List<Candle> candles = getCandles(symbol, interval, start, end, AdjustType.NONE);
+        for (Candle c : candles) {
+            sink.accept(c.getTimestamp().toEpochMilli(), c.getOpen().doubleValue(), c.getHigh().doubleValue(),
+                    c.getLow().doubleValue(), c.getClose().doubleValue(), c.getVolume());
+        }
+        return candles.size();
+    }
+    
     /**
      * Get latest candle for a symbol
      */
@@ -25,6 +52,17 @@ public interface MarketDataProvider {
      */
     Map<String, List<Candle>> getCandlesBatch(List<String> symbols, String interval, Instant start, Instant end, AdjustType adjustType);
     
+    /**
+     * Get multiple symbols in batch as columnar series, one entry per requested symbol
+     */
+    default Map<String, CandleSeries> getSeriesBatch(List<String> symbols, String interval, Instant start, Instant end, AdjustType adjustType) {
+        Map<String, CandleSeries> result = new java.util.HashMap<>();
+        for (String symbol : symbols) {
+            result.put(symbol, getSeries(symbol, interval, start, end, adjustType));
+        }
+        return result;
+    }
+    
     /**
      * Check data availability for symbol/interval
      */
@@ -0,0 +1,247 @@
+package com.stocksanalyses.service.marketdata;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Runs provider calls on one small bounded pool per provider, so a stalled database only ties up its own threads and
+ * never the common fork-join pool. Every call has a deadline. {@link #hedged} asks providers in order and, when the
+ * current one has not answered within its observed p95 latency, also asks the next; the first good answer wins and
+ * the remaining calls are cancelled (interrupted).
+ */
+@Service
+public class ProviderCallExecutor {
+    /** Recent call latencies kept per provider for the hedge delay. */
+    private static final int LATENCY_WINDOW = 256;
+    /** Calls a provider must have completed before its own p95 replaces the configured default. */
+    private static final int MIN_SAMPLES = 20;
+
+    public static final class Answer<T> {
+        public final String provider;
+        public final T value;
+        public final boolean hedged;
+
+        Answer(String provider, T value, boolean hedged) { this.provider = provider; this.value = value; this.hedged = hedged; }
+    }
+
+    private static final class Lane {
+        final ThreadPoolExecutor pool;
+        final long[] latencies = new long[LATENCY_WINDOW];
+        int count;
+
+        Lane(ThreadPoolExecutor pool) { this.pool = pool; }
+
+        synchronized void record(long nanos) { latencies[count++ % LATENCY_WINDOW] = nanos; }
+
+        synchronized long p95(long fallback) {
+            int n = Math.min(count, LATENCY_WINDOW);
+            if (n < MIN_SAMPLES) return fallback;
+            long[] sorted = Arrays.copyOf(latencies, n);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(0.95 * n) - 1];
+        }
+    }
+
+    /** One submitted call; reports itself to the caller's queue when it finishes. */
+    private final class Attempt<T> extends FutureTask<T> {
+        final MarketDataProvider provider;
+        final Lane lane;
+        final BlockingQueue<Attempt<T>> done;
+        final long started = System.nanoTime();
+
+        Attempt(MarketDataProvider provider, Lane lane, Callable<T> call, BlockingQueue<Attempt<T>> done) {
+            super(call);
+            this.provider = provider; this.lane = lane; this.done = done;
+        }
+
+        @Override
+        protected void done() {
+            // a cancelled call still tells us the provider took at least this long
+            lane.record(System.nanoTime() - started);
+            done.add(this);
+        }
+    }
+
+    private final int threads, queue;
+    private final long deadlineMs, hedgeDefaultMs, hedgeMinMs;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Counter hedges, hedgeWins, timeouts, rejected;
+
+    public ProviderCallExecutor(MeterRegistry meterRegistry,
+                                @Value("${marketdata.calls.threads-per-provider:4}") int threads,
+                                @Value("${marketdata.calls.queue:64}") int queue,
+                                @Value("${marketdata.calls.deadline-ms:3000}") long deadlineMs,
+                                @Value("${marketdata.calls.hedge-default-ms:250}") long hedgeDefaultMs,
+                                @Value("${marketdata.calls.hedge-min-ms:10}") long hedgeMinMs) {
+        this.threads = Math.max(1, threads);
+        this.queue = Math.max(1, queue);
+        this.deadlineMs = Math.max(1, deadlineMs);
+        this.hedgeDefaultMs = Math.max(0, hedgeDefaultMs);
+        this.hedgeMinMs = Math.max(0, hedgeMinMs);
+        this.hedges = meterRegistry.counter("marketdata_provider_hedges_total");
+        this.hedgeWins = meterRegistry.counter("marketdata_provider_hedge_wins_total");
+        this.timeouts = meterRegistry.counter("marketdata_provider_timeouts_total");
+        this.rejected = meterRegistry.counter("marketdata_provider_rejected_total");
+    }
+
+    public long defaultDeadlineMs() { return deadlineMs; }
+
+    /** Delay before a call to {@code provider} is hedged: its recent p95 latency, or the default until enough calls. */
+    public long hedgeDelayMs(MarketDataProvider provider) {
+        long fallback = TimeUnit.MILLISECONDS.toNanos(hedgeDefaultMs);
+        return Math.max(hedgeMinMs, TimeUnit.NANOSECONDS.toMillis(lane(provider).p95(fallback)));
+    }
+
+    /**
+     * Asks {@code providers} in order, hedging to the next one whenever the newest call has been outstanding for its
+     * provider's hedge delay, and straight away when a call fails or its answer is rejected by {@code good}. Returns
+     * the first good answer, or null if none arrived within {@code deadlineMs}.
+     */
+    public <T> Answer<T> hedged(List<MarketDataProvider> providers, Function<MarketDataProvider, T> call,
+                                Predicate<T> good, long deadlineMs) {
+        return hedged(providers, call, good, deadlineMs, null);
+    }
+
+    /** As {@link #hedged(List, Function, Predicate, long)}, also putting answers {@code good} rejected into {@code rejected} by provider name. */
+    public <T> Answer<T> hedged(List<MarketDataProvider> providers, Function<MarketDataProvider, T> call,
+                                Predicate<T> good, long deadlineMs, Map<String, T> rejected) {
+        if (providers.isEmpty()) return null;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        BlockingQueue<Attempt<T>> done = new LinkedBlockingQueue<>();
+        List<Attempt<T>> running = new ArrayList<>();
+        int next = 0, pending = 0;
+        long hedgeAt = 0;
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                // launch the next provider when the newest call is overdue, failed, or nothing is in flight
+                while (next < providers.size() && (pending == 0 || now >= hedgeAt)) {
+                    MarketDataProvider p = providers.get(next++);
+                    if (next > 1) hedges.increment();
+                    if (submit(p, call, done, running)) {
+                        pending++;
+                        hedgeAt = now + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs(p));
+                    }
+                }
+                if (pending == 0) return null;
+                long wait = (next < providers.size() ? Math.min(hedgeAt, deadline) : deadline) - now;
+                if (now >= deadline) {
+                    timeouts.increment();
+                    return null;
+                }
+                Attempt<T> a = done.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+                if (a == null) continue;
+                pending--;
+                if (a.isCancelled()) continue;
+                try {
+                    T value = a.get();
+                    if (value != null && good.test(value)) {
+                        boolean hedged = running.get(0) != a;
+                        if (hedged) hedgeWins.increment();
+                        return new Answer<>(a.provider.getProviderName(), value, hedged);
+                    }
+                    if (value != null && rejected != null) rejected.put(a.provider.getProviderName(), value);
+                } catch (ExecutionException failed) {
+                    // treated like a bad answer
+                }
+                hedgeAt = now; // bad answer: the next provider goes out immediately
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Attempt<T> a : running) a.cancel(true);
+        }
+    }
+
+    /**
+     * Calls every provider in parallel and returns the answers that arrived by the deadline, keyed by provider name
+     * in the order given. Failed, rejected and late calls are left out; late ones are cancelled.
+     */
+    public <T> Map<String, T> all(List<MarketDataProvider> providers, Function<MarketDataProvider, T> call, long deadlineMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        BlockingQueue<Attempt<T>> done = new LinkedBlockingQueue<>();
+        List<Attempt<T>> running = new ArrayList<>();
+        for (MarketDataProvider p : providers) submit(p, call, done, running);
+        Map<String, T> answers = new HashMap<>();
+        try {
+            for (int left = running.size(); left > 0; left--) {
+                long wait = deadline - System.nanoTime();
+                Attempt<T> a = wait > 0 ? done.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (a == null) {
+                    timeouts.increment();
+                    break;
+                }
+                try {
+                    T value = a.get();
+                    if (value != null) answers.put(a.provider.getProviderName(), value);
+                } catch (ExecutionException | CancellationException failed) {
+                    // left out
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Attempt<T> a : running) a.cancel(true);
+        }
+        Map<String, T> ordered = new LinkedHashMap<>();
+        for (MarketDataProvider p : providers) {
+            T v = answers.get(p.getProviderName());
+            if (v != null) ordered.put(p.getProviderName(), v);
+        }
+        return ordered;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hedges", (long) hedges.count());
+        m.put("hedgeWins", (long) hedgeWins.count());
+        m.put("timeouts", (long) timeouts.count());
+        m.put("rejected", (long) rejected.count());
+        Map<String, Object> perProvider = new TreeMap<>();
+        lanes.forEach((name, lane) -> perProvider.put(name, Map.of(
+                "active", lane.pool.getActiveCount(),
+                "queued", lane.pool.getQueue().size(),
+                "p95Ms", TimeUnit.NANOSECONDS.toMillis(lane.p95(0)))));
+        m.put("providers", perProvider);
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(l -> l.pool.shutdownNow());
+    }
+
+    private <T> boolean submit(MarketDataProvider p, Function<MarketDataProvider, T> call,
+                               BlockingQueue<Attempt<T>> done, List<Attempt<T>> running) {
+        Lane lane = lane(p);
+        Attempt<T> a = new Attempt<>(p, lane, () -> call.apply(p), done);
+        try {
+            lane.pool.execute(a);
+        } catch (RejectedExecutionException full) {
+            rejected.increment();
+            return false;
+        }
+        running.add(a);
+        return true;
+    }
+
+    private Lane lane(MarketDataProvider p) {
+        return lanes.computeIfAbsent(p.getProviderName(), name -> new Lane(new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue), daemon("provider-" + name.toLowerCase(Locale.ROOT) + "-"))));
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> { Thread t = new Thread(r, prefix + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+}
@@ -1,15 +1,17 @@
 package com.stocksanalyses.service.marketdata;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.cache.BoundedCache;
+import com.stocksanalyses.service.cache.CacheRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,72 +19,78 @@ public class ReconciliationService {
     
     private final List<MarketDataProvider> providers;
     private final DataQualityService qualityService;
+    private final ProviderCallExecutor calls;
     private final String primaryProvider;
     private final double tolerance;
-    private final Map<String, ReconciliationResult> reconciliationCache = new ConcurrentHashMap<>();
+    /** Recent reports, weighed by their retained discrepancies; they hold summaries only, never the provider series. */
+    private final BoundedCache<String, ReconciliationResult> reconciliationCache;
+    /** Discrepancies kept per report; the rest are counted. */
+    private static final int MAX_SAMPLES = 200;
     
     public ReconciliationService(@Autowired List<MarketDataProvider> providers,
                                 @Autowired DataQualityService qualityService,
+                                @Autowired ProviderCallExecutor calls,
                                 @Value("${marketdata.primary-provider:timescale}") String primaryProvider,
-                                @Value("${marketdata.reconciliation.tolerance:0.01}") double tolerance) {
+                                @Value("${marketdata.reconciliation.tolerance:0.01}") double tolerance,
+                                @Autowired CacheRegistry caches) {
         this.providers = providers;
         this.qualityService = qualityService;
+        this.calls = calls;
         this.primaryProvider = primaryProvider;
         this.tolerance = tolerance;
+        this.reconciliationCache = caches.create("reconciliation-reports", 50_000, 300, 0,
+            r -> 1 + r.getDiscrepancies().size());
     }
     
-    public List<Candle> getReconciledCandles(String symbol, String interval, Instant start, Instant end, 
-                                            com.stocksanalyses.model.AdjustType adjustType) {
-        
-        // Try primary provider first
-        MarketDataProvider primary = getProvider(primaryProvider);
-        if (primary != null) {
-            try {
-                List<Candle> primaryData = primary.getCandles(symbol, interval, start, end, adjustType);
-                DataQuality primaryQuality = primary.getDataQuality(symbol, interval, start, end);
-                
-                if (primaryQuality.getOverallScore() >= 0.8) {
-                    return primaryData; // Primary data is good enough
-                }
-            } catch (Exception e) {
-                // Primary failed, continue to reconciliation
-            }
-        }
+    /** A provider's candles together with its own quality verdict on them, which gates the hedged call. */
+    private static final class Scored {
+        final List<Candle> candles;
+        final double score;
         
-        // Perform reconciliation with multiple providers
-        return performReconciliation(symbol, interval, start, end, adjustType);
+        Scored(List<Candle> candles, double score) { this.candles = candles; this.score = score; }
     }
     
-    private List<Candle> performReconciliation(String symbol, String interval, Instant start, Instant end, 
-                                              com.stocksanalyses.model.AdjustType adjustType) {
-        // Get data from all available providers
-        Map<String, CompletableFuture<List<Candle>>> providerFutures = new HashMap<>();
-        
-        for (MarketDataProvider provider : providers) {
-            providerFutures.put(provider.getProviderName(), 
-                CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return provider.getCandles(symbol, interval, start, end, adjustType);
-                    } catch (Exception e) {
-                        return Collections.<Candle>emptyList();
-                    }
-                }));
-        }
-        
-        // Wait for all providers to complete
-        Map<String, List<Candle>> providerData = new HashMap<>();
-        for (Map.Entry<String, CompletableFuture<List<Candle>>> entry : providerFutures.entrySet()) {
-            try {
-                providerData.put(entry.getKey(), entry.getValue().get());
-            } catch (Exception e) {
-                providerData.put(entry.getKey(), Collections.emptyList());
-            }
-        }
+    private static final class Fetched {
+        final CandleSeries series;
+        final DataQuality quality;
         
+        Fetched(CandleSeries series, DataQuality quality) { this.series = series; this.quality = quality; }
+    }
+    
+    public List<Candle> getReconciledCandles(String symbol, String interval, Instant start, Instant end, 
+                                            com.stocksanalyses.model.AdjustType adjustType) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(calls.defaultDeadlineMs());
+        
+        // Try primary provider first, hedged to the others when it is slow, failing or below the quality bar
+        Map<String, Scored> belowBar = new LinkedHashMap<>();
+        ProviderCallExecutor.Answer<Scored> answer = calls.hedged(primaryFirst(), provider -> new Scored(
+                provider.getCandles(symbol, interval, start, end, adjustType),
+                provider.getDataQuality(symbol, interval, start, end).getOverallScore()),
+            scored -> scored.score >= 0.8, calls.defaultDeadlineMs(), belowBar);
+        if (answer != null) {
+            return answer.value.candles; // good enough on its own
+        }
+        
+        // Reconcile the answers below the bar with those of the providers that have not answered yet,
+        // fetched in what is left of the deadline
+        Map<String, List<Candle>> providerData = new LinkedHashMap<>();
+        belowBar.forEach((name, scored) -> providerData.put(name, scored.candles));
+        List<MarketDataProvider> unanswered = providers.stream()
+            .filter(p -> !belowBar.containsKey(p.getProviderName()))
+            .collect(Collectors.toList());
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (!unanswered.isEmpty() && remainingMs > 0) {
+            providerData.putAll(calls.all(unanswered,
+                provider -> provider.getCandles(symbol, interval, start, end, adjustType), remainingMs));
+        }
+        return performReconciliation(providerData, symbol, interval);
+    }
+    
+    private List<Candle> performReconciliation(Map<String, List<Candle>> providerData, String symbol, String interval) {
         // Filter out empty results
         Map<String, List<Candle>> validData = providerData.entrySet().stream()
             .filter(entry -> !entry.getValue().isEmpty())
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
         
         if (validData.isEmpty()) {
             return Collections.emptyList();
@@ -92,172 +100,88 @@ public class ReconciliationService {
             return validData.values().iterator().next();
         }
         
-        // Perform reconciliation
-        return reconcileData(validData, symbol, interval);
-    }
-    
-    private List<Candle> reconcileData(Map<String, List<Candle>> providerData, String symbol, String interval) {
-        // Find the provider with the highest composite score
-        String bestProvider = findBestProvider(providerData, symbol, interval);
-        List<Candle> baseData = providerData.get(bestProvider);
-        
-        if (baseData.isEmpty()) {
-            return baseData;
-        }
-        
-        // Cross-validate with other providers
-        List<Candle> reconciledData = new ArrayList<>();
-        
-        for (Candle baseCandle : baseData) {
-            Candle reconciledCandle = reconcileCandle(baseCandle, providerData, baseCandle.getTimestamp());
-            reconciledData.add(reconciledCandle);
-        }
-        
-        return reconciledData;
-    }
-    
-    private Candle reconcileCandle(Candle baseCandle, Map<String, List<Candle>> providerData, Instant timestamp) {
-        List<Candle> matchingCandles = new ArrayList<>();
-        matchingCandles.add(baseCandle);
-        
-        // Find matching candles from other providers
-        for (Map.Entry<String, List<Candle>> entry : providerData.entrySet()) {
-            if (entry.getKey().equals(baseCandle.getClass().getSimpleName())) {
-                continue; // Skip the base provider
-            }
-            
-            for (Candle candle : entry.getValue()) {
-                if (Math.abs(ChronoUnit.MINUTES.between(candle.getTimestamp(), timestamp)) <= 1) {
-                    matchingCandles.add(candle);
-                    break;
-                }
-            }
-        }
-        
-        if (matchingCandles.size() == 1) {
-            return baseCandle; // No other data to reconcile with
+        // Perform reconciliation, led by the provider whose candles score best; every candidate is scored
+        // on its candles by the same analysis, whatever the provider reported about itself
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, CandleSeries> series = new LinkedHashMap<>();
+        String bestProvider = null;
+        for (Map.Entry<String, List<Candle>> entry : validData.entrySet()) {
+            double score = qualityService.analyzeQuality(entry.getValue(), symbol, interval).getOverallScore();
+            scores.put(entry.getKey(), score);
+            series.put(entry.getKey(), CandleSeries.of(entry.getValue()));
+            if (bestProvider == null || score > scores.get(bestProvider)) bestProvider = entry.getKey();
         }
-        
-        // Calculate reconciled values
-        return calculateReconciledCandle(matchingCandles, timestamp);
+        return CandleReconciler.reconcile(series, scores, bestProvider, windowMs(interval), tolerance, 0).consensus.toCandles();
     }
     
-    private Candle calculateReconciledCandle(List<Candle> candles, Instant timestamp) {
-        // Use weighted average based on composite weights
-        double totalWeight = 0.0;
-        double weightedOpen = 0.0;
-        double weightedHigh = 0.0;
-        double weightedLow = 0.0;
-        double weightedClose = 0.0;
-        long totalVolume = 0;
-        
-        for (Candle candle : candles) {
-            // Composite weight: volume + provider score + consistency boost
-            double weight = Math.log(candle.getVolume() + 1);
-            // Provider score if available
-            double providerScore = 1.0;
-            // TODO: attach provider name to candle for precise mapping; for now apply uniform providerScore
-            weight += providerScore;
-            totalWeight += weight;
-            
-            weightedOpen += candle.getOpen().doubleValue() * weight;
-            weightedHigh += candle.getHigh().doubleValue() * weight;
-            weightedLow += candle.getLow().doubleValue() * weight;
-            weightedClose += candle.getClose().doubleValue() * weight;
-            totalVolume += candle.getVolume();
-        }
-        
-        if (totalWeight == 0) {
-            return candles.get(0); // Fallback to first candle
-        }
-        
-        return new Candle(
-            timestamp,
-            java.math.BigDecimal.valueOf(weightedOpen / totalWeight),
-            java.math.BigDecimal.valueOf(weightedHigh / totalWeight),
-            java.math.BigDecimal.valueOf(weightedLow / totalWeight),
-            java.math.BigDecimal.valueOf(weightedClose / totalWeight),
-            totalVolume / candles.size()
-        );
+    /** Bars from different providers within this distance are the same bar: a minute, or half a bar when shorter. */
+    static long windowMs(String interval) {
+        return Math.min(60_000L, CandleService.intervalMs(interval) / 2);
     }
     
-    private String findBestProvider(Map<String, List<Candle>> providerData, String symbol, String interval) {
-        String bestProvider = null;
-        double bestScore = 0.0;
-        
-        for (Map.Entry<String, List<Candle>> entry : providerData.entrySet()) {
-            if (entry.getValue().isEmpty()) {
-                continue;
-            }
-            
-            // Calculate quality score for this provider's data
-            DataQuality quality = qualityService.analyzeQuality(entry.getValue(), symbol, interval);
-            double score = quality.getOverallScore();
-            
-            if (score > bestScore) {
-                bestScore = score;
-                bestProvider = entry.getKey();
-            }
-        }
-        
-        return bestProvider != null ? bestProvider : providerData.keySet().iterator().next();
+    /** All providers, the configured primary first. */
+    private List<MarketDataProvider> primaryFirst() {
+        List<MarketDataProvider> ordered = new ArrayList<>(providers);
+        ordered.sort(Comparator.comparing(p -> !p.getProviderName().equalsIgnoreCase(primaryProvider)));
+        return ordered;
     }
     
-    private MarketDataProvider getProvider(String name) {
-        return providers.stream()
-            .filter(p -> p.getProviderName().equalsIgnoreCase(name))
-            .findFirst()
-            .orElse(null);
+    public ReconciliationResult getReconciliationReport(String symbol, String interval, Instant start, Instant end) {
+        // concurrent requests for one report share a single reconciliation
+        return reconciliationCache.get(symbol + ":" + interval + ":" + start + ":" + end,
+            key -> reconcileReport(symbol, interval, start, end));
     }
     
-    public ReconciliationResult getReconciliationReport(String symbol, String interval, Instant start, Instant end) {
-        String cacheKey = symbol + ":" + interval + ":" + start + ":" + end;
-        ReconciliationResult cached = reconciliationCache.get(cacheKey);
-        if (cached != null) {
-            return cached;
-        }
-        
-        Map<String, List<Candle>> providerData = new HashMap<>();
+    private ReconciliationResult reconcileReport(String symbol, String interval, Instant start, Instant end) {
+        // Get data from all providers in parallel, each bounded by the call deadline
+        Map<String, Fetched> fetched = calls.all(providers, provider -> new Fetched(
+            provider.getSeries(symbol, interval, start, end, com.stocksanalyses.model.AdjustType.NONE),
+            provider.getDataQuality(symbol, interval, start, end)), calls.defaultDeadlineMs());
+        Map<String, CandleSeries> providerData = new LinkedHashMap<>();
         Map<String, DataQuality> providerQuality = new HashMap<>();
-        
-        // Get data from all providers
-        for (MarketDataProvider provider : providers) {
-            try {
-                List<Candle> data = provider.getCandles(symbol, interval, start, end, com.stocksanalyses.model.AdjustType.NONE);
-                DataQuality quality = provider.getDataQuality(symbol, interval, start, end);
-                
-                providerData.put(provider.getProviderName(), data);
-                providerQuality.put(provider.getProviderName(), quality);
-            } catch (Exception e) {
-                // Provider failed
-            }
-        }
-        
-        ReconciliationResult result = new ReconciliationResult(providerData, providerQuality, tolerance);
-        reconciliationCache.put(cacheKey, result);
-        return result;
+        Map<String, Double> scores = new HashMap<>();
+        fetched.forEach((name, f) -> {
+            providerData.put(name, f.series);
+            providerQuality.put(name, f.quality);
+            scores.put(name, f.quality.getOverallScore());
+        });
+        
+        String best = providerQuality.entrySet().stream()
+            .max(Map.Entry.comparingByValue(Comparator.comparing(DataQuality::getOverallScore)))
+            .map(Map.Entry::getKey)
+            .orElse(null);
+        CandleReconciler.Result merged = CandleReconciler.reconcile(providerData, scores, best, windowMs(interval), tolerance, MAX_SAMPLES);
+        return new ReconciliationResult(providerQuality, tolerance, merged);
     }
     
+    /** Summary of a reconciliation: provider quality, per-provider match statistics and sampled discrepancies. */
     public static class ReconciliationResult {
-        private final Map<String, List<Candle>> providerData;
         private final Map<String, DataQuality> providerQuality;
         private final double tolerance;
         private final Instant timestamp;
+        private final Map<String, CandleReconciler.ProviderStats> providers;
+        private final long consensusBars;
+        private final long discrepancyCount;
+        private final List<CandleReconciler.Discrepancy> discrepancies;
         
-        public ReconciliationResult(Map<String, List<Candle>> providerData, 
-                                  Map<String, DataQuality> providerQuality, 
-                                  double tolerance) {
-            this.providerData = providerData;
+        public ReconciliationResult(Map<String, DataQuality> providerQuality, double tolerance, CandleReconciler.Result merged) {
             this.providerQuality = providerQuality;
             this.tolerance = tolerance;
             this.timestamp = Instant.now();
+            this.providers = merged == null ? Map.of() : merged.providers;
+            this.consensusBars = merged == null ? 0 : merged.consensus.size();
+            this.discrepancyCount = merged == null ? 0 : merged.discrepancyCount;
+            this.discrepancies = merged == null ? List.of() : merged.discrepancies;
         }
         
         // Getters
-        public Map<String, List<Candle>> getProviderData() { return providerData; }
         public Map<String, DataQuality> getProviderQuality() { return providerQuality; }
         public double getTolerance() { return tolerance; }
         public Instant getTimestamp() { return timestamp; }
+        public Map<String, CandleReconciler.ProviderStats> getProviders() { return providers; }
+        public long getConsensusBars() { return consensusBars; }
+        public long getDiscrepancyCount() { return discrepancyCount; }
+        public List<CandleReconciler.Discrepancy> getDiscrepancies() { return discrepancies; }
         
         public String getBestProvider() {
             return providerQuality.entrySet().stream()
@@ -267,12 +191,11 @@ public class ReconciliationService {
         }
         
         public int getProviderCount() {
-            return providerData.size();
+            return providers.size();
         }
         
         public boolean hasDiscrepancies() {
-            // Simple check for discrepancies
-            return providerData.size() > 1;
+            return discrepancyCount > 0;
         }
     }
 }
@@ -1,5 +1,7 @@
 package com.stocksanalyses.service.matching;
 
+import com.stocksanalyses.service.backtest.PerformanceAccumulator;
+
 import java.util.*;
 
 public class BacktestEngine {
@@ -52,6 +54,20 @@ public class BacktestEngine {
     return calculateResults();
   }
 
+  /**
+   * Replays market data through the engine instead of a pre-built order list, so stops, hidden orders and algo
+   * children see prices in time order. Orders come from {@code strategy}; see {@link ReplayDriver}.
+   */
+  public BacktestResult runReplay(com.stocksanalyses.model.CandleSeries bars, double priceScale, long barMillis,
+                                  long liquidityQty, ReplayDriver.Strategy strategy) {
+    ReplayDriver replay = new ReplayDriver(engine, config.latencyMs, liquidityQty, 0);
+    replay.replayCandles(bars, priceScale, barMillis, strategy);
+    allFills.addAll(replay.getFills());
+    allOrders.addAll(replay.getOrders());
+    if (replay.lastPrice() != Long.MIN_VALUE) currentPrice = replay.lastPrice();
+    return calculateResults();
+  }
+
   private Order applySlippage(Order order) {
     if (order.type == OrderType.MARKET) {
       // 市价单应用滑点
@@ -72,13 +88,41 @@ public class BacktestEngine {
     long totalTrades = allFills.size();
     double totalPnL = calculateTotalPnL();
     double totalFees = calculateTotalFees();
-    double maxDrawdown = calculateMaxDrawdown();
-    double sharpeRatio = calculateSharpeRatio();
-    double winRate = calculateWinRate();
+    PerformanceAccumulator perf = accumulate(allFills, config.initialCapital);
 
     return new BacktestResult(config.instrument, config.startTime, config.endTime,
-                             totalTrades, totalPnL, totalFees, maxDrawdown, sharpeRatio,
-                             winRate, new ArrayList<>(allFills), new ArrayList<>(allOrders));
+                             totalTrades, totalPnL, totalFees, perf.maxDrawdown(), perf.sharpe(),
+                             perf.winRate(), new ArrayList<>(allFills), new ArrayList<>(allOrders));
+  }
+
+  /**
+   * One pass over fills from the taker's side: cash and position are marked at each fill price and closing fills
+   * record round-trip P&amp;L at average cost. Figures are per fill, not annualised.
+   */
+  static PerformanceAccumulator accumulate(List<Fill> fills, double capital) {
+    PerformanceAccumulator perf = new PerformanceAccumulator(1);
+    double cash = capital, pos = 0, avg = 0;
+    perf.onEquity(capital);
+    for (Fill f : fills) {
+      double q = f.takerSide == Side.BUY ? f.quantity : -f.quantity;
+      double fee = 0;
+      for (Fee x : f.fees) fee += x.amount;
+      cash -= q * f.price + fee;
+      if (pos != 0 && Math.signum(q) != Math.signum(pos)) {
+        double closed = Math.min(Math.abs(q), Math.abs(pos));
+        perf.onRoundTrip(closed * (f.price - avg) * Math.signum(pos) - fee);
+        double next = pos + q;
+        if (next == 0) avg = 0;
+        else if (Math.signum(next) != Math.signum(pos)) avg = f.price; // flipped through flat
+        pos = next;
+      } else {
+        avg = (avg * Math.abs(pos) + f.price * Math.abs(q)) / (Math.abs(pos) + Math.abs(q));
+        pos += q;
+      }
+      perf.onTrade((double) f.price * f.quantity);
+      perf.onEquity(cash + pos * f.price);
+    }
+    return perf;
   }
 
   private double calculateTotalPnL() {
@@ -98,51 +142,4 @@ public class BacktestEngine {
       .sum();
   }
 
-  private double calculateMaxDrawdown() {
-    // 简化实现：计算最大回撤
-    double maxPrice = currentPrice;
-    double maxDrawdown = 0;
-    
-    for (Fill fill : allFills) {
-      if (fill.price > maxPrice) {
-        maxPrice = fill.price;
-      } else {
-        double drawdown = (maxPrice - fill.price) / maxPrice;
-        maxDrawdown = Math.max(maxDrawdown, drawdown);
-      }
-    }
-    
-    return maxDrawdown;
-  }
-
-  private double calculateSharpeRatio() {
-    // 简化实现：假设无风险利率为0
-    if (allFills.size() < 2) return 0;
-    
-    List<Double> returns = new ArrayList<>();
-    for (int i = 1; i < allFills.size(); i++) {
-      double ret = (allFills.get(i).price - allFills.get(i-1).price) / allFills.get(i-1).price;
-      returns.add(ret);
-    }
-    
-    double meanReturn = returns.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-    double stdDev = Math.sqrt(returns.stream()
-      .mapToDouble(r -> Math.pow(r - meanReturn, 2))
-      .average().orElse(0));
-    
-    return stdDev > 0 ? meanReturn / stdDev : 0;
-  }
-
-  private double calculateWinRate() {
-    if (allFills.size() < 2) return 0;
-    
-    int winningTrades = 0;
-    for (int i = 1; i < allFills.size(); i++) {
-      if (allFills.get(i).price > allFills.get(i-1).price) {
-        winningTrades++;
-      }
-    }
-    
-    return (double) winningTrades / (allFills.size() - 1);
-  }
 }
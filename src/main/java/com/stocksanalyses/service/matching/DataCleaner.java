@@ -1,7 +1,9 @@
 package com.stocksanalyses.service.matching;
 
+import com.stocksanalyses.service.stats.RollingQuantiles;
+import com.stocksanalyses.service.stats.RollingStats;
+
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class DataCleaner {
   public final AnomalyDetection detector;
@@ -26,28 +28,33 @@ public class DataCleaner {
     strategyMap.put(AnomalyType.ZERO_VOLUME, InterpolationStrategy.MEAN_FILL);
   }
 
+  /** Fill windows cover up to this many points around the anomaly, as before. */
+  private static final int FILL_WINDOW = 10;
+
+  /**
+   * Detects anomalies and applies each type's strategy in one pass over the timestamp-sorted points: drops are
+   * marked and compacted once, fills read neighbours and the fill window's mean/median from rolling accumulators.
+   */
   public CleanResult cleanData(List<DataPoint> rawData) {
-    List<DataPoint> cleanedData = new ArrayList<>(rawData);
-    List<AnomalyDetection.AnomalyResult> anomalies = detector.detectAnomalies(cleanedData);
-    
-    // 按索引倒序处理，避免索引偏移
-    List<AnomalyDetection.AnomalyResult> sortedAnomalies = anomalies.stream()
-      .sorted((a, b) -> Integer.compare(b.index, a.index))
-      .collect(Collectors.toList());
+    List<DataPoint> sorted = new ArrayList<>(rawData);
+    sorted.sort(Comparator.comparingLong(dp -> dp.timestamp));
+    List<AnomalyDetection.AnomalyResult> anomalies = detector.detectAnomalies(sorted);
+
+    int n = sorted.size();
+    boolean[] drop = new boolean[n];
+    InterpolationStrategy[] fill = new InterpolationStrategy[n];
+    for (AnomalyDetection.AnomalyResult anomaly : anomalies) {
+      InterpolationStrategy strategy = strategyMap.get(anomaly.type);
+      if (strategy == InterpolationStrategy.DROP) drop[anomaly.index] = true;
+      else if (strategy != null && fill[anomaly.index] == null) fill[anomaly.index] = strategy;
+    }
 
+    FillWindow window = new FillWindow(sorted);
+    List<DataPoint> cleanedData = new ArrayList<>(n);
     int removedCount = 0;
-    for (AnomalyDetection.AnomalyResult anomaly : sortedAnomalies) {
-      InterpolationStrategy strategy = strategyMap.get(anomaly.type);
-      if (strategy == InterpolationStrategy.DROP) {
-        cleanedData.remove(anomaly.index - removedCount);
-        removedCount++;
-      } else {
-        int actualIndex = anomaly.index - removedCount;
-        DataPoint cleaned = interpolateDataPoint(cleanedData, actualIndex, strategy, anomaly.type);
-        if (cleaned != null) {
-          cleanedData.set(actualIndex, cleaned);
-        }
-      }
+    for (int i = 0; i < n; i++) {
+      if (drop[i]) { removedCount++; continue; }
+      cleanedData.add(fill[i] == null ? sorted.get(i) : interpolateDataPoint(sorted, i, fill[i], window));
     }
 
     // 时间单调性修正
@@ -59,8 +66,7 @@ public class DataCleaner {
     return new CleanResult(cleanedData, anomalies, removedCount);
   }
 
-  private DataPoint interpolateDataPoint(List<DataPoint> data, int index, 
-                                       InterpolationStrategy strategy, AnomalyType type) {
+  private DataPoint interpolateDataPoint(List<DataPoint> data, int index, InterpolationStrategy strategy, FillWindow window) {
     DataPoint original = data.get(index);
     
     switch (strategy) {
@@ -71,9 +77,13 @@ public class DataCleaner {
       case BACKWARD_FILL:
         return backwardFill(data, index);
       case MEAN_FILL:
-        return meanFill(data, index);
+        window.moveTo(index);
+        return new DataPoint(original.timestamp, window.prices.mean(), (long) window.volumes.mean(), original.source, true);
       case MEDIAN_FILL:
-        return medianFill(data, index);
+        window.moveTo(index);
+        // the upper middle value for an even window, as the sorted-list fill picked it
+        return new DataPoint(original.timestamp, window.priceOrder.kth(window.priceOrder.size() / 2),
+            (long) window.volumeOrder.kth(window.volumeOrder.size() / 2), original.source, true);
       case ZERO_FILL:
         return zeroFill(original);
       default:
@@ -81,6 +91,31 @@ public class DataCleaner {
     }
   }
 
+  /**
+   * The fill window {@code [max(0, i - 5), start + 10)} (clipped to the data) only moves forward as {@code i} grows,
+   * so one set of rolling accumulators serves every fill of a pass.
+   */
+  private static final class FillWindow {
+    final List<DataPoint> data;
+    final RollingStats prices = new RollingStats(FILL_WINDOW), volumes = new RollingStats(FILL_WINDOW);
+    final RollingQuantiles priceOrder = new RollingQuantiles(FILL_WINDOW), volumeOrder = new RollingQuantiles(FILL_WINDOW);
+    int end; // the accumulators hold points [end - size, end)
+
+    FillWindow(List<DataPoint> data) { this.data = data; }
+
+    void moveTo(int index) {
+      int size = Math.min(FILL_WINDOW, data.size());
+      int s = Math.max(0, index - size / 2), e = Math.min(data.size(), s + size);
+      while (end < e) {
+        DataPoint p = data.get(end++);
+        prices.add(p.price); volumes.add(p.volume); priceOrder.add(p.price); volumeOrder.add(p.volume);
+      }
+      while (end - prices.size() < s) {
+        prices.removeOldest(); volumes.removeOldest(); priceOrder.removeOldest(); volumeOrder.removeOldest();
+      }
+    }
+  }
+
   private DataPoint linearInterpolation(List<DataPoint> data, int index) {
     if (index <= 0 || index >= data.size() - 1) {
       return data.get(index);
@@ -89,6 +124,7 @@ public class DataCleaner {
     DataPoint prev = data.get(index - 1);
     DataPoint next = data.get(index + 1);
     DataPoint current = data.get(index);
+    if (next.timestamp == prev.timestamp) return current;
 
     // 线性插值价格
     double interpolatedPrice = prev.price + (next.price - prev.price) * 
@@ -118,53 +154,6 @@ public class DataCleaner {
                         current.source, true);
   }
 
-  private DataPoint meanFill(List<DataPoint> data, int index) {
-    DataPoint current = data.get(index);
-    
-    // 计算窗口均值
-    int windowSize = Math.min(10, data.size());
-    int start = Math.max(0, index - windowSize / 2);
-    int end = Math.min(data.size(), start + windowSize);
-    
-    double avgPrice = data.subList(start, end).stream()
-      .mapToDouble(dp -> dp.price)
-      .average()
-      .orElse(current.price);
-    
-    long avgVolume = (long) data.subList(start, end).stream()
-      .mapToLong(dp -> dp.volume)
-      .average()
-      .orElse(current.volume);
-
-    return new DataPoint(current.timestamp, avgPrice, avgVolume, 
-                        current.source, true);
-  }
-
-  private DataPoint medianFill(List<DataPoint> data, int index) {
-    DataPoint current = data.get(index);
-    
-    // 计算窗口中位数
-    int windowSize = Math.min(10, data.size());
-    int start = Math.max(0, index - windowSize / 2);
-    int end = Math.min(data.size(), start + windowSize);
-    
-    List<Double> prices = data.subList(start, end).stream()
-      .map(dp -> dp.price)
-      .sorted()
-      .collect(Collectors.toList());
-    
-    List<Long> volumes = data.subList(start, end).stream()
-      .map(dp -> dp.volume)
-      .sorted()
-      .collect(Collectors.toList());
-    
-    double medianPrice = prices.get(prices.size() / 2);
-    long medianVolume = volumes.get(volumes.size() / 2);
-
-    return new DataPoint(current.timestamp, medianPrice, medianVolume, 
-                        current.source, true);
-  }
-
   private DataPoint zeroFill(DataPoint original) {
     return new DataPoint(original.timestamp, original.price, 0, 
                         original.source, true);
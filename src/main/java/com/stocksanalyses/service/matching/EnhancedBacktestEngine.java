@@ -1,5 +1,7 @@
 package com.stocksanalyses.service.matching;
 
+import com.stocksanalyses.service.backtest.PerformanceAccumulator;
+
 import java.util.*;
 
 public class EnhancedBacktestEngine {
@@ -92,6 +94,23 @@ public class EnhancedBacktestEngine {
     return calculateEnhancedResults();
   }
 
+  /** Market-data replay (see {@link ReplayDriver}) with the same layered fee model as {@link #runEnhancedBacktest}. */
+  public BacktestResult runReplay(com.stocksanalyses.model.CandleSeries bars, double priceScale, long barMillis,
+                                  long liquidityQty, ReplayDriver.Strategy strategy) {
+    ReplayDriver replay = new ReplayDriver(engine, config.latencyMs, liquidityQty, 0);
+    replay.replayCandles(bars, priceScale, barMillis, strategy);
+    String market = determineMarket(config.instrument);
+    for (Fill fill : replay.getFills()) {
+      long dailyVolume = dailyVolumes.getOrDefault(market, 0L);
+      fill.fees.addAll(tradingCosts.calculateFees(market, fill.takerAccountId, fill, dailyVolume));
+      dailyVolumes.put(market, dailyVolume + fill.quantity);
+    }
+    allFills.addAll(replay.getFills());
+    allOrders.addAll(replay.getOrders());
+    if (replay.lastPrice() != Long.MIN_VALUE) currentPrice = replay.lastPrice();
+    return calculateEnhancedResults();
+  }
+
   public double applyCorporateActions(double price, List<CorporateAction> actions) {
     for (CorporateAction action : actions) {
       switch (action.type) {
@@ -151,15 +170,13 @@ public class EnhancedBacktestEngine {
     long totalTrades = allFills.size();
     double totalPnL = calculateTotalPnL();
     double totalFees = calculateTotalFees();
-    double maxDrawdown = calculateMaxDrawdown();
-    double sharpeRatio = calculateSharpeRatio();
-    double winRate = calculateWinRate();
+    PerformanceAccumulator perf = BacktestEngine.accumulate(allFills, config.initialCapital);
     double avgLatency = calculateAverageLatency();
     double avgSlippage = calculateAverageSlippage();
 
     return new EnhancedBacktestResult(config.instrument, config.startTime, config.endTime,
-                                     totalTrades, totalPnL, totalFees, maxDrawdown, sharpeRatio,
-                                     winRate, avgLatency, avgSlippage, new ArrayList<>(allFills), 
+                                     totalTrades, totalPnL, totalFees, perf.maxDrawdown(), perf.sharpe(),
+                                     perf.winRate(), avgLatency, avgSlippage, new ArrayList<>(allFills), 
                                      new ArrayList<>(allOrders));
   }
 
@@ -179,56 +196,6 @@ public class EnhancedBacktestEngine {
       .sum();
   }
 
-  private double calculateMaxDrawdown() {
-    if (allFills.isEmpty()) return 0;
-    
-    double maxPrice = allFills.get(0).price;
-    double maxDrawdown = 0;
-    double runningPnL = 0;
-    
-    for (Fill fill : allFills) {
-      runningPnL += fill.takerSide == Side.BUY ? -fill.price * fill.quantity : fill.price * fill.quantity;
-      if (runningPnL > maxPrice) {
-        maxPrice = runningPnL;
-      } else {
-        double drawdown = (maxPrice - runningPnL) / maxPrice;
-        maxDrawdown = Math.max(maxDrawdown, drawdown);
-      }
-    }
-    
-    return maxDrawdown;
-  }
-
-  private double calculateSharpeRatio() {
-    if (allFills.size() < 2) return 0;
-    
-    List<Double> returns = new ArrayList<>();
-    for (int i = 1; i < allFills.size(); i++) {
-      double ret = (allFills.get(i).price - allFills.get(i-1).price) / allFills.get(i-1).price;
-      returns.add(ret);
-    }
-    
-    double meanReturn = returns.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-    double stdDev = Math.sqrt(returns.stream()
-      .mapToDouble(r -> Math.pow(r - meanReturn, 2))
-      .average().orElse(0));
-    
-    return stdDev > 0 ? meanReturn / stdDev : 0;
-  }
-
-  private double calculateWinRate() {
-    if (allFills.size() < 2) return 0;
-    
-    int winningTrades = 0;
-    for (int i = 1; i < allFills.size(); i++) {
-      if (allFills.get(i).price > allFills.get(i-1).price) {
-        winningTrades++;
-      }
-    }
-    
-    return (double) winningTrades / (allFills.size() - 1);
-  }
-
   private double calculateAverageLatency() {
     if (allOrders.isEmpty()) return 0;
     
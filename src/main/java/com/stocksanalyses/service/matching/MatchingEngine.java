@@ -30,27 +30,40 @@ public class MatchingEngine {
     this.stopPoolSell = new PriorityQueue<>((a, b) -> Long.compare(b.stopPrice, a.stopPrice));
   }
   public List<Fill> submitOrder(Order o) {
+    return submitOrder(o, System.currentTimeMillis());
+  }
+
+  /** Same as {@link #submitOrder(Order)} with an explicit clock, for replay. */
+  public List<Fill> submitOrder(Order o, long now) {
     if (o.visibilityRule == VisibilityRule.SAME_BAR_HIDDEN_NEXT_BAR_VISIBLE && o.validFromBarId != null) {
       invisiblePool.add(o);
       o.state = OrderState.NEW;
       return List.of();
     }
-    return onNewOrder(o, System.currentTimeMillis());
+    return onNewOrder(o, now);
   }
 
   public void onBarOpen(long barId) {
-    if (!invisiblePool.isEmpty()) {
-      var toInject = List.copyOf(invisiblePool);
-      invisiblePool.clear();
-      long now = System.currentTimeMillis();
-      for (Order o : toInject) { onNewOrder(o, now); }
-    }
+    onBarOpen(barId, System.currentTimeMillis());
+  }
+
+  /** Injects orders hidden during the previous bar and returns their fills. */
+  public List<Fill> onBarOpen(long barId, long now) {
+    if (invisiblePool.isEmpty()) return List.of();
+    var toInject = List.copyOf(invisiblePool);
+    invisiblePool.clear();
+    List<Fill> fills = new ArrayList<>();
+    for (Order o : toInject) { fills.addAll(onNewOrder(o, now)); }
+    return fills;
   }
 
+  public boolean hasHiddenOrders() { return !invisiblePool.isEmpty(); }
+
   public void onBarClose(long barId) {
     // For extension: activate CLOSE/VWAP/TWAP slices via scheduler if parents are tracked
   }
 
+  public String getInstrument() { return instrument; }
   public OrderBook getBook() { return book; }
   public long getLastPrice() { return lastPrice; }
   public FeeCalculator getFeeCalculator() { return feeCalculator; }
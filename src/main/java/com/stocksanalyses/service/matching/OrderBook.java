@@ -47,6 +47,17 @@ public class OrderBook {
     q.addLast(order);
   }
 
+  /** Removes a resting order; returns false if it is not on the book. */
+  public boolean cancel(Order order) {
+    if (order.price == null) return false;
+    NavigableMap<Long, Deque<Order>> sideMap = order.side == Side.BUY ? bids : asks;
+    Deque<Order> q = sideMap.get(order.price);
+    if (q == null || !q.remove(order)) return false;
+    if (q.isEmpty()) sideMap.remove(order.price);
+    order.state = OrderState.CANCELLED;
+    return true;
+  }
+
   public List<Fill> matchMarket(Order taker, long now, FeeCalculator feeCalculator) {
     List<Fill> fills = new ArrayList<>();
     while (taker.remaining > 0) {
@@ -0,0 +1,266 @@
+package com.stocksanalyses.service.matching;
+
+import com.stocksanalyses.model.CandleSeries;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event-driven historical replay for a single {@link MatchingEngine}: bar opens, price ticks and bar closes are fed in
+ * time order and interleaved with the orders a {@link Strategy} submits from its callbacks.
+ *
+ * Candles are expanded to four ticks (open, the nearer extreme, the other extreme, close). Orders submitted by the
+ * strategy become visible {@code latencyMs} later, i.e. before the first event at or after that time. When
+ * {@code liquidityQty > 0} a synthetic liquidity account quotes {@code liquidityQty} at last price ± {@code halfSpread}
+ * around every taker and sweeps resting strategy orders that the tape trades through; with 0 orders only match
+ * each other, as in {@link BacktestEngine#runBacktest}.
+ *
+ * Single-threaded; quiet events (no orders pending, nothing triggered) allocate nothing.
+ */
+public class ReplayDriver {
+  public static final String LIQUIDITY_ACCOUNT = "replay-lp";
+
+  /** Strategy callbacks; all run on the replay thread with the driver as context. */
+  public interface Strategy {
+    default void onBarOpen(ReplayDriver replay, long barId) {}
+    default void onTick(ReplayDriver replay, long price) {}
+    default void onBarClose(ReplayDriver replay, long barId) {}
+    default void onFills(ReplayDriver replay, List<Fill> fills) {}
+  }
+
+  private final MatchingEngine engine;
+  private final String instrument;
+  private final long latencyMs;
+  private final long liquidityQty;
+  private final long halfSpread;
+  private final ChildOrderScheduler scheduler = new ChildOrderScheduler();
+
+  private final ArrayDeque<Order> pending = new ArrayDeque<>();
+  private final ArrayDeque<Long> pendingAt = new ArrayDeque<>();
+  private final List<Order> parents = new ArrayList<>();
+  private final List<Integer> slicesSent = new ArrayList<>();
+  private final List<Fill> fills = new ArrayList<>();
+  private final List<Order> orders = new ArrayList<>();
+
+  private Strategy strategy;
+  private long now;
+  private long barId = -1;
+  private long lastPrice = Long.MIN_VALUE;
+  private long barOpen, barHigh, barLow, barClose, barVolume;
+  private long events;
+  private long lpSeq;
+
+  public ReplayDriver(MatchingEngine engine, long latencyMs, long liquidityQty, long halfSpread) {
+    this.engine = engine;
+    this.instrument = engine.getInstrument();
+    this.latencyMs = Math.max(0, latencyMs);
+    this.liquidityQty = Math.max(0, liquidityQty);
+    this.halfSpread = Math.max(0, halfSpread);
+  }
+
+  // ---- context for strategies ----
+
+  public long now() { return now; }
+  public long barId() { return barId; }
+  public long lastPrice() { return lastPrice; }
+  public long barOpen() { return barOpen; }
+  public long barHigh() { return barHigh; }
+  public long barLow() { return barLow; }
+  public long barClose() { return barClose; }
+  public long barVolume() { return barVolume; }
+  public String instrument() { return instrument; }
+  public MatchingEngine engine() { return engine; }
+
+  /** Queues an order; it reaches the engine {@code latencyMs} after the current event. */
+  public void submit(Order o) {
+    pending.addLast(o);
+    pendingAt.addLast(now + latencyMs);
+  }
+
+  /** Registers an OPEN/CLOSE/TWAP/VWAP parent; children are released on the following bar events. */
+  public void registerParent(Order parent) {
+    parents.add(parent);
+    slicesSent.add(0);
+  }
+
+  public List<Fill> getFills() { return fills; }
+  public List<Order> getOrders() { return orders; }
+  public long getEventCount() { return events; }
+
+  // ---- sources ----
+
+  /**
+   * Replays bars {@code [0, bars.size())}. Bar ids are the bar index; prices are scaled to integer units with
+   * {@code priceScale} (e.g. 100 for cents). Each bar spans {@code barMillis} from its timestamp.
+   */
+  public void replayCandles(CandleSeries bars, double priceScale, long barMillis, Strategy strategy) {
+    this.strategy = strategy;
+    long step = Math.max(1, barMillis / 4);
+    for (int i = 0; i < bars.size(); i++) {
+      long ts = bars.timestamp(i);
+      long o = Math.round(bars.open(i) * priceScale), h = Math.round(bars.high(i) * priceScale);
+      long l = Math.round(bars.low(i) * priceScale), c = Math.round(bars.close(i) * priceScale);
+      barOpen(i, ts, o);
+      barVolume = bars.volume(i);
+      tick(ts, o);
+      boolean lowFirst = c >= o;
+      tick(ts + step, lowFirst ? l : h);
+      tick(ts + 2 * step, lowFirst ? h : l);
+      tick(ts + 3 * step, c);
+      barClose(i, ts + barMillis - 1);
+    }
+    drain();
+  }
+
+  /** Replays trades; bars are the epoch-aligned {@code barMillis} buckets they fall into. */
+  public void replayTicks(long[] ts, long[] prices, long[] volumes, long barMillis, Strategy strategy) {
+    this.strategy = strategy;
+    long bar = Long.MIN_VALUE;
+    for (int i = 0; i < ts.length; i++) {
+      long b = Math.floorDiv(ts[i], barMillis);
+      if (b != bar) {
+        if (bar != Long.MIN_VALUE) barClose(bar, b * barMillis - 1);
+        bar = b;
+        barOpen(b, ts[i], prices[i]);
+      }
+      if (volumes != null) barVolume += volumes[i];
+      tick(ts[i], prices[i]);
+    }
+    if (bar != Long.MIN_VALUE) barClose(bar, (bar + 1) * barMillis - 1);
+    drain();
+  }
+
+  // ---- events ----
+
+  private void barOpen(long id, long ts, long openPrice) {
+    advance(ts);
+    barId = id;
+    barOpen = barHigh = barLow = barClose = openPrice;
+    barVolume = 0;
+    lastPrice = openPrice; // children and hidden orders released at the open trade at the open
+    if (engine.hasHiddenOrders()) {
+      postQuotes();
+      collect(engine.onBarOpen(id, now));
+      cancelQuotes();
+    }
+    if (!parents.isEmpty()) {
+      for (Order c : scheduler.activateOpen(id, parents)) take(c);
+      for (Order c : scheduler.activateSlicesAt(id, parents)) take(c);
+      retireParents(false);
+    }
+    strategy.onBarOpen(this, id);
+    flushDue();
+  }
+
+  private void tick(long ts, long price) {
+    advance(ts);
+    lastPrice = price;
+    if (price > barHigh) barHigh = price;
+    if (price < barLow) barLow = price;
+    barClose = price;
+    List<Order> activated = engine.onPriceTick(price);
+    if (!activated.isEmpty()) for (Order o : activated) take(o);
+    if (liquidityQty > 0) sweepCrossed(price);
+    strategy.onTick(this, price);
+    flushDue();
+  }
+
+  private void barClose(long id, long ts) {
+    advance(ts);
+    engine.onBarClose(id);
+    if (!parents.isEmpty()) {
+      for (Order c : scheduler.activateClose(id, parents)) take(c);
+      retireParents(true);
+    }
+    strategy.onBarClose(this, id);
+    flushDue();
+  }
+
+  private void advance(long ts) {
+    events++;
+    if (ts > now) now = ts;
+    flushDue();
+  }
+
+  private void flushDue() {
+    while (!pending.isEmpty() && pendingAt.peekFirst() <= now) {
+      pendingAt.pollFirst();
+      Order o = pending.pollFirst();
+      orders.add(o);
+      if (o.execStyle != null) { registerParent(o); continue; }
+      postQuotes();
+      collect(engine.submitOrder(o, now));
+      cancelQuotes();
+    }
+  }
+
+  /** Orders flushed after the last event (latency past the end of data) are sent at their due time. */
+  private void drain() {
+    while (!pending.isEmpty()) {
+      now = Math.max(now, pendingAt.peekFirst());
+      flushDue();
+    }
+  }
+
+  private void take(Order o) {
+    postQuotes();
+    collect(engine.onNewOrder(o, now));
+    cancelQuotes();
+  }
+
+  private void collect(List<Fill> f) {
+    if (f.isEmpty()) return;
+    fills.addAll(f);
+    strategy.onFills(this, f);
+  }
+
+  // OPEN/CLOSE/VWAP parents release once; TWAP parents after twapSlices bars
+  private void retireParents(boolean atClose) {
+    for (int i = parents.size() - 1; i >= 0; i--) {
+      Order p = parents.get(i);
+      boolean done;
+      switch (p.execStyle) {
+        case OPEN: done = !atClose; break;
+        case CLOSE: done = atClose; break;
+        case VWAP: done = !atClose; break;
+        default:
+          if (atClose) continue;
+          int sent = slicesSent.get(i) + 1;
+          slicesSent.set(i, sent);
+          done = p.twapSlices == null || sent >= p.twapSlices;
+      }
+      if (done) { parents.remove(i); slicesSent.remove(i); p.state = OrderState.FILLED; }
+    }
+  }
+
+  // ---- synthetic liquidity ----
+
+  private Order lpBid, lpAsk;
+
+  private void postQuotes() {
+    if (liquidityQty == 0 || lastPrice == Long.MIN_VALUE) return;
+    lpBid = lp(Side.BUY, lastPrice - halfSpread, TimeInForce.GTC);
+    lpAsk = lp(Side.SELL, lastPrice + halfSpread, TimeInForce.GTC);
+    engine.getBook().enqueuePassive(lpBid);
+    engine.getBook().enqueuePassive(lpAsk);
+  }
+
+  private void cancelQuotes() {
+    if (lpBid != null) { engine.getBook().cancel(lpBid); lpBid = null; }
+    if (lpAsk != null) { engine.getBook().cancel(lpAsk); lpAsk = null; }
+  }
+
+  // the tape printed through a resting strategy order: fill it at its own limit
+  private void sweepCrossed(long price) {
+    Long bid = engine.getBook().bestBid();
+    if (bid != null && bid >= price) collect(engine.onNewOrder(lp(Side.SELL, price, TimeInForce.IOC), now));
+    Long ask = engine.getBook().bestAsk();
+    if (ask != null && ask <= price) collect(engine.onNewOrder(lp(Side.BUY, price, TimeInForce.IOC), now));
+  }
+
+  private Order lp(Side side, long price, TimeInForce tif) {
+    return new Order("lp-" + (++lpSeq), instrument, side, OrderType.LIMIT, tif, price, null, null, null,
+        LIQUIDITY_ACCOUNT, liquidityQty, now);
+  }
+}
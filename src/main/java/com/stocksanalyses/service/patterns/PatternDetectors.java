@@ -1,6 +1,7 @@
 package com.stocksanalyses.service.patterns;
 
 import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
@@ -98,6 +99,84 @@ public class PatternDetectors {
         }
         return null;
     }
-}
 
+    // ---- Columnar overloads: same rules evaluated on the last bar(s) of a CandleSeries view in double arithmetic ----
+
+    public PatternHit bullishEngulfing(CandleSeries s) {
+        if (s == null || s.size() < 2) return null;
+        int c = s.size()-1, p = c-1;
+        boolean prevBear = s.close(p) < s.open(p);
+        boolean currBull = s.close(c) > s.open(c);
+        boolean engulf = s.open(c) <= s.close(p) && s.close(c) >= s.open(p);
+        if (prevBear && currBull && engulf){
+            List<String> rules = new ArrayList<>();
+            rules.add("prev bearish body");
+            rules.add("current bullish body");
+            rules.add("current body engulfs prev body");
+            double conf = Math.min(1.0, Math.abs(s.close(c) - s.open(c)) / Math.abs(s.open(p) - s.close(p)));
+            return new PatternHit("bullish_engulfing", conf, rules);
+        }
+        return null;
+    }
+
+    public PatternHit doji(CandleSeries s, double bodyToRange) {
+        if (s == null || s.isEmpty()) return null;
+        int c = s.size()-1;
+        double range = Math.abs(s.high(c) - s.low(c));
+        if (range == 0) return null;
+        double ratio = Math.abs(s.close(c) - s.open(c)) / range;
+        if (ratio <= bodyToRange){
+            List<String> rules = new ArrayList<>(); rules.add("small real body vs range");
+            return new PatternHit("doji", 1.0 - ratio/bodyToRange, rules);
+        }
+        return null;
+    }
 
+    public PatternHit morningStar(CandleSeries s, double gapBias) {
+        if (s == null || s.size() < 3) return null;
+        int c = s.size()-1, b = c-1, a = c-2;
+        boolean aBear = s.close(a) < s.open(a);
+        boolean cBull = s.close(c) > s.open(c);
+        double aRange = Math.abs(s.high(a) - s.low(a));
+        boolean smallMiddle = aRange != 0 && Math.abs(s.close(b) - s.open(b)) / aRange < 0.3;
+        boolean gapDown = s.high(b) < Math.min(s.close(a), s.open(a));
+        boolean gapUp = s.open(c) > Math.max(s.close(b), s.open(b));
+        if (aBear && smallMiddle && cBull && (gapDown || gapUp)){
+            List<String> rules = new ArrayList<>();
+            rules.add("first bearish"); rules.add("small middle"); rules.add("third bullish");
+            double conf = 0.6 + (gapDown?0.2:0) + (gapUp?0.2:0);
+            return new PatternHit("morning_star", Math.min(1.0, conf), rules);
+        }
+        return null;
+    }
+
+    public PatternHit hammer(CandleSeries s, double lowerShadowMinRatio, double bodyMaxRatio) {
+        if (s == null || s.isEmpty()) return null;
+        int c = s.size()-1;
+        double range = Math.abs(s.high(c) - s.low(c));
+        if (range == 0) return null;
+        double lowerRatio = Math.abs(Math.min(s.open(c), s.close(c)) - s.low(c)) / range;
+        double bodyRatio = Math.abs(s.close(c) - s.open(c)) / range;
+        if (lowerRatio >= lowerShadowMinRatio && bodyRatio <= bodyMaxRatio){
+            List<String> rules = new ArrayList<>();
+            rules.add("long lower shadow"); rules.add("small body");
+            return new PatternHit("hammer", Math.min(1.0, lowerRatio), rules);
+        }
+        return null;
+    }
+
+    public PatternHit shootingStar(CandleSeries s, double upperShadowMinRatio, double bodyMaxRatio) {
+        if (s == null || s.isEmpty()) return null;
+        int c = s.size()-1;
+        double range = Math.abs(s.high(c) - s.low(c));
+        if (range == 0) return null;
+        double upperRatio = Math.abs(s.high(c) - Math.max(s.open(c), s.close(c))) / range;
+        double bodyRatio = Math.abs(s.close(c) - s.open(c)) / range;
+        if (upperRatio >= upperShadowMinRatio && bodyRatio <= bodyMaxRatio){
+            List<String> rules = new ArrayList<>();
+            rules.add("long upper shadow"); rules.add("small body");
+            return new PatternHit("shooting_star", Math.min(1.0, upperRatio), rules);
+        }
+        return null;
+    }
+}
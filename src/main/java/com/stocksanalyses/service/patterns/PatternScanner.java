@@ -0,0 +1,117 @@
+package com.stocksanalyses.service.patterns;
+
+import com.stocksanalyses.model.CandleSeries;
+
+import java.util.Arrays;
+
+/**
+ * Runs every {@link PatternDetectors} rule over a whole history in one forward pass on the primitive OHLC columns.
+ * A hit at index {@code i} is exactly what the columnar detector would return for the series ending at bar {@code i}
+ * (same thresholds and double arithmetic), so backtests can precompute per-bar pattern columns instead of calling the
+ * detectors once per prefix. Nothing is allocated per bar.
+ */
+public final class PatternScanner {
+    /** Patterns in the order they are evaluated on each bar. */
+    public enum Pattern {
+        BULLISH_ENGULFING("bullish_engulfing"), DOJI("doji"), MORNING_STAR("morning_star"), HAMMER("hammer"), SHOOTING_STAR("shooting_star");
+
+        static final Pattern[] VALUES = values();
+
+        public final String id;
+        Pattern(String id) { this.id = id; }
+
+        public static Pattern of(String id) {
+            for (Pattern p : values()) if (p.id.equalsIgnoreCase(id) || p.name().equalsIgnoreCase(id)) return p;
+            throw new IllegalArgumentException("unknown pattern: " + id);
+        }
+    }
+
+    /** Receives hits in bar order; within a bar, in {@link Pattern} order. */
+    @FunctionalInterface
+    public interface Sink {
+        void onHit(int index, Pattern pattern, double confidence);
+    }
+
+    /** Thresholds used by {@link com.stocksanalyses.service.StrategyEngine}. */
+    public static final PatternScanner DEFAULT = new PatternScanner(0.1, 0.5, 0.3, 0.5, 0.3);
+
+    private final double dojiBodyToRange, hammerLowerShadow, hammerBody, starUpperShadow, starBody;
+
+    public PatternScanner(double dojiBodyToRange, double hammerLowerShadow, double hammerBody, double starUpperShadow, double starBody) {
+        this.dojiBodyToRange = dojiBodyToRange;
+        this.hammerLowerShadow = hammerLowerShadow;
+        this.hammerBody = hammerBody;
+        this.starUpperShadow = starUpperShadow;
+        this.starBody = starBody;
+    }
+
+    /** Scans bars {@code [from, to)} of {@code s}; patterns spanning several bars may look back before {@code from}. */
+    public void scan(CandleSeries s, int from, int to, Sink sink) {
+        double[] o = s.openArray(), h = s.highArray(), l = s.lowArray(), c = s.closeArray();
+        int off = s.offset();
+        for (int i = Math.max(0, from); i < to; i++) {
+            int k = off + i;
+            double open = o[k], close = c[k], high = h[k], low = l[k];
+            double body = Math.abs(close - open);
+            double range = Math.abs(high - low);
+            if (i >= 1) {
+                int p = k - 1;
+                if (c[p] < o[p] && close > open && open <= c[p] && close >= o[p])
+                    sink.onHit(i, Pattern.BULLISH_ENGULFING, Math.min(1.0, body / Math.abs(o[p] - c[p])));
+            }
+            if (range != 0) {
+                double ratio = body / range;
+                if (ratio <= dojiBodyToRange) sink.onHit(i, Pattern.DOJI, 1.0 - ratio / dojiBodyToRange);
+            }
+            if (i >= 2) {
+                int a = k - 2, b = k - 1;
+                double aRange = Math.abs(h[a] - l[a]);
+                if (c[a] < o[a] && close > open && aRange != 0 && Math.abs(c[b] - o[b]) / aRange < 0.3) {
+                    boolean gapDown = h[b] < Math.min(c[a], o[a]);
+                    boolean gapUp = open > Math.max(c[b], o[b]);
+                    if (gapDown || gapUp) sink.onHit(i, Pattern.MORNING_STAR, Math.min(1.0, 0.6 + (gapDown ? 0.2 : 0) + (gapUp ? 0.2 : 0)));
+                }
+            }
+            if (range != 0) {
+                double bodyRatio = body / range;
+                double lowerRatio = Math.abs(Math.min(open, close) - low) / range;
+                if (lowerRatio >= hammerLowerShadow && bodyRatio <= hammerBody) sink.onHit(i, Pattern.HAMMER, Math.min(1.0, lowerRatio));
+                double upperRatio = Math.abs(high - Math.max(open, close)) / range;
+                if (upperRatio >= starUpperShadow && bodyRatio <= starBody) sink.onHit(i, Pattern.SHOOTING_STAR, Math.min(1.0, upperRatio));
+            }
+        }
+    }
+
+    public Hits scan(CandleSeries s) {
+        Hits hits = new Hits();
+        scan(s, 0, s.size(), hits);
+        return hits;
+    }
+
+    /** Growable struct-of-arrays hit list. */
+    public static final class Hits implements Sink {
+        private int[] index = new int[64];
+        private byte[] pattern = new byte[64];
+        private double[] confidence = new double[64];
+        private int size;
+
+        @Override
+        public void onHit(int i, Pattern p, double conf) {
+            if (size == index.length) {
+                int cap = size * 2;
+                index = Arrays.copyOf(index, cap);
+                pattern = Arrays.copyOf(pattern, cap);
+                confidence = Arrays.copyOf(confidence, cap);
+            }
+            index[size] = i;
+            pattern[size] = (byte) p.ordinal();
+            confidence[size] = conf;
+            size++;
+        }
+
+        public int size() { return size; }
+        public int index(int k) { return index[k]; }
+        public Pattern pattern(int k) { return Pattern.VALUES[pattern[k]]; }
+        public double confidence(int k) { return confidence[k]; }
+    }
+}
@@ -5,6 +5,7 @@ import com.stocksanalyses.model.Signal;
 import com.stocksanalyses.model.StrategyConfig;
 import com.stocksanalyses.model.AlertModels;
 import com.stocksanalyses.service.IndicatorService;
+import com.stocksanalyses.service.SignalPrecomputeService;
 import com.stocksanalyses.service.StrategyEngine;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
@@ -23,11 +24,14 @@ public class RealtimeServices {
     private final StrategyEngine strategyEngine;
     private final IndicatorService indicatorService;
     private final MeterRegistry meter;
+    private final SignalPrecomputeService precompute;
 
-    public RealtimeServices(StrategyEngine strategyEngine, IndicatorService indicatorService, MeterRegistry meterRegistry) {
+    public RealtimeServices(StrategyEngine strategyEngine, IndicatorService indicatorService, MeterRegistry meterRegistry,
+                            SignalPrecomputeService precompute) {
         this.strategyEngine = strategyEngine;
         this.indicatorService = indicatorService;
         this.meter = meterRegistry;
+        this.precompute = precompute;
         startMockFeed();
     }
 
@@ -58,13 +62,14 @@ public class RealtimeServices {
         Deque<Candle> q = buffers.computeIfAbsent(symbol, k -> new ArrayDeque<>());
         q.addLast(c);
         if (q.size()>2000) q.removeFirst();
+        precompute.onBar(symbol, c.getTimestamp());
     }
 
     private final Map<String, Instant> cooldownUntil = new ConcurrentHashMap<>();
     private void evaluate(String symbol){
         Deque<Candle> q = buffers.get(symbol); if (q==null || q.size()<50) return;
         List<Candle> list = new ArrayList<>(q);
-        List<Signal> sigs = strategyEngine.generateSignals(symbol, list, new StrategyConfig("dsl", Map.of()));
+        List<Signal> sigs = strategyEngine.generateSignals(symbol, "1s", list, new StrategyConfig("dsl", Map.of()));
         if (sigs.isEmpty()) return;
         Signal s = sigs.get(0);
         // cooldown per symbol+side
@@ -127,9 +132,21 @@ public class RealtimeServices {
     }
 
     // API helpers
-    public String addSubscription(AlertModels.Subscription s){ s.id = UUID.randomUUID().toString(); subs.add(s); return s.id; }
+    public String addSubscription(AlertModels.Subscription s){
+        s.id = UUID.randomUUID().toString(); subs.add(s);
+        if (s.symbol != null) precompute.subscribe(s.symbol);
+        return s.id;
+    }
     public List<AlertModels.Subscription> listSubscriptions(){ return new ArrayList<>(subs); }
-    public void deleteSubscription(String id){ subs.removeIf(x-> Objects.equals(x.id,id)); }
+    public void deleteSubscription(String id){
+        List<AlertModels.Subscription> removed = new ArrayList<>();
+        synchronized (subs){
+            subs.removeIf(x-> { boolean m = Objects.equals(x.id,id); if (m) removed.add(x); return m; });
+            for (AlertModels.Subscription r : removed){
+                if (r.symbol != null && subs.stream().noneMatch(x-> r.symbol.equals(x.symbol))) precompute.unsubscribe(r.symbol);
+            }
+        }
+    }
     public List<AlertModels.AlertEvent> recentEvents(){ return new ArrayList<>(events); }
 }
 
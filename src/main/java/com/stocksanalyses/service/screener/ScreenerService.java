@@ -0,0 +1,198 @@
+package com.stocksanalyses.service.screener;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.CandleService;
+import com.stocksanalyses.service.StrategyEngine;
+import com.stocksanalyses.service.StrategyPlan;
+import com.stocksanalyses.service.StrategyRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Evaluates one registered strategy over a universe of symbols. Symbols are split into batches; each batch is loaded
+ * with one call to a {@link BatchLoader} and evaluated on a bounded pool, and matching signals are handed to the
+ * caller as each batch finishes. The strategy is compiled once ({@link StrategyRegistry#plan}) and every symbol is
+ * evaluated on its columnar series, so per-symbol cost is a few primitive passes over the lookback window.
+ *
+ * At most two batches per worker are in flight for one screen; the next is submitted only as a finished one is handed
+ * to the caller, so a slow consumer holds back loading instead of piling up results. Streaming screens wait in a
+ * bounded queue for a coordinator thread and are rejected once it is full.
+ */
+@Service
+public class ScreenerService {
+    /** Loads the series for a batch of symbols; symbols without data may be absent or empty. */
+    @FunctionalInterface
+    public interface BatchLoader {
+        Map<String, CandleSeries> load(List<String> symbols);
+    }
+
+    private final CandleService candleService;
+    private final StrategyEngine strategyEngine;
+    private final StrategyRegistry registry;
+    private final int threads;
+    private final int batchSize;
+    private final int maxSymbols;
+    private final ExecutorService pool;
+    private final ExecutorService coordinator;
+
+    public ScreenerService(CandleService candleService, StrategyEngine strategyEngine, StrategyRegistry registry,
+                           @Value("${screener.threads:0}") int threads,
+                           @Value("${screener.batchSize:64}") int batchSize,
+                           @Value("${screener.maxSymbols:20000}") int maxSymbols,
+                           @Value("${screener.concurrentScreens:2}") int concurrentScreens,
+                           @Value("${screener.queuedScreens:8}") int queuedScreens) {
+        this.candleService = candleService;
+        this.strategyEngine = strategyEngine;
+        this.registry = registry;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = Math.max(1, batchSize);
+        this.maxSymbols = maxSymbols;
+        this.pool = Executors.newFixedThreadPool(this.threads, daemon("screener-worker-"));
+        int coordinators = Math.max(1, concurrentScreens);
+        this.coordinator = new ThreadPoolExecutor(coordinators, coordinators, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queuedScreens)), daemon("screener-coord-"));
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> { Thread t = new Thread(r, prefix + n.incrementAndGet()); t.setDaemon(true); return t; };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /** Loader fetching each batch with one {@link CandleService#getCandlesBatch} call over the last {@code lookbackDays}. */
+    public BatchLoader providerLoader(ScreenRequest req) {
+        Instant end = Instant.now();
+        Instant start = end.minusSeconds(86400L * lookbackDays(req));
+        String interval = req.interval == null ? "1d" : req.interval;
+        return batch -> {
+            Map<String, CandleSeries> out = new HashMap<>();
+            candleService.getCandlesBatch(batch, interval, start, end).forEach((s, c) -> out.put(s, CandleSeries.of(c)));
+            return out;
+        };
+    }
+
+    /** Runs {@link #screen} on a coordinator thread; throws {@link RejectedExecutionException} when too many are queued. */
+    public CompletableFuture<ScreenResult> screenAsync(ScreenRequest req, List<String> symbols, BatchLoader loader,
+                                                       Consumer<ScreenResult.Match> onMatch) {
+        resolve(req); // fail fast, before the stream opens
+        return CompletableFuture.supplyAsync(() -> screen(req, symbols, loader, onMatch), coordinator);
+    }
+
+    /**
+     * Screens {@code symbols} with series from {@code loader}. Each series is cut to the last {@code lookbackDays} of
+     * its own history. {@code onMatch} (nullable) runs on the calling thread, batch by batch in completion order; if it
+     * throws, the screen stops, batches not yet evaluated are cancelled and the exception propagates.
+     */
+    public ScreenResult screen(ScreenRequest req, List<String> symbols, BatchLoader loader, Consumer<ScreenResult.Match> onMatch) {
+        StrategyPlan plan = resolve(req);
+        List<String> universe = new ArrayList<>(new LinkedHashSet<>(symbols));
+        if (universe.size() > maxSymbols)
+            throw new IllegalArgumentException("universe has " + universe.size() + " symbols, limit is " + maxSymbols);
+        long t0 = System.nanoTime();
+        long windowMs = 86_400_000L * lookbackDays(req);
+        Set<Signal.Type> types = req.types == null || req.types.isEmpty() ? EnumSet.of(Signal.Type.BUY, Signal.Type.SELL) : EnumSet.copyOf(req.types);
+        double minStrength = req.minStrength == null ? 0 : req.minStrength;
+        AtomicInteger evaluated = new AtomicInteger(), skipped = new AtomicInteger();
+
+        ExecutorCompletionService<List<ScreenResult.Match>> ecs = new ExecutorCompletionService<>(pool);
+        List<Future<List<ScreenResult.Match>>> futures = new ArrayList<>();
+        List<StrategyPlan> plans = List.of(plan);
+        int batches = (universe.size() + batchSize - 1) / batchSize;
+        IntFunction<Callable<List<ScreenResult.Match>>> task = b -> {
+            List<String> batch = universe.subList(b * batchSize, Math.min(universe.size(), (b + 1) * batchSize));
+            return () -> {
+                Map<String, CandleSeries> data = loader.load(batch);
+                List<ScreenResult.Match> found = new ArrayList<>();
+                for (String symbol : batch) {
+                    CandleSeries s = data.get(symbol);
+                    if (s == null || s.size() < StrategyEngine.MIN_BARS) { skipped.incrementAndGet(); continue; }
+                    CandleSeries window = lookback(s, windowMs);
+                    if (window.size() < StrategyEngine.MIN_BARS) { skipped.incrementAndGet(); continue; }
+                    evaluated.incrementAndGet();
+                    for (Signal sig : strategyEngine.evaluate(symbol, window, plans)) {
+                        if (types.contains(sig.getType()) && sig.getStrength() >= minStrength) found.add(new ScreenResult.Match(symbol, sig));
+                    }
+                }
+                return found;
+            };
+        };
+
+        List<ScreenResult.Match> all = new ArrayList<>();
+        try {
+            int next = 0;
+            for (; next < Math.min(batches, threads * 2); next++) futures.add(ecs.submit(task.apply(next)));
+            for (int k = 0; k < batches; k++) {
+                for (ScreenResult.Match m : ecs.take().get()) {
+                    all.add(m);
+                    if (onMatch != null) onMatch.accept(m);
+                }
+                if (next < batches) futures.add(ecs.submit(task.apply(next++)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("screen interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("screen failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            for (Future<?> f : futures) f.cancel(true);
+        }
+
+        all.sort(Comparator.comparingDouble((ScreenResult.Match m) -> m.signal.getStrength()).reversed()
+                .thenComparing(m -> m.symbol));
+        int topK = req.topK == null || req.topK <= 0 ? all.size() : Math.min(req.topK, all.size());
+        double elapsedMs = (System.nanoTime() - t0) / 1e6;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("strategy", plan.id + "@" + plan.version);
+        stats.put("symbols", universe.size());
+        stats.put("evaluated", evaluated.get());
+        stats.put("skipped", skipped.get());
+        stats.put("matches", all.size());
+        stats.put("threads", threads);
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("symbolsPerSec", elapsedMs > 0 ? universe.size() * 1000.0 / elapsedMs : 0);
+
+        ScreenResult res = new ScreenResult();
+        res.matches = new ArrayList<>(all.subList(0, topK));
+        res.stats = stats;
+        return res;
+    }
+
+    private StrategyPlan resolve(ScreenRequest req) {
+        if (req == null || req.strategy == null || req.strategy.isBlank()) throw new IllegalArgumentException("strategy is required");
+        StrategyPlan plan = registry.plan(req.strategy, req.version);
+        if (plan == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "unknown strategy: " + req.strategy);
+        return plan;
+    }
+
+    private static int lookbackDays(ScreenRequest req) {
+        int d = req.lookbackDays == null ? 120 : req.lookbackDays;
+        if (d < 1 || d > 36_500) throw new IllegalArgumentException("lookbackDays must be in [1, 36500]");
+        return d;
+    }
+
+    /** Bars within {@code windowMs} of the last bar (zero-copy view). */
+    static CandleSeries lookback(CandleSeries s, long windowMs) {
+        long cutoff = s.timestamp(s.size() - 1) - windowMs;
+        int lo = 0, hi = s.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.timestamp(mid) < cutoff) lo = mid + 1; else hi = mid;
+        }
+        return s.window(lo, s.size());
+    }
+}
@@ -0,0 +1,34 @@
+package com.stocksanalyses.service.stats;
+
+/**
+ * Exponentially weighted mean and variance, O(1) per update with no window. Seeded with the first value;
+ * {@code alpha} is the weight of the newest value ({@code 2 / (span + 1)} for an EMA-like span).
+ */
+public final class Ewma {
+    private final double alpha;
+    private double mean, var;
+    private long count;
+
+    public Ewma(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) throw new IllegalArgumentException("alpha must be in (0, 1]");
+        this.alpha = alpha;
+    }
+
+    public static Ewma ofSpan(int span) { return new Ewma(2.0 / (span + 1)); }
+
+    public void add(double x) {
+        if (count++ == 0) { mean = x; var = 0; return; }
+        double delta = x - mean;
+        mean += alpha * delta;
+        var = (1 - alpha) * (var + alpha * delta * delta);
+    }
+
+    public long count() { return count; }
+
+    /** Weighted mean; NaN before the first value. */
+    public double mean() { return count == 0 ? Double.NaN : mean; }
+
+    public double variance() { return count == 0 ? Double.NaN : var; }
+
+    public double std() { return Math.sqrt(variance()); }
+}
@@ -0,0 +1,50 @@
+package com.stocksanalyses.service.stats;
+
+/**
+ * Minimum and maximum over the last {@code window} values in amortised O(1) per update, via two monotonic deques
+ * of positions (the same technique as {@code IndicatorKernels.rollingMax}, in streaming form).
+ */
+public final class RollingMinMax {
+    private final double[] ring;
+    private final long[] minQ, maxQ;
+    private final int cap;
+    private long first, next; // positions [first, next) are in the window
+    private int minHead, minSize, maxHead, maxSize;
+
+    public RollingMinMax(int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be >= 1");
+        this.cap = window;
+        this.ring = new double[window];
+        this.minQ = new long[window];
+        this.maxQ = new long[window];
+    }
+
+    /** Appends {@code x}, evicting the oldest value when the window is full. */
+    public void add(double x) {
+        if (next - first == cap) removeOldest();
+        long pos = next++;
+        ring[(int) (pos % cap)] = x;
+        while (minSize > 0 && value(minQ[(minHead + minSize - 1) % cap]) >= x) minSize--;
+        minQ[(minHead + minSize++) % cap] = pos;
+        while (maxSize > 0 && value(maxQ[(maxHead + maxSize - 1) % cap]) <= x) maxSize--;
+        maxQ[(maxHead + maxSize++) % cap] = pos;
+    }
+
+    /** Drops the oldest value; no-op when empty. */
+    public void removeOldest() {
+        if (next == first) return;
+        long pos = first++;
+        if (minSize > 0 && minQ[minHead] == pos) { minHead = (minHead + 1) % cap; minSize--; }
+        if (maxSize > 0 && maxQ[maxHead] == pos) { maxHead = (maxHead + 1) % cap; maxSize--; }
+    }
+
+    public int size() { return (int) (next - first); }
+
+    /** Smallest value in the window; NaN when empty. */
+    public double min() { return minSize == 0 ? Double.NaN : value(minQ[minHead]); }
+
+    /** Largest value in the window; NaN when empty. */
+    public double max() { return maxSize == 0 ? Double.NaN : value(maxQ[maxHead]); }
+
+    private double value(long pos) { return ring[(int) (pos % cap)]; }
+}
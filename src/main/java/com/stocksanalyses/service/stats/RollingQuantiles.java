@@ -0,0 +1,102 @@
+package com.stocksanalyses.service.stats;
+
+import java.util.Arrays;
+
+/**
+ * Order statistics over the last {@code window} values: median, any quantile and the median absolute deviation.
+ * The window is kept twice, as a ring in arrival order and as a sorted array; an update is two binary searches and
+ * one {@link System#arraycopy} shift, so reads are O(1) (quantiles) or O(log w) (MAD). For the window sizes used in
+ * data validation (tens to a few thousand points) the contiguous shift beats pointer-based heaps and skiplists, and
+ * unlike a two-heap median it also answers MAD and arbitrary quantiles. Values must not be NaN.
+ */
+public final class RollingQuantiles {
+    private final double[] ring, sorted;
+    private int head, size;
+
+    public RollingQuantiles(int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be >= 1");
+        this.ring = new double[window];
+        this.sorted = new double[window];
+    }
+
+    /** Appends {@code x}, evicting the oldest value when the window is full. */
+    public void add(double x) {
+        if (size == ring.length) removeOldest();
+        ring[(head + size) % ring.length] = x;
+        int at = Arrays.binarySearch(sorted, 0, size, x);
+        if (at < 0) at = -at - 1;
+        System.arraycopy(sorted, at, sorted, at + 1, size - at);
+        sorted[at] = x;
+        size++;
+    }
+
+    /** Drops the oldest value; no-op when empty. */
+    public void removeOldest() {
+        if (size == 0) return;
+        double x = ring[head];
+        head = (head + 1) % ring.length;
+        int at = Arrays.binarySearch(sorted, 0, size, x);
+        System.arraycopy(sorted, at + 1, sorted, at, size - at - 1);
+        size--;
+    }
+
+    public void clear() { head = 0; size = 0; }
+
+    public int size() { return size; }
+
+    /** {@code k}-th smallest value (0-based). */
+    public double kth(int k) {
+        if (k < 0 || k >= size) throw new IndexOutOfBoundsException(k);
+        return sorted[k];
+    }
+
+    /** Median (mean of the two middle values for an even count); NaN when empty. */
+    public double median() {
+        if (size == 0) return Double.NaN;
+        int m = size >>> 1;
+        return (size & 1) == 1 ? sorted[m] : (sorted[m - 1] + sorted[m]) / 2;
+    }
+
+    /** Quantile {@code q} in [0, 1] with linear interpolation between order statistics; NaN when empty. */
+    public double quantile(double q) {
+        if (size == 0) return Double.NaN;
+        double pos = Math.max(0, Math.min(1, q)) * (size - 1);
+        int lo = (int) pos;
+        return lo + 1 < size ? sorted[lo] + (pos - lo) * (sorted[lo + 1] - sorted[lo]) : sorted[lo];
+    }
+
+    /**
+     * Median absolute deviation from the median (unscaled); NaN when empty. The deviations of the values below and
+     * above the median form two sorted runs, so their median is a k-th-of-two-sorted-arrays search.
+     */
+    public double mad() {
+        if (size == 0) return Double.NaN;
+        double med = median();
+        int split = lowerBound(med);
+        int m = size >>> 1;
+        return (size & 1) == 1 ? kthDeviation(m, med, split) : (kthDeviation(m - 1, med, split) + kthDeviation(m, med, split)) / 2;
+    }
+
+    // A(i) = med - sorted[split-1-i] (i < split), B(j) = sorted[split+j] - med (j < size-split); both ascending
+    private double kthDeviation(int k, double med, int split) {
+        int la = split, lb = size - split;
+        int lo = Math.max(0, k + 1 - lb), hi = Math.min(k + 1, la);
+        while (lo < hi) {
+            int i = (lo + hi) >>> 1, j = k + 1 - i;
+            if (med - sorted[split - 1 - i] < sorted[split + j - 1] - med) lo = i + 1; else hi = i;
+        }
+        int i = lo, j = k + 1 - lo;
+        double a = i > 0 ? med - sorted[split - i] : Double.NEGATIVE_INFINITY;
+        double b = j > 0 ? sorted[split + j - 1] - med : Double.NEGATIVE_INFINITY;
+        return Math.max(a, b);
+    }
+
+    private int lowerBound(double x) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < x) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
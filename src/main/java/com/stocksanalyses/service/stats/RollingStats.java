@@ -0,0 +1,70 @@
+package com.stocksanalyses.service.stats;
+
+/**
+ * Mean and variance over the last {@code window} values in O(1) per update. Values live in a ring buffer; the moments
+ * use Welford's recurrence in both directions (add and evict), which stays accurate where running sums of squares
+ * would cancel. Variance is the population variance, matching the validators this backs. Values must be finite.
+ */
+public final class RollingStats {
+    private final double[] ring;
+    private int head, size;
+    private double mean, m2;
+
+    public RollingStats(int window) {
+        if (window < 1) throw new IllegalArgumentException("window must be >= 1");
+        this.ring = new double[window];
+    }
+
+    /** Appends {@code x}, evicting the oldest value when the window is full. */
+    public void add(double x) {
+        if (size == ring.length) {
+            double old = ring[head];
+            ring[head] = x;
+            head = (head + 1) % ring.length;
+            double oldMean = mean;
+            mean += (x - old) / size;
+            m2 += (x - old) * (x - mean + old - oldMean);
+            if (m2 < 0) m2 = 0;
+            return;
+        }
+        ring[(head + size) % ring.length] = x;
+        size++;
+        double delta = x - mean;
+        mean += delta / size;
+        m2 += delta * (x - mean);
+    }
+
+    /** Drops the oldest value; no-op when empty. */
+    public void removeOldest() {
+        if (size == 0) return;
+        double x = ring[head];
+        head = (head + 1) % ring.length;
+        size--;
+        if (size == 0) { mean = 0; m2 = 0; return; }
+        double oldMean = mean;
+        mean = (oldMean * (size + 1) - x) / size;
+        m2 -= (x - oldMean) * (x - mean);
+        if (m2 < 0) m2 = 0;
+    }
+
+    public void clear() { head = 0; size = 0; mean = 0; m2 = 0; }
+
+    public int size() { return size; }
+
+    public int window() { return ring.length; }
+
+    public boolean isFull() { return size == ring.length; }
+
+    /** Mean of the window; NaN when empty. */
+    public double mean() { return size == 0 ? Double.NaN : mean; }
+
+    public double sum() { return mean * size; }
+
+    /** Population variance; NaN when empty. */
+    public double variance() { return size == 0 ? Double.NaN : m2 / size; }
+
+    public double std() { return Math.sqrt(variance()); }
+
+    /** {@code (x - mean) / (std + eps)} against the current window. */
+    public double zScore(double x, double eps) { return (x - mean()) / (std() + eps); }
+}
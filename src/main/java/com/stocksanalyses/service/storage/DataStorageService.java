@@ -170,6 +170,22 @@ public class DataStorageService {
         }
     }
     
+    /**
+     * 读取K线数据为列式序列（按时间排序），供回放/回测直接使用
+     */
+    public com.stocksanalyses.model.CandleSeries loadCandleSeries(String market, String symbol) {
+        List<CandleData> rows = new ArrayList<>(loadCandleData(market, symbol, true));
+        rows.sort(Comparator.comparingLong(r -> r.timestamp));
+        int n = rows.size();
+        long[] ts = new long[n]; long[] vol = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+        for (int i = 0; i < n; i++) {
+            CandleData r = rows.get(i);
+            ts[i] = r.timestamp; o[i] = r.open; h[i] = r.high; l[i] = r.low; c[i] = r.close; vol[i] = r.volume;
+        }
+        return com.stocksanalyses.model.CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
     /**
      * 存储新闻数据
      */
@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Instant;
 import java.util.Map;
@@ -16,6 +17,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error("BAD_REQUEST", ex.getMessage()));
     }
 
+    /** Statuses chosen where they are thrown, e.g. 404 for an unknown job or strategy; kept instead of becoming 500s. */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String,Object>> handleStatus(ResponseStatusException ex){
+        HttpStatus status = HttpStatus.resolve(ex.getStatusCode().value());
+        String code = status != null ? status.name() : String.valueOf(ex.getStatusCode().value());
+        return ResponseEntity.status(ex.getStatusCode()).body(error(code, ex.getReason() != null ? ex.getReason() : ""));
+    }
+
+    @ExceptionHandler(java.util.concurrent.RejectedExecutionException.class)
+    public ResponseEntity<Map<String,Object>> handleRejected(java.util.concurrent.RejectedExecutionException ex){
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(error("TOO_MANY_REQUESTS", ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String,Object>> handleValidation(MethodArgumentNotValidException ex){
         return ResponseEntity.badRequest().body(error("VALIDATION_ERROR", ex.getMessage()));
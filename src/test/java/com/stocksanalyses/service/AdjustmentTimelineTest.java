@@ -0,0 +1,147 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.CorporateActionsService.AdjustmentTimeline;
+import com.stocksanalyses.service.CorporateActionsService.CorporateAction;
+import com.stocksanalyses.service.CorporateActionsService.CorporateActionType;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdjustmentTimelineTest {
+    private static final LocalDate D0 = LocalDate.of(2015, 1, 5);
+
+    private static CorporateAction action(CorporateActionType type, LocalDate date, LocalDate exDate, String ratio, String price) {
+        CorporateAction a = new CorporateAction();
+        a.symbol = "TEST";
+        a.actionType = type;
+        a.actionDate = date;
+        a.exDate = exDate;
+        a.ratio = new BigDecimal(ratio);
+        a.price = new BigDecimal(price);
+        return a;
+    }
+
+    private static List<CorporateAction> randomActions(int n, long seed) {
+        Random rnd = new Random(seed);
+        CorporateActionType[] types = {CorporateActionType.STOCK_SPLIT, CorporateActionType.STOCK_DIVIDEND,
+                CorporateActionType.RIGHTS_ISSUE, CorporateActionType.BONUS_ISSUE};
+        List<CorporateAction> actions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            LocalDate date = D0.plusDays(rnd.nextInt(3650));
+            LocalDate ex = rnd.nextBoolean() ? date.plusDays(rnd.nextInt(5)) : null;
+            String ratio = String.valueOf(1 + rnd.nextInt(4));
+            String price = String.format(Locale.ROOT, "%.2f", rnd.nextDouble() * 0.8);
+            actions.add(action(types[rnd.nextInt(types.length)], date, ex, ratio, price));
+        }
+        return actions;
+    }
+
+    private static List<Candle> dailyCandles(int days) {
+        List<Candle> candles = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            BigDecimal p = BigDecimal.valueOf(100 + (i % 50));
+            candles.add(new Candle(D0.plusDays(i).atTime(15, 0).atZone(ZoneId.systemDefault()).toInstant(),
+                    p, p.add(BigDecimal.ONE), p.subtract(BigDecimal.ONE), p, 1000 + i));
+        }
+        return candles;
+    }
+
+    /** The per-bar walk over every action that the timeline replaces. */
+    private static BigDecimal naiveCoefficient(List<CorporateAction> actions, LocalDate date, AdjustType type) {
+        BigDecimal k = BigDecimal.ONE;
+        for (CorporateAction a : actions) {
+            LocalDate effective = a.exDate != null ? a.exDate : a.actionDate;
+            if (effective.isAfter(date)) continue;
+            k = k.multiply(AdjustmentTimeline.build(List.of(a)).factor(0, type), MathContext.DECIMAL64);
+        }
+        return k;
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, Math.abs(expected) * 1e-12 + 1e-12);
+    }
+
+    @Test
+    void timelineMatchesThePerBarWalkOverActions() {
+        List<CorporateAction> actions = randomActions(40, 5);
+        AdjustmentTimeline timeline = AdjustmentTimeline.build(actions);
+        assertTrue(timeline.steps() <= 40 && timeline.steps() > 30);
+        List<Candle> raw = dailyCandles(3700);
+        for (AdjustType type : List.of(AdjustType.FORWARD, AdjustType.FWD, AdjustType.BACK)) {
+            List<Candle> adjusted = timeline.adjust(raw, type);
+            CandleSeries series = timeline.adjust(CandleSeries.of(raw), type);
+            assertEquals(raw.size(), adjusted.size());
+            for (int i = 0; i < raw.size(); i++) {
+                LocalDate date = raw.get(i).getTimestamp().atZone(ZoneId.systemDefault()).toLocalDate();
+                BigDecimal k = naiveCoefficient(actions, date, type);
+                double expected = raw.get(i).getClose().multiply(k, MathContext.DECIMAL64).doubleValue();
+                assertClose(expected, adjusted.get(i).getClose().doubleValue());
+                assertClose(expected, series.close(i));
+                assertClose(raw.get(i).getHigh().multiply(k).doubleValue(), series.high(i));
+                assertEquals(raw.get(i).getVolume(), series.volume(i));
+                assertEquals(raw.get(i).getTimestamp().toEpochMilli(), series.timestamp(i));
+            }
+        }
+    }
+
+    @Test
+    void stepsStartOnTheEffectiveDateAndOutOfOrderBarsAreHandled() {
+        LocalDate split = LocalDate.of(2020, 6, 1);
+        AdjustmentTimeline timeline = AdjustmentTimeline.build(List.of(
+                action(CorporateActionType.STOCK_SPLIT, split.minusDays(10), split, "2", "0"),
+                action(CorporateActionType.BONUS_ISSUE, split, null, "4", "0")));
+        assertEquals(1, timeline.steps()); // same effective date: one step
+        long dayStart = split.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        assertEquals(-1, timeline.stepAt(dayStart - 1));
+        assertEquals(0, timeline.stepAt(dayStart));
+        assertEquals(0, new BigDecimal("0.125").compareTo(timeline.factor(0, AdjustType.FORWARD)));
+        assertEquals(BigDecimal.ONE, timeline.factor(-1, AdjustType.BACK));
+
+        long[] ts = {dayStart + 1, dayStart - 1, dayStart + 2};
+        double[] one = {8, 8, 8};
+        CandleSeries adjusted = timeline.adjust(CandleSeries.wrap(ts, one, one, one, one, new long[3]), AdjustType.FORWARD);
+        assertEquals(1.0, adjusted.close(0));
+        assertEquals(8.0, adjusted.close(1));
+        assertEquals(1.0, adjusted.close(2));
+    }
+
+    @Test
+    void serviceBuildsEachTimelineOnceAndAdjustsSeriesInOnePass() {
+        CacheRegistry caches = new CacheRegistry(new SimpleMeterRegistry(), new StandardEnvironment(), 1);
+        // without a database the service serves its fallback actions: a 2:1 split and a dividend
+        CorporateActionsService service = new CorporateActionsService(null, "corporate_actions", caches);
+        AdjustmentTimeline timeline = service.getTimeline("AAPL");
+        assertSame(timeline, service.getTimeline("AAPL"));
+        assertEquals(2, service.getCorporateActions("AAPL").size());
+        assertEquals(0, new BigDecimal("0.5").compareTo(
+                service.getAdjustmentCoefficient("AAPL", LocalDate.now().minusMonths(4), AdjustType.FORWARD)));
+        assertEquals(0, BigDecimal.ONE.compareTo(
+                service.getAdjustmentCoefficient("AAPL", LocalDate.now().minusMonths(7), AdjustType.BACK)));
+
+        int n = 1_000_000;
+        long[] ts = new long[n], vol = new long[n];
+        double[] px = new double[n];
+        long t0 = LocalDate.now().minusYears(2).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        for (int i = 0; i < n; i++) { ts[i] = t0 + i * 60_000L; px[i] = 100; }
+        CandleSeries raw = CandleSeries.wrap(ts, px, px, px, px, vol);
+        CandleSeries adjusted = service.adjustSeries(raw, "AAPL", AdjustType.BACK);
+        assertEquals(n, adjusted.size());
+        assertEquals(100.0, adjusted.close(0));
+        assertEquals(100.0 * timeline.factor(timeline.steps() - 1, AdjustType.BACK).doubleValue(), adjusted.close(n - 1), 1e-9);
+        assertSame(raw, service.adjustSeries(raw, "AAPL", AdjustType.NONE));
+        assertEquals(1L, ((Map<?, ?>) caches.stats().get("corporate-actions")).get("loads"));
+        caches.shutdown();
+    }
+}
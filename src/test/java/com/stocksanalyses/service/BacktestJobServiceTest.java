@@ -0,0 +1,143 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.controller.JobsController;
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.backtest.BacktestEngine;
+import com.stocksanalyses.service.backtest.BacktestJobService;
+import com.stocksanalyses.web.GlobalExceptionHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BacktestJobServiceTest {
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private volatile boolean gated = false;
+
+    private final CandleService candles = new CandleService(null) {
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            if (gated) { try { gate.await(5, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); } }
+            List<Candle> list = new ArrayList<>();
+            Instant base = Instant.parse("2020-01-01T00:00:00Z");
+            double px = 100;
+            for (int i = 0; i < 2000; i++) {
+                double close = Math.max(1, px + Math.sin(i / 7.0));
+                list.add(new Candle(base.plusSeconds(86400L * i), bd(px), bd(Math.max(px, close) + 0.5),
+                        bd(Math.min(px, close) - 0.5), bd(close), 1000));
+                px = close;
+            }
+            return list;
+        }
+    };
+    private final StrategyEngine strategyEngine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+    private final BacktestEngine engine = new BacktestEngine(candles, strategyEngine);
+
+    private static BigDecimal bd(double v) { return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private static BacktestRequest request() {
+        BacktestRequest req = new BacktestRequest();
+        req.universe = List.of("T");
+        req.skipWeekends = false;
+        req.strategyConfig = new StrategyConfig("ema-macd", Map.of("minPatternScore", 0.0));
+        return req;
+    }
+
+    private static BacktestJob await(BacktestJobService svc, String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            BacktestJob j = svc.get(id).orElseThrow();
+            if (j.isFinished()) return j;
+            Thread.sleep(10);
+        }
+        fail("job did not finish");
+        return null;
+    }
+
+    @Test
+    void jobRunsOffThreadAndMatchesSynchronousRun() throws Exception {
+        BacktestJobService svc = new BacktestJobService(engine, 2, 10, 3, 0, 60);
+        try {
+            List<String> events = new CopyOnWriteArrayList<>();
+            BacktestJob job = svc.submit("alice", request());
+            svc.subscribe(job.id, (event, j) -> events.add(event));
+            BacktestJob done = await(svc, job.id);
+            assertEquals(BacktestJob.Status.DONE, done.status);
+            assertEquals(2000, done.barsProcessed);
+            assertEquals(engine.run(request()).equity, done.result.equity);
+            assertEquals("done", events.get(events.size() - 1));
+            assertEquals(1, svc.list("alice").size());
+        } finally { svc.shutdown(); }
+    }
+
+    @Test
+    void cancellationStopsWithinOneBar() throws Exception {
+        BacktestJobService svc = new BacktestJobService(engine, 1, 10, 3, 0, 60);
+        try {
+            AtomicInteger cancelledAt = new AtomicInteger(-1);
+            gated = true;
+            BacktestJob job = svc.submit("alice", request());
+            svc.subscribe(job.id, (event, j) -> {
+                if ("progress".equals(event) && j.barsProcessed >= 100 && cancelledAt.get() < 0) {
+                    cancelledAt.set(j.barsProcessed);
+                    svc.cancel(j.id);
+                }
+            });
+            gate.countDown();
+            BacktestJob done = await(svc, job.id);
+            assertEquals(BacktestJob.Status.CANCELLED, done.status);
+            assertEquals(cancelledAt.get(), done.barsProcessed);
+            assertNull(done.result);
+        } finally { svc.shutdown(); }
+    }
+
+    @Test
+    void quotaAndQueuedCancel() throws Exception {
+        BacktestJobService svc = new BacktestJobService(engine, 1, 10, 2, 0, 60);
+        try {
+            gated = true;
+            BacktestJob running = svc.submit("alice", request());
+            BacktestJob queued = svc.submit("alice", request());
+            assertThrows(RejectedExecutionException.class, () -> svc.submit("alice", request()));
+            BacktestJob other = svc.submit("bob", request());
+
+            svc.cancel(queued.id);
+            assertEquals(BacktestJob.Status.CANCELLED, queued.status);
+            assertNull(queued.startedAt);
+            gate.countDown();
+            assertEquals(BacktestJob.Status.DONE, await(svc, running.id).status);
+            assertEquals(BacktestJob.Status.DONE, await(svc, other.id).status);
+            assertThrows(NoSuchElementException.class, () -> svc.cancel("missing"));
+        } finally { svc.shutdown(); }
+    }
+
+    @Test
+    void onlyTheSubmitterCanReadCancelOrStreamAJob() throws Exception {
+        BacktestJobService svc = new BacktestJobService(engine, 1, 10, 3, 0, 60);
+        try {
+            JobsController controller = new JobsController(svc);
+            Principal alice = () -> "alice", bob = () -> "bob";
+            gated = true;
+            BacktestJob job = controller.submit(request(), alice);
+
+            ResponseStatusException notFound = assertThrows(ResponseStatusException.class, () -> controller.get(job.id, bob));
+            assertEquals(HttpStatus.NOT_FOUND, new GlobalExceptionHandler().handleStatus(notFound).getStatusCode());
+            assertThrows(ResponseStatusException.class, () -> controller.cancel(job.id, bob));
+            assertThrows(ResponseStatusException.class, () -> controller.events(job.id, bob));
+            assertThrows(ResponseStatusException.class, () -> controller.get(job.id, null));
+            assertFalse(job.cancelRequested);
+
+            assertSame(job, controller.get(job.id, alice));
+            assertNotNull(controller.events(job.id, alice));
+            gate.countDown();
+            assertEquals(BacktestJob.Status.DONE, await(svc, job.id).status);
+        } finally { svc.shutdown(); }
+    }
+}
@@ -0,0 +1,156 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.backtest.BacktestEngine;
+import com.stocksanalyses.service.backtest.BacktestResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BacktestResultCacheTest {
+    private final Path dir = tempDir();
+
+    private int bars = 300;
+    private int loads = 0;
+    private final CandleService candles = new CandleService(null) {
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            loads++;
+            List<Candle> list = new ArrayList<>();
+            Instant base = Instant.parse("2023-01-02T00:00:00Z");
+            Random rnd = new Random(5);
+            double px = 100;
+            for (int i=0;i<bars;i++){
+                double open = px;
+                double close = Math.max(1, open + Math.sin(i / 8.0) * 1.5 + (rnd.nextDouble() - 0.5) * 2);
+                list.add(new Candle(base.plusSeconds(86400L*i), bd(open), bd(Math.max(open, close) + 0.5),
+                        bd(Math.min(open, close) - 0.5), bd(close), 1000));
+                px = close;
+            }
+            return list;
+        }
+    };
+    private final StrategyEngine strategyEngine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+
+    private static Path tempDir() {
+        try { Path d = Files.createTempDirectory("bt-cache"); d.toFile().deleteOnExit(); return d; }
+        catch (IOException e) { throw new IllegalStateException(e); }
+    }
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private BacktestRequest request(Object emaShort) {
+        BacktestRequest req = new BacktestRequest();
+        req.universe = List.of("T");
+        req.skipWeekends = false;
+        req.start = "2023-01-02T00:00:00Z";
+        req.end = "2024-01-02T00:00:00Z";
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("minPatternScore", 0.0);
+        params.put("emaShort", emaShort);
+        req.strategyConfig = new StrategyConfig("ema-macd", params);
+        return req;
+    }
+
+    private BacktestResultCache cache() {
+        return new BacktestResultCache(new StrategyRegistry(new StrategyDSLService()), true, dir.toString(), 16, 64, 30);
+    }
+
+    @Test
+    void identicalRequestsHitMemoryThenDisk() {
+        BacktestResultCache cache = cache();
+        BacktestEngine engine = new BacktestEngine(candles, strategyEngine, cache);
+        BacktestResult first = engine.run(request(10));
+        BacktestResult again = engine.run(request(10.0)); // same value, different JSON number
+        assertEquals(first.equity, again.equity);
+        assertEquals(1L, cache.stats().get("misses"));
+        assertEquals(1L, cache.stats().get("memoryHits"));
+
+        // fresh process: served from disk with equal content
+        BacktestResultCache cold = cache();
+        BacktestResult fromDisk = new BacktestEngine(candles, strategyEngine, cold).run(request(10));
+        assertEquals(1L, cold.stats().get("diskHits"));
+        assertEquals(first.equity, fromDisk.equity);
+        assertEquals(first.trades.size(), fromDisk.trades.size());
+        assertEquals(first.metrics.get("sharpe"), fromDisk.metrics.get("sharpe"));
+    }
+
+    @Test
+    void newCandlesOrDifferentParamsMiss() {
+        BacktestResultCache cache = cache();
+        BacktestEngine engine = new BacktestEngine(candles, strategyEngine, cache);
+        engine.run(request(10));
+        engine.run(request(12));
+        assertEquals(2L, cache.stats().get("misses"));
+
+        bars++; // a new candle arrived
+        BacktestResult updated = engine.run(request(10));
+        assertEquals(3L, cache.stats().get("misses"));
+        assertEquals(bars, updated.equity.size());
+    }
+
+    @Test
+    void invalidateDropsBothTiers() {
+        BacktestResultCache cache = cache();
+        BacktestEngine engine = new BacktestEngine(candles, strategyEngine, cache);
+        engine.run(request(10));
+        cache.invalidate("T");
+        assertEquals(0, cache.stats().get("memoryEntries"));
+        engine.run(request(10));
+        assertEquals(2L, cache.stats().get("misses"));
+        assertEquals(0L, cache.stats().get("diskHits"));
+    }
+
+    @Test
+    void hitsReturnCopiesThatCallersCanMutate() {
+        BacktestResultCache cache = cache();
+        BacktestEngine engine = new BacktestEngine(candles, strategyEngine, cache);
+        BacktestResult first = engine.run(request(10));
+        List<Double> equity = new ArrayList<>(first.equity);
+        Object sharpe = first.metrics.get("sharpe");
+        first.equity.clear();
+        first.metrics.put("sharpe", -1.0);
+
+        BacktestResult hit = engine.run(request(10));
+        assertNotSame(first, hit);
+        assertEquals(equity, hit.equity);
+        assertEquals(sharpe, hit.metrics.get("sharpe"));
+        hit.equity.clear();
+        assertEquals(equity, engine.run(request(10)).equity);
+        assertEquals(2L, cache.stats().get("memoryHits"));
+    }
+
+    @Test
+    void diskTierIsCappedBySizeAndAge() throws IOException {
+        Path small = tempDir();
+        // a 1 MB cap holds a handful of results; the oldest-read files go first
+        BacktestResultCache cache = new BacktestResultCache(new StrategyRegistry(new StrategyDSLService()), true, small.toString(), 1, 1, 30);
+        BacktestEngine engine = new BacktestEngine(candles, strategyEngine, cache);
+        bars = 3000;
+        for (int ema = 5; ema < 45; ema++) engine.run(request(ema));
+        assertTrue((Long) cache.stats().get("diskEvictions") > 0);
+        assertTrue((Long) cache.stats().get("diskBytes") <= 1024 * 1024);
+        long onDisk;
+        try (var files = Files.walk(small)) { onDisk = files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum(); }
+        assertEquals(onDisk, cache.stats().get("diskBytes"));
+
+        // an expired file is not served and is deleted by the next scan
+        Path symbolDir = small.resolve("T");
+        try (var files = Files.list(symbolDir)) {
+            for (Path f : files.toList()) Files.setLastModifiedTime(f, FileTime.fromMillis(0));
+        }
+        BacktestResultCache cold = new BacktestResultCache(new StrategyRegistry(new StrategyDSLService()), true, small.toString(), 1, 1, 30);
+        assertEquals(0L, cold.stats().get("diskBytes"));
+        new BacktestEngine(candles, strategyEngine, cold).run(request(44));
+        assertEquals(0L, cold.stats().get("diskHits"));
+        assertEquals(1L, cold.stats().get("misses"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.service.cache.BoundedCache;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private <V> BoundedCache<String, V> cache(long maxWeight, long ttlSeconds, long refreshSeconds,
+                                              BoundedCache.Weigher<? super V> weigher, Executor refresher) {
+        return new BoundedCache<>("test", maxWeight, ttlSeconds * SECOND, refreshSeconds * SECOND, weigher, refresher, now::get);
+    }
+
+    @Test
+    void weightStaysBoundedUnderUnboundedKeys() {
+        BoundedCache<String, String> c = cache(10_000, 0, 0, null, null);
+        for (int i = 0; i < 1_000_000; i++) {
+            String key = "S" + i + ":1d:" + i;
+            assertEquals(key, c.get(key, k -> k));
+        }
+        assertTrue(c.weight() <= 10_000, "weight " + c.weight());
+        assertEquals(c.weight(), c.size());
+        assertEquals(1_000_000 - c.size(), c.evictions());
+
+        // heavy values count for more; one heavier than a segment's share is served but not kept
+        BoundedCache<String, int[]> w = cache(100, 0, 0, a -> a.length, null);
+        for (int i = 0; i < 10; i++) w.get("k" + i, k -> new int[30]);
+        assertTrue(w.weight() <= 100);
+        assertEquals(3, w.size());
+        assertEquals(1000, w.get("huge", k -> new int[1000]).length);
+        assertNull(w.getIfPresent("huge"));
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedFirst() {
+        BoundedCache<String, Integer> c = cache(3, 0, 0, null, null);
+        c.put("a", 1);
+        c.put("b", 2);
+        c.put("c", 3);
+        c.get("a", k -> -1); // touch
+        c.put("d", 4);
+        assertNull(c.getIfPresent("b"));
+        assertEquals(1, c.getIfPresent("a"));
+        assertEquals(4, c.getIfPresent("d"));
+    }
+
+    @Test
+    void expiredEntriesReloadAndHotEntriesRefreshAhead() {
+        AtomicInteger loads = new AtomicInteger();
+        // refresh-ahead on the calling thread keeps this test deterministic
+        BoundedCache<String, Integer> c = cache(100, 60, 45, null, Runnable::run);
+
+        assertEquals(1, c.get("k", k -> loads.incrementAndGet()));
+        now.addAndGet(30 * SECOND);
+        assertEquals(1, c.get("k", k -> loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+
+        now.addAndGet(20 * SECOND); // past the refresh age: served, reloaded behind the caller
+        assertEquals(1, c.get("k", k -> loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+        assertEquals(1, c.refreshes());
+        assertEquals(2, c.get("k", k -> loads.incrementAndGet()));
+
+        now.addAndGet(61 * SECOND); // not touched since: expired, loaded in line
+        assertEquals(3, c.get("k", k -> loads.incrementAndGet()));
+        assertEquals(1, c.expirations());
+        assertEquals(2, c.misses());
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        BoundedCache<String, String> c = cache(100, 0, 0, null, null);
+        AtomicInteger loads = new AtomicInteger();
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return c.get("AAPL:1d", k -> {
+                    loads.incrementAndGet();
+                    try { Thread.sleep(100); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+                    return "report";
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<String> f : results) assertEquals("report", f.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(threads - 1, c.coalesced());
+
+        // a failed load reaches every waiter and leaves nothing behind
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> failing = pool.submit(() -> c.get("bad", k -> {
+            started.countDown();
+            try { Thread.sleep(100); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+            throw new IllegalStateException("db down");
+        }));
+        started.await();
+        IllegalStateException waiter = assertThrows(IllegalStateException.class, () -> c.get("bad", k -> "unused"));
+        assertEquals("db down", waiter.getMessage());
+        assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        assertEquals("fresh", c.get("bad", k -> "fresh"));
+        pool.shutdownNow();
+    }
+
+    @Test
+    void invalidationDuringALoadKeepsTheLoadedValueOut() throws Exception {
+        BoundedCache<String, String> c = cache(100, 0, 0, null, null);
+        CountDownLatch loading = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+        Thread t = new Thread(() -> c.get("AAPL:1d", k -> {
+            loading.countDown();
+            try { invalidated.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+            return "stale";
+        }));
+        t.start();
+        loading.await();
+        c.invalidateIf(k -> k.startsWith("AAPL:"));
+        invalidated.countDown();
+        t.join();
+        assertNull(c.getIfPresent("AAPL:1d"));
+    }
+
+    @Test
+    void registryAppliesSettingsAndPublishesMetrics() {
+        StandardEnvironment env = new StandardEnvironment();
+        env.getPropertySources().addFirst(new MapPropertySource("test", Map.of("caches.quotes.max-weight", "2")));
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CacheRegistry registry = new CacheRegistry(meters, env, 1);
+        BoundedCache<String, String> c = registry.create("quotes", 1_000, 60, 0);
+        for (String k : List.of("a", "b", "b", "c")) c.get(k, key -> key);
+
+        assertEquals(2, c.maxWeight());
+        assertEquals(2, c.size());
+        assertEquals(3.0, meters.get("cache_requests_total").tags("cache", "quotes", "result", "miss").functionCounter().count());
+        assertEquals(1.0, meters.get("cache_evictions_total").tags("cache", "quotes", "cause", "size").functionCounter().count());
+        assertEquals(2.0, meters.get("cache_entries").tag("cache", "quotes").gauge().value());
+        assertTrue(registry.stats().containsKey("quotes"));
+        registry.shutdown();
+    }
+}
@@ -0,0 +1,99 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.marketdata.CandleReconciler;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandleReconcilerTest {
+    private static final long MINUTE = 60_000L;
+    private static final long T0 = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+
+    /** Minute bars of a shared random walk; {@code skip} bars are left out, {@code shiftMs} moves every timestamp. */
+    static CandleSeries provider(int n, long seed, long shiftMs, double noise, int... skip) {
+        Random walk = new Random(seed), jitter = new Random(seed * 31 + shiftMs);
+        CandleSeries.Builder b = new CandleSeries.Builder(n);
+        double p = 100;
+        outer:
+        for (int i = 0; i < n; i++) {
+            p = Math.max(1, p + walk.nextGaussian() * 0.05);
+            for (int s : skip) if (s == i) continue outer;
+            double c = p * (1 + noise * jitter.nextGaussian());
+            b.add(T0 + i * MINUTE + shiftMs, c, c + 0.1, c - 0.1, c, 1000 + i % 7);
+        }
+        return b.build();
+    }
+
+    private static CandleSeries withClose(CandleSeries s, int index, double close) {
+        long[] ts = new long[s.size()], vol = new long[s.size()];
+        double[] o = new double[s.size()], h = new double[s.size()], l = new double[s.size()], c = new double[s.size()];
+        for (int i = 0; i < s.size(); i++) {
+            ts[i] = s.timestamp(i); o[i] = s.open(i); h[i] = s.high(i); l[i] = s.low(i); c[i] = s.close(i); vol[i] = s.volume(i);
+        }
+        c[index] = close;
+        return CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
+    @Test
+    void outliersAndGapsAreReportedAndConsensusFollowsTheMajority() {
+        Map<String, CandleSeries> sources = new LinkedHashMap<>();
+        CandleSeries a = provider(100, 7, 0, 0, 70);
+        sources.put("A", a);
+        sources.put("B", provider(100, 7, 20_000, 0));            // timestamps 20 s late
+        CandleSeries c = provider(100, 7, 0, 0, 60);
+        sources.put("C", withClose(c, 50, c.close(50) * 1.05));   // bar 50 is 5% off
+
+        CandleReconciler.Result r = CandleReconciler.reconcile(sources, Map.of("A", 0.9, "B", 0.8, "C", 0.7), "A", 30_000, 0.01, 10);
+        assertEquals(100, r.consensus.size());
+        assertEquals(3, r.discrepancyCount);
+        assertEquals(1, r.providers.get("C").outliers);
+        assertEquals(1, r.providers.get("C").missing);
+        assertEquals(1, r.providers.get("A").missing);
+        assertEquals(0, r.providers.get("B").outliers + r.providers.get("B").missing);
+        assertEquals(100, r.providers.get("B").matched);
+
+        assertEquals(a.close(50), r.consensus.close(50), 1e-9);
+        assertEquals(T0 + 50 * MINUTE, r.consensus.timestamp(50));      // the reference provider's clock
+        assertEquals(T0 + 70 * MINUTE, r.consensus.timestamp(70));      // A has no bar: the earliest member's
+        CandleReconciler.Discrepancy price = r.discrepancies.stream().filter(d -> d.kind.equals("price")).findFirst().orElseThrow();
+        assertEquals("C", price.provider);
+        assertEquals(T0 + 50 * MINUTE, price.timestamp);
+    }
+
+    @Test
+    void twoProvidersInDisagreementDeferToTheReference() {
+        Map<String, CandleSeries> sources = new LinkedHashMap<>();
+        CandleSeries a = provider(10, 3, 0, 0);
+        sources.put("A", a);
+        sources.put("B", withClose(a, 4, a.close(4) * 1.10));
+        CandleReconciler.Result r = CandleReconciler.reconcile(sources, null, "A", 30_000, 0.01, 0);
+        assertEquals(a.close(4), r.consensus.close(4), 1e-9);
+        assertEquals(1, r.discrepancyCount);
+        assertTrue(r.discrepancies.isEmpty());
+        assertEquals(0.10, r.providers.get("B").maxDeviation, 1e-9);
+    }
+
+    @Test
+    void yearOfMinuteBarsFromThreeProvidersReconciles() {
+        int n = 525_600;
+        Map<String, CandleSeries> sources = new LinkedHashMap<>();
+        sources.put("timescale", provider(n, 11, 0, 0.0005, 1000, 200_000));
+        sources.put("clickhouse", provider(n, 11, 15_000, 0.0005));
+        sources.put("vendor", provider(n, 11, -10_000, 0.0005, 300_000));
+
+        CandleReconciler.Result r = CandleReconciler.reconcile(sources, null, "timescale", 30_000, 0.01, 100);
+        assertEquals(n, r.consensus.size());
+        for (int i = 1; i < n; i++) assertTrue(r.consensus.timestamp(i) > r.consensus.timestamp(i - 1));
+        assertEquals(3, r.discrepancyCount);
+        assertEquals(3, r.discrepancies.size());
+        assertEquals(2, r.providers.get("timescale").missing);
+        assertEquals(0, r.providers.get("clickhouse").missing);
+        assertEquals(1, r.providers.get("vendor").missing);
+        assertEquals(n - 1, r.providers.get("vendor").bars);
+    }
+}
@@ -0,0 +1,72 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.model.StrategyConfig;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandleSeriesTest {
+    private List<Candle> series(int n) {
+        List<Candle> candles = new ArrayList<>(n);
+        Instant base = Instant.parse("2020-01-01T00:00:00Z");
+        Random rnd = new Random(11);
+        double px = 100;
+        for (int i=0;i<n;i++){
+            double open = px;
+            double close = Math.max(1, open + Math.sin(i / 6.0) + (rnd.nextDouble() - 0.5) * 2);
+            double high = Math.max(open, close) + rnd.nextDouble();
+            double low = Math.min(open, close) - rnd.nextDouble();
+            candles.add(new Candle(base.plusSeconds(60L*i), bd(open), bd(high), bd(low), bd(close), 100 + i));
+            px = close;
+        }
+        return candles;
+    }
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    @Test
+    void windowsAreZeroCopyViews() {
+        List<Candle> candles = series(100);
+        CandleSeries s = CandleSeries.of(candles);
+        CandleSeries w = s.window(10, 20);
+        assertEquals(10, w.size());
+        assertSame(s.closeArray(), w.closeArray());
+        assertEquals(candles.get(15).getClose().doubleValue(), w.close(5));
+        assertEquals(candles.get(15).getTimestamp(), w.instant(5));
+        assertEquals(candles.get(19).getHigh().doubleValue(), w.tail(1).high(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> s.window(50, 101));
+    }
+
+    @Test
+    void columnarSignalsMatchObjectList() {
+        List<Candle> candles = series(300);
+        CandleSeries s = CandleSeries.of(candles);
+        StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+        StrategyConfig cfg = new StrategyConfig("ema-macd", Map.of("emaShort", 5, "emaLong", 12, "minPatternScore", 0.0));
+        for (int i = 50; i <= 300; i += 10) {
+            Signal a = engine.generateSignals("T", candles.subList(0, i), cfg).get(0);
+            Signal b = engine.generateSignals("T", s.prefix(i), cfg).get(0);
+            assertEquals(a.getType(), b.getType(), "bar " + i);
+            assertEquals(a.getStrength(), b.getStrength(), 1e-9);
+        }
+    }
+
+    @Test
+    void columnsAreCompactAndEmaMatchesTa4j() {
+        int n = 200_000;
+        List<Candle> candles = series(n);
+        CandleSeries s = CandleSeries.of(candles);
+        assertEquals((long) n * CandleSeries.BYTES_PER_CANDLE, s.sizeBytes());
+
+        IndicatorService ind = new IndicatorService();
+        double ta4j = ind.emaClose(candles.subList(0, 20_000), 20)[0];
+        assertEquals(ta4j, IndicatorService.emaSeries(s.prefix(20_000), 20)[19_999], 1e-9);
+    }
+}
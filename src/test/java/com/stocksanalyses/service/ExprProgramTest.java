@@ -0,0 +1,125 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.expr.ExprProgram;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExprProgramTest {
+    private static CandleSeries series(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[] ts = new long[n], vol = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            o[i] = p;
+            p = Math.max(1, p + rnd.nextGaussian());
+            c[i] = p;
+            h[i] = Math.max(o[i], c[i]) + rnd.nextDouble();
+            l[i] = Math.min(o[i], c[i]) - rnd.nextDouble();
+            ts[i] = 86_400_000L * i;
+            vol[i] = 1000 + rnd.nextInt(500);
+        }
+        return CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
+    @Test
+    void matchesKernelsAndHandWrittenLogic() {
+        CandleSeries s = series(300, 1);
+        double[] close = s.closes();
+        double[] rsi = IndicatorKernels.rsi(close, 14), sma20 = IndicatorKernels.sma(close, 20), sma50 = IndicatorKernels.sma(close, 50);
+        double[] atr = IndicatorKernels.atr(IndicatorKernels.highs(s), IndicatorKernels.lows(s), close, 14);
+        double[][] macd = IndicatorKernels.macd(close, 12, 26, 9);
+
+        ExprProgram p = ExprProgram.compile(List.of(
+                "RSI(14)",
+                "rsi(close, 14) < 30 or RSI(14) > 70",
+                "cross_above(SMA(20), SMA(close, 50))",
+                "(close - SMA(20)) / ATR(14)",
+                "MACD_HIST(12, 26, 9) > 0 and not (volume < 1200)",
+                "CHANGE_PCT(close, 1)",
+                "-2 * 3 + 10 >= 4"));
+        double[][] cols = p.evaluate(s);
+        for (int i = 0; i < s.size(); i++) {
+            if (i < 14) assertTrue(Double.isNaN(cols[0][i]), "rsi warm-up at " + i);
+            else assertEquals(rsi[i], cols[0][i], 1e-12);
+            assertEquals(i >= 14 && (rsi[i] < 30 || rsi[i] > 70) ? 1 : 0, cols[1][i]);
+            boolean cross = i > 49 && sma20[i - 1] <= sma50[i - 1] && sma20[i] > sma50[i];
+            assertEquals(cross ? 1 : 0, cols[2][i]);
+            if (i < 19) assertTrue(Double.isNaN(cols[3][i]));
+            else assertEquals((close[i] - sma20[i]) / atr[i], cols[3][i], 1e-9);
+            assertEquals(i >= 33 && macd[2][i] > 0 && s.volume(i) >= 1200 ? 1 : 0, cols[4][i]);
+            if (i == 0) assertTrue(Double.isNaN(cols[5][i]));
+            else assertEquals((close[i] - close[i - 1]) / close[i - 1] * 100, cols[5][i], 1e-9);
+            assertEquals(1, cols[6][i]);
+        }
+        double[] last = p.lastValues(s);
+        for (int k = 0; k < p.size(); k++) assertEquals(cols[k][s.size() - 1], last[k]);
+    }
+
+    @Test
+    void sharesSubexpressionsAcrossRules() {
+        ExprProgram one = ExprProgram.compile("RSI(14) < 30");
+        assertEquals(4, one.nodeCount()); // close, RSI, 30, <
+        ExprProgram many = ExprProgram.compile(List.of(
+                "RSI(14) < 30", "RSI(close,14) > 70", "rsi(14) < 30", "SMA(20) + close > 5", "close + sma(close, 20) > 5"));
+        // close, RSI, 30, <, 70, >, SMA, +, 5, > : identical and commuted subtrees collapse
+        assertEquals(10, many.nodeCount());
+        assertEquals(5, many.size());
+    }
+
+    @Test
+    void rejectsMalformedExpressions() {
+        for (String bad : List.of("", "RSI(14) <", "FOO(3)", "price > 3", "SMA(close, close)", "SMA(0)", "RSI(14", "1 2",
+                "MACD_SIGNAL(12, 26)", "SMA(2.5)")) {
+            assertThrows(IllegalArgumentException.class, () -> ExprProgram.compile(bad), bad);
+        }
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ExprProgram.compile(List.of("close > 1", "close >")));
+        assertTrue(e.getMessage().startsWith("expression 1"));
+    }
+
+    @Test
+    void warmUpIsNaNAndNeverFires() {
+        // three bars falling hard: unwarmed RSI would read 0 and fire
+        CandleSeries s = CandleSeries.wrap(new long[]{0, 1, 2}, new double[]{100, 90, 80}, new double[]{100, 90, 80},
+                new double[]{90, 80, 70}, new double[]{90, 80, 70}, new long[3]);
+        ExprProgram p = ExprProgram.compile(List.of("RSI(14) < 30", "close < SMA(5)", "EMA(3) > 0"));
+        double[][] cols = p.evaluate(s);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, cols[0][i]);
+            assertEquals(0, cols[1][i]);
+        }
+        assertEquals(List.of(0.0, 0.0, 1.0), Arrays.stream(cols[2]).boxed().toList());
+        assertFalse(ExprProgram.truth(p.lastValues(s)[0]));
+    }
+
+    @Test
+    void nestedIndicatorsWarmUpInTurn() {
+        CandleSeries s = series(120, 4);
+        double[] rsi = IndicatorKernels.rsi(s.closes(), 14);
+        double[] smoothed = IndicatorKernels.sma(Arrays.copyOfRange(rsi, 14, rsi.length), 5);
+        double[] col = ExprProgram.compile("SMA(RSI(14), 5)").evaluate(s)[0];
+        for (int i = 0; i < 18; i++) assertTrue(Double.isNaN(col[i]), "warm-up at " + i);
+        for (int i = 18; i < s.size(); i++) assertEquals(smoothed[i - 14], col[i], 1e-12);
+    }
+
+    @Test
+    void thousandsOfRulesShareNodesAndMatchSeparateCompiles() {
+        CandleSeries s = series(250, 2);
+        Random rnd = new Random(3);
+        String[] templates = { "RSI(%d) < %d", "close > SMA(%d) and RSI(14) > %d", "CROSS_ABOVE(EMA(%d), SMA(50)) or CHANGE_PCT(close, 1) > %d",
+                "(close - LOWEST(%d)) / ATR(14) > %d" };
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            rules.add(String.format(templates[i % templates.length], 5 + rnd.nextInt(30), 1 + rnd.nextInt(80)));
+        ExprProgram p = ExprProgram.compile(rules);
+        assertTrue(p.nodeCount() < rules.size() * 4);
+        double[] last = p.lastValues(s);
+        for (int i = 0; i < rules.size(); i += 37)
+            assertEquals(ExprProgram.compile(rules.get(i)).lastValues(s)[0], last[i], 0.0, rules.get(i));
+    }
+}
@@ -0,0 +1,183 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.marketdata.HotCandleCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotCandleCacheTest {
+    private static final long DAY = 86_400_000L;
+    private static final Instant T0 = Instant.parse("2020-01-01T00:00:00Z");
+
+    /** Daily bars at midnight for any range; records each requested range. */
+    private static final class FakeProvider implements HotCandleCache.RangeLoader {
+        final List<long[]> calls = new ArrayList<>();
+        long bars;
+        long lastBar = Long.MAX_VALUE; // a lagging provider has nothing after this yet
+
+        @Override
+        public List<Candle> load(Instant start, Instant end) {
+            calls.add(new long[]{start.toEpochMilli(), end.toEpochMilli()});
+            List<Candle> out = new ArrayList<>();
+            long first = Math.floorDiv(start.toEpochMilli() + DAY - 1, DAY) * DAY;
+            for (long t = first; t <= Math.min(end.toEpochMilli(), lastBar); t += DAY) {
+                BigDecimal p = BigDecimal.valueOf(t / DAY % 1000);
+                out.add(new Candle(Instant.ofEpochMilli(t), p, p, p, p, t / DAY));
+            }
+            bars += out.size();
+            return out;
+        }
+    }
+
+    private static final long HOUR = 3_600_000L;
+
+    private final AtomicLong now = new AtomicLong(day(2000).toEpochMilli());
+
+    private static Instant day(int d) { return T0.plusMillis(d * DAY); }
+
+    private HotCandleCache cache(long maxBytes) {
+        return new HotCandleCache(new SimpleMeterRegistry(), true, maxBytes, HOUR, now::get);
+    }
+
+    private static void assertDays(CandleSeries s, int from, int to) {
+        assertEquals(to - from + 1, s.size());
+        for (int i = 0; i < s.size(); i++) assertEquals(day(from + i).toEpochMilli(), s.timestamp(i));
+    }
+
+    @Test
+    void coveredSubRangeIsServedFromCacheWithoutCopying() {
+        HotCandleCache cache = cache(1 << 20);
+        FakeProvider p = new FakeProvider();
+        CandleSeries full = cache.get("AAA", "1d", AdjustType.NONE, day(0), day(99), p);
+        assertDays(full, 0, 99);
+        CandleSeries sub = cache.get("AAA", "1d", AdjustType.NONE, day(10), day(20), p);
+        assertDays(sub, 10, 20);
+        assertEquals(1, p.calls.size());
+        assertSame(full.timestampArray(), sub.timestampArray());
+        assertEquals(0.5, cache.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void onlyMissingEdgesAreFetchedAndSegmentsMerge() {
+        HotCandleCache cache = cache(1 << 20);
+        FakeProvider p = new FakeProvider();
+        cache.get("AAA", "1d", AdjustType.NONE, day(10), day(19), p);
+        cache.get("AAA", "1d", AdjustType.NONE, day(30), day(39), p);
+        p.calls.clear();
+        p.bars = 0;
+
+        CandleSeries all = cache.get("AAA", "1d", AdjustType.NONE, day(5), day(44), p);
+        assertDays(all, 5, 44);
+        // three gaps: [5, 10), (19, 30), (39, 44]
+        assertEquals(3, p.calls.size());
+        assertEquals(20, p.bars);
+        assertEquals(day(19).toEpochMilli() + 1, p.calls.get(1)[0]);
+        assertEquals(day(30).toEpochMilli() - 1, p.calls.get(1)[1]);
+
+        // the merged segment now answers any range inside it
+        cache.get("AAA", "1d", AdjustType.NONE, day(8), day(41), p);
+        assertEquals(3, p.calls.size());
+        assertEquals(1, cache.entryCount());
+        assertEquals((long) 40 * CandleSeries.BYTES_PER_CANDLE, cache.bytes());
+    }
+
+    @Test
+    void keysAreSeparatedByIntervalAndAdjustment() {
+        HotCandleCache cache = cache(1 << 20);
+        FakeProvider p = new FakeProvider();
+        cache.get("AAA", "1d", AdjustType.NONE, day(0), day(9), p);
+        cache.get("AAA", "1d", AdjustType.FORWARD, day(0), day(9), p);
+        cache.get("AAA", "1h", AdjustType.NONE, day(0), day(9), p);
+        assertEquals(3, p.calls.size());
+        assertEquals(3, cache.entryCount());
+        cache.invalidate("AAA");
+        assertEquals(0, cache.entryCount());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void recentEdgeIsRefetchedUntilItSettles() {
+        HotCandleCache cache = cache(1 << 20);
+        FakeProvider p = new FakeProvider();
+        now.set(day(30).toEpochMilli() + 12 * HOUR);
+        long settled = now.get() - DAY - HOUR;
+        cache.get("AAA", "1d", AdjustType.NONE, day(0), Instant.ofEpochMilli(now.get()), p);
+        assertDays(cache.get("AAA", "1d", AdjustType.NONE, day(0), Instant.ofEpochMilli(now.get()), p), 0, 30);
+        assertEquals(2, p.calls.size());
+        assertEquals(settled + 1, p.calls.get(1)[0], "only the unsettled edge is reloaded");
+
+        // two days on, the day-30 bar has settled: reloaded once more, then served from cache
+        now.addAndGet(2 * DAY);
+        cache.get("AAA", "1d", AdjustType.NONE, day(0), day(30), p);
+        assertEquals(3, p.calls.size());
+        assertEquals(settled + 1, p.calls.get(2)[0]);
+        assertDays(cache.get("AAA", "1d", AdjustType.NONE, day(5), day(30), p), 5, 30);
+        assertEquals(3, p.calls.size());
+    }
+
+    @Test
+    void recentBarsAProviderHasNotDeliveredAreNotCachedAsMissing() {
+        HotCandleCache cache = cache(1 << 20);
+        FakeProvider p = new FakeProvider();
+        now.set(day(30).toEpochMilli() + 12 * HOUR);
+        p.lastBar = day(26).toEpochMilli();
+
+        // an empty answer for the recent edge caches nothing
+        assertTrue(cache.get("AAA", "1d", AdjustType.NONE, day(28), Instant.ofEpochMilli(now.get()), p).isEmpty());
+        assertEquals(0, cache.bytes());
+        cache.get("AAA", "1d", AdjustType.NONE, day(28), Instant.ofEpochMilli(now.get()), p);
+        assertEquals(2, p.calls.size());
+        assertEquals(day(28).toEpochMilli(), p.calls.get(1)[0]);
+
+        // a partial one covers up to its last bar; once the provider catches up the rest arrives
+        cache.get("BBB", "1d", AdjustType.NONE, day(0), Instant.ofEpochMilli(now.get()), p);
+        p.lastBar = Long.MAX_VALUE;
+        assertDays(cache.get("BBB", "1d", AdjustType.NONE, day(0), day(29), p), 0, 29);
+        assertEquals(4, p.calls.size());
+        assertEquals(day(26).toEpochMilli() + 1, p.calls.get(3)[0]);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvictedOverByteBudget() {
+        long perEntry = 100L * CandleSeries.BYTES_PER_CANDLE;
+        HotCandleCache cache = cache(3 * perEntry);
+        FakeProvider p = new FakeProvider();
+        for (String s : List.of("A", "B", "C")) cache.get(s, "1d", AdjustType.NONE, day(0), day(99), p);
+        cache.get("A", "1d", AdjustType.NONE, day(0), day(9), p); // touch A
+        cache.get("D", "1d", AdjustType.NONE, day(0), day(99), p);
+        assertEquals(3, cache.entryCount());
+        assertEquals(3 * perEntry, cache.bytes());
+        assertEquals(1L, cache.stats().get("evictions"));
+
+        int before = p.calls.size();
+        cache.get("A", "1d", AdjustType.NONE, day(0), day(99), p);
+        assertEquals(before, p.calls.size());
+        cache.get("B", "1d", AdjustType.NONE, day(0), day(99), p);
+        assertEquals(before + 1, p.calls.size());
+    }
+
+    @Test
+    void warmRangeQueriesAreServedWithoutLoads() {
+        HotCandleCache cache = cache(256L << 20);
+        FakeProvider p = new FakeProvider();
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < 200; i++) symbols.add("S" + i);
+        for (String s : symbols) cache.get(s, "1d", AdjustType.NONE, day(0), day(999), p);
+        int loads = p.calls.size();
+        for (int r = 0; r < 50; r++) {
+            for (String s : symbols) assertDays(cache.get(s, "1d", AdjustType.NONE, day(r), day(r + 500), p), r, r + 500);
+        }
+        assertEquals(loads, p.calls.size());
+        assertEquals(1.0 * 200 * 50 / (200 * 51), cache.hitRatio(), 1e-9);
+    }
+}
@@ -0,0 +1,85 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.model.StrategyConfig;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalStrategyEvaluatorTest {
+    private final StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+
+    private List<Candle> risingSeries() {
+        List<Candle> candles = new ArrayList<>();
+        Instant base = Instant.now().minusSeconds(86400L*120);
+        BigDecimal price = new BigDecimal("100");
+        for (int i=0;i<120;i++){
+            price = price.add(new BigDecimal("0.5"));
+            candles.add(new Candle(base.plusSeconds(86400L*i), price, price.add(new BigDecimal("0.5")), price.subtract(new BigDecimal("0.5")), price, 1000));
+        }
+        return candles;
+    }
+
+    private List<Candle> choppySeries() {
+        List<Candle> candles = new ArrayList<>();
+        Instant base = Instant.now().minusSeconds(86400L*300);
+        Random rnd = new Random(42);
+        double px = 100;
+        for (int i=0;i<300;i++){
+            double open = px;
+            double close = Math.max(1, open + Math.sin(i / 7.0) * 2 + (rnd.nextDouble() - 0.5) * 3);
+            double high = Math.max(open, close) + rnd.nextDouble() * 2;
+            double low = Math.min(open, close) - rnd.nextDouble() * 2;
+            candles.add(new Candle(base.plusSeconds(86400L*i), bd(open), bd(high), bd(low), bd(close), 1000 + i));
+            px = close;
+        }
+        return candles;
+    }
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private void assertMatchesFullRecompute(List<Candle> candles, StrategyConfig cfg) {
+        IncrementalStrategyEvaluator ev = engine.newEvaluator("T", cfg);
+        for (int i=0;i<candles.size();i++){
+            List<Signal> inc = ev.onBar(candles.get(i));
+            List<Signal> full = engine.generateSignals("T", candles.subList(0, i+1), cfg);
+            assertEquals(full.size(), inc.size(), "bar " + i);
+            for (int k=0;k<full.size();k++){
+                Signal a = full.get(k), b = inc.get(k);
+                assertEquals(a.getType(), b.getType(), "bar " + i);
+                assertEquals(a.getTimestamp(), b.getTimestamp());
+                assertEquals(a.getStrength(), b.getStrength(), 1e-9, "bar " + i);
+                assertEquals(a.getRulesFired().stream().filter(r -> !r.startsWith("risk:") && !r.startsWith("pos:")).toList(),
+                        b.getRulesFired().stream().filter(r -> !r.startsWith("risk:") && !r.startsWith("pos:")).toList());
+            }
+        }
+    }
+
+    @Test
+    void matchesGenerateSignalsOnRisingSeries() {
+        assertMatchesFullRecompute(risingSeries(), new StrategyConfig("ema-macd", Map.of()));
+    }
+
+    @Test
+    void matchesGenerateSignalsOnChoppySeries() {
+        assertMatchesFullRecompute(choppySeries(), new StrategyConfig("ema-macd", Map.of("emaShort", 5, "emaLong", 12, "minPatternScore", 0.0)));
+    }
+
+    @Test
+    void indicatorStateTracksTa4j() {
+        List<Candle> candles = choppySeries();
+        IndicatorService ind = new IndicatorService();
+        IncrementalStrategyEvaluator ev = engine.newEvaluator("T", new StrategyConfig("ema-macd", Map.of()));
+        candles.forEach(ev::onBar);
+        assertEquals(ind.emaClose(candles, 20)[0], ev.emaShort(), 1e-9);
+        assertEquals(ind.emaClose(candles, 50)[0], ev.emaLong(), 1e-9);
+        double[] macd = ind.macd(candles, 12, 26, 9);
+        assertEquals(macd[0], ev.macd(), 1e-9);
+        assertEquals(macd[1], ev.macdSignal(), 1e-9);
+    }
+}
@@ -0,0 +1,104 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndicatorCacheTest {
+    private static final double EPS = 1e-9;
+
+    private static List<Candle> candles(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Candle> out = new ArrayList<>();
+        Instant t = Instant.parse("2020-01-01T00:00:00Z");
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            p = Math.max(1, p + rnd.nextGaussian());
+            BigDecimal c = BigDecimal.valueOf(Math.round(p * 100) / 100.0);
+            out.add(new Candle(t.plusSeconds(86400L * i), c, c.add(BigDecimal.ONE), c.subtract(BigDecimal.ONE), c, 1000));
+        }
+        return out;
+    }
+
+    @Test
+    void appendedBarsExtendStateAndMatchTa4j() {
+        IndicatorService ind = new IndicatorService();
+        List<Candle> all = candles(300, 1);
+        for (int n = 60; n <= 300; n++) {
+            List<Candle> prefix = all.subList(0, n);
+            assertEquals(ind.emaClose(prefix, 20)[0], ind.emaClose("X", "1d", prefix, 20)[0], EPS);
+            double[] ref = ind.macd(prefix, 12, 26, 9), got = ind.macd("X", "1d", prefix, 12, 26, 9);
+            assertEquals(ref[0], got[0], EPS);
+            assertEquals(ref[1], got[1], EPS);
+        }
+        Map<String, Object> stats = ind.cacheStats();
+        assertEquals(2L, stats.get("rebuilt"));
+        assertEquals(2L * 240, stats.get("extended"));
+        assertEquals(2L * 300, stats.get("barsFolded"));
+    }
+
+    @Test
+    void repeatedCallIsHitAndRevisedLastBarIsRefolded() {
+        IndicatorService ind = new IndicatorService();
+        List<Candle> list = new ArrayList<>(candles(100, 2));
+        double first = ind.emaClose("X", "1d", list, 10)[0];
+        assertEquals(first, ind.emaClose("X", "1d", list, 10)[0], 0.0);
+        assertEquals(1L, ind.cacheStats().get("hits"));
+
+        Candle last = list.get(99);
+        BigDecimal revised = last.getClose().add(new BigDecimal("3"));
+        list.set(99, new Candle(last.getTimestamp(), last.getOpen(), last.getHigh().add(new BigDecimal("3")), last.getLow(), revised, 1500));
+        assertEquals(ind.emaClose(list, 10)[0], ind.emaClose("X", "1d", list, 10)[0], EPS);
+        assertEquals(1L, ind.cacheStats().get("rebuilt"));
+    }
+
+    @Test
+    void rolledWindowAndInvalidateRebuild() {
+        IndicatorService ind = new IndicatorService();
+        List<Candle> all = candles(200, 3);
+        ind.macd("X", "1d", all.subList(0, 150), 12, 26, 9);
+        List<Candle> rolled = all.subList(1, 151);
+        double[] ref = ind.macd(rolled, 12, 26, 9), got = ind.macd("X", "1d", rolled, 12, 26, 9);
+        assertEquals(ref[1], got[1], EPS);
+        assertEquals(2L, ind.cacheStats().get("rebuilt"));
+
+        ind.invalidate("X");
+        assertEquals(0, ind.cacheStats().get("entries"));
+    }
+
+    @Test
+    void entriesAreLruBounded() {
+        IndicatorService ind = new IndicatorService(3);
+        List<Candle> list = candles(60, 4);
+        for (int p = 2; p < 10; p++) ind.emaClose("X", "1d", list, p);
+        assertEquals(3, ind.cacheStats().get("entries"));
+        // symbols and intervals are separate entries
+        ind.emaClose("Y", "1d", list, 5);
+        ind.emaClose("Y", "1h", list, 5);
+        assertEquals(3, ind.cacheStats().get("entries"));
+    }
+
+    @Test
+    void differentSeriesUnderOneKeyRebuilds() {
+        IndicatorService ind = new IndicatorService();
+        List<Candle> a = candles(120, 5);
+        ind.emaClose("UPLOAD", "1d", a, 10);
+
+        // same first and last bar, different history in between: must not resume from a's state
+        List<Candle> b = new ArrayList<>(candles(120, 6));
+        b.set(0, a.get(0));
+        b.set(119, a.get(119));
+        assertEquals(ind.emaClose(b, 10)[0], ind.emaClose("UPLOAD", "1d", b, 10)[0], EPS);
+        assertEquals(2L, ind.cacheStats().get("rebuilt"));
+
+        List<Candle> longer = new ArrayList<>(b);
+        longer.addAll(candles(121, 6).subList(120, 121));
+        assertEquals(ind.emaClose(longer, 10)[0], ind.emaClose("UPLOAD", "1d", longer, 10)[0], EPS);
+        assertEquals(1L, ind.cacheStats().get("extended"));
+    }
+}
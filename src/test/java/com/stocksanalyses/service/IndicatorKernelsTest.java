@@ -0,0 +1,139 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.*;
+import org.ta4j.core.indicators.bollinger.BollingerBandsLowerIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsMiddleIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsUpperIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.indicators.volume.VWAPIndicator;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndicatorKernelsTest {
+    private final IndicatorService ind = new IndicatorService();
+
+    private static List<Candle> candles(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Candle> out = new ArrayList<>(n);
+        Instant t = Instant.parse("2015-01-01T00:00:00Z");
+        double p = 50;
+        for (int i = 0; i < n; i++) {
+            double o = p;
+            p = Math.max(1, p * (1 + rnd.nextGaussian() * 0.02));
+            double h = Math.max(o, p) * (1 + rnd.nextDouble() * 0.01), l = Math.min(o, p) * (1 - rnd.nextDouble() * 0.01);
+            out.add(new Candle(t.plusSeconds(86400L * i), bd(o), bd(h), bd(l), bd(p), 1000 + rnd.nextInt(100_000)));
+        }
+        return out;
+    }
+
+    private static BigDecimal bd(double v) { return BigDecimal.valueOf(Math.round(v * 10_000) / 10_000.0); }
+
+    private static void assertMatches(String what, Indicator<Num> ref, double[] got) {
+        for (int i = 0; i < got.length; i++) {
+            double r = ref.getValue(i).doubleValue();
+            double tol = IndicatorKernels.TOLERANCE * Math.max(1, Math.abs(r));
+            assertEquals(r, got[i], tol, what + " at " + i);
+        }
+    }
+
+    @Test
+    void kernelsMatchTa4j() {
+        List<Candle> list = candles(1500, 7);
+        CandleSeries s = CandleSeries.of(list);
+        BarSeries bs = ind.toSeries(list);
+        ClosePriceIndicator close = new ClosePriceIndicator(bs);
+        double[] c = s.closes(), h = IndicatorKernels.highs(s), l = IndicatorKernels.lows(s);
+
+        assertMatches("ema", new EMAIndicator(close, 20), IndicatorKernels.ema(c, 20));
+        assertMatches("sma", new SMAIndicator(close, 20), IndicatorKernels.sma(c, 20));
+        assertMatches("rsi", new RSIIndicator(close, 14), IndicatorKernels.rsi(c, 14));
+        assertMatches("atr", new ATRIndicator(bs, 14), IndicatorKernels.atr(h, l, c, 14));
+        assertMatches("vwap", new VWAPIndicator(bs, 20), IndicatorKernels.vwap(h, l, c, IndicatorKernels.volumes(s), 20));
+
+        MACDIndicator macd = new MACDIndicator(close, 12, 26);
+        double[][] m = IndicatorKernels.macd(c, 12, 26, 9);
+        assertMatches("macd", macd, m[0]);
+        assertMatches("macd signal", new EMAIndicator(macd, 9), m[1]);
+
+        BollingerBandsMiddleIndicator mid = new BollingerBandsMiddleIndicator(new SMAIndicator(close, 20));
+        StandardDeviationIndicator sd = new StandardDeviationIndicator(close, 20);
+        double[][] bb = IndicatorKernels.bollinger(c, 20, 2.0);
+        assertMatches("bb middle", mid, bb[0]);
+        assertMatches("bb upper", new BollingerBandsUpperIndicator(mid, sd, bs.numOf(2)), bb[1]);
+        assertMatches("bb lower", new BollingerBandsLowerIndicator(mid, sd, bs.numOf(2)), bb[2]);
+
+        StochasticOscillatorKIndicator k = new StochasticOscillatorKIndicator(bs, 14);
+        double[][] st = IndicatorKernels.stochastic(h, l, c, 14, 3);
+        assertMatches("stoch k", k, st[0]);
+        assertMatches("stoch d", new StochasticOscillatorDIndicator(k), st[1]);
+    }
+
+    @Test
+    void rollingExtremesMatchBruteForce() {
+        Random rnd = new Random(3);
+        double[] x = new double[500];
+        for (int i = 0; i < x.length; i++) x[i] = rnd.nextInt(20); // many ties
+        double[] max = IndicatorKernels.rollingMax(x, 7), min = IndicatorKernels.rollingMin(x, 7);
+        for (int i = 0; i < x.length; i++) {
+            double hi = Double.NEGATIVE_INFINITY, lo = Double.POSITIVE_INFINITY;
+            for (int j = Math.max(0, i - 6); j <= i; j++) { hi = Math.max(hi, x[j]); lo = Math.min(lo, x[j]); }
+            assertEquals(hi, max[i], 0.0);
+            assertEquals(lo, min[i], 0.0);
+        }
+    }
+
+    @Test
+    void seriesEndpointShapesAndRejectsBadSpecs() {
+        CandleSeries s = CandleSeries.of(candles(100, 1));
+        Map<String, Object> out = ind.series(s, List.of("ema:10", "macd:12:26:9", "bb:20:2.5", "stoch"));
+        assertEquals(100, ((double[]) out.get("ema:10")).length);
+        assertEquals(Set.of("macd", "signal", "histogram"), ((Map<?, ?>) out.get("macd:12:26:9")).keySet());
+        assertEquals(Set.of("k", "d"), ((Map<?, ?>) out.get("stoch")).keySet());
+        assertThrows(IllegalArgumentException.class, () -> ind.series(s, List.of("foo:3")));
+        assertThrows(IllegalArgumentException.class, () -> ind.series(s, List.of("ema:x")));
+        assertThrows(IllegalArgumentException.class, () -> ind.series(s, List.of("sma:0")));
+    }
+
+    @Test
+    void flatBarMakesStochasticNaNOnlyWhileInTheWindow() {
+        double[] h = {10, 11, 12, 12, 13, 14, 15, 16}, l = {9, 10, 11, 12, 12, 13, 14, 15}, c = {9.5, 10.5, 11.5, 12, 12.5, 13.5, 14.5, 15.5};
+        double[][] st = IndicatorKernels.stochastic(h, l, c, 1, 3);
+        assertTrue(Double.isNaN(st[0][3])); // high == low
+        assertEquals(50.0, st[0][4], 1e-12);
+        assertEquals(50.0, st[1][2], 1e-12);
+        for (int i = 3; i <= 5; i++) assertTrue(Double.isNaN(st[1][i]), "d at " + i);
+        assertEquals(50.0, st[1][6], 1e-12);
+        assertEquals(50.0, st[1][7], 1e-12);
+
+        // the same shape through ta4j over a 2-bar window: a flat bar followed by recovery
+        List<Candle> list = new ArrayList<>(candles(60, 9));
+        for (int i = 30; i < 33; i++) {
+            Candle p = list.get(29);
+            list.set(i, new Candle(list.get(i).getTimestamp(), p.getClose(), p.getClose(), p.getClose(), p.getClose(), 1000));
+        }
+        CandleSeries s = CandleSeries.of(list);
+        BarSeries bs = ind.toSeries(list);
+        StochasticOscillatorKIndicator k = new StochasticOscillatorKIndicator(bs, 2);
+        StochasticOscillatorDIndicator d = new StochasticOscillatorDIndicator(k);
+        double[][] got = IndicatorKernels.stochastic(IndicatorKernels.highs(s), IndicatorKernels.lows(s), s.closes(), 2, 3);
+        for (int i = 0; i < list.size(); i++) {
+            double ref = d.getValue(i).doubleValue();
+            if (Double.isNaN(ref)) assertTrue(Double.isNaN(got[1][i]), "d at " + i);
+            else assertEquals(ref, got[1][i], IndicatorKernels.TOLERANCE * Math.max(1, Math.abs(ref)), "d at " + i);
+        }
+        assertTrue(Double.isNaN(got[1][32]));
+        assertTrue(Double.isFinite(got[1][list.size() - 1]));
+    }
+}
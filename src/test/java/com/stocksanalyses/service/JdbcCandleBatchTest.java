@@ -0,0 +1,157 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import com.stocksanalyses.service.marketdata.ClickHouseProvider;
+import com.stocksanalyses.service.marketdata.DataQualityService;
+import com.stocksanalyses.service.marketdata.EnhancedCandleService;
+import com.stocksanalyses.service.marketdata.HotCandleCache;
+import com.stocksanalyses.service.marketdata.ProviderCallExecutor;
+import com.stocksanalyses.service.marketdata.ReconciliationService;
+import com.stocksanalyses.service.marketdata.TimescaleDBProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcCandleBatchTest {
+    private static final int SYMBOLS = 500, BARS = 250;
+    private static final CacheRegistry CACHES = new CacheRegistry(new SimpleMeterRegistry(), new StandardEnvironment(), 1);
+    private static final Instant T0 = Instant.parse("2020-01-01T00:00:00Z");
+    private static final Instant T1 = T0.plusSeconds(86_400L * (BARS - 1));
+
+    private static final AtomicInteger queries = new AtomicInteger();
+    private static JdbcTemplate jdbc;
+    private static List<String> symbols;
+
+    /** Counts statements prepared on every connection handed out. */
+    private static final class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DriverManagerDataSource target) { super(target); }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection con = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (p, m, args) -> {
+                if (m.getName().equals("prepareStatement")) queries.incrementAndGet();
+                try { return m.invoke(con, args); }
+                catch (java.lang.reflect.InvocationTargetException e) { throw e.getCause(); }
+            });
+        }
+    }
+
+    @BeforeAll
+    static void createTable() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1;NON_KEYWORDS=INTERVAL,VALUE", "sa", "");
+        jdbc = new JdbcTemplate(new CountingDataSource(ds));
+        jdbc.execute("""
+            CREATE TABLE candles (symbol VARCHAR(16), interval VARCHAR(8), timestamp TIMESTAMP,
+                open DECIMAL(18,4), high DECIMAL(18,4), low DECIMAL(18,4), close DECIMAL(18,4), volume BIGINT,
+                PRIMARY KEY (symbol, interval, timestamp))""");
+        jdbc.execute("""
+            INSERT INTO candles
+            SELECT 'S' || (X / %1$d), '1d', DATEADD('DAY', MOD(X, %1$d), TIMESTAMP '2020-01-01 00:00:00'),
+                10 + MOD(X, 97) / 10.0, 11 + MOD(X, 97) / 10.0, 9 + MOD(X, 97) / 10.0, 10.5 + MOD(X, 97) / 10.0, X
+            FROM SYSTEM_RANGE(0, %2$d)""".formatted(BARS, SYMBOLS * BARS - 1));
+        symbols = new ArrayList<>();
+        for (int i = 0; i < SYMBOLS; i++) symbols.add("S" + i);
+    }
+
+    private static TimescaleDBProvider timescale(int targetRows) {
+        return new TimescaleDBProvider(jdbc, null, "candles", 10_000, targetRows, CACHES);
+    }
+
+    @Test
+    void batchMatchesPerSymbolReadsInAHandfulOfQueries() {
+        TimescaleDBProvider ts = timescale(200_000);
+        queries.set(0);
+        Map<String, List<Candle>> batch = ts.getCandlesBatch(symbols, "1d", T0, T1, AdjustType.NONE);
+        int batchQueries = queries.getAndSet(0);
+
+        for (String s : symbols) {
+            List<Candle> one = ts.getCandles(s, "1d", T0, T1, AdjustType.NONE);
+            List<Candle> got = batch.get(s);
+            assertEquals(one.size(), got.size(), s);
+            for (int i = 0; i < one.size(); i++) {
+                assertEquals(one.get(i).getTimestamp(), got.get(i).getTimestamp());
+                assertEquals(one.get(i).getClose(), got.get(i).getClose());
+            }
+        }
+        assertEquals(SYMBOLS, batch.size());
+        assertEquals(SYMBOLS, queries.get());
+        assertTrue(batchQueries <= 3, batchQueries + " queries");
+    }
+
+    @Test
+    void chunksShrinkToTheTargetResponseVolume() {
+        ClickHouseProvider ch = new ClickHouseProvider(jdbc, null, "candles", 10_000, 5_000, CACHES);
+        queries.set(0);
+        Map<String, CandleSeries> batch = ch.getSeriesBatch(symbols, "1d", T0, T1, AdjustType.NONE);
+        // a first chunk of 64 symbols, then 5000 / 250 = 20 symbols per query for the remaining 436
+        assertEquals(1 + 22, queries.get());
+        assertEquals(SYMBOLS, batch.size());
+        for (CandleSeries s : batch.values()) assertEquals(BARS, s.size());
+        assertEquals(T0.toEpochMilli(), batch.get("S7").timestamp(0));
+        assertEquals(7L * BARS + BARS - 1, batch.get("S7").volume(BARS - 1));
+    }
+
+    @Test
+    void serviceBatchesReadThroughTheProviderOnceThenServeFromTheHotCache() {
+        TimescaleDBProvider ts = timescale(200_000);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        DataQualityService quality = new DataQualityService(CACHES);
+        ProviderCallExecutor calls = new ProviderCallExecutor(meters, 2, 16, 3000, 250, 10);
+        ReconciliationService reconciliation = new ReconciliationService(List.of(ts), quality, calls, "timescale", 0.01, CACHES);
+        HotCandleCache cache = new HotCandleCache(meters, true, 256L << 20, 0, System::currentTimeMillis);
+        EnhancedCandleService service = new EnhancedCandleService(List.of(ts), reconciliation, quality, cache, "timescale", true);
+
+        List<String> firstHalf = symbols.subList(0, SYMBOLS / 2);
+        queries.set(0);
+        Map<String, List<Candle>> batch = service.getCandlesBatch(firstHalf, "1d", T0, T1, AdjustType.NONE);
+        assertEquals(SYMBOLS / 2, batch.size());
+        assertTrue(queries.get() <= 2, queries.get() + " queries");
+        assertEquals(0, ts.getCandles("S42", "1d", T0, T1, AdjustType.NONE).get(BARS - 1).getClose()
+                .compareTo(batch.get("S42").get(BARS - 1).getClose()));
+
+        // cached symbols are not read again; only the rest go to the provider, still batched
+        queries.set(0);
+        Map<String, CandleSeries> all = service.getSeriesBatch(symbols, "1d", T0, T1, AdjustType.NONE);
+        assertEquals(SYMBOLS, all.size());
+        assertTrue(queries.get() <= 2, queries.get() + " queries");
+        for (CandleSeries s : all.values()) assertEquals(BARS, s.size());
+        assertEquals(T0.toEpochMilli(), all.get("S499").timestamp(0));
+
+        queries.set(0);
+        service.getSeriesBatch(symbols.subList(100, 400), "1d", T0.plusSeconds(86_400L * 10), T1, AdjustType.NONE);
+        assertEquals(0, queries.get());
+        assertEquals(SYMBOLS, cache.entryCount());
+        calls.shutdown();
+    }
+
+    @Test
+    void unknownAndRepeatedSymbolsAreHandled() {
+        TimescaleDBProvider ts = timescale(200_000);
+        queries.set(0);
+        Map<String, CandleSeries> batch = ts.getSeriesBatch(List.of("S1", "NOPE", "S1", "S2"), "1d", T0, T1, AdjustType.NONE);
+        assertEquals(1, queries.get());
+        assertEquals(3, batch.size());
+        assertTrue(batch.get("NOPE").isEmpty());
+        assertEquals(BARS, batch.get("S1").size());
+        assertTrue(ts.getCandlesBatch(List.of(), "1d", T0, T1, AdjustType.NONE).isEmpty());
+    }
+}
@@ -0,0 +1,139 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import com.stocksanalyses.service.marketdata.ClickHouseProvider;
+import com.stocksanalyses.service.marketdata.TimescaleDBProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Range reads against a file-backed H2 database standing in for the candle stores. H2 runs with lazy query execution,
+ * so like a server-side cursor it produces rows as they are fetched.
+ */
+public class JdbcCandleStreamingTest {
+    private static final int ROWS = 2_000_000;
+    private static final CacheRegistry CACHES = new CacheRegistry(new SimpleMeterRegistry(), new StandardEnvironment(), 1);
+    private static final Instant T0 = Instant.parse("2020-01-01T00:00:00Z");
+    private static final long MINUTE = 60_000L;
+
+    private static Path dir;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void createTable() throws IOException {
+        dir = Files.createTempDirectory("candles-h2");
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                "jdbc:h2:file:" + dir.resolve("db") + ";LAZY_QUERY_EXECUTION=1;CACHE_SIZE=8192;NON_KEYWORDS=INTERVAL,VALUE", "sa", "");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("""
+            CREATE TABLE candles (symbol VARCHAR(16), interval VARCHAR(8), timestamp TIMESTAMP,
+                open DECIMAL(18,4), high DECIMAL(18,4), low DECIMAL(18,4), close DECIMAL(18,4), volume BIGINT,
+                PRIMARY KEY (symbol, interval, timestamp))""");
+        jdbc.execute("""
+            INSERT INTO candles
+            SELECT 'AAA', '1m', DATEADD('MINUTE', X, TIMESTAMP '2020-01-01 00:00:00'),
+                100 + MOD(X, 1000) / 100.0, 101 + MOD(X, 1000) / 100.0, 99 + MOD(X, 1000) / 100.0,
+                100.5 + MOD(X, 1000) / 100.0, X
+            FROM SYSTEM_RANGE(0, %d)""".formatted(ROWS - 1));
+    }
+
+    @AfterAll
+    static void dropDatabase() throws IOException {
+        jdbc.execute("SHUTDOWN");
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+
+    private static TimescaleDBProvider timescale(int fetchSize) {
+        return new TimescaleDBProvider(jdbc, null, "candles", fetchSize, 200_000, CACHES);
+    }
+
+    private static long liveHeap() {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    @Test
+    void primitiveReadsMatchTheRowMapper() {
+        TimescaleDBProvider ts = timescale(1000);
+        ClickHouseProvider ch = new ClickHouseProvider(jdbc, null, "candles", 1000, 200_000, CACHES);
+        Instant from = T0.plusMillis(5_000 * MINUTE), to = T0.plusMillis(14_999 * MINUTE);
+
+        List<Candle> rows = ts.getCandles("AAA", "1m", from, to, AdjustType.NONE);
+        CandleSeries series = ts.getSeries("AAA", "1m", from, to, AdjustType.NONE);
+        assertEquals(10_000, rows.size());
+        assertEquals(rows.size(), series.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Candle c = rows.get(i);
+            assertEquals(c.getTimestamp().toEpochMilli(), series.timestamp(i));
+            assertEquals(c.getOpen().doubleValue(), series.open(i));
+            assertEquals(c.getClose().doubleValue(), series.close(i));
+            assertEquals(c.getVolume(), series.volume(i));
+        }
+        assertEquals(new BigDecimal("100.0000"), rows.get(0).getOpen());
+        assertEquals(from.toEpochMilli(), series.timestamp(0));
+
+        CandleSeries viaClickHouse = ch.getSeries("AAA", "1m", from, to, AdjustType.NONE);
+        assertArrayEquals(series.closes(), viaClickHouse.closes());
+        assertEquals(0, ts.getSeries("AAA", "1m", T0.minusSeconds(3600), T0.minusSeconds(60), AdjustType.NONE).size());
+    }
+
+    @Test
+    void streamingAMultiMillionRowRangeKeepsHeapFlat() {
+        TimescaleDBProvider ts = timescale(10_000);
+        long base = liveHeap();
+        long[] first = {-1}, peak = {0};
+        double[] sum = {0};
+        long rows = ts.streamCandles("AAA", "1m", T0, T0.plusMillis(ROWS * MINUTE), (tsMs, o, h, l, c, v) -> {
+            sum[0] += c;
+            if (v % 250_000 == 0) {
+                long used = liveHeap() - base;
+                if (first[0] < 0) first[0] = used;
+                peak[0] = Math.max(peak[0], used);
+            }
+        });
+        assertEquals(ROWS, rows);
+        assertTrue(sum[0] > 0);
+        // the cursor and driver buffers are paid once up front; nothing accumulates with the row count
+        assertTrue(peak[0] - first[0] < 8L << 20, "live heap grew by " + (peak[0] - first[0]) + " bytes while streaming");
+        assertTrue(peak[0] < 48L << 20);
+    }
+
+    @Test
+    void columnarLoadIsAFractionOfCandleObjects() {
+        TimescaleDBProvider ts = timescale(10_000);
+        Instant to = T0.plusMillis(299_999 * MINUTE);
+        ts.streamCandles("AAA", "1m", T0, to, (tsMs, o, h, l, c, v) -> {}); // warm the database page cache
+
+        long base = liveHeap();
+        List<Candle> rows = ts.getCandles("AAA", "1m", T0, to, AdjustType.NONE);
+        long objects = liveHeap() - base;
+        assertEquals(300_000, rows.size());
+
+        CandleSeries series = ts.getSeries("AAA", "1m", T0, to, AdjustType.NONE);
+        assertEquals(300_000, series.size());
+        assertTrue(series.sizeBytes() * 2 < objects, "columnar " + series.sizeBytes() + " vs objects " + objects);
+        assertTrue(series.sizeBytes() <= 300_000L * CandleSeries.BYTES_PER_CANDLE * 5 / 4);
+    }
+}
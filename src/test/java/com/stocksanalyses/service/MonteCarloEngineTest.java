@@ -0,0 +1,95 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.MonteCarloRequest;
+import com.stocksanalyses.model.MonteCarloResult;
+import com.stocksanalyses.service.backtest.MonteCarloEngine;
+import com.stocksanalyses.service.matching.Fill;
+import com.stocksanalyses.service.matching.Side;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloEngineTest {
+
+    private static double[] dailyReturns(int n) {
+        Random rnd = new Random(11);
+        double[] r = new double[n];
+        for (int i = 0; i < n; i++) r[i] = 0.0004 + rnd.nextGaussian() * 0.012;
+        return r;
+    }
+
+    @Test
+    void sameSeedSameResultAcrossPoolSizes() {
+        double[] r = dailyReturns(756);
+        MonteCarloEngine one = new MonteCarloEngine(null, 1, 200000);
+        MonteCarloEngine many = new MonteCarloEngine(null, 8, 200000);
+        try {
+            for (MonteCarloEngine.Method m : MonteCarloEngine.Method.values()) {
+                MonteCarloResult a = one.run(r, m, 10, 5000, 7L);
+                MonteCarloResult b = many.run(r, m, 10, 5000, 7L);
+                assertEquals(a.returnPercentiles, b.returnPercentiles, m.name());
+                assertEquals(a.maxDrawdownPercentiles, b.maxDrawdownPercentiles, m.name());
+                assertEquals(a.meanReturn, b.meanReturn, 0.0);
+            }
+            MonteCarloResult other = many.run(r, MonteCarloEngine.Method.BOOTSTRAP, 1, 5000, 8L);
+            assertNotEquals(one.run(r, MonteCarloEngine.Method.BOOTSTRAP, 1, 5000, 7L).returnPercentiles, other.returnPercentiles);
+        } finally { one.shutdown(); many.shutdown(); }
+    }
+
+    @Test
+    void shuffleKeepsFinalReturnAndVariesDrawdown() {
+        double[] r = dailyReturns(500);
+        MonteCarloEngine mc = new MonteCarloEngine(null, 4, 200000);
+        try {
+            MonteCarloResult res = mc.run(r, MonteCarloEngine.Method.SHUFFLE, 1, 2000, 1L);
+            assertEquals(res.observedReturn, res.returnPercentiles.get("p1"), 1e-9);
+            assertEquals(res.observedReturn, res.returnPercentiles.get("p99"), 1e-9);
+            assertTrue(res.maxDrawdownPercentiles.get("p5") < res.maxDrawdownPercentiles.get("p95"));
+            double prev = -1;
+            for (double v : res.maxDrawdownPercentiles.values()) { assertTrue(v >= prev); prev = v; }
+        } finally { mc.shutdown(); }
+    }
+
+    @Test
+    void tenThousandPathsOverThreeYears() {
+        double[] r = dailyReturns(756);
+        MonteCarloEngine mc = new MonteCarloEngine(null, 0, 200000);
+        try {
+            MonteCarloResult res = mc.run(r, MonteCarloEngine.Method.BOOTSTRAP, 1, 10000, 2L);
+            assertEquals(10000, res.paths);
+            assertEquals(756, res.periods);
+            assertTrue(res.returnPercentiles.get("p5") < res.returnPercentiles.get("p95"));
+            assertTrue(res.probabilityOfLoss > 0 && res.probabilityOfLoss < 1);
+        } finally { mc.shutdown(); }
+    }
+
+    @Test
+    void adaptsBothBacktestOutputs() {
+        double[] eq = MonteCarloEngine.returnsFromEquity(List.of(100.0, 110.0, 99.0));
+        assertArrayEquals(new double[]{0.1, -0.1}, eq, 1e-12);
+
+        List<Map<String, Object>> trades = List.of(
+                Map.of("symbol", "A", "side", "BUY", "qty", 10.0, "price", 10.0, "fee", 0.0),
+                Map.of("symbol", "A", "side", "SELL", "qty", 10.0, "price", 12.0, "fee", 0.0));
+        assertArrayEquals(new double[]{0.2}, MonteCarloEngine.returnsFromTrades(trades), 1e-12);
+
+        List<Fill> fills = List.of(
+                new Fill("1", "t1", "m1", 100, 10, 1, Side.BUY, List.of(), "a", "b"),
+                new Fill("2", "t2", "m2", 110, 10, 2, Side.SELL, List.of(), "a", "b"));
+        assertArrayEquals(new double[]{0.1}, MonteCarloEngine.returnsFromFills(fills, 1000), 1e-12);
+
+        MonteCarloEngine mc = new MonteCarloEngine(null, 2, 100);
+        try {
+            MonteCarloRequest req = new MonteCarloRequest();
+            req.returns = List.of(0.01, -0.02);
+            req.paths = 101;
+            assertThrows(IllegalArgumentException.class, () -> mc.run(req));
+            req.paths = 100; req.method = "nope";
+            assertThrows(IllegalArgumentException.class, () -> mc.run(req));
+            req.method = "block"; req.seed = 3L;
+            assertEquals(100, mc.run(req).paths);
+        } finally { mc.shutdown(); }
+    }
+}
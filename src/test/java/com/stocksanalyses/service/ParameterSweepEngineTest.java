@@ -0,0 +1,133 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.backtest.BacktestEngine;
+import com.stocksanalyses.service.backtest.ParameterSweepEngine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParameterSweepEngineTest {
+    private final CandleService candles = new CandleService(null) {
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            List<Candle> list = new ArrayList<>();
+            Instant base = Instant.parse("2023-01-02T00:00:00Z");
+            Random rnd = new Random(7);
+            double px = 100;
+            for (int i=0;i<400;i++){
+                double open = px;
+                double close = Math.max(1, open + Math.sin(i / 9.0) * 1.5 + (rnd.nextDouble() - 0.5) * 2);
+                double high = Math.max(open, close) + rnd.nextDouble();
+                double low = Math.min(open, close) - rnd.nextDouble();
+                list.add(new Candle(base.plusSeconds(86400L*i), bd(open), bd(high), bd(low), bd(close), 1000));
+                px = close;
+            }
+            return list;
+        }
+    };
+    private final StrategyEngine strategyEngine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+    private final BacktestEngine backtestEngine = new BacktestEngine(candles, strategyEngine);
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private BacktestRequest baseRequest() {
+        BacktestRequest req = new BacktestRequest();
+        req.universe = List.of("T");
+        req.skipWeekends = false;
+        req.strategyConfig = new StrategyConfig("ema-macd", Map.of("minPatternScore", 0.0));
+        return req;
+    }
+
+    @Test
+    void sweepMatchesIndividualBacktests() {
+        ParameterSweepEngine sweep = new ParameterSweepEngine(backtestEngine, strategyEngine, 4, 1000, 1, 4);
+        SweepRequest req = new SweepRequest();
+        req.base = baseRequest();
+        req.grid = Map.of("emaShort", List.of(5, 10, 20), "emaLong", List.of(30, 50), "atrMult", List.of(1.5, 2.0));
+        req.topK = 0;
+        List<SweepResult.Point> streamed = new ArrayList<>();
+        SweepResult res = sweep.sweep(req, streamed::add);
+        sweep.shutdown();
+
+        assertEquals(12, res.ranked.size());
+        assertEquals(12, streamed.size());
+        assertEquals(6, res.stats.get("evaluated"));
+        assertTrue(res.ranked.stream().anyMatch(p -> p.trades > 0));
+        for (int k=1;k<res.ranked.size();k++) assertTrue(res.ranked.get(k-1).score >= res.ranked.get(k).score);
+        for (SweepResult.Point pt : res.ranked) {
+            BacktestRequest single = baseRequest();
+            Map<String,Object> params = new HashMap<>(single.strategyConfig.getParams());
+            params.putAll(pt.params);
+            single.strategyConfig = new StrategyConfig("ema-macd", params);
+            BacktestResult expected = backtestEngine.run(single);
+            assertEquals(expected.trades.size(), pt.trades, pt.params.toString());
+            assertEquals((Double) expected.metrics.get("return"), (Double) pt.metrics.get("return"), 1e-9, pt.params.toString());
+        }
+    }
+
+    @Test
+    void rejectsOversizedGrid() {
+        ParameterSweepEngine sweep = new ParameterSweepEngine(backtestEngine, strategyEngine, 1, 3, 1, 4);
+        SweepRequest req = new SweepRequest();
+        req.base = baseRequest();
+        req.grid = Map.of("emaShort", List.of(5, 10), "emaLong", List.of(30, 50));
+        assertThrows(IllegalArgumentException.class, () -> sweep.sweep(req, null));
+        sweep.shutdown();
+    }
+
+    @Test
+    void failingConsumerStopsTheSweep() {
+        AtomicInteger simulated = new AtomicInteger();
+        BacktestEngine counting = new BacktestEngine(candles, strategyEngine) {
+            @Override
+            public BacktestResult simulate(BacktestRequest req, List<Candle> bars, IntFunction<List<Signal>> signalsAt) {
+                simulated.incrementAndGet();
+                return super.simulate(req, bars, signalsAt);
+            }
+        };
+        ParameterSweepEngine sweep = new ParameterSweepEngine(counting, strategyEngine, 1, 1000, 1, 4);
+        SweepRequest req = new SweepRequest();
+        req.base = baseRequest();
+        req.grid = Map.of("emaShort", List.of(3, 4, 5, 6, 7, 8, 9, 10), "emaLong", List.of(30, 40, 50, 60, 70));
+        try {
+            assertThrows(UncheckedIOException.class, () -> sweep.sweep(req,
+                    pt -> { throw new UncheckedIOException(new IOException("client gone")); }));
+            // the single worker was stopped after the first group instead of running all 40
+            assertTrue(simulated.get() < 40, "simulated " + simulated.get());
+        } finally { sweep.shutdown(); }
+    }
+
+    @Test
+    void streamingSweepsQueueBoundedly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BacktestEngine blocked = new BacktestEngine(candles, strategyEngine) {
+            @Override
+            public List<Candle> loadCandles(BacktestRequest req, String symbol) {
+                try { release.await(5, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return super.loadCandles(req, symbol);
+            }
+        };
+        ParameterSweepEngine sweep = new ParameterSweepEngine(blocked, strategyEngine, 1, 1000, 1, 1);
+        try {
+            SweepRequest req = new SweepRequest();
+            req.base = baseRequest();
+            req.grid = Map.of("emaShort", List.of(5, 10));
+            CompletableFuture<SweepResult> running = sweep.sweepAsync(req, null);
+            CompletableFuture<SweepResult> queued = sweep.sweepAsync(req, null);
+            assertThrows(RejectedExecutionException.class, () -> sweep.sweepAsync(req, null));
+            release.countDown();
+            assertEquals(2, running.get(5, TimeUnit.SECONDS).ranked.size());
+            assertEquals(2, queued.get(5, TimeUnit.SECONDS).ranked.size());
+        } finally { sweep.shutdown(); }
+    }
+}
@@ -0,0 +1,81 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.StrategyConfig;
+import com.stocksanalyses.service.patterns.PatternDetectors;
+import com.stocksanalyses.service.patterns.PatternScanner;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternScannerTest {
+    private static CandleSeries series(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[] ts = new long[n], vol = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            o[i] = p + (rnd.nextBoolean() ? rnd.nextDouble() : -rnd.nextDouble());
+            c[i] = rnd.nextInt(8) == 0 ? o[i] + rnd.nextGaussian() * 0.02 : o[i] + rnd.nextGaussian();
+            h[i] = Math.max(o[i], c[i]) + Math.abs(rnd.nextGaussian()) * (rnd.nextInt(4) == 0 ? 2 : 0.3);
+            l[i] = Math.min(o[i], c[i]) - Math.abs(rnd.nextGaussian()) * (rnd.nextInt(4) == 0 ? 2 : 0.3);
+            p = c[i];
+            ts[i] = 86_400_000L * i;
+            vol[i] = 1000;
+        }
+        return CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
+    @Test
+    void hitsMatchPerPrefixDetectors() {
+        CandleSeries s = series(3000, 5);
+        PatternDetectors d = new PatternDetectors();
+        PatternScanner.Hits hits = PatternScanner.DEFAULT.scan(s);
+        Map<String, Double> expected = new HashMap<>();
+        for (int i = 0; i < s.size(); i++) {
+            CandleSeries w = s.window(Math.max(0, i - 2), i + 1);
+            for (PatternDetectors.PatternHit hit : Arrays.asList(d.bullishEngulfing(w), d.doji(w, 0.1), d.morningStar(w, 0.0),
+                    d.hammer(w, 0.5, 0.3), d.shootingStar(w, 0.5, 0.3))) {
+                if (hit != null) expected.put(i + ":" + hit.name, hit.confidence);
+            }
+        }
+        Map<String, Double> got = new HashMap<>();
+        Set<PatternScanner.Pattern> seen = EnumSet.noneOf(PatternScanner.Pattern.class);
+        for (int k = 0; k < hits.size(); k++) {
+            got.put(hits.index(k) + ":" + hits.pattern(k).id, hits.confidence(k));
+            seen.add(hits.pattern(k));
+            if (k > 0) assertTrue(hits.index(k) >= hits.index(k - 1));
+        }
+        assertEquals(expected, got);
+        assertEquals(EnumSet.allOf(PatternScanner.Pattern.class), seen, "fixture should exercise every pattern");
+    }
+
+    @Test
+    void scoreColumnMatchesPatternScorePerWindow() {
+        StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+        CandleSeries s = series(2000, 9);
+        StrategyEngine.Params p = StrategyEngine.Params.from(new StrategyConfig("t",
+                Map.of("patterns", Map.of("hammer", Map.of("weight", 2.0), "doji", Map.of("weight", 0.5)))));
+        double[] col = engine.patternScores(s, p);
+        for (int i = 0; i < s.size(); i++)
+            assertEquals(engine.patternScore(s.window(Math.max(0, i - 2), i + 1), p, null), col[i], 0.0, "bar " + i);
+    }
+
+    @Test
+    void chunkedScanOfMillionBarsMatchesOneScan() {
+        CandleSeries s = series(1_000_000, 1);
+        PatternScanner.Hits whole = PatternScanner.DEFAULT.scan(s);
+        PatternScanner.Hits chunked = new PatternScanner.Hits();
+        for (int from = 0; from < s.size(); from += 65_536)
+            PatternScanner.DEFAULT.scan(s, from, Math.min(s.size(), from + 65_536), chunked);
+        assertTrue(whole.size() > 0);
+        assertEquals(whole.size(), chunked.size());
+        for (int k = 0; k < whole.size(); k++) {
+            assertEquals(whole.index(k), chunked.index(k));
+            assertEquals(whole.pattern(k), chunked.pattern(k));
+            assertEquals(whole.confidence(k), chunked.confidence(k), 0.0);
+        }
+    }
+}
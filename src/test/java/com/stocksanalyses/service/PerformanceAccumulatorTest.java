@@ -0,0 +1,77 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.service.backtest.PerformanceAccumulator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerformanceAccumulatorTest {
+
+    @Test
+    void matchesTwoPassReference() {
+        Random rnd = new Random(9);
+        int n = 1000;
+        double[] eq = new double[n];
+        eq[0] = 100_000;
+        for (int i = 1; i < n; i++) eq[i] = eq[i - 1] * (1 + 0.0003 + rnd.nextGaussian() * 0.01);
+
+        PerformanceAccumulator perf = new PerformanceAccumulator(252);
+        for (double e : eq) perf.onEquity(e);
+
+        double[] r = new double[n - 1];
+        double mean = 0;
+        for (int i = 1; i < n; i++) { r[i - 1] = eq[i] / eq[i - 1] - 1; mean += r[i - 1]; }
+        mean /= r.length;
+        double var = 0, down = 0;
+        for (double x : r) { var += (x - mean) * (x - mean); if (x < 0) down += x * x; }
+        var /= r.length;
+        down = Math.sqrt(down / r.length);
+        double peak = eq[0], mdd = 0;
+        for (double e : eq) { peak = Math.max(peak, e); mdd = Math.max(mdd, (peak - e) / peak); }
+        double cagr = Math.pow(eq[n - 1] / eq[0], 252.0 / (n - 1)) - 1;
+
+        assertEquals(mean, perf.meanReturn(), 1e-15);
+        assertEquals(var, perf.variance(), 1e-15);
+        assertEquals(down, perf.downsideDeviation(), 1e-15);
+        assertEquals(mdd, perf.maxDrawdown(), 1e-15);
+        assertEquals(eq[n - 1] / eq[0] - 1, perf.totalReturn(), 1e-12);
+        assertEquals(mean * 252 / (Math.sqrt(var) * Math.sqrt(252)), perf.sharpe(), 1e-9);
+        assertEquals(mean * 252 / (down * Math.sqrt(252)), perf.sortino(), 1e-9);
+        assertEquals(cagr / mdd, perf.calmar(), 1e-9);
+        assertNotEquals(0.0, perf.sortino());
+    }
+
+    @Test
+    void tradeStatistics() {
+        PerformanceAccumulator perf = new PerformanceAccumulator(252);
+        perf.onEquity(1000);
+        perf.onTrade(1000);
+        perf.onTrade(-1100);
+        perf.onRoundTrip(100);
+        perf.onRoundTrip(-50);
+        perf.onRoundTrip(30);
+        perf.onEquity(1080);
+
+        assertEquals(3, perf.roundTrips());
+        assertEquals(2.0 / 3, perf.winRate(), 1e-12);
+        assertEquals(65, perf.avgWin(), 1e-12);
+        assertEquals(50, perf.avgLoss(), 1e-12);
+        assertEquals(130.0 / 50, perf.profitFactor(), 1e-12);
+        assertEquals(2100 / 1040.0, perf.turnover(), 1e-12);
+        assertEquals(0.08, (double) perf.toMetrics().get("return"), 1e-12);
+    }
+
+    @Test
+    void emptyAndFlatSeries() {
+        PerformanceAccumulator perf = new PerformanceAccumulator(252);
+        assertTrue(perf.toMetrics().isEmpty());
+        perf.onEquity(100);
+        perf.onEquity(100);
+        assertEquals(0, perf.sharpe());
+        assertEquals(0, perf.sortino());
+        assertEquals(0, perf.calmar());
+        assertNull(perf.toMetrics().get("profitFactor"));
+    }
+}
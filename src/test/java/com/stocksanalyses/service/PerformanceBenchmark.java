@@ -0,0 +1,198 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.indicators.IndicatorKernels;
+import com.stocksanalyses.service.marketdata.CandleReconciler;
+import com.stocksanalyses.service.marketdata.MarketDataProvider;
+import com.stocksanalyses.service.marketdata.ProviderCallExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.ATRIndicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.StochasticOscillatorKIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.num.Num;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Timings behind the performance claims of the columnar and market-data paths. Not part of the unit suite: the class
+ * is tagged {@code benchmark} and only runs with {@code mvn test -Pbenchmark}. Each case prints its numbers; the
+ * assertions only check that both sides computed the same thing.
+ */
+@Tag("benchmark")
+public class PerformanceBenchmark {
+    /** Keeps results reachable so the JIT cannot drop the work being timed. */
+    private static volatile double sink;
+
+    /** Best wall-clock time of {@code runs} runs after {@code warmUps} untimed ones, in milliseconds. */
+    private static double bestMs(int warmUps, int runs, Runnable work) {
+        for (int i = 0; i < warmUps; i++) work.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long t = System.nanoTime();
+            work.run();
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best / 1e6;
+    }
+
+    private static long liveHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static List<Candle> minuteCandles(int n, long seed) {
+        List<Candle> candles = new ArrayList<>(n);
+        Instant base = Instant.parse("2020-01-01T00:00:00Z");
+        Random rnd = new Random(seed);
+        double px = 100;
+        for (int i = 0; i < n; i++) {
+            double open = px;
+            double close = Math.max(1, open + Math.sin(i / 6.0) + (rnd.nextDouble() - 0.5) * 2);
+            double high = Math.max(open, close) + rnd.nextDouble();
+            double low = Math.min(open, close) - rnd.nextDouble();
+            candles.add(new Candle(base.plusSeconds(60L * i), bd(open), bd(high), bd(low), bd(close), 100 + i));
+            px = close;
+        }
+        return candles;
+    }
+
+    /** Nearest-rank percentile {@code q} in (0, 1] of the samples, which it sorts. */
+    private static double percentile(double[] samples, double q) {
+        Arrays.sort(samples);
+        return samples[Math.max(0, (int) Math.ceil(q * samples.length) - 1)];
+    }
+
+    private static BigDecimal bd(double v) { return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private static List<Candle> dailyCandles(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Candle> out = new ArrayList<>(n);
+        Instant t = Instant.parse("2015-01-01T00:00:00Z");
+        double p = 50;
+        for (int i = 0; i < n; i++) {
+            double o = p;
+            p = Math.max(1, p * (1 + rnd.nextGaussian() * 0.02));
+            double h = Math.max(o, p) * (1 + rnd.nextDouble() * 0.01), l = Math.min(o, p) * (1 - rnd.nextDouble() * 0.01);
+            out.add(new Candle(t.plusSeconds(86400L * i), bd(o), bd(h), bd(l), bd(p), 1000 + rnd.nextInt(100_000)));
+        }
+        return out;
+    }
+
+    @Test
+    void columnarMemoryAndEmaThroughput() {
+        int n = 200_000;
+        long before = liveHeap();
+        List<Candle> candles = minuteCandles(n, 11);
+        long listBytes = Math.max(1, liveHeap() - before);
+        CandleSeries series = CandleSeries.of(candles);
+        double perMillion = 1_000_000.0 / n;
+        System.out.printf("memory per 1M candles: List<Candle> %.1f MB, CandleSeries %.1f MB (%.1fx)%n",
+                listBytes * perMillion / 1e6, series.sizeBytes() * perMillion / 1e6, (double) listBytes / series.sizeBytes());
+
+        IndicatorService ind = new IndicatorService();
+        List<Candle> head = candles.subList(0, 20_000);
+        CandleSeries prefix = series.prefix(20_000);
+        assertEquals(ind.emaClose(head, 20)[0], IndicatorService.emaSeries(prefix, 20)[19_999], 1e-9);
+        double ta4j = bestMs(3, 5, () -> sink = ind.emaClose(head, 20)[0]);
+        double columnar = bestMs(20, 50, () -> sink = IndicatorService.emaSeries(prefix, 20)[19_999]);
+        System.out.printf("EMA(20) over 20k bars: ta4j %.2f ms, columnar %.3f ms (%.0fx)%n", ta4j, columnar, ta4j / columnar);
+        assertTrue(candles.size() == n && Double.isFinite(sink));
+    }
+
+    @Test
+    void indicatorKernelsVsTa4j() {
+        int n = 10_000;
+        List<Candle> list = dailyCandles(n, 11);
+        IndicatorService ind = new IndicatorService();
+        // the last value of each of the six indicators, both ways
+        double[] ta4jLast = new double[6], kernelLast = new double[6];
+        Runnable ta4j = () -> {
+            BarSeries bs = ind.toSeries(list);
+            ClosePriceIndicator close = new ClosePriceIndicator(bs);
+            List<Indicator<Num>> refs = List.of(new EMAIndicator(close, 20), new SMAIndicator(close, 20), new RSIIndicator(close, 14),
+                    new ATRIndicator(bs, 14), new StandardDeviationIndicator(close, 20), new StochasticOscillatorKIndicator(bs, 14));
+            for (int k = 0; k < refs.size(); k++) {
+                for (int i = 0; i < n; i++) ta4jLast[k] = refs.get(k).getValue(i).doubleValue();
+            }
+        };
+        Runnable kernels = () -> {
+            CandleSeries s = CandleSeries.of(list);
+            double[] c = s.closes(), h = IndicatorKernels.highs(s), l = IndicatorKernels.lows(s);
+            double[][] bands = IndicatorKernels.bollinger(c, 20, 2);
+            kernelLast[0] = IndicatorKernels.ema(c, 20)[n - 1];
+            kernelLast[1] = IndicatorKernels.sma(c, 20)[n - 1];
+            kernelLast[2] = IndicatorKernels.rsi(c, 14)[n - 1];
+            kernelLast[3] = IndicatorKernels.atr(h, l, c, 14)[n - 1];
+            kernelLast[4] = (bands[1][n - 1] - bands[0][n - 1]) / 2; // upper - middle is 2 standard deviations
+            kernelLast[5] = IndicatorKernels.stochastic(h, l, c, 14, 3)[0][n - 1];
+        };
+        double ta4jMs = bestMs(2, 5, ta4j);
+        double kernelMs = bestMs(10, 20, kernels);
+        System.out.printf("6 indicators x %d bars: ta4j %.1f ms, kernels %.2f ms (%.0fx)%n", n, ta4jMs, kernelMs, ta4jMs / kernelMs);
+        for (int k = 0; k < 6; k++) assertEquals(ta4jLast[k], kernelLast[k], 1e-6 * Math.max(1, Math.abs(ta4jLast[k])), "indicator " + k);
+    }
+
+    @Test
+    void reconcileThreeYearLongMinuteSeries() {
+        int n = 525_600;
+        Map<String, CandleSeries> sources = new LinkedHashMap<>();
+        sources.put("timescale", CandleReconcilerTest.provider(n, 11, 0, 0.0005, 1000, 200_000));
+        sources.put("clickhouse", CandleReconcilerTest.provider(n, 11, 15_000, 0.0005));
+        sources.put("vendor", CandleReconcilerTest.provider(n, 11, -10_000, 0.0005, 300_000));
+        CandleReconciler.Result[] last = new CandleReconciler.Result[1];
+        double ms = bestMs(2, 5, () -> last[0] = CandleReconciler.reconcile(sources, null, "timescale", 30_000, 0.01, 100));
+        System.out.printf("reconcile 3 x %d minute bars: %.0f ms (%.1fM input bars/s), %d discrepancies%n",
+                n, ms, 3.0 * n / ms / 1e3, last[0].discrepancyCount);
+        assertEquals(n, last[0].consensus.size());
+    }
+
+    @Test
+    void hedgedProviderCallLatency() {
+        // primary: 2 ms, but 4% of calls take 300 ms; secondary: a steady 6 ms
+        ProviderCallExecutorTest.FaultyProvider primary = new ProviderCallExecutorTest.FaultyProvider("primary", 2, 300, 0.04, 0, 1);
+        ProviderCallExecutorTest.FaultyProvider secondary = new ProviderCallExecutorTest.FaultyProvider("secondary", 6, 6, 0, 0, 2);
+        ProviderCallExecutor calls = new ProviderCallExecutor(new SimpleMeterRegistry(), 4, 16, 2_000, 50, 1);
+        Function<MarketDataProvider, List<Candle>> load = p -> p.getCandles("X", "1d", null, null, AdjustType.NONE);
+        int n = 300;
+
+        double[] direct = new double[n], hedged = new double[n];
+        int fromSecondary = 0;
+        for (int i = 0; i < n; i++) {
+            long t = System.nanoTime();
+            load.apply(primary);
+            direct[i] = (System.nanoTime() - t) / 1e6;
+        }
+        for (int i = 0; i < n; i++) {
+            long t = System.nanoTime();
+            ProviderCallExecutor.Answer<List<Candle>> a = calls.hedged(List.of(primary, secondary), load, c -> !c.isEmpty(), 2_000);
+            hedged[i] = (System.nanoTime() - t) / 1e6;
+            assertNotNull(a);
+            if (a.hedged) fromSecondary++;
+        }
+        System.out.printf("provider calls x %d: primary only p50 %.1f ms p99 %.1f ms; hedged p50 %.1f ms p99 %.1f ms "
+                        + "(%d answered by the secondary, hedge delay %d ms)%n", n, percentile(direct, 0.5), percentile(direct, 0.99),
+                percentile(hedged, 0.5), percentile(hedged, 0.99), fromSecondary, calls.hedgeDelayMs(primary));
+        calls.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.backtest.PortfolioBacktestEngine;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PortfolioBacktestEngineTest {
+    private final CandleService candles = new CandleService(null) {
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            List<Candle> list = new ArrayList<>();
+            Instant base = Instant.parse("2023-01-02T00:00:00Z");
+            Random rnd = new Random(symbol.hashCode());
+            double px = 50 + Math.abs(symbol.hashCode() % 50);
+            for (int i=0;i<250;i++){
+                double open = px;
+                double close = Math.max(1, open + Math.sin(i / 8.0) * 1.2 + (rnd.nextDouble() - 0.5) * 2);
+                double high = Math.max(open, close) + rnd.nextDouble();
+                double low = Math.min(open, close) - rnd.nextDouble();
+                list.add(new Candle(base.plusSeconds(86400L*i), bd(open), bd(high), bd(low), bd(close), 1000));
+                px = close;
+            }
+            return list;
+        }
+    };
+    private final StrategyEngine strategyEngine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private BacktestRequest request() {
+        BacktestRequest req = new BacktestRequest();
+        req.universe = List.of("AAA", "BBB", "CCC", "DDD", "EEE");
+        req.skipWeekends = false;
+        req.maxPositions = 2;
+        req.strategyConfig = new StrategyConfig("ema-macd", Map.of("emaShort", 5, "emaLong", 20, "minPatternScore", 0.0));
+        return req;
+    }
+
+    @Test
+    void sharedLedgerRespectsLimitsAndIsDeterministic() {
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(candles, strategyEngine, 4);
+        BacktestResult a = engine.run(request());
+        BacktestResult b = engine.run(request());
+        engine.shutdown();
+
+        assertEquals(250, a.equity.size());
+        assertFalse(a.trades.isEmpty());
+        assertEquals(a.trades, b.trades);
+        assertEquals(a.equity, b.equity);
+        assertEquals(5, a.metrics.get("symbols"));
+
+        Set<Object> open = new HashSet<>();
+        for (Map<String,Object> t : a.trades) {
+            if ("BUY".equals(t.get("side"))) assertTrue(open.add(t.get("symbol")));
+            else assertTrue(open.remove(t.get("symbol")));
+            assertTrue(open.size() <= 2);
+        }
+    }
+
+    @Test
+    void repeatedSignalsDoNotDeferThePendingFill() {
+        // BUY on every bar from 10 to 20: with a two-bar delay the order fills on bar 12, not two bars after the last repeat
+        StrategyEngine repeating = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer()) {
+            @Override
+            public IncrementalStrategyEvaluator newEvaluator(String symbol, StrategyConfig config) {
+                return new IncrementalStrategyEvaluator(this, symbol, Params.from(config)) {
+                    private int bar;
+
+                    @Override
+                    public List<Signal> onBar(Candle c) {
+                        int i = bar++;
+                        if (i < 10 || i > 20) return List.of();
+                        return List.of(new Signal(symbol, c.getTimestamp(), Signal.Type.BUY, 1.0, "repeat"));
+                    }
+                };
+            }
+        };
+        PortfolioBacktestEngine engine = new PortfolioBacktestEngine(candles, repeating, 1);
+        BacktestRequest req = request();
+        req.universe = List.of("AAA");
+        req.executionDelayBars = 2;
+        BacktestResult res = engine.run(req);
+        engine.shutdown();
+
+        List<Candle> bars = candles.getCandles("AAA", "1d", null, null);
+        assertEquals(1, res.trades.size());
+        assertEquals("BUY", res.trades.get(0).get("side"));
+        assertEquals(bars.get(12).getTimestamp().toString(), res.trades.get(0).get("ts"));
+    }
+}
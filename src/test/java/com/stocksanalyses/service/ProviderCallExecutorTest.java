@@ -0,0 +1,187 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.AdjustType;
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.service.cache.CacheRegistry;
+import com.stocksanalyses.service.marketdata.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProviderCallExecutorTest {
+
+    /** Provider stub with injected latency: a base delay, a slow tail, failures, or hanging until interrupted. */
+    static final class FaultyProvider implements MarketDataProvider {
+        final String name;
+        final long baseMs, tailMs;
+        final double tailRate, failRate;
+        final Random rnd;
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger calls = new AtomicInteger();
+        double quality = 1.0;
+        /** Returned instead of the single 10.0 bar when set. */
+        List<Candle> candles;
+
+        FaultyProvider(String name, long baseMs, long tailMs, double tailRate, double failRate, long seed) {
+            this.name = name; this.baseMs = baseMs; this.tailMs = tailMs; this.tailRate = tailRate; this.failRate = failRate;
+            this.rnd = new Random(seed);
+        }
+
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end, AdjustType adjustType) {
+            threads.add(Thread.currentThread().getName());
+            calls.incrementAndGet();
+            double roll, fail;
+            synchronized (rnd) { roll = rnd.nextDouble(); fail = rnd.nextDouble(); }
+            try {
+                Thread.sleep(roll < tailRate ? tailMs : baseMs);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("cancelled");
+            }
+            if (fail < failRate) throw new IllegalStateException(name + " failed");
+            if (candles != null) return candles;
+            BigDecimal p = BigDecimal.TEN;
+            return List.of(new Candle(Instant.EPOCH, p, p, p, p, 1));
+        }
+
+        @Override public Optional<Candle> getLatestCandle(String symbol, String interval) { return Optional.empty(); }
+        @Override public Map<String, List<Candle>> getCandlesBatch(List<String> s, String i, Instant a, Instant b, AdjustType t) { return Map.of(); }
+        @Override public DataAvailability getDataAvailability(String symbol, String interval) { return null; }
+        @Override public DataQuality getDataQuality(String symbol, String interval, Instant start, Instant end) {
+            return new DataQuality(quality, quality, quality, quality, 0, 0, 0, List.of(), Map.of());
+        }
+        @Override public ProviderHealth getHealth() { return null; }
+        @Override public String getProviderName() { return name; }
+    }
+
+    private static ProviderCallExecutor executor(int threads, int queue, long hedgeDefaultMs) {
+        return new ProviderCallExecutor(new SimpleMeterRegistry(), threads, queue, 2_000, hedgeDefaultMs, 1);
+    }
+
+    private static List<Candle> load(MarketDataProvider p) {
+        return p.getCandles("X", "1d", null, null, AdjustType.NONE);
+    }
+
+    @Test
+    void hedgingCutsTheTailOfASlowPrimary() {
+        // primary: 2 ms, but 4% of calls take 300 ms; secondary: a steady 6 ms
+        FaultyProvider primary = new FaultyProvider("primary", 2, 300, 0.04, 0, 1);
+        FaultyProvider secondary = new FaultyProvider("secondary", 6, 6, 0, 0, 2);
+        ProviderCallExecutor calls = executor(4, 16, 50);
+        int n = 300;
+
+        int fromSecondary = 0;
+        for (int i = 0; i < n; i++) {
+            ProviderCallExecutor.Answer<List<Candle>> a = calls.hedged(List.of(primary, secondary),
+                    ProviderCallExecutorTest::load, c -> !c.isEmpty(), 2_000);
+            assertNotNull(a);
+            assertEquals(a.provider.equals("secondary"), a.hedged);
+            if (a.hedged) fromSecondary++;
+        }
+        // the slow calls of the primary were answered by the secondary instead of timing out
+        assertTrue(fromSecondary > 0);
+        assertEquals((long) fromSecondary, calls.stats().get("hedgeWins"));
+        assertEquals(0L, calls.stats().get("timeouts"));
+        assertTrue(calls.hedgeDelayMs(primary) < 50, "p95 replaces the default once samples exist");
+        assertTrue(primary.threads.stream().allMatch(t -> t.startsWith("provider-primary-")), primary.threads.toString());
+    }
+
+    @Test
+    void failuresMoveOnImmediatelyAndDeadlinesBoundHangingProviders() {
+        FaultyProvider broken = new FaultyProvider("broken", 1, 1, 0, 1.0, 3);
+        FaultyProvider ok = new FaultyProvider("ok", 1, 1, 0, 0, 4);
+        FaultyProvider hanging = new FaultyProvider("hanging", 60_000, 60_000, 0, 0, 5);
+        ProviderCallExecutor calls = executor(2, 4, 1_000);
+
+        // a deadline shorter than the 1 s hedge delay: only an immediate move past the failure can answer
+        ProviderCallExecutor.Answer<List<Candle>> a = calls.hedged(List.of(broken, ok), ProviderCallExecutorTest::load, c -> true, 500);
+        assertNotNull(a);
+        assertEquals("ok", a.provider);
+
+        assertNull(calls.hedged(List.of(hanging), ProviderCallExecutorTest::load, c -> true, 150));
+        assertEquals(1L, calls.stats().get("timeouts"));
+
+        Map<String, List<Candle>> all = calls.all(List.of(hanging, ok, broken), ProviderCallExecutorTest::load, 150);
+        assertEquals(Set.of("ok"), all.keySet());
+        assertEquals(2L, calls.stats().get("timeouts"));
+    }
+
+    @Test
+    void aSaturatedProviderRejectsWithoutBlockingOthers() throws Exception {
+        FaultyProvider hanging = new FaultyProvider("hanging", 60_000, 60_000, 0, 0, 6);
+        FaultyProvider ok = new FaultyProvider("ok", 1, 1, 0, 0, 7);
+        ProviderCallExecutor calls = executor(1, 1, 1_000);
+        // fill the hanging provider's only thread and queue slot from background callers
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread th = new Thread(() -> calls.all(List.of(hanging), ProviderCallExecutorTest::load, 1_000));
+            th.start();
+            callers.add(th);
+        }
+        Thread.sleep(100);
+
+        Map<String, List<Candle>> all = calls.all(List.of(hanging, ok), ProviderCallExecutorTest::load, 1_000);
+        assertEquals(Set.of("ok"), all.keySet());
+        assertEquals(1L, calls.stats().get("rejected"));
+        assertEquals(0L, calls.stats().get("timeouts"), "returned as soon as the healthy provider answered");
+        for (Thread th : callers) th.join();
+        calls.shutdown();
+    }
+
+    @Test
+    void answersBelowTheQualityBarAreReconciledWithoutAskingTheirProvidersAgain() {
+        FaultyProvider primary = new FaultyProvider("primary", 1, 1, 0, 0, 8);
+        FaultyProvider secondary = new FaultyProvider("secondary", 1, 1, 0, 0, 9);
+        FaultyProvider broken = new FaultyProvider("broken", 1, 1, 0, 1.0, 10);
+        primary.quality = 0.5;
+        secondary.quality = 0.6;
+        ProviderCallExecutor calls = executor(2, 4, 1_000);
+        CacheRegistry caches = new CacheRegistry(new SimpleMeterRegistry(), new StandardEnvironment(), 1);
+        ReconciliationService service = new ReconciliationService(List.of(primary, secondary, broken),
+                new DataQualityService(caches), calls, "primary", 0.01, caches);
+
+        Map<String, List<Candle>> rejected = new LinkedHashMap<>();
+        assertNull(calls.hedged(List.of(primary, secondary), ProviderCallExecutorTest::load, c -> false, 500, rejected));
+        assertEquals(Set.of("primary", "secondary"), rejected.keySet());
+        primary.calls.set(0);
+        secondary.calls.set(0);
+
+        List<Candle> reconciled = service.getReconciledCandles("X", "1d", null, null, AdjustType.NONE);
+        assertEquals(1, reconciled.size());
+        assertEquals(10.0, reconciled.get(0).getClose().doubleValue(), 1e-9);
+        assertEquals(1, primary.calls.get());
+        assertEquals(1, secondary.calls.get());
+        assertEquals(2, broken.calls.get(), "only the provider without an answer is asked again");
+        calls.shutdown();
+        caches.shutdown();
+    }
+
+    @Test
+    void reconciliationIsLedByTheCandlesThatScoreBestNotByWhatProvidersReport() {
+        FaultyProvider primary = new FaultyProvider("primary", 1, 1, 0, 0, 11);
+        FaultyProvider secondary = new FaultyProvider("secondary", 1, 1, 0, 0, 12);
+        BigDecimal ten = BigDecimal.TEN, twelve = BigDecimal.valueOf(12);
+        // the primary rates itself higher, but one of its two bars has a high below its close
+        primary.quality = 0.7;
+        primary.candles = List.of(new Candle(Instant.EPOCH, ten, ten, ten, ten, 1),
+                new Candle(Instant.EPOCH.plusSeconds(86_400), ten, BigDecimal.ONE, BigDecimal.ONE, ten, 1));
+        secondary.quality = 0.1;
+        secondary.candles = List.of(new Candle(Instant.EPOCH, twelve, twelve, twelve, twelve, 1));
+        ProviderCallExecutor calls = executor(2, 4, 1_000);
+        CacheRegistry caches = new CacheRegistry(new SimpleMeterRegistry(), new StandardEnvironment(), 1);
+        ReconciliationService service = new ReconciliationService(List.of(primary, secondary),
+                new DataQualityService(caches), calls, "primary", 0.01, caches);
+
+        List<Candle> reconciled = service.getReconciledCandles("X", "1d", null, null, AdjustType.NONE);
+        assertEquals(12.0, reconciled.get(0).getClose().doubleValue(), 1e-9, "two providers disagree: the reference wins");
+        calls.shutdown();
+        caches.shutdown();
+    }
+}
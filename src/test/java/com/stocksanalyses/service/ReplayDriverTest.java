@@ -0,0 +1,137 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.service.matching.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayDriverTest {
+  private static final long DAY = 86_400_000L;
+
+  private static CandleSeries bars(double... ohlc) {
+    int n = ohlc.length / 4;
+    long[] ts = new long[n]; long[] vol = new long[n];
+    double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+    for (int i = 0; i < n; i++) {
+      ts[i] = i * DAY; o[i] = ohlc[4*i]; h[i] = ohlc[4*i+1]; l[i] = ohlc[4*i+2]; c[i] = ohlc[4*i+3]; vol[i] = 1000;
+    }
+    return CandleSeries.wrap(ts, o, h, l, c, vol);
+  }
+
+  private static Order market(String id, Side side, long qty, long ts) {
+    return new Order(id, "X", side, OrderType.MARKET, TimeInForce.IOC, null, null, null, null, "acct", qty, ts);
+  }
+
+  @Test
+  public void eventsArriveInTimeOrder() {
+    List<String> seen = new ArrayList<>();
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), 0, 0, 0);
+    replay.replayCandles(bars(10, 12, 9, 11, 11, 11.5, 8, 9), 100, DAY, new ReplayDriver.Strategy() {
+      long last = Long.MIN_VALUE;
+      private void at(String e, ReplayDriver r) { assertTrue(r.now() >= last); last = r.now(); seen.add(e); }
+      public void onBarOpen(ReplayDriver r, long barId) { at("open" + barId, r); }
+      public void onTick(ReplayDriver r, long price) { at(String.valueOf(price), r); }
+      public void onBarClose(ReplayDriver r, long barId) { at("close" + barId, r); }
+    });
+    // up bar visits the low first, down bar the high first
+    assertEquals(List.of("open0", "1000", "900", "1200", "1100", "close0",
+        "open1", "1100", "1150", "800", "900", "close1"), seen);
+    assertEquals(12, replay.getEventCount());
+  }
+
+  @Test
+  public void stopTriggersWhenTapeTradesThrough() {
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), 0, 1_000, 0);
+    replay.replayCandles(bars(10, 10.5, 9.8, 10.2, 10.2, 10.3, 9.0, 9.5), 100, DAY, new ReplayDriver.Strategy() {
+      public void onBarOpen(ReplayDriver r, long barId) {
+        if (barId == 0) {
+          r.submit(market("B", Side.BUY, 10, r.now()));
+          r.submit(new Order("S", "X", Side.SELL, OrderType.STOP, TimeInForce.GTC, null, 950L, null, null, "acct", 10, r.now()));
+        }
+      }
+    });
+    List<Fill> fills = replay.getFills();
+    assertEquals(2, fills.size());
+    assertEquals(1000, fills.get(0).price);
+    assertEquals(Side.SELL, fills.get(1).takerSide);
+    assertEquals(900, fills.get(1).price); // bar 1 low prints 900 after 1030; the stop fills at that tick
+  }
+
+  @Test
+  public void restingLimitFillsWhenPriceReachesIt() {
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), 0, 1_000, 0);
+    replay.replayCandles(bars(10, 10.5, 9.8, 10.2, 10.2, 10.3, 9.0, 9.5), 100, DAY, new ReplayDriver.Strategy() {
+      public void onBarOpen(ReplayDriver r, long barId) {
+        if (barId == 0) r.submit(new Order("L", "X", Side.BUY, OrderType.LIMIT, TimeInForce.GTC, 950L, null, null, null, "acct", 5, r.now()));
+      }
+    });
+    assertEquals(1, replay.getFills().size());
+    assertEquals(950, replay.getFills().get(0).price);
+    assertEquals("L", replay.getFills().get(0).makerOrderId);
+  }
+
+  @Test
+  public void hiddenOrderWaitsForNextBarAndLatencyDelaysOrders() {
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), DAY / 2, 1_000, 0);
+    List<Long> fillBars = new ArrayList<>();
+    replay.replayCandles(bars(10, 10, 10, 10, 11, 11, 11, 11, 12, 12, 12, 12), 100, DAY, new ReplayDriver.Strategy() {
+      public void onBarOpen(ReplayDriver r, long barId) {
+        if (barId == 0) r.submit(new Order("H", "X", Side.BUY, OrderType.MARKET, TimeInForce.IOC, null, null, null, null,
+            "acct", 1, r.now(), null, VisibilityRule.SAME_BAR_HIDDEN_NEXT_BAR_VISIBLE, 1L, null, null, null));
+      }
+      public void onFills(ReplayDriver r, List<Fill> fills) { fillBars.add(r.barId()); }
+    });
+    assertEquals(List.of(1L), fillBars);
+    assertEquals(1100, replay.getFills().get(0).price);
+  }
+
+  @Test
+  public void twapParentReleasesOneSlicePerBar() {
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), 0, 1_000, 0);
+    replay.replayCandles(bars(10, 10, 10, 10, 11, 11, 11, 11, 12, 12, 12, 12, 13, 13, 13, 13), 100, DAY, new ReplayDriver.Strategy() {
+      public void onBarClose(ReplayDriver r, long barId) {
+        if (barId == 0) r.submit(new Order("P", "X", Side.BUY, OrderType.MARKET, TimeInForce.GTC, null, null, null, null,
+            "acct", 30, r.now(), ExecutionStyle.TWAP, null, null, null, 3, null));
+      }
+    });
+    assertEquals(3, replay.getFills().size());
+    assertEquals(List.of(1100L, 1200L, 1300L), replay.getFills().stream().map(f -> f.price).toList());
+    assertEquals(30, replay.getFills().stream().mapToLong(f -> f.quantity).sum());
+  }
+
+  @Test
+  public void backtestEngineReplaysCandles() {
+    BacktestEngine engine = new BacktestEngine(new BacktestConfig(0, 3 * DAY, 0, 0, 0, 1_000_000, "X"));
+    BacktestResult res = engine.runReplay(bars(10, 10, 10, 10, 11, 11, 11, 11, 12, 12, 12, 12), 100, DAY, 1_000,
+        new ReplayDriver.Strategy() {
+          public void onBarClose(ReplayDriver r, long barId) {
+            if (barId == 0) r.submit(market("B", Side.BUY, 10, r.now()));
+            if (barId == 2) r.submit(market("S", Side.SELL, 10, r.now()));
+          }
+        });
+    assertEquals(2, res.totalTrades);
+    assertEquals(2, res.allOrders.size());
+  }
+
+  @Test
+  public void quietTicksReplayEveryTickAndBar() {
+    int n = 1_000_000;
+    long[] ts = new long[n], px = new long[n];
+    for (int i = 0; i < n; i++) { ts[i] = i * 10L; px[i] = 10_000 + (i % 200) - 100; }
+    long[] opens = new long[1], closes = new long[1];
+    ReplayDriver replay = new ReplayDriver(new MatchingEngine("X"), 0, 1_000, 0);
+    replay.replayTicks(ts, px, null, 60_000, new ReplayDriver.Strategy() {
+      public void onBarOpen(ReplayDriver r, long barId) { opens[0]++; }
+      public void onBarClose(ReplayDriver r, long barId) { closes[0]++; }
+    });
+    long bars = (n * 10L + 59_999) / 60_000;
+    assertEquals(bars, opens[0]);
+    assertEquals(bars, closes[0]);
+    assertEquals(n + 2 * bars, replay.getEventCount());
+    assertTrue(replay.getFills().isEmpty());
+  }
+}
@@ -0,0 +1,135 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.service.matching.AnomalyDetection;
+import com.stocksanalyses.service.matching.AnomalyType;
+import com.stocksanalyses.service.matching.DataCleaner;
+import com.stocksanalyses.service.matching.DataPoint;
+import com.stocksanalyses.service.stats.Ewma;
+import com.stocksanalyses.service.stats.RollingMinMax;
+import com.stocksanalyses.service.stats.RollingQuantiles;
+import com.stocksanalyses.service.stats.RollingStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollingStatsTest {
+
+    private static double[] window(List<Double> all, int w) {
+        int from = Math.max(0, all.size() - w);
+        double[] out = new double[all.size() - from];
+        for (int i = from; i < all.size(); i++) out[i - from] = all.get(i);
+        return out;
+    }
+
+    @Test
+    void primitivesMatchBruteForce() {
+        Random rnd = new Random(11);
+        for (int w : new int[]{ 1, 2, 7, 20, 64 }) {
+            RollingStats stats = new RollingStats(w);
+            RollingMinMax mm = new RollingMinMax(w);
+            RollingQuantiles q = new RollingQuantiles(w);
+            List<Double> all = new ArrayList<>();
+            for (int i = 0; i < 1500; i++) {
+                // repeated values exercise equal keys in the sorted window and the deques
+                double x = rnd.nextInt(4) == 0 ? 5.0 : 1000 + rnd.nextGaussian() * 3;
+                stats.add(x); mm.add(x); q.add(x); all.add(x);
+                double[] win = window(all, w);
+                double mean = Arrays.stream(win).average().orElseThrow();
+                double var = Arrays.stream(win).map(v -> (v - mean) * (v - mean)).sum() / win.length;
+                assertEquals(mean, stats.mean(), 1e-9);
+                assertEquals(var, stats.variance(), 1e-6 * Math.max(1, var));
+                assertEquals(Arrays.stream(win).min().orElseThrow(), mm.min());
+                assertEquals(Arrays.stream(win).max().orElseThrow(), mm.max());
+                double[] sorted = win.clone();
+                Arrays.sort(sorted);
+                int m = sorted.length / 2;
+                double median = sorted.length % 2 == 1 ? sorted[m] : (sorted[m - 1] + sorted[m]) / 2;
+                assertEquals(median, q.median(), 1e-12);
+                double[] dev = Arrays.stream(win).map(v -> Math.abs(v - median)).sorted().toArray();
+                double mad = dev.length % 2 == 1 ? dev[m] : (dev[m - 1] + dev[m]) / 2;
+                assertEquals(mad, q.mad(), 1e-9, "w=" + w + " i=" + i);
+                assertEquals(sorted[0], q.quantile(0));
+                assertEquals(sorted[sorted.length - 1], q.quantile(1));
+            }
+            // shrink back to empty
+            while (stats.size() > 0) {
+                stats.removeOldest(); mm.removeOldest(); q.removeOldest();
+                all.remove(all.size() - stats.size() - 1);
+                if (stats.size() == 0) break;
+                double[] win = window(all, stats.size());
+                assertEquals(Arrays.stream(win).average().orElseThrow(), stats.mean(), 1e-9);
+                assertEquals(Arrays.stream(win).max().orElseThrow(), mm.max());
+            }
+            assertTrue(Double.isNaN(stats.mean()) && Double.isNaN(mm.min()) && Double.isNaN(q.median()));
+        }
+    }
+
+    @Test
+    void ewmaMatchesRecurrence() {
+        Ewma e = Ewma.ofSpan(9);
+        double k = 0.2, mean = 0;
+        double[] xs = { 3, 5, 4, 8, 10, 7 };
+        for (int i = 0; i < xs.length; i++) {
+            e.add(xs[i]);
+            mean = i == 0 ? xs[0] : mean + k * (xs[i] - mean);
+            assertEquals(mean, e.mean(), 1e-12);
+        }
+        assertTrue(e.variance() > 0);
+        assertThrows(IllegalArgumentException.class, () -> new Ewma(0));
+    }
+
+    private static List<DataPoint> minuteBars(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<DataPoint> out = new ArrayList<>(n);
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            p = Math.max(1, p + rnd.nextGaussian() * 0.05);
+            double price = p;
+            long vol = 1000 + rnd.nextInt(100);
+            if (i % 5000 == 2500) price = p * 1.5;      // spike
+            if (i % 7000 == 3500) vol = 100_000;        // volume burst
+            if (i % 9000 == 4500) vol = 0;
+            out.add(new DataPoint(60_000L * i, price, vol, "t"));
+        }
+        return out;
+    }
+
+    @Test
+    void windowOutliersMatchNaiveDefinition() {
+        List<DataPoint> data = minuteBars(3000, 4);
+        List<AnomalyDetection.AnomalyResult> found = new AnomalyDetection().detectAnomalies(data);
+        Set<Integer> priceOutliers = new TreeSet<>(), volumeOutliers = new TreeSet<>();
+        for (var a : found) {
+            if (a.type == AnomalyType.PRICE_OUTLIER && a.description.startsWith("Price outlier")) priceOutliers.add(a.index);
+            if (a.type == AnomalyType.VOLUME_OUTLIER) volumeOutliers.add(a.index);
+        }
+        Set<Integer> expectPrice = new TreeSet<>(), expectVolume = new TreeSet<>();
+        for (int i = 20; i < data.size(); i++) {
+            List<DataPoint> w = data.subList(i - 20, i);
+            double mp = w.stream().mapToDouble(d -> d.price).average().orElseThrow();
+            double sp = Math.sqrt(w.stream().mapToDouble(d -> (d.price - mp) * (d.price - mp)).sum() / 20);
+            if (Math.abs(data.get(i).price - mp) / (sp + 1e-8) > 3.0) expectPrice.add(i);
+            if (data.get(i).volume <= 0) continue;
+            double mv = w.stream().mapToLong(d -> d.volume).average().orElseThrow();
+            double sv = Math.sqrt(w.stream().mapToDouble(d -> (d.volume - mv) * (d.volume - mv)).sum() / 20);
+            if (Math.abs(data.get(i).volume - mv) / (sv + 1e-8) > 5.0) expectVolume.add(i);
+        }
+        assertFalse(expectPrice.isEmpty());
+        assertEquals(expectPrice, priceOutliers);
+        assertEquals(expectVolume, volumeOutliers);
+    }
+
+    @Test
+    void yearOfMinuteBarsIsCleanedInOrder() {
+        List<DataPoint> data = minuteBars(525_600, 5);
+        DataCleaner.CleanResult res = new DataCleaner().cleanData(data);
+        assertTrue(res.removedCount > 0);
+        // dropped minutes leave one-bar gaps that fillGaps interpolates back
+        assertEquals(data.size(), res.cleanedData.size());
+        for (int i = 1; i < res.cleanedData.size(); i++) assertTrue(res.cleanedData.get(i).timestamp > res.cleanedData.get(i - 1).timestamp);
+        // zero-volume points are mean-filled from their neighbourhood
+        assertTrue(res.cleanedData.stream().noneMatch(d -> d.volume == 0));
+    }
+}
@@ -0,0 +1,149 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.screener.ScreenerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScreenerServiceTest {
+    private final StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+    private final StrategyRegistry registry = new StrategyRegistry(new StrategyDSLService());
+    private final ScreenerService screener = new ScreenerService(null, engine, registry, 4, 32, 20_000, 1, 4);
+
+    @AfterEach
+    void tearDown() { screener.shutdown(); }
+
+    private static CandleSeries series(int n, long seed) {
+        Random rnd = new Random(seed);
+        long[] ts = new long[n], vol = new long[n];
+        double[] o = new double[n], h = new double[n], l = new double[n], c = new double[n];
+        double p = 50 + rnd.nextInt(100);
+        double drift = rnd.nextGaussian() * 0.3;
+        for (int i = 0; i < n; i++) {
+            o[i] = p;
+            p = Math.max(1, p + drift + rnd.nextGaussian());
+            c[i] = p;
+            h[i] = Math.max(o[i], c[i]) + rnd.nextDouble();
+            l[i] = Math.min(o[i], c[i]) - rnd.nextDouble();
+            ts[i] = 1_600_000_000_000L + 86_400_000L * i;
+            vol[i] = 1000;
+        }
+        return CandleSeries.wrap(ts, o, h, l, c, vol);
+    }
+
+    private Map<String, CandleSeries> universe(int symbols, int bars) {
+        Map<String, CandleSeries> data = new LinkedHashMap<>();
+        for (int k = 0; k < symbols; k++) data.put("S" + k, series(bars, k));
+        data.put("SHORT", series(20, 99));
+        return data;
+    }
+
+    private ScreenRequest request() {
+        Map<String, Object> dsl = new HashMap<>();
+        dsl.put("name", "scr");
+        dsl.put("params", Map.of("minPatternScore", 0.0));
+        registry.register(new StrategyDefinition("scr", "v1", dsl));
+        ScreenRequest req = new ScreenRequest();
+        req.strategy = "scr";
+        req.lookbackDays = 120;
+        return req;
+    }
+
+    @Test
+    void matchesEqualSequentialEvaluationAndStream() {
+        Map<String, CandleSeries> data = universe(300, 400);
+        ScreenRequest req = request();
+        List<ScreenResult.Match> streamed = Collections.synchronizedList(new ArrayList<>());
+        ScreenResult res = screener.screen(req, new ArrayList<>(data.keySet()), batch -> {
+            Map<String, CandleSeries> out = new HashMap<>();
+            for (String s : batch) out.put(s, data.get(s));
+            return out;
+        }, streamed::add);
+
+        StrategyPlan plan = registry.plan("scr", null);
+        Map<String, Signal.Type> expected = new TreeMap<>();
+        for (var e : data.entrySet()) {
+            CandleSeries s = e.getValue();
+            if (s.size() < StrategyEngine.MIN_BARS) continue;
+            CandleSeries w = s.window(s.size() - 121, s.size()); // bars within 120 days of the last, inclusive
+            Signal sig = engine.evaluate(e.getKey(), w, List.of(plan)).get(0);
+            if (sig.getType() != Signal.Type.NEUTRAL) expected.put(e.getKey(), sig.getType());
+        }
+        Map<String, Signal.Type> got = new TreeMap<>();
+        for (ScreenResult.Match m : res.matches) got.put(m.symbol, m.signal.getType());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, got);
+        assertEquals(res.matches.size(), streamed.size());
+        assertEquals(300, res.stats.get("evaluated"));
+        assertEquals(1, res.stats.get("skipped"));
+        for (int i = 1; i < res.matches.size(); i++)
+            assertTrue(res.matches.get(i - 1).signal.getStrength() >= res.matches.get(i).signal.getStrength());
+    }
+
+    @Test
+    void topKAndTypeFilter() {
+        Map<String, CandleSeries> data = universe(200, 300);
+        ScreenRequest req = request();
+        req.types = List.of(Signal.Type.BUY);
+        req.topK = 5;
+        ScreenResult res = screener.screen(req, new ArrayList<>(data.keySet()), batch -> data, null);
+        assertTrue(res.matches.size() <= 5);
+        for (ScreenResult.Match m : res.matches) assertEquals(Signal.Type.BUY, m.signal.getType());
+        assertTrue((int) res.stats.get("matches") >= res.matches.size());
+    }
+
+    @Test
+    void rejectsUnknownStrategyAndOversizedUniverse() {
+        ScreenRequest req = new ScreenRequest();
+        req.strategy = "nope";
+        ResponseStatusException unknown = assertThrows(ResponseStatusException.class, () -> screener.screen(req, List.of("A"), b -> Map.of(), null));
+        assertEquals(HttpStatus.NOT_FOUND, unknown.getStatusCode());
+        ScreenerService small = new ScreenerService(null, engine, registry, 1, 8, 2, 1, 4);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> small.screen(request(), List.of("A", "B", "C"), b -> Map.of(), null));
+        } finally { small.shutdown(); }
+    }
+
+    @Test
+    void failingConsumerStopsTheScreen() {
+        Map<String, CandleSeries> data = universe(3000, 250);
+        ScreenRequest req = request();
+        AtomicInteger loads = new AtomicInteger();
+        ScreenerService.BatchLoader loader = batch -> { loads.incrementAndGet(); return data; };
+        int batches = (data.size() + 31) / 32;
+        assertThrows(UncheckedIOException.class, () -> screener.screen(req, new ArrayList<>(data.keySet()), loader,
+                m -> { throw new UncheckedIOException(new IOException("client gone")); }));
+        // only the batches already in flight (two per worker) plus at most one refill were loaded
+        assertTrue(loads.get() <= 4 * 2 + 1, "loads " + loads.get());
+        assertTrue(loads.get() < batches);
+    }
+
+    @Test
+    void streamingScreensQueueBoundedly() throws Exception {
+        ScreenerService one = new ScreenerService(null, engine, registry, 1, 8, 100, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ScreenRequest req = request();
+            ScreenerService.BatchLoader blocked = batch -> {
+                try { release.await(5, TimeUnit.SECONDS); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                return Map.of();
+            };
+            CompletableFuture<ScreenResult> running = one.screenAsync(req, List.of("A"), blocked, null);
+            CompletableFuture<ScreenResult> queued = one.screenAsync(req, List.of("B"), blocked, null);
+            assertThrows(RejectedExecutionException.class, () -> one.screenAsync(req, List.of("C"), blocked, null));
+            release.countDown();
+            assertEquals(1, running.get(5, TimeUnit.SECONDS).stats.get("skipped"));
+            assertEquals(1, queued.get(5, TimeUnit.SECONDS).stats.get("skipped"));
+        } finally { one.shutdown(); }
+    }
+}
@@ -0,0 +1,146 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.model.StrategyDefinition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignalPrecomputeServiceTest {
+    private static final long DAY = 86_400_000L;
+
+    /** Serves a fixed, appendable history and counts loads. */
+    static class FakeCandles extends CandleService {
+        final List<Candle> bars = new CopyOnWriteArrayList<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final Random rnd = new Random(5);
+        double price = 100;
+
+        FakeCandles() { super(null); }
+
+        void append(int n) {
+            long t0 = bars.isEmpty() ? Instant.parse("2024-01-01T00:00:00Z").toEpochMilli() : bars.get(bars.size() - 1).getTimestamp().toEpochMilli() + DAY;
+            for (int i = 0; i < n; i++) {
+                double o = price;
+                price = Math.max(1, price + rnd.nextGaussian());
+                bars.add(new Candle(Instant.ofEpochMilli(t0 + i * DAY), BigDecimal.valueOf(o), BigDecimal.valueOf(Math.max(o, price) + 0.5),
+                        BigDecimal.valueOf(Math.min(o, price) - 0.5), BigDecimal.valueOf(price), 1000));
+            }
+        }
+
+        Instant last() { return bars.get(bars.size() - 1).getTimestamp(); }
+
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            loads.incrementAndGet();
+            return new ArrayList<>(bars);
+        }
+    }
+
+    private final FakeCandles candles = new FakeCandles();
+    private final StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+    private final StrategyRegistry registry = new StrategyRegistry(new StrategyDSLService());
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final SignalPrecomputeService svc = new SignalPrecomputeService(candles, engine, registry, meters, 16, 60, 15, 120, 1);
+
+    @AfterEach
+    void tearDown() { svc.shutdown(); }
+
+    private static void await(java.util.function.BooleanSupplier cond) throws InterruptedException {
+        for (int i = 0; i < 200 && !cond.getAsBoolean(); i++) Thread.sleep(10);
+        assertTrue(cond.getAsBoolean());
+    }
+
+    @Test
+    void servesFromMemoryUntilNewBarLands() throws Exception {
+        candles.append(150);
+        List<Signal> first = svc.signals("AAA", "1d", SignalPrecomputeService.DEFAULT_PLAN);
+        List<Signal> again = svc.signals("AAA", "1d", SignalPrecomputeService.DEFAULT_PLAN);
+        assertSame(first, again);
+        assertEquals(1, candles.loads.get());
+        assertEquals(0.5, svc.hitRatio(), 1e-9);
+
+        // a tick inside the same daily bucket does not touch the entry
+        svc.onBar("AAA", candles.last().plusSeconds(60));
+        assertSame(first, svc.signals("AAA", "1d", SignalPrecomputeService.DEFAULT_PLAN));
+        assertEquals(1, candles.loads.get());
+
+        // a new daily bar triggers a background recompute; the next request is a hit on the new bar
+        candles.append(1);
+        svc.onBar("AAA", candles.last());
+        await(() -> candles.loads.get() == 2 && (long) svc.stats().get("recomputed") == 1);
+        List<Signal> next = svc.signals("AAA", "1d", SignalPrecomputeService.DEFAULT_PLAN);
+        assertEquals(2, candles.loads.get());
+        assertEquals(candles.last(), next.get(0).getTimestamp());
+        List<Signal> direct = engine.generateSignals("AAA", "1d", new ArrayList<>(candles.bars), SignalPrecomputeService.DEFAULT_PLAN);
+        assertEquals(direct.get(0).getType(), next.get(0).getType());
+        assertEquals(direct.get(0).getStrength(), next.get(0).getStrength(), 1e-9);
+
+        assertEquals(3.0, meters.get("signals_cache_hits_total").counter().count());
+        assertTrue(meters.get("signals_cache_staleness_ms").summary().count() >= 3);
+        assertTrue(meters.get("signals_cache_hit_ratio").gauge().value() > 0.5);
+    }
+
+    @Test
+    void invalidateAndRedefinitionForceRecompute() throws Exception {
+        candles.append(150);
+        Map<String, Object> dsl = new HashMap<>();
+        dsl.put("params", Map.of("emaShort", 10));
+        registry.register(new StrategyDefinition("s", "v1", dsl));
+        StrategyPlan plan = svc.plan("s", null);
+        svc.signals("BBB", "1d", plan);
+        svc.invalidate("BBB");
+        await(() -> candles.loads.get() == 2);
+
+        dsl.put("params", Map.of("emaShort", 12));
+        registry.register(new StrategyDefinition("s", "v1", dsl));
+        StrategyPlan redefined = svc.plan("s", null);
+        assertNotSame(plan, redefined);
+        await(() -> svc.stats().get("pending").equals(0));
+        int before = candles.loads.get();
+        svc.signals("BBB", "1d", redefined);
+        assertEquals(before + 1, candles.loads.get());
+        assertEquals(HttpStatus.NOT_FOUND, assertThrows(ResponseStatusException.class, () -> svc.plan("missing", null)).getStatusCode());
+    }
+
+    @Test
+    void multiEvaluatesMissesInOneLoadAndUntrackedEntriesAreDropped() throws Exception {
+        candles.append(150);
+        registry.register(new StrategyDefinition("a", "1", Map.of("params", Map.of("emaShort", 8))));
+        registry.register(new StrategyDefinition("b", "1", Map.of("params", Map.of("emaShort", 15))));
+        List<StrategyPlan> plans = List.of(svc.plan("a", null), svc.plan("b", null));
+        Map<String, Signal> out = svc.lastSignals("CCC", "1d", plans);
+        assertEquals(Set.of("a@1", "b@1"), out.keySet());
+        assertEquals(1, candles.loads.get());
+        assertEquals(out, svc.lastSignals("CCC", "1d", plans));
+        assertEquals(1, candles.loads.get());
+
+        SignalPrecomputeService untracked = new SignalPrecomputeService(candles, engine, registry, new SimpleMeterRegistry(), 16, 0, 15, 120, 1);
+        try {
+            untracked.signals("DDD", "1d", SignalPrecomputeService.DEFAULT_PLAN);
+            candles.append(1);
+            untracked.onBar("DDD", candles.last());
+            assertEquals(0, untracked.size());
+            assertEquals(1L, untracked.stats().get("dropped"));
+        } finally { untracked.shutdown(); }
+    }
+
+    @Test
+    void intervalParsing() {
+        assertEquals(1000L, CandleService.intervalMs("1s"));
+        assertEquals(300_000L, CandleService.intervalMs("5m"));
+        assertEquals(DAY, CandleService.intervalMs("1d"));
+        assertEquals(DAY, CandleService.intervalMs("bogus"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.Candle;
+import com.stocksanalyses.model.CandleSeries;
+import com.stocksanalyses.model.Signal;
+import com.stocksanalyses.model.StrategyConfig;
+import com.stocksanalyses.model.StrategyDefinition;
+import com.stocksanalyses.service.patterns.PatternScanner;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StrategyPlanTest {
+    private final StrategyEngine engine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+
+    private static List<Candle> candles(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<Candle> out = new ArrayList<>();
+        Instant t = Instant.parse("2022-01-01T00:00:00Z");
+        double p = 100;
+        for (int i = 0; i < n; i++) {
+            double o = p;
+            p = Math.max(1, p + rnd.nextGaussian());
+            out.add(new Candle(t.plusSeconds(86400L * i), BigDecimal.valueOf(o), BigDecimal.valueOf(Math.max(o, p) + rnd.nextDouble()),
+                    BigDecimal.valueOf(Math.min(o, p) - rnd.nextDouble()), BigDecimal.valueOf(p), 1000));
+        }
+        return out;
+    }
+
+    private static StrategyDefinition def(String id, String version, Map<String, Object> params) {
+        Map<String, Object> dsl = new HashMap<>();
+        dsl.put("name", id);
+        dsl.put("params", params);
+        return new StrategyDefinition(id, version, dsl);
+    }
+
+    @Test
+    void registryCachesPlansByIdAndVersion() {
+        StrategyRegistry registry = new StrategyRegistry(new StrategyDSLService());
+        registry.register(def("s", "v1", Map.of("emaShort", 10)));
+        registry.register(def("s", "v2", Map.of("emaShort", 15)));
+        StrategyPlan latest = registry.plan("s", null);
+        assertEquals("v2", latest.version);
+        assertEquals(15, latest.params.emaShort);
+        assertSame(latest, registry.plan("s", "v2"));
+        assertEquals(10, registry.plan("s", "v1").params.emaShort);
+        assertNull(registry.plan("missing", null));
+
+        registry.register(def("s", "v2", Map.of("emaShort", 30)));
+        assertNotSame(latest, registry.plan("s", "v2"));
+        assertEquals(30, registry.plan("s", "v2").params.emaShort);
+    }
+
+    @Test
+    void compileTypesParamsAndPatternsFromTheDslConfig() {
+        Map<String, Object> dsl = new HashMap<>();
+        dsl.put("name", "x");
+        dsl.put("params", Map.of("macdFast", 8, "atrMult", 3.5, "patterns", Map.of("doji", Map.of("weight", 0.5))));
+        StrategyDefinition def = new StrategyDefinition("x", "1", dsl);
+        StrategyPlan plan = StrategyPlan.compile(def, new StrategyDSLService().toConfig(def, dsl));
+        assertEquals(8, plan.params.macdFast);
+        assertEquals(3.5, plan.params.atrMult);
+        assertEquals(0.5, plan.weight(PatternScanner.Pattern.DOJI));
+        assertEquals(1.0, plan.weight(PatternScanner.Pattern.HAMMER));
+    }
+
+    @Test
+    void sharedIndicatorsAreComputedOnce() {
+        StrategyPlan a = StrategyPlan.of(new StrategyConfig("a", Map.of("emaShort", 12, "emaLong", 26)));
+        StrategyPlan b = StrategyPlan.of(new StrategyConfig("b", Map.of("emaShort", 12, "emaLong", 50)));
+        // a: ema12, ema26, macdSignal(12,26,9) -- its MACD EMAs coincide with its trend EMAs
+        assertEquals(3, a.indicators().size());
+        IndicatorGraph graph = new IndicatorGraph(List.of(a, b));
+        assertEquals(4, graph.size()); // ema12, ema26, macdSignal, ema50
+    }
+
+    @Test
+    void evaluateMatchesPerConfigSignals() {
+        List<Candle> list = candles(400, 3);
+        CandleSeries series = CandleSeries.of(list);
+        List<StrategyConfig> configs = List.of(
+                new StrategyConfig("a", Map.of()),
+                new StrategyConfig("b", Map.of("emaShort", 12, "emaLong", 26, "minPatternScore", 0.0)),
+                new StrategyConfig("c", Map.of("emaShort", 5, "macdFast", 5, "macdSlow", 35, "macdSignal", 5,
+                        "patterns", Map.of("hammer", Map.of("weight", 3.0)))));
+        List<StrategyPlan> plans = new ArrayList<>();
+        for (StrategyConfig c : configs) plans.add(StrategyPlan.of(c));
+
+        for (int end = 60; end <= list.size(); end += 17) {
+            CandleSeries prefix = series.prefix(end);
+            List<Signal> multi = engine.evaluate("T", prefix, plans);
+            assertEquals(plans.size(), multi.size());
+            for (int k = 0; k < configs.size(); k++) {
+                Signal ref = engine.generateSignals("T", list.subList(0, end), configs.get(k)).get(0);
+                Signal got = multi.get(k);
+                assertEquals(ref.getType(), got.getType(), "end " + end + " plan " + k);
+                assertEquals(ref.getStrength(), got.getStrength(), 1e-9);
+                assertEquals(ref.getRulesFired().size(), got.getRulesFired().size());
+            }
+        }
+        assertTrue(engine.evaluate("T", series.prefix(10), plans).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package com.stocksanalyses.service;
+
+import com.stocksanalyses.model.*;
+import com.stocksanalyses.service.backtest.BacktestEngine;
+import com.stocksanalyses.service.backtest.WalkForwardEngine;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalkForwardEngineTest {
+    private final CandleService candles = new CandleService(null) {
+        @Override
+        public List<Candle> getCandles(String symbol, String interval, Instant start, Instant end) {
+            List<Candle> list = new ArrayList<>();
+            Instant base = Instant.parse("2022-01-03T00:00:00Z");
+            Random rnd = new Random(3);
+            double px = 100;
+            for (int i=0;i<600;i++){
+                double open = px;
+                double close = Math.max(1, open + Math.sin(i / 10.0) * 1.5 + (rnd.nextDouble() - 0.5) * 2);
+                double high = Math.max(open, close) + rnd.nextDouble();
+                double low = Math.min(open, close) - rnd.nextDouble();
+                list.add(new Candle(base.plusSeconds(86400L*i), bd(open), bd(high), bd(low), bd(close), 1000));
+                px = close;
+            }
+            return list;
+        }
+    };
+    private final StrategyEngine strategyEngine = new StrategyEngine(new IndicatorService(), new RiskManager(), new PositionSizer());
+
+    private BigDecimal bd(double v){ return BigDecimal.valueOf(Math.round(v * 100) / 100.0); }
+
+    private WalkForwardRequest request() {
+        WalkForwardRequest req = new WalkForwardRequest();
+        req.base = new BacktestRequest();
+        req.base.universe = List.of("T");
+        req.base.skipWeekends = false;
+        req.base.strategyConfig = new StrategyConfig("ema-macd", Map.of("minPatternScore", 0.0));
+        req.grid = Map.of("emaShort", List.of(5, 10, 20), "emaLong", List.of(30, 60));
+        req.inSampleBars = 200;
+        req.outOfSampleBars = 50;
+        req.rankBy = "return";
+        return req;
+    }
+
+    @Test
+    void rollsFoldsAndPicksInSampleBest() {
+        WalkForwardEngine engine = new WalkForwardEngine(new BacktestEngine(candles, strategyEngine), strategyEngine, 4, 1000);
+        WalkForwardResult a = engine.run(request());
+        WalkForwardResult b = engine.run(request());
+        engine.shutdown();
+
+        assertEquals((600 - 250) / 50 + 1, a.folds.size());
+        for (int k = 0; k < a.folds.size(); k++) {
+            WalkForwardResult.Fold f = a.folds.get(k);
+            assertEquals(k, f.index);
+            assertTrue(f.inSampleEnd.compareTo(f.outOfSampleStart) < 0);
+            assertTrue(List.of(5, 10, 20).contains(f.bestParams.get("emaShort")));
+            assertEquals(f.bestParams, b.folds.get(k).bestParams);
+            assertEquals(f.outOfSampleScore, b.folds.get(k).outOfSampleScore, 0.0);
+        }
+        assertEquals(a.folds.size(), a.summary.get("folds"));
+    }
+
+    @Test
+    void rejectsHistoryShorterThanOneFold() {
+        WalkForwardEngine engine = new WalkForwardEngine(new BacktestEngine(candles, strategyEngine), strategyEngine, 1, 1000);
+        WalkForwardRequest req = request();
+        req.inSampleBars = 590;
+        assertThrows(IllegalArgumentException.class, () -> engine.run(req));
+        engine.shutdown();
+    }
+}